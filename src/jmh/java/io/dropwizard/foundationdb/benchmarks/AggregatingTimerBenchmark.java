@@ -0,0 +1,73 @@
+package io.dropwizard.foundationdb.benchmarks;
+
+import com.codahale.metrics.Timer;
+import io.dropwizard.foundationdb.instrumented.AggregatingTimer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares a synchronous {@link Timer} with an {@link AggregatingTimer} when every thread records into the same timer,
+ * as the threads of a busy application do with the timers of its database. The aggregating timer is flushed every
+ * second, as by default, so that the cost of flushing is part of the measurement.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(32)
+@Fork(1)
+public class AggregatingTimerBenchmark {
+    /**
+     * Whether the timer is updated synchronously or aggregated, see the metrics aggregation of the factories.
+     */
+    @Param({"false", "true"})
+    public boolean aggregated;
+
+    private Timer timer;
+    private ScheduledExecutorService scheduler;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        if (aggregated) {
+            final AggregatingTimer aggregatingTimer = new AggregatingTimer(Runtime.getRuntime().availableProcessors());
+            scheduler.scheduleAtFixedRate(aggregatingTimer::flush, 1, 1, TimeUnit.SECONDS);
+            timer = aggregatingTimer;
+        } else {
+            timer = new Timer();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Benchmark
+    public void update() {
+        timer.update(1_000L, TimeUnit.NANOSECONDS);
+    }
+
+    @Benchmark
+    public long updateAndCount() {
+        timer.update(1_000L, TimeUnit.NANOSECONDS);
+        return timer.getCount();
+    }
+}
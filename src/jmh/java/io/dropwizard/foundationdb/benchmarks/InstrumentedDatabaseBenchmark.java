@@ -0,0 +1,122 @@
+package io.dropwizard.foundationdb.benchmarks;
+
+import com.apple.foundationdb.Database;
+import com.apple.foundationdb.Transaction;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import io.dropwizard.foundationdb.instrumented.InstrumentedDatabase;
+import io.dropwizard.foundationdb.instrumented.MetricsAggregator;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the overhead {@link InstrumentedDatabase} adds to each call, by comparing it with the stub database it
+ * wraps. The wrapped database is shared by every benchmark thread, as it is by an application, so running with more
+ * threads ({@code -t}) shows the contention on its metrics.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InstrumentedDatabaseBenchmark {
+    /**
+     * Whether the timers are updated synchronously or aggregated, see the metrics aggregation of the factories.
+     */
+    @Param({"false", "true"})
+    public boolean aggregated;
+
+    private Database database;
+    private InstrumentedDatabase instrumentedDatabase;
+    @Nullable
+    private MetricsAggregator aggregator;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        aggregator = aggregated ? Stubs.startAggregator() : null;
+        final MetricRegistry.MetricSupplier<Timer> timerSupplier = aggregator == null
+                ? Timer::new
+                : aggregator.timerSupplier();
+
+        database = Stubs.database();
+        instrumentedDatabase = InstrumentedDatabase.builder(database, new MetricRegistry(), "FoundationDB")
+                .setTimerSupplier(timerSupplier)
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        if (aggregator != null) {
+            aggregator.stop();
+        }
+    }
+
+    @Benchmark
+    public Object baselineRun() {
+        return run(database);
+    }
+
+    @Benchmark
+    public Object instrumentedRun() {
+        return run(instrumentedDatabase);
+    }
+
+    @Benchmark
+    public Object baselineReadAsync() {
+        return readAsync(database);
+    }
+
+    @Benchmark
+    public Object instrumentedReadAsync() {
+        return readAsync(instrumentedDatabase);
+    }
+
+    @Benchmark
+    public Object baselineTransaction() {
+        return transaction(database);
+    }
+
+    @Benchmark
+    public Object instrumentedTransaction() {
+        return transaction(instrumentedDatabase);
+    }
+
+    private static Object run(final Database database) {
+        return database.run(transaction -> {
+            transaction.set(Stubs.KEY, Stubs.VALUE);
+            return null;
+        }, Stubs.DIRECT);
+    }
+
+    private static Object readAsync(final Database database) {
+        final CompletableFuture<byte[]> value = database.readAsync(transaction -> transaction.get(Stubs.KEY),
+                Stubs.DIRECT);
+        return value.join();
+    }
+
+    private static Object transaction(final Database database) {
+        try (Transaction transaction = database.createTransaction(Stubs.DIRECT)) {
+            transaction.set(Stubs.KEY, Stubs.VALUE);
+            final byte[] value = transaction.get(Stubs.KEY).join();
+            transaction.commit().join();
+            return value;
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package io.dropwizard.foundationdb.benchmarks;
+
+import com.apple.foundationdb.record.provider.foundationdb.FDBDatabase;
+import com.apple.foundationdb.record.provider.foundationdb.FDBDatabaseFactory;
+import com.apple.foundationdb.record.provider.foundationdb.FDBStoreTimer;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import io.dropwizard.foundationdb.instrumented.InstrumentedFDBDatabase;
+import io.dropwizard.foundationdb.instrumented.MetricsAggregator;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the overhead {@link InstrumentedFDBDatabase} adds to each retry loop, including the instrumentation of the
+ * store timer handed to the loop, by comparing it with the stub database it wraps.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InstrumentedFDBDatabaseBenchmark {
+    /**
+     * Whether the timers are updated synchronously or aggregated, see the metrics aggregation of the factories.
+     */
+    @Param({"false", "true"})
+    public boolean aggregated;
+
+    private FDBDatabase database;
+    private InstrumentedFDBDatabase instrumentedDatabase;
+    private FDBStoreTimer timer;
+    @Nullable
+    private MetricsAggregator aggregator;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        aggregator = aggregated ? Stubs.startAggregator() : null;
+        final MetricRegistry.MetricSupplier<Timer> timerSupplier = aggregator == null
+                ? Timer::new
+                : aggregator.timerSupplier();
+
+        database = new Stubs.StubFDBDatabase();
+        instrumentedDatabase = new InstrumentedFDBDatabase(FDBDatabaseFactory.instance(), null, database,
+                new MetricRegistry(), "RecordLayer", timerSupplier);
+        timer = new FDBStoreTimer();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        if (aggregator != null) {
+            aggregator.stop();
+        }
+    }
+
+    @Benchmark
+    public Object baselineRun() {
+        return database.run(timer, null, context -> Stubs.VALUE);
+    }
+
+    @Benchmark
+    public Object instrumentedRun() {
+        return instrumentedDatabase.run(timer, null, context -> Stubs.VALUE);
+    }
+
+    /**
+     * Runs the loops of a request, which creates a timer of its own and passes it to each of them.
+     */
+    @Benchmark
+    public Object baselineRequest() {
+        return request(database);
+    }
+
+    @Benchmark
+    public Object instrumentedRequest() {
+        return request(instrumentedDatabase);
+    }
+
+    @Benchmark
+    public Object baselineRunAsync() {
+        return database.runAsync(timer, null, context -> CompletableFuture.completedFuture(Stubs.VALUE)).join();
+    }
+
+    @Benchmark
+    public Object instrumentedRunAsync() {
+        return instrumentedDatabase.runAsync(timer, null, context -> CompletableFuture.completedFuture(Stubs.VALUE))
+                .join();
+    }
+
+    private static Object request(final FDBDatabase database) {
+        final FDBStoreTimer requestTimer = new FDBStoreTimer();
+        database.run(requestTimer, null, context -> Stubs.VALUE);
+        database.run(requestTimer, null, context -> Stubs.VALUE);
+        return database.run(requestTimer, null, context -> Stubs.VALUE);
+    }
+}
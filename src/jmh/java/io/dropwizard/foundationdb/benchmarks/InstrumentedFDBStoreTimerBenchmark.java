@@ -0,0 +1,87 @@
+package io.dropwizard.foundationdb.benchmarks;
+
+import com.apple.foundationdb.record.provider.foundationdb.FDBStoreTimer;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import io.dropwizard.foundationdb.instrumented.InstrumentedFDBStoreTimer;
+import io.dropwizard.foundationdb.instrumented.MetricsAggregator;
+import io.dropwizard.foundationdb.instrumented.StoreTimerMetrics;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the overhead {@link InstrumentedFDBStoreTimer} adds to every event recorded by the Record Layer, by
+ * comparing it with the timer it wraps.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InstrumentedFDBStoreTimerBenchmark {
+    /**
+     * Whether the timers are updated synchronously or aggregated, see the metrics aggregation of the factories.
+     */
+    @Param({"false", "true"})
+    public boolean aggregated;
+
+    private FDBStoreTimer timer;
+    private InstrumentedFDBStoreTimer instrumentedTimer;
+    @Nullable
+    private MetricsAggregator aggregator;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        aggregator = aggregated ? Stubs.startAggregator() : null;
+        final MetricRegistry.MetricSupplier<Timer> timerSupplier = aggregator == null
+                ? Timer::new
+                : aggregator.timerSupplier();
+
+        timer = new FDBStoreTimer();
+        instrumentedTimer = new InstrumentedFDBStoreTimer(new FDBStoreTimer(),
+                new StoreTimerMetrics(new MetricRegistry(), "RecordLayer", timerSupplier));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        if (aggregator != null) {
+            aggregator.stop();
+        }
+    }
+
+    @Benchmark
+    public void baselineRecord() {
+        timer.record(FDBStoreTimer.Events.COMMIT, 1_000L);
+    }
+
+    @Benchmark
+    public void instrumentedRecord() {
+        instrumentedTimer.record(FDBStoreTimer.Events.COMMIT, 1_000L);
+    }
+
+    @Benchmark
+    public void baselineIncrement() {
+        timer.increment(FDBStoreTimer.Counts.SAVE_RECORD_KEY);
+    }
+
+    @Benchmark
+    public void instrumentedIncrement() {
+        instrumentedTimer.increment(FDBStoreTimer.Counts.SAVE_RECORD_KEY);
+    }
+}
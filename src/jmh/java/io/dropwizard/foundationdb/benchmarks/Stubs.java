@@ -0,0 +1,154 @@
+package io.dropwizard.foundationdb.benchmarks;
+
+import com.apple.foundationdb.Database;
+import com.apple.foundationdb.Transaction;
+import com.apple.foundationdb.record.provider.foundationdb.FDBDatabase;
+import com.apple.foundationdb.record.provider.foundationdb.FDBDatabaseFactory;
+import com.apple.foundationdb.record.provider.foundationdb.FDBRecordContext;
+import com.apple.foundationdb.record.provider.foundationdb.FDBStoreTimer;
+import com.apple.foundationdb.tuple.Tuple;
+
+import io.dropwizard.foundationdb.instrumented.MetricsAggregator;
+import io.dropwizard.util.Duration;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Function;
+
+/**
+ * Databases which never reach a cluster, so that the benchmarks only measure the wrappers around them. Retryables are
+ * run once, in the calling thread, against a transaction whose reads complete right away.
+ */
+final class Stubs {
+    static final byte[] KEY = Tuple.from("benchmark", "key").pack();
+    static final byte[] VALUE = Tuple.from("value").pack();
+    static final Executor DIRECT = Runnable::run;
+
+    private Stubs() {
+    }
+
+    static Database database() {
+        final Transaction transaction = proxy(Transaction.class, Stubs::stubTransaction);
+        return proxy(Database.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "createTransaction":
+                    return transaction;
+                case "read":
+                case "readAsync":
+                case "run":
+                case "runAsync":
+                    return Stubs.<Object, Object>retryable(args[0]).apply(transaction);
+                case "getExecutor":
+                    return DIRECT;
+                default:
+                    return stubObject(proxy, method, args);
+            }
+        });
+    }
+
+    /**
+     * Starts an aggregator flushing its timers on a daemon thread, as enabled by the metrics aggregation of the
+     * factories. It must be stopped once the benchmark is over.
+     */
+    static MetricsAggregator startAggregator() throws Exception {
+        final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "benchmark-metrics-aggregator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        final MetricsAggregator aggregator = new MetricsAggregator(scheduler, Duration.seconds(1),
+                Runtime.getRuntime().availableProcessors(), "benchmark");
+        aggregator.start();
+        return aggregator;
+    }
+
+    private static Object stubTransaction(final Object proxy, final Method method, final Object[] args) {
+        switch (method.getName()) {
+            case "get":
+                return CompletableFuture.completedFuture(VALUE);
+            case "snapshot":
+                return proxy;
+            default:
+                return stubObject(proxy, method, args);
+        }
+    }
+
+    @Nullable
+    private static Object stubObject(final Object proxy, final Method method, final Object[] args) {
+        switch (method.getName()) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "toString":
+                return "Stub" + proxy.getClass().getInterfaces()[0].getSimpleName();
+            default:
+                break;
+        }
+
+        final Class<?> type = method.getReturnType();
+        if (type == CompletableFuture.class) {
+            return CompletableFuture.completedFuture(null);
+        } else if (type == boolean.class) {
+            return false;
+        } else if (type == long.class) {
+            return 0L;
+        } else if (type == int.class) {
+            return 0;
+        } else if (type == double.class) {
+            return 0.0;
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <C, T> Function<C, T> retryable(final Object retryable) {
+        return (Function<C, T>) retryable;
+    }
+
+    private static <T> T proxy(final Class<T> type, final InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(Stubs.class.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+
+    /**
+     * An {@link FDBDatabase} running its retriables once, without a record context, and recording a commit into the
+     * timer it is given.
+     */
+    static class StubFDBDatabase extends FDBDatabase {
+        StubFDBDatabase() {
+            super(FDBDatabaseFactory.instance(), null);
+        }
+
+        @Override
+        public <T> T run(@Nullable final FDBStoreTimer timer,
+                         @Nullable final Map<String, String> mdcContext,
+                         final Function<? super FDBRecordContext, ? extends T> retriable) {
+            final long startTime = System.nanoTime();
+            final T result = retriable.apply(null);
+            if (timer != null) {
+                timer.recordSinceNanoTime(FDBStoreTimer.Events.COMMIT, startTime);
+            }
+            return result;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T> CompletableFuture<T> runAsync(@Nullable final FDBStoreTimer timer,
+                                                 @Nullable final Map<String, String> mdcContext,
+                                                 final Function<? super FDBRecordContext, CompletableFuture<? extends T>> retriable) {
+            final long startTime = System.nanoTime();
+            final CompletableFuture<T> result = (CompletableFuture<T>) retriable.apply(null);
+            if (timer != null) {
+                timer.recordSinceNanoTime(FDBStoreTimer.Events.COMMIT, startTime);
+            }
+            return result;
+        }
+    }
+}
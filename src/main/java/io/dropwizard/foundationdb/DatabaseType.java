@@ -0,0 +1,18 @@
+package io.dropwizard.foundationdb;
+
+import io.dropwizard.foundationdb.memory.InMemoryDatabase;
+
+/**
+ * The kind of database built by a {@link FoundationDBFactory}.
+ */
+public enum DatabaseType {
+    /**
+     * A FoundationDB cluster, reached through its cluster file.
+     */
+    FOUNDATIONDB,
+    /**
+     * An {@link InMemoryDatabase} within the application, for tests and load tests which should run without a cluster.
+     * Nothing is persisted.
+     */
+    IN_MEMORY
+}
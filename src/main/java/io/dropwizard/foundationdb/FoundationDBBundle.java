@@ -2,21 +2,53 @@ package io.dropwizard.foundationdb;
 
 import com.apple.foundationdb.Database;
 
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
 import io.dropwizard.core.Configuration;
 import io.dropwizard.core.ConfiguredBundle;
 import io.dropwizard.core.setup.Bootstrap;
 import io.dropwizard.core.setup.Environment;
+import io.dropwizard.foundationdb.batch.BatchingWriter;
+import io.dropwizard.foundationdb.cache.CachingDatabase;
+import io.dropwizard.foundationdb.directory.DirectoryCache;
+import io.dropwizard.foundationdb.instrumented.InstrumentedDatabase;
+import io.dropwizard.foundationdb.metadata.MetadataVersionCache;
+import io.dropwizard.foundationdb.profile.TransactionProfileFactory;
+import io.dropwizard.foundationdb.scan.RangeScanner;
+import io.dropwizard.foundationdb.status.ClusterStatusCollector;
+import io.dropwizard.foundationdb.tenant.TenantCache;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.Executor;
 
-
 import static java.util.Objects.requireNonNull;
 
 public abstract class FoundationDBBundle<T extends Configuration> implements ConfiguredBundle<T> {
     @Nullable
     private Database database;
 
+    @Nullable
+    private BatchingWriter batchingWriter;
+
+    @Nullable
+    private RangeScanner rangeScanner;
+
+    @Nullable
+    private TenantCache tenantCache;
+
+    @Nullable
+    private DirectoryCache directoryCache;
+
+    @Nullable
+    private ClusterStatusCollector clusterStatusCollector;
+
+    private final Map<String, Database> profiles = new HashMap<>();
+
+    private final Map<String, MetadataVersionCache<?, ?>> metadataCaches = new HashMap<>();
+
     @Nullable
     private final Executor executor;
 
@@ -39,6 +71,39 @@ public abstract class FoundationDBBundle<T extends Configuration> implements Con
 
         this.database = requireNonNull(foundationDBFactory.build(environment.metrics(), environment.lifecycle(),
                 environment.healthChecks(), executor));
+
+        this.batchingWriter = foundationDBFactory.getBatchingWriter()
+                .map(writerFactory -> writerFactory.build(getDatabase(), environment.metrics(), environment.lifecycle(),
+                        foundationDBFactory.getName()))
+                .orElse(null);
+
+        this.rangeScanner = foundationDBFactory.getRangeScanner()
+                .map(scannerFactory -> scannerFactory.build(getDatabase(), environment.metrics(), environment.lifecycle(),
+                        foundationDBFactory.getName()))
+                .orElse(null);
+
+        this.tenantCache = foundationDBFactory.getTenantCache()
+                .map(cacheFactory -> cacheFactory.build(getDatabase(), environment.metrics(), environment.lifecycle(),
+                        foundationDBFactory.getName()))
+                .orElse(null);
+
+        this.directoryCache = foundationDBFactory.getBuiltDirectoryCache().orElse(null);
+
+        this.clusterStatusCollector = foundationDBFactory.getClusterStatusCollector().orElse(null);
+
+        final Map<String, TransactionProfileFactory> profileFactories = foundationDBFactory.getProfiles();
+        if (!profileFactories.isEmpty()) {
+            final String profilesName = MetricRegistry.name(foundationDBFactory.getName(), "profiles");
+            final MetricRegistry.MetricSupplier<Timer> timerSupplier = foundationDBFactory.getMetricsAggregation()
+                    .build(environment.lifecycle(), profilesName);
+            profileFactories.forEach((profile, profileFactory) -> profiles.put(profile, profileFactory.build(
+                    getInstrumentedDatabase(), environment.metrics(), timerSupplier,
+                    MetricRegistry.name(profilesName, profile))));
+        }
+
+        foundationDBFactory.getMetadataCaches().forEach((cache, cacheFactory) -> metadataCaches.put(cache,
+                cacheFactory.build(getDatabase(), environment.metrics(),
+                        MetricRegistry.name(foundationDBFactory.getName(), "metadataCaches", cache))));
     }
 
     public abstract FoundationDBFactory getFoundationDBFactory(T configuration);
@@ -46,4 +111,113 @@ public abstract class FoundationDBBundle<T extends Configuration> implements Con
     public Database getDatabase() {
         return requireNonNull(database);
     }
+
+    /**
+     * @return the database whose transactions use the named profile, instrumented under
+     * {@code <name>.profiles.<profile>}
+     * @throws IllegalArgumentException if no such profile has been configured
+     */
+    public Database getDatabase(final String profile) {
+        final Database profileDatabase = profiles.get(profile);
+        if (profileDatabase == null) {
+            throw new IllegalArgumentException("No transaction profile is configured with the name " + profile);
+        }
+        return profileDatabase;
+    }
+
+    /**
+     * @return the named cache of objects derived from the database, checked against its metadata version, with metrics
+     * under {@code <name>.metadataCaches.<cache>}
+     * @throws IllegalArgumentException if no such cache has been configured
+     */
+    @SuppressWarnings("unchecked")
+    public <K, V> MetadataVersionCache<K, V> getMetadataCache(final String cache) {
+        final MetadataVersionCache<?, ?> metadataCache = metadataCaches.get(cache);
+        if (metadataCache == null) {
+            throw new IllegalArgumentException("No metadata cache is configured with the name " + cache);
+        }
+        return (MetadataVersionCache<K, V>) metadataCache;
+    }
+
+    /**
+     * @return the instrumented database, for its workload and read version staleness overloads, which is wrapped by the
+     * {@link #getCachingDatabase() caching database} when a read cache has been configured
+     * @throws IllegalStateException if the factory did not instrument the database
+     */
+    public InstrumentedDatabase getInstrumentedDatabase() {
+        final Database actualDatabase = getDatabase() instanceof CachingDatabase
+                ? ((CachingDatabase) getDatabase()).getDatabase()
+                : getDatabase();
+        if (!(actualDatabase instanceof InstrumentedDatabase)) {
+            throw new IllegalStateException("The database is not instrumented");
+        }
+        return (InstrumentedDatabase) actualDatabase;
+    }
+
+    /**
+     * @return the database, when a read cache has been configured
+     * @throws IllegalStateException if no read cache has been configured
+     */
+    public CachingDatabase getCachingDatabase() {
+        final Database actualDatabase = getDatabase();
+        if (!(actualDatabase instanceof CachingDatabase)) {
+            throw new IllegalStateException("No read cache is configured for the database");
+        }
+        return (CachingDatabase) actualDatabase;
+    }
+
+    /**
+     * @return the batching writer of the database
+     * @throws IllegalStateException if no batching writer has been configured
+     */
+    public BatchingWriter getBatchingWriter() {
+        if (batchingWriter == null) {
+            throw new IllegalStateException("No batching writer is configured for the database");
+        }
+        return batchingWriter;
+    }
+
+    /**
+     * @return the range scanner of the database
+     * @throws IllegalStateException if no range scanner has been configured
+     */
+    public RangeScanner getRangeScanner() {
+        if (rangeScanner == null) {
+            throw new IllegalStateException("No range scanner is configured for the database");
+        }
+        return rangeScanner;
+    }
+
+    /**
+     * @return the cache of tenant handles of the database
+     * @throws IllegalStateException if no tenant cache has been configured
+     */
+    public TenantCache getTenantCache() {
+        if (tenantCache == null) {
+            throw new IllegalStateException("No tenant cache is configured for the database");
+        }
+        return tenantCache;
+    }
+
+    /**
+     * @return the cache of the directory subspaces of the database
+     * @throws IllegalStateException if no directory cache has been configured
+     */
+    public DirectoryCache getDirectoryCache() {
+        if (directoryCache == null) {
+            throw new IllegalStateException("No directory cache is configured for the database");
+        }
+        return directoryCache;
+    }
+
+    /**
+     * @return the collector of the cluster status of the database
+     * @throws IllegalStateException if no cluster status collection has been configured
+     */
+    public ClusterStatusCollector getClusterStatusCollector() {
+        if (clusterStatusCollector == null) {
+            throw new IllegalStateException("No cluster status collection is configured for the database");
+        }
+        return clusterStatusCollector;
+    }
 }
@@ -0,0 +1,232 @@
+package io.dropwizard.foundationdb;
+
+import com.apple.foundationdb.Database;
+import com.apple.foundationdb.FDB;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.health.HealthCheck;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.dropwizard.foundationdb.client.MultiThreadedClientFactory;
+import io.dropwizard.foundationdb.executor.ExecutorFactory;
+import io.dropwizard.foundationdb.health.FoundationDBHealthCheck;
+import io.dropwizard.foundationdb.health.HealthProbeFactory;
+import io.dropwizard.foundationdb.instrumented.MainThreadBusynessSampler;
+import io.dropwizard.foundationdb.instrumented.MetricsAggregationFactory;
+import io.dropwizard.foundationdb.security.SecurityFactory;
+import io.dropwizard.lifecycle.setup.LifecycleEnvironment;
+import io.dropwizard.util.Duration;
+import io.dropwizard.validation.MinDuration;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+
+/**
+ * The configuration shared by the factories of databases using the FoundationDB client: the options of its network,
+ * such as the api version, security and multi-threaded client, and the executor, health checks and metrics of the
+ * databases opened through it.
+ */
+public abstract class FoundationDBClientFactory {
+    @NotEmpty
+    @JsonProperty
+    private String name = "FoundationDB";
+    @Min(100L)
+    @JsonProperty
+    private int apiVersion = 600;
+    @Valid
+    @JsonProperty
+    private Optional<SecurityFactory> security = Optional.empty();
+    @Valid
+    @JsonProperty
+    private Optional<MultiThreadedClientFactory> multiThreadedClient = Optional.empty();
+    @JsonProperty
+    private boolean busynessHistogram = false;
+    @NotNull
+    @MinDuration(value = 1, unit = TimeUnit.MILLISECONDS)
+    @JsonProperty
+    private Duration busynessSampleInterval = Duration.seconds(1);
+    @Valid
+    @JsonProperty("executor")
+    private Optional<ExecutorFactory> executorFactory = Optional.empty();
+    @Min(0)
+    @JsonProperty
+    private int healthCheckRetries = 5;
+    @NotNull
+    @JsonProperty
+    private Duration healthCheckTimeout = Duration.seconds(5);
+    @NotNull
+    @JsonProperty
+    private String healthCheckSubspace = "health-checking";
+    @Valid
+    @JsonProperty
+    private Optional<HealthProbeFactory> healthProbe = Optional.empty();
+    @Valid
+    @NotNull
+    @JsonProperty
+    private MetricsAggregationFactory metricsAggregation = new MetricsAggregationFactory();
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(final String name) {
+        this.name = name;
+    }
+
+    public int getApiVersion() {
+        return apiVersion;
+    }
+
+    public void setApiVersion(final int apiVersion) {
+        this.apiVersion = apiVersion;
+    }
+
+    public Optional<SecurityFactory> getSecurity() {
+        return security;
+    }
+
+    public void setSecurity(final Optional<SecurityFactory> security) {
+        this.security = security;
+    }
+
+    public Optional<MultiThreadedClientFactory> getMultiThreadedClient() {
+        return multiThreadedClient;
+    }
+
+    public void setMultiThreadedClient(final Optional<MultiThreadedClientFactory> multiThreadedClient) {
+        this.multiThreadedClient = multiThreadedClient;
+    }
+
+    /**
+     * @return whether to sample the busyness of the network threads into the {@code MainThreadBusynessPercent}
+     * histogram, which takes a thread of its own
+     */
+    public boolean isBusynessHistogram() {
+        return busynessHistogram;
+    }
+
+    public void setBusynessHistogram(final boolean busynessHistogram) {
+        this.busynessHistogram = busynessHistogram;
+    }
+
+    public Duration getBusynessSampleInterval() {
+        return busynessSampleInterval;
+    }
+
+    public void setBusynessSampleInterval(final Duration busynessSampleInterval) {
+        this.busynessSampleInterval = busynessSampleInterval;
+    }
+
+    /**
+     * @return the executor running the callbacks of the databases, used when no executor is given to {@code build}
+     */
+    public Optional<ExecutorFactory> getExecutorFactory() {
+        return executorFactory;
+    }
+
+    public void setExecutorFactory(final Optional<ExecutorFactory> executorFactory) {
+        this.executorFactory = executorFactory;
+    }
+
+    public int getHealthCheckRetries() {
+        return healthCheckRetries;
+    }
+
+    public void setHealthCheckRetries(final int healthCheckRetries) {
+        this.healthCheckRetries = healthCheckRetries;
+    }
+
+    public Duration getHealthCheckTimeout() {
+        return healthCheckTimeout;
+    }
+
+    public void setHealthCheckTimeout(final Duration healthCheckTimeout) {
+        this.healthCheckTimeout = healthCheckTimeout;
+    }
+
+    public String getHealthCheckSubspace() {
+        return healthCheckSubspace;
+    }
+
+    public void setHealthCheckSubspace(final String healthCheckSubspace) {
+        this.healthCheckSubspace = healthCheckSubspace;
+    }
+
+    /**
+     * @return the background probing of the clusters, replacing the health checks polling them on demand
+     */
+    public Optional<HealthProbeFactory> getHealthProbe() {
+        return healthProbe;
+    }
+
+    public void setHealthProbe(final Optional<HealthProbeFactory> healthProbe) {
+        this.healthProbe = healthProbe;
+    }
+
+    public MetricsAggregationFactory getMetricsAggregation() {
+        return metricsAggregation;
+    }
+
+    public void setMetricsAggregation(final MetricsAggregationFactory metricsAggregation) {
+        this.metricsAggregation = metricsAggregation;
+    }
+
+    /**
+     * @return the given executor, or else the configured one, or else the default executor
+     */
+    protected Executor buildExecutor(@Nullable final Executor executor,
+                                     final LifecycleEnvironment lifecycle,
+                                     final MetricRegistry metrics,
+                                     final Executor defaultExecutor) {
+        if (executor != null) {
+            return executor;
+        }
+        return executorFactory.<Executor>map(executorConf -> executorConf.build(lifecycle, metrics, name))
+                .orElse(defaultExecutor);
+    }
+
+    /**
+     * Selects the api version of the client, and sets the options of its network.
+     */
+    protected FDB selectAPIVersion() {
+        final FDB fdb = FDB.selectAPIVersion(apiVersion);
+
+        security.filter(SecurityFactory::isEnabled)
+                .ifPresent(securityConf -> securityConf.addSecurityConfigurations(fdb.options()));
+
+        multiThreadedClient.ifPresent(clientConf -> clientConf.addNetworkOptions(fdb.options()));
+
+        return fdb;
+    }
+
+    /**
+     * @return the health probe of the database if one is configured, or else a health check polling it on demand
+     */
+    protected HealthCheck buildHealthCheck(final Database database,
+                                           final String checkName,
+                                           final MetricRegistry metrics,
+                                           final LifecycleEnvironment lifecycle) {
+        return healthProbe.<HealthCheck>map(probeConf -> probeConf.build(database, checkName, healthCheckSubspace,
+                        healthCheckTimeout, healthCheckRetries, metrics, lifecycle))
+                .orElseGet(() -> new FoundationDBHealthCheck(database, checkName, healthCheckSubspace,
+                        healthCheckTimeout, healthCheckRetries));
+    }
+
+    /**
+     * Samples the busyness of the network threads of the databases on a thread of its own.
+     */
+    protected void sampleBusyness(final LifecycleEnvironment lifecycle,
+                                  final MetricRegistry metrics,
+                                  final List<Database> databases) {
+        lifecycle.manage(new MainThreadBusynessSampler(databases,
+                lifecycle.scheduledExecutorService(name + "-busyness-sampler-%d").threads(1).build(),
+                busynessSampleInterval, metrics, name));
+    }
+}
@@ -4,20 +4,53 @@ import com.apple.foundationdb.Database;
 import com.apple.foundationdb.FDB;
 
 import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.codahale.metrics.health.HealthCheckRegistry;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import io.dropwizard.foundationdb.batch.BatchingWriterFactory;
+import io.dropwizard.foundationdb.cache.ReadCacheFactory;
+import io.dropwizard.foundationdb.client.DatabasePool;
+import io.dropwizard.foundationdb.directory.DirectoryCache;
+import io.dropwizard.foundationdb.directory.DirectoryCacheFactory;
 import io.dropwizard.foundationdb.health.FoundationDBHealthCheck;
+import io.dropwizard.foundationdb.health.HealthProbeFactory;
 import io.dropwizard.foundationdb.instrumented.InstrumentedDatabase;
+import io.dropwizard.foundationdb.instrumented.TenantMetrics;
+import io.dropwizard.foundationdb.instrumented.WorkloadTags;
+import io.dropwizard.foundationdb.instrumented.WorkloadTagsFactory;
+import io.dropwizard.foundationdb.limit.ConcurrencyLimitFactory;
+import io.dropwizard.foundationdb.limit.ConcurrencyLimiter;
 import io.dropwizard.foundationdb.managed.FoundationDBManager;
-import io.dropwizard.foundationdb.security.SecurityFactory;
+import io.dropwizard.foundationdb.managed.WarmUp;
+import io.dropwizard.foundationdb.managed.WarmUpFactory;
+import io.dropwizard.foundationdb.metadata.MetadataVersionCache;
+import io.dropwizard.foundationdb.metadata.MetadataVersionCacheFactory;
+import io.dropwizard.foundationdb.memory.InMemoryDatabase;
+import io.dropwizard.foundationdb.scan.RangeScannerFactory;
+import io.dropwizard.foundationdb.profile.TransactionProfileFactory;
+import io.dropwizard.foundationdb.status.ClientStatusFactory;
+import io.dropwizard.foundationdb.status.ClusterStatusCollector;
+import io.dropwizard.foundationdb.status.ClusterStatusFactory;
+import io.dropwizard.foundationdb.tenant.TenantCacheFactory;
 import io.dropwizard.lifecycle.setup.LifecycleEnvironment;
 import io.dropwizard.util.Duration;
+import io.dropwizard.validation.MaxDuration;
+import io.dropwizard.validation.MinDuration;
+import io.dropwizard.validation.ValidationMethod;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
 
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Min;
@@ -27,48 +60,81 @@ import jakarta.validation.constraints.NotNull;
 /**
  * Factory used to build a 'vanilla' Foundation DB database instance.
  */
-public class FoundationDBFactory {
+public class FoundationDBFactory extends FoundationDBClientFactory {
     private static final Logger log = LoggerFactory.getLogger(FoundationDBFactory.class);
 
-    @NotEmpty
-    @JsonProperty
-    private String name = "FoundationDB";
-    @Min(100L)
+    @NotNull
     @JsonProperty
-    private int apiVersion = 600;
-    @NotEmpty
+    private DatabaseType type = DatabaseType.FOUNDATIONDB;
     @JsonProperty
     private String clusterFilePath;
     @NotEmpty
     @JsonProperty
     private String dataCenter;
+    @Min(1)
+    @JsonProperty
+    private int databasePoolSize = 1;
+    @NotNull
+    @MinDuration(value = 0, unit = TimeUnit.MILLISECONDS)
+    @MaxDuration(value = 1, unit = TimeUnit.SECONDS)
+    @JsonProperty
+    private Duration readVersionStaleness = Duration.milliseconds(0);
     @Valid
     @JsonProperty
-    private Optional<SecurityFactory> security = Optional.empty();
+    private Optional<ReadCacheFactory> readCache = Optional.empty();
+    @Valid
+    @JsonProperty
+    private Optional<BatchingWriterFactory> batchingWriter = Optional.empty();
+    @Valid
+    @JsonProperty
+    private Optional<RangeScannerFactory> rangeScanner = Optional.empty();
     @Min(0)
     @JsonProperty
-    private int healthCheckRetries = 5;
+    private int maxTenantMetrics = TenantMetrics.DEFAULT_MAX_TENANTS;
+    @Valid
+    @JsonProperty
+    private Optional<WorkloadTagsFactory> workloadTags = Optional.empty();
+    @Valid
+    @JsonProperty
+    private Optional<TenantCacheFactory> tenantCache = Optional.empty();
+    @Valid
+    @JsonProperty
+    private Optional<DirectoryCacheFactory> directoryCache = Optional.empty();
+    @Valid
     @NotNull
     @JsonProperty
-    private Duration healthCheckTimeout = Duration.seconds(5);
+    private Map<String, MetadataVersionCacheFactory> metadataCaches = new LinkedHashMap<>();
+    @Valid
+    @JsonProperty
+    private Optional<ClusterStatusFactory> clusterStatus = Optional.empty();
+    @Valid
+    @JsonProperty
+    private Optional<ClientStatusFactory> clientStatus = Optional.empty();
+    @Valid
+    @JsonProperty
+    private Optional<ConcurrencyLimitFactory> concurrencyLimit = Optional.empty();
+    @Valid
     @NotNull
     @JsonProperty
-    private String healthCheckSubspace = "health-checking";
-
-    public String getName() {
-        return name;
-    }
-
-    public void setName(final String name) {
-        this.name = name;
-    }
-
-    public int getApiVersion() {
-        return apiVersion;
+    private Map<String, TransactionProfileFactory> profiles = new LinkedHashMap<>();
+    @Valid
+    @NotNull
+    @JsonProperty
+    private Optional<WarmUpFactory> warmUp = Optional.empty();
+    @Nullable
+    private ClusterStatusCollector clusterStatusCollector;
+    @Nullable
+    private DirectoryCache builtDirectoryCache;
+
+    /**
+     * @return whether to connect to a cluster, or to use an {@link InMemoryDatabase} instead
+     */
+    public DatabaseType getType() {
+        return type;
     }
 
-    public void setApiVersion(final int apiVersion) {
-        this.apiVersion = apiVersion;
+    public void setType(final DatabaseType type) {
+        this.type = type;
     }
 
     public String getClusterFilePath() {
@@ -87,88 +153,328 @@ public class FoundationDBFactory {
         this.dataCenter = dataCenter;
     }
 
-    public Optional<SecurityFactory> getSecurity() {
-        return security;
+    public int getDatabasePoolSize() {
+        return databasePoolSize;
+    }
+
+    public void setDatabasePoolSize(final int databasePoolSize) {
+        this.databasePoolSize = databasePoolSize;
+    }
+
+    /**
+     * @return the staleness of the read versions shared by the retry loops of the database, up to a second so that
+     * transactions keep most of their five seconds, or zero to let every loop request its own read version
+     */
+    public Duration getReadVersionStaleness() {
+        return readVersionStaleness;
+    }
+
+    public void setReadVersionStaleness(final Duration readVersionStaleness) {
+        this.readVersionStaleness = readVersionStaleness;
+    }
+
+    public Optional<ReadCacheFactory> getReadCache() {
+        return readCache;
+    }
+
+    public void setReadCache(final Optional<ReadCacheFactory> readCache) {
+        this.readCache = readCache;
+    }
+
+    public Optional<BatchingWriterFactory> getBatchingWriter() {
+        return batchingWriter;
+    }
+
+    public void setBatchingWriter(final Optional<BatchingWriterFactory> batchingWriter) {
+        this.batchingWriter = batchingWriter;
+    }
+
+    public Optional<RangeScannerFactory> getRangeScanner() {
+        return rangeScanner;
+    }
+
+    public void setRangeScanner(final Optional<RangeScannerFactory> rangeScanner) {
+        this.rangeScanner = rangeScanner;
     }
 
-    public void setSecurity(final Optional<SecurityFactory> security) {
-        this.security = security;
+    /**
+     * @return the maximum number of tenants with timers of their own, see {@link TenantMetrics}
+     */
+    public int getMaxTenantMetrics() {
+        return maxTenantMetrics;
     }
 
-    public int getHealthCheckRetries() {
-        return healthCheckRetries;
+    public void setMaxTenantMetrics(final int maxTenantMetrics) {
+        this.maxTenantMetrics = maxTenantMetrics;
     }
 
-    public void setHealthCheckRetries(final int healthCheckRetries) {
-        this.healthCheckRetries = healthCheckRetries;
+    /**
+     * @return the tagging of the retry loops with their workload, see {@link WorkloadTags}
+     */
+    public Optional<WorkloadTagsFactory> getWorkloadTags() {
+        return workloadTags;
     }
 
-    public Duration getHealthCheckTimeout() {
-        return healthCheckTimeout;
+    public void setWorkloadTags(final Optional<WorkloadTagsFactory> workloadTags) {
+        this.workloadTags = workloadTags;
     }
 
-    public void setHealthCheckTimeout(final Duration healthCheckTimeout) {
-        this.healthCheckTimeout = healthCheckTimeout;
+    public Optional<TenantCacheFactory> getTenantCache() {
+        return tenantCache;
     }
 
-    public String getHealthCheckSubspace() {
-        return healthCheckSubspace;
+    public void setTenantCache(final Optional<TenantCacheFactory> tenantCache) {
+        this.tenantCache = tenantCache;
     }
 
-    public void setHealthCheckSubspace(final String healthCheckSubspace) {
-        this.healthCheckSubspace = healthCheckSubspace;
+    public Optional<DirectoryCacheFactory> getDirectoryCache() {
+        return directoryCache;
+    }
+
+    public void setDirectoryCache(final Optional<DirectoryCacheFactory> directoryCache) {
+        this.directoryCache = directoryCache;
+    }
+
+    /**
+     * @return the directory cache built by {@link #build}, if a directory cache is configured, which the warm-up fills
+     */
+    @JsonIgnore
+    public Optional<DirectoryCache> getBuiltDirectoryCache() {
+        return Optional.ofNullable(builtDirectoryCache);
+    }
+
+    /**
+     * @return the caches of objects derived from the database by name, served through
+     * {@link FoundationDBBundle#getMetadataCache(String)}, see {@link MetadataVersionCache}
+     */
+    public Map<String, MetadataVersionCacheFactory> getMetadataCaches() {
+        return metadataCaches;
+    }
+
+    public void setMetadataCaches(final Map<String, MetadataVersionCacheFactory> metadataCaches) {
+        this.metadataCaches = metadataCaches;
+    }
+
+    public Optional<ClusterStatusFactory> getClusterStatus() {
+        return clusterStatus;
+    }
+
+    public void setClusterStatus(final Optional<ClusterStatusFactory> clusterStatus) {
+        this.clusterStatus = clusterStatus;
+    }
+
+    /**
+     * @return the collector of the cluster status built by {@link #build}, if cluster status collection is configured
+     * and the database is not in-memory
+     */
+    @JsonIgnore
+    public Optional<ClusterStatusCollector> getClusterStatusCollector() {
+        return Optional.ofNullable(clusterStatusCollector);
+    }
+
+    public Optional<ClientStatusFactory> getClientStatus() {
+        return clientStatus;
+    }
+
+    public void setClientStatus(final Optional<ClientStatusFactory> clientStatus) {
+        this.clientStatus = clientStatus;
+    }
+
+    public Optional<ConcurrencyLimitFactory> getConcurrencyLimit() {
+        return concurrencyLimit;
+    }
+
+    public void setConcurrencyLimit(final Optional<ConcurrencyLimitFactory> concurrencyLimit) {
+        this.concurrencyLimit = concurrencyLimit;
+    }
+
+    /**
+     * @return the transaction profiles of the database by name, served through {@link FoundationDBBundle#getDatabase(String)}
+     */
+    public Map<String, TransactionProfileFactory> getProfiles() {
+        return profiles;
+    }
+
+    public void setProfiles(final Map<String, TransactionProfileFactory> profiles) {
+        this.profiles = profiles;
+    }
+
+    public Optional<WarmUpFactory> getWarmUp() {
+        return warmUp;
+    }
+
+    public void setWarmUp(final Optional<WarmUpFactory> warmUp) {
+        this.warmUp = warmUp;
+    }
+
+    @JsonIgnore
+    @ValidationMethod(message = "clusterFilePath must be set unless type is in-memory")
+    public boolean isClusterFilePathSet() {
+        return type == DatabaseType.IN_MEMORY || (clusterFilePath != null && !clusterFilePath.isEmpty());
     }
 
     public Database build(final MetricRegistry metrics,
                           final LifecycleEnvironment lifecycle,
                           final HealthCheckRegistry healthChecks) {
-        return build(metrics, lifecycle, healthChecks, FDB.DEFAULT_EXECUTOR);
+        return build(metrics, lifecycle, healthChecks, null);
     }
 
+    @SuppressWarnings("deprecation")
     public Database build(final MetricRegistry metrics,
                           final LifecycleEnvironment lifecycle,
                           final HealthCheckRegistry healthChecks,
                           final Executor executor) {
-        final Executor actualExecutor = executor != null ? executor : FDB.DEFAULT_EXECUTOR;
-
-        final String absoluteClusterFilePath = new File(clusterFilePath).getAbsolutePath();
-
-        final FDB fdb = FDB.selectAPIVersion(apiVersion);
-
-        security.filter(SecurityFactory::isEnabled)
-                .ifPresent(securityConf -> securityConf.addSecurityConfigurations(fdb.options()));
-
-        final Database database = buildDatabase(fdb, absoluteClusterFilePath, actualExecutor);
-
-        final Database instrumentedDatabase = instrumentDatabase(database, metrics);
+        final String name = getName();
+        final Executor actualExecutor = buildExecutor(executor, lifecycle, metrics, defaultExecutor());
+
+        final FDB fdb;
+        final Database database;
+        if (type == DatabaseType.IN_MEMORY) {
+            fdb = null;
+            database = new InMemoryDatabase(actualExecutor);
+        } else {
+            final String absoluteClusterFilePath = new File(clusterFilePath).getAbsolutePath();
+
+            fdb = selectAPIVersion();
+            database = buildDatabase(fdb, absoluteClusterFilePath, actualExecutor);
+        }
+
+        final MetricRegistry.MetricSupplier<Timer> timerSupplier = getMetricsAggregation().build(lifecycle, name);
+        // the former hooks are still called when their new arguments are not configured, for the subclasses overriding
+        // them
+        final Database instrumentedDatabase = getMetricsAggregation().isEnabled()
+                ? instrumentDatabase(database, metrics, timerSupplier)
+                : instrumentDatabase(database, metrics);
 
         instrumentedDatabase.options().setDatacenterId(dataCenter);
 
-        registerHealthCheck(healthChecks, database);
-
-        manageDatabase(lifecycle, fdb);
+        builtDirectoryCache = directoryCache.map(cacheConf -> cacheConf.build(instrumentedDatabase, metrics, name))
+                .orElse(null);
+
+        if (fdb != null) {
+            final WarmUp databaseWarmUp = warmUp.map(warmUpConf -> warmUpConf.build(handlesOf(database),
+                    builtDirectoryCache, metrics, name)).orElse(null);
+            if (databaseWarmUp != null) {
+                manageDatabase(lifecycle, fdb, databaseWarmUp);
+            } else {
+                manageDatabase(lifecycle, fdb);
+            }
+        }
+
+        getHealthProbe().ifPresentOrElse(probeConf -> registerHealthProbe(probeConf, healthChecks, metrics, lifecycle, database),
+                () -> registerHealthCheck(healthChecks, database));
+
+        // a pool selects its handles by the busyness sampled for the histogram
+        if (isBusynessHistogram() || database instanceof DatabasePool) {
+            sampleBusyness(lifecycle, metrics, database);
+        }
+
+        // an in-memory database has neither a cluster nor a client status document
+        if (fdb != null) {
+            clusterStatusCollector = clusterStatus.map(statusConf -> statusConf.build(database, metrics, lifecycle, name))
+                    .orElse(null);
+            clientStatus.ifPresent(statusConf -> statusConf.build(database, metrics, lifecycle, name));
+        }
 
         log.info("Finished setting up fdbDatabase={}", name);
 
-        return instrumentedDatabase;
+        return readCache.<Database>map(cache -> cache.build(instrumentedDatabase, metrics, name))
+                .orElse(instrumentedDatabase);
     }
 
+    /**
+     * @return the handles of a database, of which a {@link DatabasePool} has several
+     */
+    private static List<Database> handlesOf(final Database database) {
+        return database instanceof DatabasePool
+                ? ((DatabasePool) database).getDatabases()
+                : List.of(database);
+    }
+
+    /**
+     * @return the executor of the FoundationDB client, or the common pool for an in-memory database, which has no client
+     * to load
+     */
+    private Executor defaultExecutor() {
+        return type == DatabaseType.IN_MEMORY ? ForkJoinPool.commonPool() : FDB.DEFAULT_EXECUTOR;
+    }
+
+    /**
+     * Opens the database, as a {@link DatabasePool} of {@code databasePoolSize} handles when there is more than one.
+     */
     protected Database buildDatabase(final FDB fdb, final String absoluteClusterFilePath, final Executor executor) {
-        return fdb.open(absoluteClusterFilePath, executor);
+        if (databasePoolSize == 1) {
+            return fdb.open(absoluteClusterFilePath, executor);
+        }
+
+        final List<Database> databases = new ArrayList<>(databasePoolSize);
+        for (int i = 0; i < databasePoolSize; i++) {
+            databases.add(fdb.open(absoluteClusterFilePath, executor));
+        }
+        return new DatabasePool(databases);
     }
 
+    /**
+     * Instruments the database when metrics aggregation is disabled.
+     *
+     * @deprecated {@link #build} instruments the database with the timers of its metrics aggregation when enabled,
+     * override {@link #instrumentDatabase(Database, MetricRegistry, MetricRegistry.MetricSupplier)} instead
+     */
+    @Deprecated
     protected Database instrumentDatabase(final Database database, final MetricRegistry metrics) {
-        return new InstrumentedDatabase(database, metrics, name);
+        return instrumentDatabase(database, metrics, Timer::new);
+    }
+
+    protected Database instrumentDatabase(final Database database, final MetricRegistry metrics,
+                                          final MetricRegistry.MetricSupplier<Timer> timerSupplier) {
+        final String name = getName();
+        final ConcurrencyLimiter concurrencyLimiter = concurrencyLimit.map(limitConf -> limitConf.build(metrics, name))
+                .orElse(null);
+        final WorkloadTags tags = workloadTags.map(tagsConf -> tagsConf.build(metrics, name, timerSupplier))
+                .orElse(null);
+        return InstrumentedDatabase.builder(database, metrics, name)
+                .setTimerSupplier(timerSupplier)
+                .setDefaultReadVersionStaleness(readVersionStaleness)
+                .setMaxTenantMetrics(maxTenantMetrics)
+                .setConcurrencyLimiter(concurrencyLimiter)
+                .setWorkloadTags(tags)
+                .build();
     }
 
     protected void registerHealthCheck(final HealthCheckRegistry healthChecks, final Database database) {
-        final FoundationDBHealthCheck healthCheck = new FoundationDBHealthCheck(database, name, healthCheckSubspace, healthCheckTimeout,
-                healthCheckRetries);
+        final FoundationDBHealthCheck healthCheck = new FoundationDBHealthCheck(database, getName(),
+                getHealthCheckSubspace(), getHealthCheckTimeout(), getHealthCheckRetries());
 
-        healthChecks.register(name, healthCheck);
+        healthChecks.register(getName(), healthCheck);
     }
 
+    protected void registerHealthProbe(final HealthProbeFactory probeConf,
+                                       final HealthCheckRegistry healthChecks,
+                                       final MetricRegistry metrics,
+                                       final LifecycleEnvironment lifecycle,
+                                       final Database database) {
+        healthChecks.register(getName(), probeConf.build(database, getName(), getHealthCheckSubspace(),
+                getHealthCheckTimeout(), getHealthCheckRetries(), metrics, lifecycle));
+    }
+
+    /**
+     * Manages the database when no warm-up is configured.
+     *
+     * @deprecated {@link #build} manages the database along with its warm-up when configured, override
+     * {@link #manageDatabase(LifecycleEnvironment, FDB, WarmUp)} instead
+     */
+    @Deprecated
     protected void manageDatabase(final LifecycleEnvironment lifecycle, final FDB fdb) {
-        lifecycle.manage(new FoundationDBManager(fdb, name));
+        manageDatabase(lifecycle, fdb, null);
+    }
+
+    protected void manageDatabase(final LifecycleEnvironment lifecycle, final FDB fdb,
+                                  @Nullable final WarmUp databaseWarmUp) {
+        lifecycle.manage(new FoundationDBManager(fdb, getName(), databaseWarmUp));
+    }
+
+    protected void sampleBusyness(final LifecycleEnvironment lifecycle, final MetricRegistry metrics,
+                                  final Database database) {
+        sampleBusyness(lifecycle, metrics, List.of(database));
     }
 }
@@ -0,0 +1,65 @@
+package io.dropwizard.foundationdb;
+
+import com.apple.foundationdb.Database;
+
+import io.dropwizard.core.Configuration;
+import io.dropwizard.core.ConfiguredBundle;
+import io.dropwizard.core.setup.Bootstrap;
+import io.dropwizard.core.setup.Environment;
+import io.dropwizard.foundationdb.routing.RoutingDatabase;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.concurrent.Executor;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Sets up the databases of several clusters over one shared network, see {@link MultiClusterFactory}. Use it instead of
+ * several {@link FoundationDBBundle}s, which would each try to configure and stop the network.
+ */
+public abstract class MultiClusterBundle<T extends Configuration> implements ConfiguredBundle<T> {
+    @Nullable
+    private RoutingDatabase database;
+
+    @Nullable
+    private final Executor executor;
+
+    protected MultiClusterBundle() {
+        this(null);
+    }
+
+    protected MultiClusterBundle(@Nullable final Executor executor) {
+        this.executor = executor;
+    }
+
+    @Override
+    public void initialize(final Bootstrap<?> bootstrap) {
+        // do nothing
+    }
+
+    @Override
+    public void run(final T configuration, final Environment environment) throws Exception {
+        final MultiClusterFactory multiClusterFactory = requireNonNull(getMultiClusterFactory(configuration));
+
+        this.database = requireNonNull(multiClusterFactory.build(environment.metrics(), environment.lifecycle(),
+                environment.healthChecks(), executor));
+    }
+
+    public abstract MultiClusterFactory getMultiClusterFactory(T configuration);
+
+    /**
+     * @return the database routing writes to the primary cluster, and stale reads to the fastest eligible cluster
+     */
+    public RoutingDatabase getDatabase() {
+        return requireNonNull(database);
+    }
+
+    /**
+     * @return the database of the named cluster
+     * @throws IllegalArgumentException if no such cluster has been configured
+     */
+    public Database getDatabase(final String cluster) {
+        return getDatabase().getDatabase(cluster)
+                .orElseThrow(() -> new IllegalArgumentException("No cluster is configured with the name " + cluster));
+    }
+}
@@ -0,0 +1,147 @@
+package io.dropwizard.foundationdb;
+
+import com.apple.foundationdb.Database;
+import com.apple.foundationdb.FDB;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.codahale.metrics.health.HealthCheckRegistry;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.dropwizard.foundationdb.instrumented.InstrumentedDatabase;
+import io.dropwizard.foundationdb.managed.FoundationDBManager;
+import io.dropwizard.foundationdb.routing.ClusterFactory;
+import io.dropwizard.foundationdb.routing.RoutingDatabase;
+import io.dropwizard.lifecycle.setup.LifecycleEnvironment;
+import io.dropwizard.util.Duration;
+import io.dropwizard.validation.MinDuration;
+import io.dropwizard.validation.ValidationMethod;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Factory used to build the databases of several Foundation DB clusters sharing the one network of the client: a
+ * primary cluster, and replicas of it serving reads which tolerate some staleness. The network options, such as the
+ * api version, security and multi-threaded client, apply to every cluster, and the network is stopped once for all of
+ * them.
+ */
+public class MultiClusterFactory extends FoundationDBClientFactory {
+    private static final Logger log = LoggerFactory.getLogger(MultiClusterFactory.class);
+
+    @NotEmpty
+    @JsonProperty
+    private String primary;
+    @Valid
+    @NotEmpty
+    @JsonProperty
+    private Map<String, ClusterFactory> clusters = new LinkedHashMap<>();
+    @NotNull
+    @MinDuration(value = 1, unit = TimeUnit.MILLISECONDS)
+    @JsonProperty
+    private Duration latencyDecayTime = Duration.seconds(10);
+
+    /**
+     * @return the name of the cluster serving transactions and writes
+     */
+    public String getPrimary() {
+        return primary;
+    }
+
+    public void setPrimary(final String primary) {
+        this.primary = primary;
+    }
+
+    public Map<String, ClusterFactory> getClusters() {
+        return clusters;
+    }
+
+    public void setClusters(final Map<String, ClusterFactory> clusters) {
+        this.clusters = clusters;
+    }
+
+    public Duration getLatencyDecayTime() {
+        return latencyDecayTime;
+    }
+
+    public void setLatencyDecayTime(final Duration latencyDecayTime) {
+        this.latencyDecayTime = latencyDecayTime;
+    }
+
+    @JsonIgnore
+    @ValidationMethod(message = "primary must be the name of one of the clusters")
+    public boolean isPrimaryACluster() {
+        return primary == null || clusters.containsKey(primary);
+    }
+
+    public RoutingDatabase build(final MetricRegistry metrics,
+                                 final LifecycleEnvironment lifecycle,
+                                 final HealthCheckRegistry healthChecks) {
+        return build(metrics, lifecycle, healthChecks, null);
+    }
+
+    public RoutingDatabase build(final MetricRegistry metrics,
+                                 final LifecycleEnvironment lifecycle,
+                                 final HealthCheckRegistry healthChecks,
+                                 final Executor executor) {
+        final String name = getName();
+        final Executor actualExecutor = buildExecutor(executor, lifecycle, metrics, FDB.DEFAULT_EXECUTOR);
+
+        final FDB fdb = selectAPIVersion();
+
+        final MetricRegistry.MetricSupplier<Timer> timerSupplier = getMetricsAggregation().build(lifecycle, name);
+
+        Database primaryDatabase = null;
+        final List<String> clusterNames = new ArrayList<>();
+        final List<Database> databases = new ArrayList<>();
+        final List<RoutingDatabase.Replica> replicas = new ArrayList<>();
+        for (final Map.Entry<String, ClusterFactory> cluster : clusters.entrySet()) {
+            final String clusterName = MetricRegistry.name(name, cluster.getKey());
+            final String absoluteClusterFilePath = new File(cluster.getValue().getClusterFilePath()).getAbsolutePath();
+
+            final Database database = fdb.open(absoluteClusterFilePath, actualExecutor);
+            final Database instrumentedDatabase = InstrumentedDatabase.builder(database, metrics, clusterName)
+                    .setTimerSupplier(timerSupplier)
+                    .build();
+            cluster.getValue().getDataCenter().ifPresent(instrumentedDatabase.options()::setDatacenterId);
+
+            clusterNames.add(cluster.getKey());
+            databases.add(database);
+            if (cluster.getKey().equals(primary)) {
+                primaryDatabase = instrumentedDatabase;
+            } else {
+                replicas.add(new RoutingDatabase.Replica(cluster.getKey(), instrumentedDatabase,
+                        cluster.getValue().getMaxReplicationLag()));
+            }
+        }
+
+        lifecycle.manage(new FoundationDBManager(fdb, name));
+
+        for (int i = 0; i < databases.size(); i++) {
+            final String clusterName = MetricRegistry.name(name, clusterNames.get(i));
+            healthChecks.register(clusterName, buildHealthCheck(databases.get(i), clusterName, metrics, lifecycle));
+        }
+
+        if (isBusynessHistogram()) {
+            sampleBusyness(lifecycle, metrics, databases);
+        }
+
+        log.info("Finished setting up fdbDatabase={} with primary={} and replicas={}", name, primary,
+                replicas.size());
+
+        return new RoutingDatabase(primary, requireNonNull(primaryDatabase), replicas, latencyDecayTime, metrics, name);
+    }
+}
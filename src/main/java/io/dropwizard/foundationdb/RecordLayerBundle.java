@@ -1,15 +1,31 @@
 package io.dropwizard.foundationdb;
 
+import com.apple.foundationdb.record.RecordMetaData;
 import com.apple.foundationdb.record.provider.foundationdb.FDBDatabase;
+import com.apple.foundationdb.record.provider.foundationdb.FDBDatabaseRunner;
+import com.apple.foundationdb.record.provider.foundationdb.FDBRecordContext;
+import com.apple.foundationdb.record.provider.foundationdb.FDBStoreTimer;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 
 import io.dropwizard.core.Configuration;
 import io.dropwizard.core.ConfiguredBundle;
 import io.dropwizard.core.setup.Bootstrap;
 import io.dropwizard.core.setup.Environment;
+import io.dropwizard.foundationdb.instrumented.InstrumentedFDBStoreTimer;
+import io.dropwizard.foundationdb.instrumented.StoreTimerMetrics;
+import io.dropwizard.foundationdb.profile.TransactionProfileFactory;
+import io.dropwizard.foundationdb.status.ClusterStatusCollector;
+import io.dropwizard.foundationdb.store.RecordStoreProvider;
 import org.checkerframework.checker.nullness.qual.Nullable;
 
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
+import java.util.function.Function;
 
 import static java.util.Objects.requireNonNull;
 
@@ -17,6 +33,15 @@ public abstract class RecordLayerBundle<T extends Configuration> implements Conf
     @Nullable
     private FDBDatabase database;
 
+    @Nullable
+    private ClusterStatusCollector clusterStatusCollector;
+
+    @Nullable
+    private RecordStoreProvider recordStoreProvider;
+
+    private final Map<String, TransactionProfileFactory> profiles = new HashMap<>();
+    private final Map<String, FDBStoreTimer> profileTimers = new HashMap<>();
+
     @Nullable
     private final Executor networkExecutor;
     @Nullable
@@ -43,11 +68,77 @@ public abstract class RecordLayerBundle<T extends Configuration> implements Conf
 
         this.database = Objects.requireNonNull(recordLayerFactory.build(environment.metrics(), environment.lifecycle(),
                 environment.healthChecks(), networkExecutor, executor));
+
+        this.clusterStatusCollector = recordLayerFactory.getClusterStatusCollector().orElse(null);
+
+        final Function<? super FDBRecordContext, CompletableFuture<RecordMetaData>> metaDataLoader =
+                getMetaDataLoader(configuration);
+        if (metaDataLoader != null) {
+            this.recordStoreProvider = new RecordStoreProvider(getDatabase(), metaDataLoader);
+            environment.lifecycle().manage(recordStoreProvider);
+        }
+
+        final Map<String, TransactionProfileFactory> profileFactories = recordLayerFactory.getProfiles();
+        if (!profileFactories.isEmpty()) {
+            final String profilesName = MetricRegistry.name(recordLayerFactory.getName(), "profiles");
+            final MetricRegistry.MetricSupplier<Timer> timerSupplier = recordLayerFactory.getMetricsAggregation()
+                    .build(environment.lifecycle(), profilesName);
+            profileFactories.forEach((profile, profileFactory) -> {
+                profiles.put(profile, profileFactory);
+                profileTimers.put(profile, new InstrumentedFDBStoreTimer(new FDBStoreTimer(), new StoreTimerMetrics(
+                        environment.metrics(), MetricRegistry.name(profilesName, profile), timerSupplier)));
+            });
+        }
     }
 
     public abstract RecordLayerFactory getRecordLayerFactory(T configuration);
 
+    /**
+     * @return the loader of the meta-data shared by the stores of the {@link RecordStoreProvider}, or null for no
+     * provider
+     */
+    @Nullable
+    protected Function<? super FDBRecordContext, CompletableFuture<RecordMetaData>> getMetaDataLoader(final T configuration) {
+        return null;
+    }
+
     public FDBDatabase getDatabase() {
         return requireNonNull(database);
     }
+
+    /**
+     * Creates a runner whose transactions use the named profile, and whose events are recorded under
+     * {@code <name>.profiles.<profile>}. The caller is responsible for closing the runner.
+     *
+     * @throws IllegalArgumentException if no such profile has been configured
+     */
+    public FDBDatabaseRunner newRunner(final String profile) {
+        final TransactionProfileFactory profileFactory = profiles.get(profile);
+        if (profileFactory == null) {
+            throw new IllegalArgumentException("No transaction profile is configured with the name " + profile);
+        }
+        return profileFactory.newRunner(getDatabase(), profileTimers.get(profile));
+    }
+
+    /**
+     * @return the provider of the record stores of the database
+     * @throws IllegalStateException if no meta-data loader has been given
+     */
+    public RecordStoreProvider getRecordStoreProvider() {
+        if (recordStoreProvider == null) {
+            throw new IllegalStateException("No meta-data loader is given for the record store provider");
+        }
+        return recordStoreProvider;
+    }
+
+    /**
+     * @return the collector of the cluster status of the database
+     * @throws IllegalStateException if no cluster status collection has been configured
+     */
+    public ClusterStatusCollector getClusterStatusCollector() {
+        if (clusterStatusCollector == null) {
+            throw new IllegalStateException("No cluster status collection is configured for the database");
+        }
+        return clusterStatusCollector;
+    }
 }
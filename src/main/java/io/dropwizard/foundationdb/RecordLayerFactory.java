@@ -7,20 +7,45 @@ import com.apple.foundationdb.record.provider.foundationdb.FDBDatabaseFactory;
 import com.apple.foundationdb.record.provider.foundationdb.FDBReverseDirectoryCache;
 
 import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.codahale.metrics.health.HealthCheckRegistry;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import io.dropwizard.foundationdb.client.MultiThreadedClientFactory;
+import io.dropwizard.foundationdb.executor.ExecutorFactory;
 import io.dropwizard.foundationdb.health.FoundationDBHealthCheck;
+import io.dropwizard.foundationdb.health.HealthProbeFactory;
 import io.dropwizard.foundationdb.instrumented.InstrumentedFDBDatabase;
+import io.dropwizard.foundationdb.instrumented.MainThreadBusynessSampler;
+import io.dropwizard.foundationdb.instrumented.MetricsAggregationFactory;
+import io.dropwizard.foundationdb.instrumented.WorkloadTags;
+import io.dropwizard.foundationdb.instrumented.WorkloadTagsFactory;
+import io.dropwizard.foundationdb.limit.ConcurrencyLimitFactory;
+import io.dropwizard.foundationdb.limit.ConcurrencyLimiter;
 import io.dropwizard.foundationdb.managed.RecordLayerManager;
+import io.dropwizard.foundationdb.managed.WarmUp;
+import io.dropwizard.foundationdb.managed.WarmUpFactory;
+import io.dropwizard.foundationdb.profile.TransactionProfileFactory;
 import io.dropwizard.foundationdb.security.SecurityFactory;
+import io.dropwizard.foundationdb.status.ClientStatusFactory;
+import io.dropwizard.foundationdb.status.ClusterStatusCollector;
+import io.dropwizard.foundationdb.status.ClusterStatusFactory;
+import io.dropwizard.foundationdb.store.StoreStateCacheFactory;
 import io.dropwizard.lifecycle.setup.LifecycleEnvironment;
 import io.dropwizard.util.Duration;
+import io.dropwizard.validation.MinDuration;
+import io.dropwizard.validation.ValidationMethod;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.Min;
@@ -57,6 +82,9 @@ public class RecordLayerFactory {
             Duration.milliseconds(FDBReverseDirectoryCache.MAX_MILLIS_PER_TRANSACTION);
     @JsonProperty
     private int reverseDirectoryMaxRowsPerTransaction = FDBReverseDirectoryCache.MAX_ROWS_PER_TRANSACTION;
+    @Valid
+    @JsonProperty
+    private Optional<StoreStateCacheFactory> storeStateCache = Optional.empty();
     @JsonProperty
     private String traceDirectory = null;
     @JsonProperty
@@ -67,6 +95,18 @@ public class RecordLayerFactory {
     @Valid
     @JsonProperty
     private Optional<SecurityFactory> security = Optional.empty();
+    @Valid
+    @JsonProperty
+    private Optional<MultiThreadedClientFactory> multiThreadedClient = Optional.empty();
+    @JsonProperty
+    private boolean busynessHistogram = false;
+    @NotNull
+    @MinDuration(value = 1, unit = TimeUnit.MILLISECONDS)
+    @JsonProperty
+    private Duration busynessSampleInterval = Duration.seconds(1);
+    @Valid
+    @JsonProperty("executor")
+    private Optional<ExecutorFactory> executorFactory = Optional.empty();
     @Min(0)
     @JsonProperty
     private int healthCheckRetries = 5;
@@ -76,6 +116,35 @@ public class RecordLayerFactory {
     @NotNull
     @JsonProperty
     private String healthCheckSubspace = "health-checking";
+    @Valid
+    @JsonProperty
+    private Optional<HealthProbeFactory> healthProbe = Optional.empty();
+    @Valid
+    @NotNull
+    @JsonProperty
+    private MetricsAggregationFactory metricsAggregation = new MetricsAggregationFactory();
+    @Valid
+    @JsonProperty
+    private Optional<WorkloadTagsFactory> workloadTags = Optional.empty();
+    @Valid
+    @JsonProperty
+    private Optional<ClusterStatusFactory> clusterStatus = Optional.empty();
+    @Valid
+    @JsonProperty
+    private Optional<ClientStatusFactory> clientStatus = Optional.empty();
+    @Valid
+    @JsonProperty
+    private Optional<ConcurrencyLimitFactory> concurrencyLimit = Optional.empty();
+    @Valid
+    @NotNull
+    @JsonProperty
+    private Map<String, TransactionProfileFactory> profiles = new LinkedHashMap<>();
+    @Valid
+    @NotNull
+    @JsonProperty
+    private Optional<WarmUpFactory> warmUp = Optional.empty();
+    @Nullable
+    private ClusterStatusCollector clusterStatusCollector;
 
     public String getName() {
         return name;
@@ -133,6 +202,17 @@ public class RecordLayerFactory {
         this.directoryCacheSize = directoryCacheSize;
     }
 
+    /**
+     * @return the cache of the states of the record stores opened in the database, see {@link StoreStateCacheFactory}
+     */
+    public Optional<StoreStateCacheFactory> getStoreStateCache() {
+        return storeStateCache;
+    }
+
+    public void setStoreStateCache(final Optional<StoreStateCacheFactory> storeStateCache) {
+        this.storeStateCache = storeStateCache;
+    }
+
     public String getTraceDirectory() {
         return traceDirectory;
     }
@@ -181,7 +261,46 @@ public class RecordLayerFactory {
         this.security = security;
     }
 
-    public int getHealthCheckRetries() {
+    public Optional<MultiThreadedClientFactory> getMultiThreadedClient() {
+        return multiThreadedClient;
+    }
+
+    public void setMultiThreadedClient(final Optional<MultiThreadedClientFactory> multiThreadedClient) {
+        this.multiThreadedClient = multiThreadedClient;
+    }
+
+    /**
+     * @return whether to sample the busyness of the network threads into the {@code MainThreadBusynessPercent}
+     * histogram, which takes a thread of its own
+     */
+    public boolean isBusynessHistogram() {
+        return busynessHistogram;
+    }
+
+    public void setBusynessHistogram(final boolean busynessHistogram) {
+        this.busynessHistogram = busynessHistogram;
+    }
+
+    public Duration getBusynessSampleInterval() {
+        return busynessSampleInterval;
+    }
+
+    public void setBusynessSampleInterval(final Duration busynessSampleInterval) {
+        this.busynessSampleInterval = busynessSampleInterval;
+    }
+
+    /**
+     * @return the executor running the callbacks of the database, used when no executor is given to {@code build}
+     */
+    public Optional<ExecutorFactory> getExecutorFactory() {
+        return executorFactory;
+    }
+
+    public void setExecutorFactory(final Optional<ExecutorFactory> executorFactory) {
+        this.executorFactory = executorFactory;
+    }
+
+        public int getHealthCheckRetries() {
         return healthCheckRetries;
     }
 
@@ -205,12 +324,100 @@ public class RecordLayerFactory {
         this.healthCheckSubspace = healthCheckSubspace;
     }
 
+    /**
+     * @return the background probing of the cluster, replacing the health check polling the cluster on demand
+     */
+    public Optional<HealthProbeFactory> getHealthProbe() {
+        return healthProbe;
+    }
+
+    public void setHealthProbe(final Optional<HealthProbeFactory> healthProbe) {
+        this.healthProbe = healthProbe;
+    }
+
+    public MetricsAggregationFactory getMetricsAggregation() {
+        return metricsAggregation;
+    }
+
+    public void setMetricsAggregation(final MetricsAggregationFactory metricsAggregation) {
+        this.metricsAggregation = metricsAggregation;
+    }
+
+    /**
+     * @return the tagging of the retry loops with their workload, see {@link WorkloadTags}
+     */
+    public Optional<WorkloadTagsFactory> getWorkloadTags() {
+        return workloadTags;
+    }
+
+    public void setWorkloadTags(final Optional<WorkloadTagsFactory> workloadTags) {
+        this.workloadTags = workloadTags;
+    }
+
+    public Optional<ClusterStatusFactory> getClusterStatus() {
+        return clusterStatus;
+    }
+
+    public void setClusterStatus(final Optional<ClusterStatusFactory> clusterStatus) {
+        this.clusterStatus = clusterStatus;
+    }
+
+    /**
+     * @return the collector of the cluster status built by {@link #build}, if cluster status collection is configured
+     */
+    @JsonIgnore
+    public Optional<ClusterStatusCollector> getClusterStatusCollector() {
+        return Optional.ofNullable(clusterStatusCollector);
+    }
+
+    public Optional<ClientStatusFactory> getClientStatus() {
+        return clientStatus;
+    }
+
+    public void setClientStatus(final Optional<ClientStatusFactory> clientStatus) {
+        this.clientStatus = clientStatus;
+    }
+
+    public Optional<ConcurrencyLimitFactory> getConcurrencyLimit() {
+        return concurrencyLimit;
+    }
+
+    public void setConcurrencyLimit(final Optional<ConcurrencyLimitFactory> concurrencyLimit) {
+        this.concurrencyLimit = concurrencyLimit;
+    }
+
+    /**
+     * @return the transaction profiles of the database by name, served through {@link RecordLayerBundle#newRunner(String)}
+     */
+    public Map<String, TransactionProfileFactory> getProfiles() {
+        return profiles;
+    }
+
+    public void setProfiles(final Map<String, TransactionProfileFactory> profiles) {
+        this.profiles = profiles;
+    }
+
+    public Optional<WarmUpFactory> getWarmUp() {
+        return warmUp;
+    }
+
+    public void setWarmUp(final Optional<WarmUpFactory> warmUp) {
+        this.warmUp = warmUp;
+    }
+
+    @JsonIgnore
+    @ValidationMethod(message = "profiles cannot disable read-your-writes or risk causal reads with the Record Layer")
+    public boolean isEveryProfileSupported() {
+        return profiles.values().stream().allMatch(TransactionProfileFactory::isSupportedByRecordLayer);
+    }
+
     public FDBDatabase build(final MetricRegistry metrics,
                              final LifecycleEnvironment lifecycle,
                              final HealthCheckRegistry healthChecks) {
         return build(metrics, lifecycle, healthChecks, null, null);
     }
 
+    @SuppressWarnings("deprecation")
     public FDBDatabase build(final MetricRegistry metrics,
                              final LifecycleEnvironment lifecycle,
                              final HealthCheckRegistry healthChecks,
@@ -222,16 +429,42 @@ public class RecordLayerFactory {
         security.filter(SecurityFactory::isEnabled)
                 .ifPresent(securityConf -> securityConf.addSecurityConfigurations(fdb.options()));
 
-        final FDBDatabaseFactory factory = buildFDBDatabaseFactory(networkExecutor, executor);
+        multiThreadedClient.ifPresent(clientConf -> clientConf.addNetworkOptions(fdb.options()));
+
+        final Executor actualExecutor = executor != null
+                ? executor
+                : executorFactory.<Executor>map(executorConf -> executorConf.build(lifecycle, metrics, name))
+                        .orElse(null);
+        final FDBDatabaseFactory factory = buildFDBDatabaseFactory(networkExecutor, actualExecutor);
 
         final String absoluteClusterFilePath = new File(clusterFilePath).getAbsolutePath();
         final FDBDatabase database = buildFDBDatabase(factory, absoluteClusterFilePath);
 
-        final FDBDatabase instrumentedDatabase = instrumentFDBDatabase(factory, absoluteClusterFilePath, database, metrics);
+        final MetricRegistry.MetricSupplier<Timer> timerSupplier = metricsAggregation.build(lifecycle, name);
+        // the former hooks are still called when their new arguments are not configured, for the subclasses overriding
+        // them
+        final FDBDatabase instrumentedDatabase = metricsAggregation.isEnabled()
+                ? instrumentFDBDatabase(factory, absoluteClusterFilePath, database, metrics, timerSupplier)
+                : instrumentFDBDatabase(factory, absoluteClusterFilePath, database, metrics);
+
+        final WarmUp databaseWarmUp = warmUp.map(warmUpConf -> warmUpConf.build(database, metrics, name))
+                .orElse(null);
+        if (databaseWarmUp != null) {
+            manageFDBDatabase(lifecycle, database, databaseWarmUp);
+        } else {
+            manageFDBDatabase(lifecycle, database);
+        }
+
+        healthProbe.ifPresentOrElse(probeConf -> registerHealthProbe(probeConf, healthChecks, metrics, lifecycle, database),
+                () -> registerHealthCheck(healthChecks, database));
 
-        registerHealthCheck(healthChecks, database);
+        if (busynessHistogram) {
+            sampleBusyness(lifecycle, metrics, database);
+        }
 
-        manageFDBDatabase(lifecycle, database);
+        clusterStatusCollector = clusterStatus.map(statusConf -> statusConf.build(database.database(), metrics, lifecycle,
+                name)).orElse(null);
+        clientStatus.ifPresent(statusConf -> statusConf.build(database.database(), metrics, lifecycle, name));
 
         log.info("Finished setting up record layer database={}", name);
 
@@ -246,6 +479,7 @@ public class RecordLayerFactory {
         factory.setDirectoryCacheSize(directoryCacheSize);
         factory.setReverseDirectoryMaxMillisPerTransaction(reverseDirectoryMaxTimePerTransaction.toMilliseconds());
         factory.setReverseDirectoryRowsPerTransaction(reverseDirectoryMaxRowsPerTransaction);
+        storeStateCache.ifPresent(cacheConf -> factory.setStoreStateCacheFactory(cacheConf.build()));
         factory.setTrace(traceDirectory, traceLogGroup);
         factory.setDatacenterId(dataCenter);
 
@@ -264,9 +498,29 @@ public class RecordLayerFactory {
         return factory.getDatabase(absoluteClusterFilePath);
     }
 
+    /**
+     * Instruments the database when metrics aggregation is disabled.
+     *
+     * @deprecated {@link #build} instruments the database with the timers of its metrics aggregation when enabled,
+     * override
+     * {@link #instrumentFDBDatabase(FDBDatabaseFactory, String, FDBDatabase, MetricRegistry, MetricRegistry.MetricSupplier)}
+     * instead
+     */
+    @Deprecated
     protected FDBDatabase instrumentFDBDatabase(final FDBDatabaseFactory factory, final String absoluteClusterFilePath,
                                                 final FDBDatabase database, final MetricRegistry metrics) {
-        return new InstrumentedFDBDatabase(factory, absoluteClusterFilePath, database, metrics, name);
+        return instrumentFDBDatabase(factory, absoluteClusterFilePath, database, metrics, Timer::new);
+    }
+
+    protected FDBDatabase instrumentFDBDatabase(final FDBDatabaseFactory factory, final String absoluteClusterFilePath,
+                                                final FDBDatabase database, final MetricRegistry metrics,
+                                                final MetricRegistry.MetricSupplier<Timer> timerSupplier) {
+        final ConcurrencyLimiter concurrencyLimiter = concurrencyLimit.map(limitConf -> limitConf.build(metrics, name))
+                .orElse(null);
+        final WorkloadTags tags = workloadTags.map(tagsConf -> tagsConf.build(metrics, name, timerSupplier))
+                .orElse(null);
+        return new InstrumentedFDBDatabase(factory, absoluteClusterFilePath, database, metrics, name, timerSupplier,
+                concurrencyLimiter, tags);
     }
 
     protected void registerHealthCheck(final HealthCheckRegistry healthChecks, final FDBDatabase database) {
@@ -276,7 +530,35 @@ public class RecordLayerFactory {
         healthChecks.register(name, healthCheck);
     }
 
+    protected void registerHealthProbe(final HealthProbeFactory probeConf,
+                                       final HealthCheckRegistry healthChecks,
+                                       final MetricRegistry metrics,
+                                       final LifecycleEnvironment lifecycle,
+                                       final FDBDatabase database) {
+        healthChecks.register(name, probeConf.build(database.database(), name, healthCheckSubspace, healthCheckTimeout,
+                healthCheckRetries, metrics, lifecycle));
+    }
+
+    /**
+     * Manages the database when no warm-up is configured.
+     *
+     * @deprecated {@link #build} manages the database along with its warm-up when configured, override
+     * {@link #manageFDBDatabase(LifecycleEnvironment, FDBDatabase, WarmUp)} instead
+     */
+    @Deprecated
     protected void manageFDBDatabase(final LifecycleEnvironment lifecycle, final FDBDatabase database) {
-        lifecycle.manage(new RecordLayerManager(database, name));
+        manageFDBDatabase(lifecycle, database, null);
+    }
+
+    protected void manageFDBDatabase(final LifecycleEnvironment lifecycle, final FDBDatabase database,
+                                     @Nullable final WarmUp databaseWarmUp) {
+        lifecycle.manage(new RecordLayerManager(database, name, databaseWarmUp));
+    }
+
+    protected void sampleBusyness(final LifecycleEnvironment lifecycle, final MetricRegistry metrics,
+                                  final FDBDatabase database) {
+        lifecycle.manage(new MainThreadBusynessSampler(List.of(database.database()),
+                lifecycle.scheduledExecutorService(name + "-busyness-sampler-%d").threads(1).build(),
+                busynessSampleInterval, metrics, name));
     }
 }
@@ -0,0 +1,309 @@
+package io.dropwizard.foundationdb.batch;
+
+import com.apple.foundationdb.Database;
+import com.apple.foundationdb.MutationType;
+import com.apple.foundationdb.Transaction;
+import com.apple.foundationdb.async.AsyncUtil;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.lifecycle.Managed;
+import io.dropwizard.util.Duration;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Coalesces independent blind writes submitted from many threads into shared transactions.
+ * <p>
+ * Mutations are buffered until the batch reaches its mutation or byte budget, or until the linger time has elapsed
+ * since the first mutation of the batch, and are then committed together in a single {@link Database#runAsync}. The
+ * byte budget counts the write conflict range of every mutation along with its keys and values, as the transaction size
+ * limit of FoundationDB does. The future returned for each mutation completes once the batch containing it has
+ * committed, or completes exceptionally if the batch failed. A mutation whose key or value is over the limits of
+ * FoundationDB fails on its own, without failing the batch it would have joined.
+ * <p>
+ * As {@link Database#runAsync} retries a batch whose commit result is unknown ({@code 1021 commit_unknown_result}), a
+ * non-idempotent atomic operation such as {@link MutationType#ADD} may be applied twice. Those operations are rejected
+ * unless the writer is built to allow them.
+ * <p>
+ * Pending batches are committed, and in-flight commits awaited, when the writer is stopped.
+ */
+public class BatchingWriter implements Managed {
+    private static final Logger log = LoggerFactory.getLogger(BatchingWriter.class);
+
+    public static final int MAX_KEY_SIZE = 10_000;
+    public static final int MAX_VALUE_SIZE = 100_000;
+
+    /**
+     * The atomic operations which do not have the same effect when applied twice.
+     */
+    private static final Set<MutationType> NON_IDEMPOTENT_MUTATIONS = EnumSet.of(MutationType.ADD, MutationType.XOR,
+            MutationType.BIT_XOR, MutationType.APPEND_IF_FITS, MutationType.SET_VERSIONSTAMPED_KEY,
+            MutationType.SET_VERSIONSTAMPED_VALUE);
+
+    private final Database database;
+    private final ScheduledExecutorService scheduler;
+    private final Duration linger;
+    private final long maxBatchBytes;
+    private final int maxBatchMutations;
+    private final boolean allowNonIdempotentMutations;
+    private final String name;
+    private final Histogram batchMutations;
+    private final Histogram batchBytes;
+    private final Meter failedBatches;
+    private final Set<CompletableFuture<Void>> inFlight = ConcurrentHashMap.newKeySet();
+    private final Object lock = new Object();
+    private Batch pending = new Batch();
+    private boolean stopped = false;
+
+    public BatchingWriter(final Database database,
+                          final ScheduledExecutorService scheduler,
+                          final Duration linger,
+                          final long maxBatchBytes,
+                          final int maxBatchMutations,
+                          final MetricRegistry metrics,
+                          final String name) {
+        this(database, scheduler, linger, maxBatchBytes, maxBatchMutations, false, metrics, name);
+    }
+
+    /**
+     * @param allowNonIdempotentMutations whether to accept atomic operations which may be applied twice when the commit
+     *                                    result of their batch is unknown
+     */
+    public BatchingWriter(final Database database,
+                          final ScheduledExecutorService scheduler,
+                          final Duration linger,
+                          final long maxBatchBytes,
+                          final int maxBatchMutations,
+                          final boolean allowNonIdempotentMutations,
+                          final MetricRegistry metrics,
+                          final String name) {
+        this.database = requireNonNull(database);
+        this.scheduler = requireNonNull(scheduler);
+        this.linger = requireNonNull(linger);
+        this.maxBatchBytes = maxBatchBytes;
+        this.maxBatchMutations = maxBatchMutations;
+        this.allowNonIdempotentMutations = allowNonIdempotentMutations;
+        this.name = requireNonNull(name);
+        this.batchMutations = metrics.histogram(MetricRegistry.name(name, "batch", "mutations"));
+        this.batchBytes = metrics.histogram(MetricRegistry.name(name, "batch", "bytes"));
+        this.failedBatches = metrics.meter(MetricRegistry.name(name, "batch", "failures"));
+    }
+
+    /**
+     * Sets the value of a key in the next batch.
+     *
+     * @see Transaction#set(byte[], byte[])
+     */
+    public CompletableFuture<Void> set(final byte[] key, final byte[] value) {
+        if (key.length > MAX_KEY_SIZE || value.length > MAX_VALUE_SIZE) {
+            return tooLarge(key, value);
+        }
+        return submit(transaction -> transaction.set(key, value), value.length + pointBytes(key));
+    }
+
+    /**
+     * Clears a key in the next batch.
+     *
+     * @see Transaction#clear(byte[])
+     */
+    public CompletableFuture<Void> clear(final byte[] key) {
+        if (key.length > MAX_KEY_SIZE) {
+            return tooLarge(key, null);
+        }
+        return submit(transaction -> transaction.clear(key), pointBytes(key));
+    }
+
+    /**
+     * Clears a range of keys in the next batch.
+     *
+     * @see Transaction#clear(byte[], byte[])
+     */
+    public CompletableFuture<Void> clear(final byte[] beginKey, final byte[] endKey) {
+        if (beginKey.length > MAX_KEY_SIZE || endKey.length > MAX_KEY_SIZE) {
+            return tooLarge(beginKey.length > MAX_KEY_SIZE ? beginKey : endKey, null);
+        }
+        // the range is both the mutation and its conflict range
+        return submit(transaction -> transaction.clear(beginKey, endKey), 2L * (beginKey.length + endKey.length));
+    }
+
+    /**
+     * Applies an atomic operation to a key in the next batch. Non-idempotent operations fail with an
+     * {@link IllegalArgumentException} unless the writer allows them.
+     *
+     * @see Transaction#mutate(MutationType, byte[], byte[])
+     */
+    public CompletableFuture<Void> mutate(final MutationType optype, final byte[] key, final byte[] param) {
+        if (!allowNonIdempotentMutations && NON_IDEMPOTENT_MUTATIONS.contains(optype)) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("The batching writer for database="
+                    + name + " does not allow the non-idempotent mutation " + optype
+                    + ", which is applied twice if its batch is retried after an unknown commit result"));
+        }
+        if (key.length > MAX_KEY_SIZE || param.length > MAX_VALUE_SIZE) {
+            return tooLarge(key, param);
+        }
+        return submit(transaction -> transaction.mutate(optype, key, param), param.length + pointBytes(key));
+    }
+
+    /**
+     * @return the bytes of a mutation of a single key, along with its write conflict range from the key to the key
+     * followed by a zero byte
+     */
+    private static long pointBytes(final byte[] key) {
+        return 2L * key.length + 1;
+    }
+
+    private CompletableFuture<Void> tooLarge(final byte[] key, @Nullable final byte[] value) {
+        return CompletableFuture.failedFuture(new IllegalArgumentException("Unable to batch a mutation with a key of "
+                + key.length + " bytes" + (value != null ? " and a value of " + value.length + " bytes" : "")
+                + " for database=" + name + ", keys are limited to " + MAX_KEY_SIZE + " bytes and values to "
+                + MAX_VALUE_SIZE + " bytes"));
+    }
+
+    /**
+     * Commits the pending batch without waiting for the linger time to elapse.
+     */
+    public void flush() {
+        final Batch batch;
+        synchronized (lock) {
+            batch = takePending();
+        }
+        commit(batch);
+    }
+
+    private CompletableFuture<Void> submit(final Consumer<Transaction> mutation, final long bytes) {
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+        Batch overflowing = null;
+        Batch full = null;
+        Batch started = null;
+        synchronized (lock) {
+            if (stopped) {
+                future.completeExceptionally(new IllegalStateException("The batching writer for database=" + name
+                        + " has been stopped"));
+                return future;
+            }
+
+            if (!pending.isEmpty() && pending.bytes + bytes > maxBatchBytes) {
+                overflowing = takePending();
+            }
+
+            pending.add(mutation, bytes, future);
+            if (pending.mutations.size() >= maxBatchMutations || pending.bytes >= maxBatchBytes) {
+                full = takePending();
+            } else if (pending.mutations.size() == 1) {
+                started = pending;
+            }
+        }
+
+        commit(overflowing);
+        commit(full);
+        if (started != null) {
+            final Batch lingering = started;
+            scheduler.schedule(() -> flush(lingering), linger.toNanoseconds(), TimeUnit.NANOSECONDS);
+        }
+        return future;
+    }
+
+    private void flush(final Batch batch) {
+        synchronized (lock) {
+            if (pending != batch) {
+                // already committed because it reached its budget
+                return;
+            }
+            takePending();
+        }
+        commit(batch);
+    }
+
+    /**
+     * Takes the pending batch, registering it as in flight while still holding the lock, so that {@link #stop()} waits
+     * for it even if it has not been committed yet.
+     */
+    private Batch takePending() {
+        final Batch batch = pending;
+        pending = new Batch();
+        if (!batch.isEmpty()) {
+            inFlight.add(batch.committed);
+        }
+        return batch;
+    }
+
+    private void commit(final Batch batch) {
+        if (batch == null || batch.isEmpty()) {
+            return;
+        }
+
+        batchMutations.update(batch.mutations.size());
+        batchBytes.update(batch.bytes);
+
+        final CompletableFuture<Void> commit = database.runAsync(transaction -> {
+            for (final Consumer<Transaction> mutation : batch.mutations) {
+                mutation.accept(transaction);
+            }
+            return AsyncUtil.DONE;
+        }, database.getExecutor());
+        // complete the callers off the network thread, as they may block
+        commit.whenCompleteAsync((ignored, error) -> {
+            if (error != null) {
+                failedBatches.mark();
+                log.warn("Unable to commit batch of {} mutations for database={}", batch.mutations.size(), name, error);
+                batch.futures.forEach(future -> future.completeExceptionally(error));
+            } else {
+                batch.futures.forEach(future -> future.complete(null));
+            }
+            inFlight.remove(batch.committed);
+            batch.committed.complete(null);
+        }, database.getExecutor());
+    }
+
+    @Override
+    public void start() throws Exception {
+        // do nothing
+    }
+
+    @Override
+    public void stop() throws Exception {
+        final Batch batch;
+        synchronized (lock) {
+            stopped = true;
+            batch = takePending();
+        }
+        commit(batch);
+
+        log.info("Waiting for {} batches to commit for database={}", inFlight.size(), name);
+        CompletableFuture.allOf(inFlight.toArray(new CompletableFuture<?>[0]))
+                .handle((ignored, error) -> null)
+                .join();
+    }
+
+    private static class Batch {
+        private final List<Consumer<Transaction>> mutations = new ArrayList<>();
+        private final List<CompletableFuture<Void>> futures = new ArrayList<>();
+        private final CompletableFuture<Void> committed = new CompletableFuture<>();
+        private long bytes = 0;
+
+        private void add(final Consumer<Transaction> mutation, final long mutationBytes, final CompletableFuture<Void> future) {
+            mutations.add(mutation);
+            futures.add(future);
+            bytes += mutationBytes;
+        }
+
+        private boolean isEmpty() {
+            return mutations.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package io.dropwizard.foundationdb.batch;
+
+import com.apple.foundationdb.Database;
+
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.dropwizard.lifecycle.setup.LifecycleEnvironment;
+import io.dropwizard.util.DataSize;
+import io.dropwizard.util.DataSizeUnit;
+import io.dropwizard.util.Duration;
+import io.dropwizard.validation.MaxDataSize;
+import io.dropwizard.validation.MinDataSize;
+import io.dropwizard.validation.MinDuration;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+
+/**
+ * Configures a {@link BatchingWriter}. The byte budget of a batch is capped at 1MB, well below the 10MB FoundationDB
+ * transaction size limit, as large transactions commit much less reliably.
+ */
+public class BatchingWriterFactory {
+    @NotNull
+    @MinDuration(value = 0, unit = TimeUnit.MILLISECONDS)
+    @JsonProperty
+    private Duration linger = Duration.milliseconds(5);
+    @NotNull
+    @MinDataSize(value = 1, unit = DataSizeUnit.BYTES)
+    @MaxDataSize(value = 1, unit = DataSizeUnit.MEGABYTES)
+    @JsonProperty
+    private DataSize maxBatchSize = DataSize.kilobytes(500);
+    @Min(1)
+    @JsonProperty
+    private int maxBatchMutations = 10_000;
+    @JsonProperty
+    private boolean allowNonIdempotentMutations = false;
+
+    public Duration getLinger() {
+        return linger;
+    }
+
+    public void setLinger(final Duration linger) {
+        this.linger = linger;
+    }
+
+    public DataSize getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public void setMaxBatchSize(final DataSize maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public int getMaxBatchMutations() {
+        return maxBatchMutations;
+    }
+
+    public void setMaxBatchMutations(final int maxBatchMutations) {
+        this.maxBatchMutations = maxBatchMutations;
+    }
+
+    /**
+     * @return whether to accept atomic operations such as {@code ADD}, which are applied twice when a batch is retried
+     * after an unknown commit result
+     */
+    public boolean isAllowNonIdempotentMutations() {
+        return allowNonIdempotentMutations;
+    }
+
+    public void setAllowNonIdempotentMutations(final boolean allowNonIdempotentMutations) {
+        this.allowNonIdempotentMutations = allowNonIdempotentMutations;
+    }
+
+    /**
+     * Builds a writer for the database, managed by the lifecycle so that pending batches are committed on shutdown.
+     * The writer should be built after the database itself is managed, so that it is stopped first.
+     */
+    public BatchingWriter build(final Database database,
+                                final MetricRegistry metrics,
+                                final LifecycleEnvironment lifecycle,
+                                final String name) {
+        final ScheduledExecutorService scheduler = lifecycle.scheduledExecutorService(name + "-batching-writer-%d")
+                .threads(1)
+                .build();
+        final BatchingWriter writer = new BatchingWriter(database, scheduler, linger, maxBatchSize.toBytes(),
+                maxBatchMutations, allowNonIdempotentMutations, metrics, name);
+        lifecycle.manage(writer);
+
+        return writer;
+    }
+}
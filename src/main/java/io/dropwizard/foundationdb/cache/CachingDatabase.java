@@ -0,0 +1,495 @@
+package io.dropwizard.foundationdb.cache;
+
+import com.apple.foundationdb.Database;
+import com.apple.foundationdb.DatabaseOptions;
+import com.apple.foundationdb.EventKeeper;
+import com.apple.foundationdb.FDBException;
+import com.apple.foundationdb.KeyRangeArrayResult;
+import com.apple.foundationdb.Range;
+import com.apple.foundationdb.ReadTransaction;
+import com.apple.foundationdb.Tenant;
+import com.apple.foundationdb.Transaction;
+import com.apple.foundationdb.tuple.ByteArrayUtil;
+import com.apple.foundationdb.tuple.Tuple;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalNotification;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A FoundationDB {@link Database} decorator with a client-side read cache for keys in a set of configured subspaces.
+ * <p>
+ * Cached values are read through {@link #get(byte[])}. Each cached value is read together with a watch on its key,
+ * and is invalidated as soon as the watch fires. Transactions created by this database remember the cached keys they
+ * mutate and invalidate them once they commit, so a read never returns a value older than a commit made through this
+ * database. When the number of outstanding watches reaches the configured limit, reads fall back to the database until
+ * watches are released. When the cluster reports {@code 1032 too_many_watches}, the limit is lowered to the watches
+ * outstanding at the time, and is raised back towards the configured limit by a quarter every minute without another
+ * {@code 1032}.
+ */
+public class CachingDatabase implements Database {
+    private static final int TOO_MANY_WATCHES = 1032;
+    private static final long WATCH_LIMIT_RECOVERY_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final Database database;
+    private final List<byte[]> subspaces;
+    private final Cache<ByteBuffer, CompletableFuture<CachedValue>> cache;
+    private final AtomicInteger activeWatches = new AtomicInteger();
+    private final int maxWatches;
+    private final AtomicInteger watchLimit;
+    private final AtomicLong watchLimitLoweredAt = new AtomicLong();
+    private final Ticker ticker;
+    private final Meter hits;
+    private final Meter misses;
+    private final Meter evictions;
+    private final Meter fallbacks;
+
+    /**
+     * @param subspaces the key prefixes of the subspaces whose keys may be cached
+     */
+    public CachingDatabase(final Database database,
+                           final List<byte[]> subspaces,
+                           final long maximumSize,
+                           final int maxWatches,
+                           final MetricRegistry metrics,
+                           final String name) {
+        this(database, subspaces, maximumSize, maxWatches, metrics, name, Ticker.systemTicker());
+    }
+
+    CachingDatabase(final Database database,
+                    final List<byte[]> subspaces,
+                    final long maximumSize,
+                    final int maxWatches,
+                    final MetricRegistry metrics,
+                    final String name,
+                    final Ticker ticker) {
+        this.database = requireNonNull(database);
+        this.subspaces = List.copyOf(subspaces);
+        this.maxWatches = maxWatches;
+        this.watchLimit = new AtomicInteger(maxWatches);
+        this.ticker = requireNonNull(ticker);
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .removalListener(this::onRemoval)
+                .build();
+        this.hits = metrics.meter(MetricRegistry.name(name, "cache", "hits"));
+        this.misses = metrics.meter(MetricRegistry.name(name, "cache", "misses"));
+        this.evictions = metrics.meter(MetricRegistry.name(name, "cache", "evictions"));
+        this.fallbacks = metrics.meter(MetricRegistry.name(name, "cache", "fallbacks"));
+
+        metrics.register(MetricRegistry.name(name, "cache", "size"), (Gauge<Long>) cache::size);
+        metrics.register(MetricRegistry.name(name, "cache", "watches"), (Gauge<Integer>) activeWatches::get);
+        metrics.register(MetricRegistry.name(name, "cache", "watchLimit"), (Gauge<Integer>) watchLimit::get);
+    }
+
+    /**
+     * @return the database this database reads through and runs transactions with, such as an
+     * {@link io.dropwizard.foundationdb.instrumented.InstrumentedDatabase} for its workload and staleness overloads.
+     * Keys mutated through it are only invalidated once their watches fire.
+     */
+    public Database getDatabase() {
+        return database;
+    }
+
+    /**
+     * Reads the value of a key, serving it from the cache if the key belongs to a cached subspace.
+     *
+     * @return the value of the key, or {@code null} if the key is not set
+     */
+    public CompletableFuture<byte[]> get(final byte[] key) {
+        if (!isCached(key)) {
+            return readThrough(key);
+        }
+
+        final ByteBuffer cacheKey = ByteBuffer.wrap(key.clone());
+        final CompletableFuture<CachedValue> cached = cache.getIfPresent(cacheKey);
+        if (cached != null && !cached.isCompletedExceptionally()) {
+            // a read waiting on a value still being loaded is served by the database all the same
+            if (cached.isDone()) {
+                hits.mark();
+            } else {
+                misses.mark();
+            }
+            return cached.thenApply(CachedValue::getValue);
+        }
+
+        misses.mark();
+        if (activeWatches.get() >= currentWatchLimit()) {
+            fallbacks.mark();
+            return readThrough(key);
+        }
+
+        final CompletableFuture<CachedValue> loading = new CompletableFuture<>();
+        final CompletableFuture<CachedValue> raced = cache.asMap().putIfAbsent(cacheKey, loading);
+        if (raced != null) {
+            return raced.thenApply(CachedValue::getValue);
+        }
+
+        load(cacheKey, loading);
+        return loading.thenApply(CachedValue::getValue);
+    }
+
+    /**
+     * @return whether the key belongs to one of the cached subspaces
+     */
+    public boolean isCached(final byte[] key) {
+        for (final byte[] subspace : subspaces) {
+            if (ByteArrayUtil.startsWith(key, subspace)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Removes a key from the cache.
+     */
+    public void invalidate(final byte[] key) {
+        cache.invalidate(ByteBuffer.wrap(key));
+    }
+
+    /**
+     * Removes every cached key within the range from the cache.
+     */
+    public void invalidate(final Range range) {
+        for (final ByteBuffer cacheKey : cache.asMap().keySet()) {
+            final byte[] key = cacheKey.array();
+            if (ByteArrayUtil.compareUnsigned(key, range.begin) >= 0 && ByteArrayUtil.compareUnsigned(key, range.end) < 0) {
+                cache.invalidate(cacheKey);
+            }
+        }
+    }
+
+    /**
+     * @return the watch limit, after raising it by a quarter if it was lowered more than a minute ago
+     */
+    private int currentWatchLimit() {
+        final int limit = watchLimit.get();
+        if (limit >= maxWatches) {
+            return limit;
+        }
+
+        final long now = ticker.read();
+        final long loweredAt = watchLimitLoweredAt.get();
+        if (now - loweredAt >= WATCH_LIMIT_RECOVERY_NANOS && watchLimitLoweredAt.compareAndSet(loweredAt, now)) {
+            return watchLimit.updateAndGet(current -> Math.min(maxWatches, current + Math.max(1, current / 4)));
+        }
+        return limit;
+    }
+
+    private CompletableFuture<byte[]> readThrough(final byte[] key) {
+        return database.readAsync(transaction -> transaction.get(key), getExecutor());
+    }
+
+    private void load(final ByteBuffer cacheKey, final CompletableFuture<CachedValue> loading) {
+        final byte[] key = cacheKey.array();
+        database.runAsync(transaction -> {
+            final CompletableFuture<Void> watch = transaction.watch(key);
+            return transaction.get(key).thenApply(value -> new CachedValue(value, watch));
+        }, getExecutor()).whenComplete((cachedValue, error) -> {
+            if (error != null) {
+                cache.asMap().remove(cacheKey, loading);
+                loading.completeExceptionally(error);
+                return;
+            }
+
+            activeWatches.incrementAndGet();
+            cachedValue.getWatch().whenComplete((ignored, watchError) -> {
+                final int watches = activeWatches.getAndDecrement();
+                if (watchError instanceof FDBException && ((FDBException) watchError).getCode() == TOO_MANY_WATCHES) {
+                    watchLimit.accumulateAndGet(watches - 1, Math::min);
+                    watchLimitLoweredAt.set(ticker.read());
+                }
+                cache.asMap().remove(cacheKey, loading);
+            });
+            loading.complete(cachedValue);
+        });
+    }
+
+    private void onRemoval(final RemovalNotification<ByteBuffer, CompletableFuture<CachedValue>> notification) {
+        if (notification.getCause() == RemovalCause.SIZE) {
+            evictions.mark();
+        }
+
+        final CompletableFuture<CachedValue> value = notification.getValue();
+        if (value != null) {
+            // releases the watch, which is a no-op if it has already fired
+            value.thenAccept(cachedValue -> cachedValue.getWatch().cancel(true));
+        }
+    }
+
+    /**
+     * Creates a {@link CachingTransaction}.
+     * <p>
+     * {@inheritDoc}
+     */
+    @Override
+    public Transaction createTransaction() {
+        return new CachingTransaction(database.createTransaction(), this);
+    }
+
+    /**
+     * Creates a {@link CachingTransaction}.
+     * <p>
+     * {@inheritDoc}
+     */
+    @Override
+    public Transaction createTransaction(final Executor e) {
+        return new CachingTransaction(database.createTransaction(e), this);
+    }
+
+    /**
+     * Creates a {@link CachingTransaction}.
+     * <p>
+     * {@inheritDoc}
+     */
+    @Override
+    public Transaction createTransaction(final Executor e, final EventKeeper ek) {
+        return new CachingTransaction(database.createTransaction(e, ek), this);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public DatabaseOptions options() {
+        return database.options();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getMainThreadBusyness() {
+        return database.getMainThreadBusyness();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Tenant openTenant(final Tuple tenantName) {
+        return database.openTenant(tenantName);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Tenant openTenant(final byte[] tenantName, final Executor e) {
+        return database.openTenant(tenantName, e);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Tenant openTenant(final Tuple tenantName, final Executor e) {
+        return database.openTenant(tenantName, e);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Tenant openTenant(final byte[] tenantName, final Executor e, final EventKeeper eventKeeper) {
+        return database.openTenant(tenantName, e, eventKeeper);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Tenant openTenant(final Tuple tenantName, final Executor e, final EventKeeper eventKeeper) {
+        return database.openTenant(tenantName, e, eventKeeper);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<byte[]> purgeBlobGranules(final byte[] beginKey, final byte[] endKey, final long purgeVersion,
+                                                       final boolean force, final Executor e) {
+        return database.purgeBlobGranules(beginKey, endKey, purgeVersion, force, e);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<Void> waitPurgeGranulesComplete(final byte[] purgeKey, final Executor e) {
+        return database.waitPurgeGranulesComplete(purgeKey, e);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<Boolean> blobbifyRange(final byte[] beginKey, final byte[] endKey, final Executor e) {
+        return database.blobbifyRange(beginKey, endKey, e);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<Boolean> unblobbifyRange(final byte[] beginKey, final byte[] endKey, final Executor e) {
+        return database.unblobbifyRange(beginKey, endKey, e);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<KeyRangeArrayResult> listBlobbifiedRanges(final byte[] beginKey, final byte[] endKey,
+                                                                       final int rangeLimit, final Executor e) {
+        return database.listBlobbifiedRanges(beginKey, endKey, rangeLimit, e);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<Long> verifyBlobRange(final byte[] beginKey, final byte[] endKey, final long version,
+                                                   final Executor e) {
+        return database.verifyBlobRange(beginKey, endKey, version, e);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T> T read(final Function<? super ReadTransaction, T> retryable, final Executor e) {
+        return database.read(retryable, e);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T> CompletableFuture<T> readAsync(final Function<? super ReadTransaction, ? extends CompletableFuture<T>> retryable,
+                                              final Executor executor) {
+        return database.readAsync(retryable, executor);
+    }
+
+    /**
+     * Runs the retryable with a {@link CachingTransaction}, invalidating the cached keys mutated by the committed
+     * attempt before returning.
+     * <p>
+     * {@inheritDoc}
+     */
+    @Override
+    public <T> T run(final Function<? super Transaction, T> retryable, final Executor e) {
+        final AtomicReference<CachingTransaction> lastAttempt = new AtomicReference<>();
+        final T result = database.run(transaction -> {
+            final CachingTransaction cachingTransaction = new CachingTransaction(transaction, this);
+            lastAttempt.set(cachingTransaction);
+            return retryable.apply(cachingTransaction);
+        }, e);
+        invalidateWrites(lastAttempt.get());
+        return result;
+    }
+
+    /**
+     * Runs the retryable with a {@link CachingTransaction}, invalidating the cached keys mutated by the committed
+     * attempt before the returned future completes.
+     * <p>
+     * {@inheritDoc}
+     */
+    @Override
+    public <T> CompletableFuture<T> runAsync(final Function<? super Transaction, ? extends CompletableFuture<T>> retryable,
+                                             final Executor executor) {
+        final AtomicReference<CachingTransaction> lastAttempt = new AtomicReference<>();
+        return database.runAsync(transaction -> {
+            final CachingTransaction cachingTransaction = new CachingTransaction(transaction, this);
+            lastAttempt.set(cachingTransaction);
+            return retryable.apply(cachingTransaction);
+        }, executor).thenApply(result -> {
+            invalidateWrites(lastAttempt.get());
+            return result;
+        });
+    }
+
+    private void invalidateWrites(final CachingTransaction transaction) {
+        if (transaction != null) {
+            transaction.invalidateWrites();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() {
+        cache.invalidateAll();
+        database.close();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Executor getExecutor() {
+        return database.getExecutor();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<Boolean> blobbifyRangeBlocking(final byte[] beginKey, final byte[] endKey, final Executor e) {
+        return database.blobbifyRangeBlocking(beginKey, endKey, e);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<Boolean> flushBlobRange(final byte[] beginKey, final byte[] endKey, final boolean compact,
+                                                     final long version, final Executor e) {
+        return database.flushBlobRange(beginKey, endKey, compact, version, e);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<byte[]> getClientStatus(final Executor e) {
+        return database.getClientStatus(e);
+    }
+
+    private static class CachedValue {
+        private final byte[] value;
+        private final CompletableFuture<Void> watch;
+
+        private CachedValue(final byte[] value, final CompletableFuture<Void> watch) {
+            this.value = value;
+            this.watch = watch;
+        }
+
+        private byte[] getValue() {
+            return value;
+        }
+
+        private CompletableFuture<Void> getWatch() {
+            return watch;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package io.dropwizard.foundationdb.cache;
+
+import com.apple.foundationdb.Database;
+import com.apple.foundationdb.tuple.Tuple;
+
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+
+/**
+ * Configures the client-side read cache of a {@link CachingDatabase}. Only keys within the configured subspaces are
+ * cached; every subspace is the tuple-encoded form of its name, as with the health check subspace.
+ */
+public class ReadCacheFactory {
+    @NotEmpty
+    @JsonProperty
+    private List<String> subspaces = new ArrayList<>();
+    @Min(1)
+    @JsonProperty
+    private long maximumSize = 10_000;
+    @Min(1)
+    @JsonProperty
+    private int maxWatches = 1_000;
+
+    public List<String> getSubspaces() {
+        return subspaces;
+    }
+
+    public void setSubspaces(final List<String> subspaces) {
+        this.subspaces = subspaces;
+    }
+
+    public long getMaximumSize() {
+        return maximumSize;
+    }
+
+    public void setMaximumSize(final long maximumSize) {
+        this.maximumSize = maximumSize;
+    }
+
+    /**
+     * @return the maximum number of watches held by the cache, which should stay well below the
+     * {@code max_watches} database option (10,000 by default)
+     */
+    public int getMaxWatches() {
+        return maxWatches;
+    }
+
+    public void setMaxWatches(final int maxWatches) {
+        this.maxWatches = maxWatches;
+    }
+
+    public CachingDatabase build(final Database database, final MetricRegistry metrics, final String name) {
+        final List<byte[]> prefixes = subspaces.stream()
+                .map(subspace -> Tuple.from(subspace).pack())
+                .collect(Collectors.toList());
+
+        return new CachingDatabase(database, prefixes, maximumSize, maxWatches, metrics, name);
+    }
+}
@@ -0,0 +1,374 @@
+package io.dropwizard.foundationdb.client;
+
+import com.apple.foundationdb.Database;
+import com.apple.foundationdb.DatabaseOptions;
+import com.apple.foundationdb.EventKeeper;
+import com.apple.foundationdb.KeyRangeArrayResult;
+import com.apple.foundationdb.ReadTransaction;
+import com.apple.foundationdb.Tenant;
+import com.apple.foundationdb.Transaction;
+import com.apple.foundationdb.tuple.Tuple;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+
+/**
+ * A pool of {@link Database} handles to the same cluster, spreading transactions over the handles by the load of their
+ * network threads. With the multi-threaded client each handle is served by one of the client threads, so a pool lets an
+ * application use all of them; see {@link MultiThreadedClientFactory}.
+ * <p>
+ * Every operation picks two handles at random and is handed to the one with the lower load, the number of transactions
+ * and retry loops in flight on a handle weighted by the busyness of its network thread when last
+ * {@link #sampleBusyness() sampled}. The in-flight counts keep the operations spread between two samples, so that they
+ * do not all go to the handle which looked least busy, while the busyness steers more of them to the less busy threads.
+ * Transactions count as in flight until closed. Options set through {@link #options()} are applied to every handle.
+ */
+public class DatabasePool implements Database {
+    /**
+     * The busyness a handle is weighted by at most, so that a saturated handle is still picked once the others have
+     * enough operations in flight.
+     */
+    private static final double MAX_BUSYNESS = 0.99;
+
+    private final List<Database> databases;
+    private final DatabaseOptions options;
+    private final AtomicLongArray sampledBusyness;
+    private final AtomicIntegerArray inFlight;
+
+    public DatabasePool(final List<Database> databases) {
+        if (databases.isEmpty()) {
+            throw new IllegalArgumentException("A database pool needs at least one database");
+        }
+        this.databases = List.copyOf(databases);
+        this.sampledBusyness = new AtomicLongArray(databases.size());
+        this.inFlight = new AtomicIntegerArray(databases.size());
+        this.options = new DatabaseOptions((code, parameter) -> {
+            for (final Database database : this.databases) {
+                database.options().getOptionConsumer().setOption(code, parameter);
+            }
+        });
+    }
+
+    public List<Database> getDatabases() {
+        return databases;
+    }
+
+    /**
+     * Samples the busyness of the network thread of every handle, which the handles are then selected by.
+     *
+     * @return the busyness of every handle, in the order of {@link #getDatabases()}
+     */
+    public double[] sampleBusyness() {
+        final double[] busyness = new double[databases.size()];
+        for (int i = 0; i < busyness.length; i++) {
+            busyness[i] = databases.get(i).getMainThreadBusyness();
+            sampledBusyness.set(i, Double.doubleToRawLongBits(busyness[i]));
+        }
+        return busyness;
+    }
+
+    /**
+     * @return the number of transactions and retry loops in flight on every handle, in the order of
+     * {@link #getDatabases()}
+     */
+    int[] getInFlight() {
+        final int[] counts = new int[databases.size()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = inFlight.get(i);
+        }
+        return counts;
+    }
+
+    /**
+     * @return the index of the less loaded of two handles picked at random
+     */
+    private int selectIndex() {
+        final int size = databases.size();
+        if (size == 1) {
+            return 0;
+        }
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        final int first = random.nextInt(size);
+        final int second = (first + 1 + random.nextInt(size - 1)) % size;
+        return load(second) < load(first) ? second : first;
+    }
+
+    /**
+     * @return the number of operations in flight on a handle, including the one to be handed to it, scaled by how
+     * little time its network thread had left when last sampled
+     */
+    private double load(final int index) {
+        final double busyness = Math.min(Double.longBitsToDouble(sampledBusyness.get(index)), MAX_BUSYNESS);
+        return (inFlight.get(index) + 1) / (1 - busyness);
+    }
+
+    /**
+     * @return a handle for an operation which isn't counted as in flight, such as opening a tenant
+     */
+    private Database select() {
+        return databases.get(selectIndex());
+    }
+
+    /**
+     * Counts an operation as in flight on a handle.
+     *
+     * @return releases the operation, at most once however many times it is called
+     */
+    private Runnable acquire(final int index) {
+        inFlight.incrementAndGet(index);
+        final AtomicBoolean released = new AtomicBoolean();
+        return () -> {
+            if (released.compareAndSet(false, true)) {
+                inFlight.decrementAndGet(index);
+            }
+        };
+    }
+
+    private Transaction createTransaction(final Function<Database, Transaction> create) {
+        final int index = selectIndex();
+        final Runnable release = acquire(index);
+        try {
+            return new PooledTransaction(create.apply(databases.get(index)), this, release);
+        } catch (final RuntimeException e) {
+            release.run();
+            throw e;
+        }
+    }
+
+    private <T> T runLoop(final Function<Database, T> loop) {
+        final int index = selectIndex();
+        final Runnable release = acquire(index);
+        try {
+            return loop.apply(databases.get(index));
+        } finally {
+            release.run();
+        }
+    }
+
+    private <T> CompletableFuture<T> runLoopAsync(final Function<Database, CompletableFuture<T>> loop) {
+        final int index = selectIndex();
+        final Runnable release = acquire(index);
+        try {
+            return loop.apply(databases.get(index)).whenComplete((result, error) -> release.run());
+        } catch (final RuntimeException e) {
+            release.run();
+            throw e;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Transaction createTransaction() {
+        return createTransaction(database -> database.createTransaction());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Transaction createTransaction(final Executor e) {
+        return createTransaction(database -> database.createTransaction(e));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Transaction createTransaction(final Executor e, final EventKeeper ek) {
+        return createTransaction(database -> database.createTransaction(e, ek));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public DatabaseOptions options() {
+        return options;
+    }
+
+    /**
+     * @return the average busyness of the network threads of the pooled handles
+     */
+    @Override
+    public double getMainThreadBusyness() {
+        double total = 0;
+        for (final Database database : databases) {
+            total += database.getMainThreadBusyness();
+        }
+        return total / databases.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Tenant openTenant(final Tuple tenantName) {
+        return select().openTenant(tenantName);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Tenant openTenant(final byte[] tenantName, final Executor e) {
+        return select().openTenant(tenantName, e);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Tenant openTenant(final Tuple tenantName, final Executor e) {
+        return select().openTenant(tenantName, e);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Tenant openTenant(final byte[] tenantName, final Executor e, final EventKeeper eventKeeper) {
+        return select().openTenant(tenantName, e, eventKeeper);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Tenant openTenant(final Tuple tenantName, final Executor e, final EventKeeper eventKeeper) {
+        return select().openTenant(tenantName, e, eventKeeper);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<byte[]> purgeBlobGranules(final byte[] beginKey, final byte[] endKey, final long purgeVersion,
+                                                       final boolean force, final Executor e) {
+        return select().purgeBlobGranules(beginKey, endKey, purgeVersion, force, e);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<Void> waitPurgeGranulesComplete(final byte[] purgeKey, final Executor e) {
+        return select().waitPurgeGranulesComplete(purgeKey, e);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<Boolean> blobbifyRange(final byte[] beginKey, final byte[] endKey, final Executor e) {
+        return select().blobbifyRange(beginKey, endKey, e);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<Boolean> unblobbifyRange(final byte[] beginKey, final byte[] endKey, final Executor e) {
+        return select().unblobbifyRange(beginKey, endKey, e);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<KeyRangeArrayResult> listBlobbifiedRanges(final byte[] beginKey, final byte[] endKey,
+                                                                       final int rangeLimit, final Executor e) {
+        return select().listBlobbifiedRanges(beginKey, endKey, rangeLimit, e);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<Long> verifyBlobRange(final byte[] beginKey, final byte[] endKey, final long version,
+                                                   final Executor e) {
+        return select().verifyBlobRange(beginKey, endKey, version, e);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T> T read(final Function<? super ReadTransaction, T> retryable, final Executor e) {
+        return runLoop(database -> database.read(retryable, e));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T> CompletableFuture<T> readAsync(final Function<? super ReadTransaction, ? extends CompletableFuture<T>> retryable,
+                                              final Executor executor) {
+        return runLoopAsync(database -> database.readAsync(retryable, executor));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T> T run(final Function<? super Transaction, T> retryable, final Executor e) {
+        return runLoop(database -> database.run(retryable, e));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T> CompletableFuture<T> runAsync(final Function<? super Transaction, ? extends CompletableFuture<T>> retryable,
+                                             final Executor executor) {
+        return runLoopAsync(database -> database.runAsync(retryable, executor));
+    }
+
+    /**
+     * Closes every pooled handle.
+     */
+    @Override
+    public void close() {
+        databases.forEach(Database::close);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Executor getExecutor() {
+        return databases.get(0).getExecutor();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<Boolean> blobbifyRangeBlocking(final byte[] beginKey, final byte[] endKey, final Executor e) {
+        return select().blobbifyRangeBlocking(beginKey, endKey, e);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<Boolean> flushBlobRange(final byte[] beginKey, final byte[] endKey, final boolean compact,
+                                                     final long version, final Executor e) {
+        return select().flushBlobRange(beginKey, endKey, compact, version, e);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<byte[]> getClientStatus(final Executor e) {
+        return select().getClientStatus(e);
+    }
+}
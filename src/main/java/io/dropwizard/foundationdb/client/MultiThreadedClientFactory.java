@@ -0,0 +1,78 @@
+package io.dropwizard.foundationdb.client;
+
+import com.apple.foundationdb.NetworkOptions;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.util.Optional;
+
+import jakarta.validation.constraints.Min;
+
+/**
+ * Configures the multi-threaded client, which runs several copies of the client library, each with its own network
+ * thread, so that a busy network thread no longer caps the throughput of the application. Database handles are
+ * assigned to the client threads in turn, so a pool of at least {@code clientThreadsPerVersion} handles is needed to
+ * use them all.
+ * <p>
+ * The client threads are copies of an external client library, which must be installed alongside the application.
+ * These are network options, shared by every database of the application, and must be set before the first database
+ * is opened.
+ *
+ * @see <a href="https://apple.github.io/foundationdb/api-general.html#multi-threaded-client">Multi-threaded client</a>
+ */
+public class MultiThreadedClientFactory {
+    @Min(1)
+    @JsonProperty
+    private int clientThreadsPerVersion = 1;
+    @JsonProperty
+    private Optional<String> externalClientLibrary = Optional.empty();
+    @JsonProperty
+    private Optional<String> externalClientDirectory = Optional.empty();
+    @JsonProperty
+    private boolean disableLocalClient = false;
+
+    public int getClientThreadsPerVersion() {
+        return clientThreadsPerVersion;
+    }
+
+    public void setClientThreadsPerVersion(final int clientThreadsPerVersion) {
+        this.clientThreadsPerVersion = clientThreadsPerVersion;
+    }
+
+    public Optional<String> getExternalClientLibrary() {
+        return externalClientLibrary;
+    }
+
+    public void setExternalClientLibrary(final Optional<String> externalClientLibrary) {
+        this.externalClientLibrary = externalClientLibrary;
+    }
+
+    public Optional<String> getExternalClientDirectory() {
+        return externalClientDirectory;
+    }
+
+    public void setExternalClientDirectory(final Optional<String> externalClientDirectory) {
+        this.externalClientDirectory = externalClientDirectory;
+    }
+
+    /**
+     * @return whether to only use the external clients, which is required to run the local client library version on
+     * several threads
+     */
+    public boolean isDisableLocalClient() {
+        return disableLocalClient;
+    }
+
+    public void setDisableLocalClient(final boolean disableLocalClient) {
+        this.disableLocalClient = disableLocalClient;
+    }
+
+    public void addNetworkOptions(final NetworkOptions networkOptions) {
+        externalClientLibrary.ifPresent(networkOptions::setExternalClientLibrary);
+        externalClientDirectory.ifPresent(networkOptions::setExternalClientDirectory);
+        if (disableLocalClient) {
+            networkOptions.setDisableLocalClient();
+        }
+        networkOptions.setClientThreadsPerVersion(clientThreadsPerVersion);
+    }
+}
@@ -0,0 +1,475 @@
+package io.dropwizard.foundationdb.client;
+
+import com.apple.foundationdb.Database;
+import com.apple.foundationdb.EventKeeper;
+import com.apple.foundationdb.KeyArrayResult;
+import com.apple.foundationdb.KeyRangeArrayResult;
+import com.apple.foundationdb.KeySelector;
+import com.apple.foundationdb.KeyValue;
+import com.apple.foundationdb.MappedKeyValue;
+import com.apple.foundationdb.MutationType;
+import com.apple.foundationdb.Range;
+import com.apple.foundationdb.ReadTransaction;
+import com.apple.foundationdb.StreamingMode;
+import com.apple.foundationdb.Transaction;
+import com.apple.foundationdb.TransactionOptions;
+import com.apple.foundationdb.async.AsyncIterable;
+import com.apple.foundationdb.async.AsyncUtil;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A {@link Transaction} created by a {@link DatabasePool}, which counts as in flight on the pooled handle it was created
+ * by until it is closed. The transaction returned by {@link #onError} counts as the same transaction, so that a retry
+ * loop is counted once whatever its number of attempts.
+ */
+class PooledTransaction implements Transaction {
+    private final Transaction transaction;
+    private final DatabasePool database;
+    private final Runnable release;
+
+    /**
+     * @param release called once the transaction is closed, at most once however many times it is called
+     */
+    PooledTransaction(final Transaction transaction, final DatabasePool database, final Runnable release) {
+        this.transaction = requireNonNull(transaction);
+        this.database = requireNonNull(database);
+        this.release = requireNonNull(release);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addReadConflictRange(final byte[] keyBegin, final byte[] keyEnd) {
+        transaction.addReadConflictRange(keyBegin, keyEnd);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addReadConflictKey(final byte[] key) {
+        transaction.addReadConflictKey(key);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addWriteConflictRange(final byte[] keyBegin, final byte[] keyEnd) {
+        transaction.addWriteConflictRange(keyBegin, keyEnd);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addWriteConflictKey(final byte[] key) {
+        transaction.addWriteConflictKey(key);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void set(final byte[] key, final byte[] value) {
+        transaction.set(key, value);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clear(final byte[] key) {
+        transaction.clear(key);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clear(final byte[] beginKey, final byte[] endKey) {
+        transaction.clear(beginKey, endKey);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clear(final Range range) {
+        transaction.clear(range);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Deprecated
+    public void clearRangeStartsWith(final byte[] prefix) {
+        transaction.clearRangeStartsWith(prefix);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void mutate(final MutationType optype, final byte[] key, final byte[] param) {
+        transaction.mutate(optype, key, param);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<Void> commit() {
+        return transaction.commit();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Long getCommittedVersion() {
+        return transaction.getCommittedVersion();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<byte[]> getVersionstamp() {
+        return transaction.getVersionstamp();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<Long> getApproximateSize() {
+        return transaction.getApproximateSize();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<Transaction> onError(final Throwable e) {
+        return transaction.onError(e).thenApply(resetTransaction -> new PooledTransaction(resetTransaction, database, release));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void cancel() {
+        transaction.cancel();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<Void> watch(final byte[] key) {
+        return transaction.watch(key);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Database getDatabase() {
+        return database;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T> T run(final Function<? super Transaction, T> retryable) {
+        return retryable.apply(this);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T> CompletableFuture<T> runAsync(final Function<? super Transaction, ? extends CompletableFuture<T>> retryable) {
+        return AsyncUtil.applySafely(retryable, this);
+    }
+
+    /**
+     * Closes the transaction, which no longer counts as in flight on its pooled handle.
+     * <p>
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() {
+        try {
+            transaction.close();
+        } finally {
+            release.run();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isSnapshot() {
+        return transaction.isSnapshot();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ReadTransaction snapshot() {
+        return transaction.snapshot();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<Long> getReadVersion() {
+        return transaction.getReadVersion();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setReadVersion(final long version) {
+        transaction.setReadVersion(version);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean addReadConflictRangeIfNotSnapshot(final byte[] beginKey, final byte[] endKey) {
+        return transaction.addReadConflictRangeIfNotSnapshot(beginKey, endKey);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean addReadConflictKeyIfNotSnapshot(final byte[] key) {
+        return transaction.addReadConflictKeyIfNotSnapshot(key);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<byte[]> get(final byte[] key) {
+        return transaction.get(key);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<byte[]> getKey(final KeySelector selector) {
+        return transaction.getKey(selector);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AsyncIterable<KeyValue> getRange(final KeySelector begin, final KeySelector end) {
+        return transaction.getRange(begin, end);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AsyncIterable<KeyValue> getRange(final KeySelector begin, final KeySelector end, final int limit) {
+        return transaction.getRange(begin, end, limit);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AsyncIterable<KeyValue> getRange(final KeySelector begin, final KeySelector end, final int limit,
+                                            final boolean reverse) {
+        return transaction.getRange(begin, end, limit, reverse);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AsyncIterable<KeyValue> getRange(final KeySelector begin, final KeySelector end, final int limit,
+                                            final boolean reverse, final StreamingMode mode) {
+        return transaction.getRange(begin, end, limit, reverse, mode);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AsyncIterable<KeyValue> getRange(final byte[] begin, final byte[] end) {
+        return transaction.getRange(begin, end);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AsyncIterable<KeyValue> getRange(final byte[] begin, final byte[] end, final int limit) {
+        return transaction.getRange(begin, end, limit);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AsyncIterable<KeyValue> getRange(final byte[] begin, final byte[] end, final int limit,
+                                            final boolean reverse) {
+        return transaction.getRange(begin, end, limit, reverse);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AsyncIterable<KeyValue> getRange(final byte[] begin, final byte[] end, final int limit,
+                                            final boolean reverse, final StreamingMode mode) {
+        return transaction.getRange(begin, end, limit, reverse, mode);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AsyncIterable<KeyValue> getRange(final Range range) {
+        return transaction.getRange(range);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AsyncIterable<KeyValue> getRange(final Range range, final int limit) {
+        return transaction.getRange(range, limit);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AsyncIterable<KeyValue> getRange(final Range range, final int limit, final boolean reverse) {
+        return transaction.getRange(range, limit, reverse);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AsyncIterable<KeyValue> getRange(final Range range, final int limit, final boolean reverse,
+                                            final StreamingMode mode) {
+        return transaction.getRange(range, limit, reverse, mode);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AsyncIterable<MappedKeyValue> getMappedRange(final KeySelector begin, final KeySelector end,
+                                                        final byte[] mapper, final int limit, final boolean reverse,
+                                                        final StreamingMode mode) {
+        return transaction.getMappedRange(begin, end, mapper, limit, reverse, mode);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<Long> getEstimatedRangeSizeBytes(final byte[] begin, final byte[] end) {
+        return transaction.getEstimatedRangeSizeBytes(begin, end);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<Long> getEstimatedRangeSizeBytes(final Range range) {
+        return transaction.getEstimatedRangeSizeBytes(range);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<KeyArrayResult> getRangeSplitPoints(final byte[] begin, final byte[] end,
+                                                                 final long chunkSize) {
+        return transaction.getRangeSplitPoints(begin, end, chunkSize);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<KeyArrayResult> getRangeSplitPoints(final Range range, final long chunkSize) {
+        return transaction.getRangeSplitPoints(range, chunkSize);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<KeyRangeArrayResult> getBlobGranuleRanges(final byte[] begin, final byte[] end,
+                                                                       final int rowLimit) {
+        return transaction.getBlobGranuleRanges(begin, end, rowLimit);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public TransactionOptions options() {
+        return transaction.options();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public EventKeeper getEventKeeper() {
+        return transaction.getEventKeeper();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T> T read(final Function<? super ReadTransaction, T> retryable) {
+        return retryable.apply(this);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T> CompletableFuture<T> readAsync(final Function<? super ReadTransaction, ? extends CompletableFuture<T>> retryable) {
+        return AsyncUtil.applySafely(retryable, this);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Executor getExecutor() {
+        return transaction.getExecutor();
+    }
+}
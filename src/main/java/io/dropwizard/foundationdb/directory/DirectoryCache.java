@@ -0,0 +1,98 @@
+package io.dropwizard.foundationdb.directory;
+
+import com.apple.foundationdb.Database;
+import com.apple.foundationdb.ReadTransaction;
+import com.apple.foundationdb.Transaction;
+import com.apple.foundationdb.directory.DirectoryLayer;
+import com.apple.foundationdb.directory.DirectorySubspace;
+import com.apple.foundationdb.directory.NoSuchDirectoryException;
+
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.foundationdb.metadata.MetadataVersionCache;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A bounded cache of the subspaces of directory paths, so that transactions do not read the directory layer every
+ * time they resolve a path.
+ * <p>
+ * Subspaces are cached in a {@link MetadataVersionCache}, so a hit costs no round trip to the cluster. Moving or
+ * removing a directory must bump the metadata version for the cached paths to be resolved again, which {@link #move}
+ * and {@link #remove} do. Directories created through the cache are only cached once they are opened by a later
+ * transaction, as the transaction creating them may not commit.
+ */
+public class DirectoryCache {
+    private final DirectoryLayer directoryLayer;
+    private final MetadataVersionCache<List<String>, DirectorySubspace> cache;
+
+    public DirectoryCache(final Database database,
+                          final DirectoryLayer directoryLayer,
+                          final long maximumSize,
+                          final MetricRegistry metrics,
+                          final String name) {
+        this.directoryLayer = requireNonNull(directoryLayer);
+        this.cache = new MetadataVersionCache<>(database, maximumSize, metrics, MetricRegistry.name(name, "directoryCache"));
+    }
+
+    /**
+     * @return the subspace of an existing directory, failing with a {@link NoSuchDirectoryException} if it does not
+     * exist
+     */
+    public CompletableFuture<DirectorySubspace> open(final ReadTransaction transaction, final List<String> path) {
+        return cache.get(transaction, List.copyOf(path), directoryLayer::open);
+    }
+
+    /**
+     * @return the subspace of an existing directory, resolved in a transaction of its own
+     */
+    public CompletableFuture<DirectorySubspace> open(final List<String> path) {
+        return cache.get(List.copyOf(path), directoryLayer::open);
+    }
+
+    /**
+     * @return the subspace of a directory, creating the directory if it does not exist
+     */
+    public CompletableFuture<DirectorySubspace> createOrOpen(final Transaction transaction, final List<String> path) {
+        return open(transaction, path)
+                .handle((subspace, error) -> {
+                    if (error == null) {
+                        return CompletableFuture.completedFuture(subspace);
+                    }
+                    final Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                    if (cause instanceof NoSuchDirectoryException) {
+                        return directoryLayer.create(transaction, path);
+                    }
+                    return CompletableFuture.<DirectorySubspace>failedFuture(cause);
+                })
+                .thenCompose(created -> created);
+    }
+
+    /**
+     * Moves a directory, bumping the metadata version so that no cache resolves the old path any more.
+     */
+    public CompletableFuture<DirectorySubspace> move(final Transaction transaction,
+                                                     final List<String> oldPath,
+                                                     final List<String> newPath) {
+        return directoryLayer.move(transaction, oldPath, newPath)
+                .thenApply(subspace -> {
+                    MetadataVersionCache.bumpMetadataVersion(transaction);
+                    return subspace;
+                });
+    }
+
+    /**
+     * Removes a directory and its contents, bumping the metadata version so that no cache resolves the path any more.
+     */
+    public CompletableFuture<Void> remove(final Transaction transaction, final List<String> path) {
+        return directoryLayer.remove(transaction, path)
+                .thenRun(() -> MetadataVersionCache.bumpMetadataVersion(transaction));
+    }
+
+    public long size() {
+        return cache.size();
+    }
+}
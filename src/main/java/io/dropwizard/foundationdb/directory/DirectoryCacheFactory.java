@@ -0,0 +1,30 @@
+package io.dropwizard.foundationdb.directory;
+
+import com.apple.foundationdb.Database;
+import com.apple.foundationdb.directory.DirectoryLayer;
+
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import jakarta.validation.constraints.Min;
+
+/**
+ * Configures a {@link DirectoryCache} of the default directory layer.
+ */
+public class DirectoryCacheFactory {
+    @Min(1)
+    @JsonProperty
+    private long maximumSize = 10_000;
+
+    public long getMaximumSize() {
+        return maximumSize;
+    }
+
+    public void setMaximumSize(final long maximumSize) {
+        this.maximumSize = maximumSize;
+    }
+
+    public DirectoryCache build(final Database database, final MetricRegistry metrics, final String name) {
+        return new DirectoryCache(database, DirectoryLayer.getDefault(), maximumSize, metrics, name);
+    }
+}
@@ -0,0 +1,82 @@
+package io.dropwizard.foundationdb.executor;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.InstrumentedExecutorService;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import io.dropwizard.jackson.Discoverable;
+import io.dropwizard.lifecycle.setup.LifecycleEnvironment;
+import io.dropwizard.util.Duration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import jakarta.validation.constraints.NotNull;
+
+/**
+ * Configures the executor running the callbacks of a database, which is also the executor running the retry loops of
+ * {@code run} and {@code runAsync}.
+ * <p>
+ * The executor is managed by the application lifecycle, and is instrumented under {@code <name>.executor}: along with
+ * the submitted, running and completed task meters and the task duration, the {@code idle} timer records how long tasks
+ * waited before running, the {@code queueDepth} gauge how many tasks are waiting, and the {@code rejected} meter how many
+ * tasks an executor with a bounded queue rejected.
+ */
+@JsonTypeInfo(use = JsonTypeInfo.Id.NAME, property = "type")
+public abstract class ExecutorFactory implements Discoverable {
+    @NotNull
+    @JsonProperty
+    private Duration shutdownTime = Duration.seconds(5);
+
+    public Duration getShutdownTime() {
+        return shutdownTime;
+    }
+
+    public void setShutdownTime(final Duration shutdownTime) {
+        this.shutdownTime = shutdownTime;
+    }
+
+    /**
+     * Builds the executor service, making sure it is shut down with the application.
+     *
+     * @param nameFormat the format of the names of the threads of the executor, e.g. {@code FoundationDB-executor-%d}
+     */
+    protected abstract ExecutorService buildExecutorService(LifecycleEnvironment lifecycle, String nameFormat);
+
+    /**
+     * Builds the executor service, marking the given meter for every task rejected because its queue is full. Only
+     * executors with a bounded queue reject tasks, so the meter is left unmarked unless overridden.
+     *
+     * @param nameFormat the format of the names of the threads of the executor, e.g. {@code FoundationDB-executor-%d}
+     */
+    protected ExecutorService buildExecutorService(final LifecycleEnvironment lifecycle,
+                                                   final String nameFormat,
+                                                   final Meter rejected) {
+        return buildExecutorService(lifecycle, nameFormat);
+    }
+
+    public ExecutorService build(final LifecycleEnvironment lifecycle, final MetricRegistry metrics, final String name) {
+        final String metricName = MetricRegistry.name(name, "executor");
+        final ExecutorService executorService = buildExecutorService(lifecycle, name + "-executor-%d",
+                metrics.meter(MetricRegistry.name(metricName, "rejected")));
+
+        metrics.register(MetricRegistry.name(metricName, "queueDepth"), (Gauge<Long>) () -> queueDepth(executorService));
+
+        return new InstrumentedExecutorService(executorService, metrics, metricName);
+    }
+
+    private static long queueDepth(final ExecutorService executorService) {
+        if (executorService instanceof ThreadPoolExecutor) {
+            return ((ThreadPoolExecutor) executorService).getQueue().size();
+        }
+        if (executorService instanceof ForkJoinPool) {
+            final ForkJoinPool pool = (ForkJoinPool) executorService;
+            return pool.getQueuedSubmissionCount() + pool.getQueuedTaskCount();
+        }
+        // thread-per-task executors never queue tasks
+        return 0L;
+    }
+}
@@ -0,0 +1,93 @@
+package io.dropwizard.foundationdb.executor;
+
+import com.codahale.metrics.Meter;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonTypeName;
+import io.dropwizard.lifecycle.setup.LifecycleEnvironment;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+
+import jakarta.validation.constraints.Min;
+
+/**
+ * A pool of a fixed number of threads. With a {@code maxQueueSize}, tasks submitted while the queue is full are rejected
+ * with a {@link RejectedExecutionException} and counted by the {@code <name>.executor.rejected} meter. Tasks are never
+ * run by the thread submitting them, nor does it wait for the queue to have room, as for callbacks that thread is the
+ * FoundationDB network thread: a rejected callback instead fails the future depending on it, and with it the
+ * transaction, so that an overloaded application sheds load rather than queueing it without bound.
+ */
+@JsonTypeName("fixed")
+public class FixedThreadPoolExecutorFactory extends ExecutorFactory {
+    @Min(1)
+    @JsonProperty
+    private int threads = Runtime.getRuntime().availableProcessors();
+    @Min(0)
+    @JsonProperty
+    private int maxQueueSize = 0;
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public void setThreads(final int threads) {
+        this.threads = threads;
+    }
+
+    /**
+     * @return the maximum number of tasks waiting in the queue of the pool, past which tasks are rejected, or 0 for an
+     * unbounded queue
+     */
+    public int getMaxQueueSize() {
+        return maxQueueSize;
+    }
+
+    public void setMaxQueueSize(final int maxQueueSize) {
+        this.maxQueueSize = maxQueueSize;
+    }
+
+    protected BlockingQueue<Runnable> buildWorkQueue() {
+        return maxQueueSize > 0 ? new ArrayBlockingQueue<>(maxQueueSize) : new LinkedBlockingQueue<>();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected ExecutorService buildExecutorService(final LifecycleEnvironment lifecycle, final String nameFormat) {
+        return buildExecutorService(lifecycle, nameFormat, new Meter());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected ExecutorService buildExecutorService(final LifecycleEnvironment lifecycle,
+                                                   final String nameFormat,
+                                                   final Meter rejected) {
+        return lifecycle.executorService(nameFormat)
+                .minThreads(threads)
+                .maxThreads(threads)
+                .workQueue(buildWorkQueue())
+                .rejectedExecutionHandler(reject(rejected))
+                .shutdownTime(getShutdownTime())
+                .build();
+    }
+
+    /**
+     * @return a handler rejecting the tasks submitted while the queue of the pool is full
+     */
+    private static RejectedExecutionHandler reject(final Meter rejected) {
+        return (task, pool) -> {
+            if (pool.isShutdown()) {
+                throw new RejectedExecutionException("The executor has been shut down");
+            }
+            rejected.mark();
+            throw new RejectedExecutionException("The queue of the executor is full");
+        };
+    }
+}
@@ -0,0 +1,50 @@
+package io.dropwizard.foundationdb.executor;
+
+import com.fasterxml.jackson.annotation.JsonTypeName;
+import io.dropwizard.lifecycle.ExecutorServiceManager;
+import io.dropwizard.lifecycle.setup.LifecycleEnvironment;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Runs every task on a new virtual thread, so that callers blocking in {@code run()} no longer hold on to pooled
+ * threads. Requires Java 21 or later; the virtual thread API is looked up reflectively, as this module is built for
+ * older releases.
+ */
+@JsonTypeName("virtual")
+public class VirtualThreadExecutorFactory extends ExecutorFactory {
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected ExecutorService buildExecutorService(final LifecycleEnvironment lifecycle, final String nameFormat) {
+        final ExecutorService executorService =
+                newThreadPerTaskExecutor(virtualThreadFactory(nameFormat.replace("%d", "")));
+        lifecycle.manage(new ExecutorServiceManager(executorService, getShutdownTime(), nameFormat));
+        return executorService;
+    }
+
+    private static ThreadFactory virtualThreadFactory(final String prefix) {
+        try {
+            final Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            final Class<?> ofVirtual = Class.forName("java.lang.Thread$Builder$OfVirtual");
+            final Object namedBuilder = ofVirtual.getMethod("name", String.class, long.class).invoke(builder, prefix, 0L);
+            final Method factory = Class.forName("java.lang.Thread$Builder").getMethod("factory");
+            return (ThreadFactory) factory.invoke(namedBuilder);
+        } catch (final ReflectiveOperationException e) {
+            throw new IllegalStateException("Virtual threads require Java 21 or later", e);
+        }
+    }
+
+    private static ExecutorService newThreadPerTaskExecutor(final ThreadFactory threadFactory) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+                    .invoke(null, threadFactory);
+        } catch (final ReflectiveOperationException e) {
+            throw new IllegalStateException("Virtual threads require Java 21 or later", e);
+        }
+    }
+}
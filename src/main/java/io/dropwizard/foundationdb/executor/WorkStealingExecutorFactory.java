@@ -0,0 +1,46 @@
+package io.dropwizard.foundationdb.executor;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonTypeName;
+import io.dropwizard.lifecycle.ExecutorServiceManager;
+import io.dropwizard.lifecycle.setup.LifecycleEnvironment;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jakarta.validation.constraints.Min;
+
+/**
+ * A work-stealing {@link ForkJoinPool} in FIFO mode, suited to many short non-blocking callbacks.
+ */
+@JsonTypeName("work-stealing")
+public class WorkStealingExecutorFactory extends ExecutorFactory {
+    @Min(1)
+    @JsonProperty
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(final int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected ExecutorService buildExecutorService(final LifecycleEnvironment lifecycle, final String nameFormat) {
+        final AtomicInteger threadCount = new AtomicInteger();
+        final ForkJoinPool pool = new ForkJoinPool(parallelism, forkJoinPool -> {
+            final ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+            thread.setName(String.format(nameFormat, threadCount.getAndIncrement()));
+            return thread;
+        }, null, true);
+        lifecycle.manage(new ExecutorServiceManager(pool, getShutdownTime(), nameFormat));
+        return pool;
+    }
+}
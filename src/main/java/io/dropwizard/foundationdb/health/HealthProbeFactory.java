@@ -0,0 +1,77 @@
+package io.dropwizard.foundationdb.health;
+
+import com.apple.foundationdb.Database;
+
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.dropwizard.lifecycle.setup.LifecycleEnvironment;
+import io.dropwizard.util.Duration;
+import io.dropwizard.validation.MinDuration;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.validation.constraints.NotNull;
+
+/**
+ * Configures a {@link ProbingHealthCheck}, which replaces the health check polling the cluster on demand.
+ */
+public class HealthProbeFactory {
+    @NotNull
+    @MinDuration(value = 1, unit = TimeUnit.MILLISECONDS)
+    @JsonProperty
+    private Duration interval = Duration.seconds(5);
+    @NotNull
+    @MinDuration(value = 1, unit = TimeUnit.MILLISECONDS)
+    @JsonProperty
+    private Duration latencySlo = Duration.milliseconds(100);
+    @JsonProperty
+    private boolean writeProbe = false;
+
+    public Duration getInterval() {
+        return interval;
+    }
+
+    public void setInterval(final Duration interval) {
+        this.interval = interval;
+    }
+
+    public Duration getLatencySlo() {
+        return latencySlo;
+    }
+
+    public void setLatencySlo(final Duration latencySlo) {
+        this.latencySlo = latencySlo;
+    }
+
+    /**
+     * @return whether probes also commit a write, to track the commit latency of the cluster
+     */
+    public boolean isWriteProbe() {
+        return writeProbe;
+    }
+
+    public void setWriteProbe(final boolean writeProbe) {
+        this.writeProbe = writeProbe;
+    }
+
+    /**
+     * Builds a health check probing the database on a lifecycle managed scheduler.
+     */
+    public ProbingHealthCheck build(final Database database,
+                                    final String name,
+                                    final String subspacePath,
+                                    final Duration timeout,
+                                    final int retries,
+                                    final MetricRegistry metrics,
+                                    final LifecycleEnvironment lifecycle) {
+        final ScheduledExecutorService scheduler = lifecycle.scheduledExecutorService(name + "-health-probe-%d")
+                .threads(1)
+                .build();
+        final ProbingHealthCheck healthCheck = new ProbingHealthCheck(database, name, subspacePath, timeout, retries,
+                scheduler, interval, latencySlo, writeProbe, metrics);
+        lifecycle.manage(healthCheck);
+
+        return healthCheck;
+    }
+}
@@ -0,0 +1,232 @@
+package io.dropwizard.foundationdb.health;
+
+import com.apple.foundationdb.Database;
+import com.apple.foundationdb.FDBException;
+import com.apple.foundationdb.tuple.Tuple;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.health.HealthCheck;
+import io.dropwizard.lifecycle.Managed;
+import io.dropwizard.util.Duration;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Checks the health of a FoundationDB cluster by probing it in the background, so that polling the health check never
+ * blocks on the cluster.
+ * <p>
+ * Every probe requests a read version and reads an arbitrary key, and optionally commits a set and clear of a key,
+ * recording the latency of each step into the {@code health.probe.grvLatencyInNanos},
+ * {@code health.probe.readLatencyInNanos} and {@code health.probe.commitLatencyInNanos} histograms. The health check
+ * returns the result of the last probe: healthy, degraded when a step of the probe took longer than the latency SLO,
+ * or unhealthy when the probe failed. Degraded results are still healthy, carrying a {@code state} detail of
+ * {@code degraded}, so that a slow cluster is reported without being taken out of service. When no probe has
+ * completed for three intervals, the health check reports the cluster as unhealthy.
+ */
+public class ProbingHealthCheck extends HealthCheck implements Managed {
+    private static final Logger log = LoggerFactory.getLogger(ProbingHealthCheck.class);
+
+    private static final String STATE = "state";
+
+    private final Database database;
+    private final String name;
+    private final String subspacePath;
+    private final Duration timeout;
+    private final int retries;
+    private final ScheduledExecutorService scheduler;
+    private final Executor executor;
+    private final Duration interval;
+    private final long latencySloNanos;
+    private final boolean writeProbe;
+    private final Histogram grvLatency;
+    private final Histogram readLatency;
+    private final Histogram commitLatency;
+    private final AtomicBoolean probing = new AtomicBoolean();
+    private final AtomicLong lastProbedAt;
+    private volatile Result result = Result.builder()
+            .unhealthy()
+            .withMessage("No probe has completed yet")
+            .withDetail(STATE, "unhealthy")
+            .build();
+    @Nullable
+    private ScheduledFuture<?> probeTask;
+
+    /**
+     * @param scheduler  the scheduler starting the probes
+     * @param interval   the interval between the start of two probes
+     * @param latencySlo the latency of a step of the probe above which the cluster is degraded
+     * @param writeProbe whether to commit a write as part of the probe
+     */
+    public ProbingHealthCheck(final Database database,
+                              final String name,
+                              final String subspacePath,
+                              final Duration timeout,
+                              final int retries,
+                              final ScheduledExecutorService scheduler,
+                              final Duration interval,
+                              final Duration latencySlo,
+                              final boolean writeProbe,
+                              final MetricRegistry metrics) {
+        this.database = requireNonNull(database);
+        this.name = requireNonNull(name);
+        this.subspacePath = requireNonNull(subspacePath);
+        this.timeout = requireNonNull(timeout);
+        this.retries = retries;
+        this.scheduler = requireNonNull(scheduler);
+        this.executor = database.getExecutor();
+        this.interval = requireNonNull(interval);
+        this.latencySloNanos = latencySlo.toNanoseconds();
+        this.writeProbe = writeProbe;
+        this.grvLatency = metrics.histogram(MetricRegistry.name(name, "health", "probe", "grvLatencyInNanos"));
+        this.readLatency = metrics.histogram(MetricRegistry.name(name, "health", "probe", "readLatencyInNanos"));
+        this.commitLatency = metrics.histogram(MetricRegistry.name(name, "health", "probe", "commitLatencyInNanos"));
+        this.lastProbedAt = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * Returns the result of the last probe, without waiting on the cluster.
+     */
+    @Override
+    protected Result check() {
+        final long sinceLastProbe = System.nanoTime() - lastProbedAt.get();
+        if (sinceLastProbe > interval.toNanoseconds() * 3 + timeout.toNanoseconds()) {
+            return Result.builder()
+                    .unhealthy()
+                    .withMessage("No probe has completed for %d ms", TimeUnit.NANOSECONDS.toMillis(sinceLastProbe))
+                    .withDetail(STATE, "unhealthy")
+                    .build();
+        }
+        return result;
+    }
+
+    /**
+     * Probes the cluster, unless the previous probe is still running.
+     *
+     * @return a future completing once the probe has completed and its result is available
+     */
+    public CompletableFuture<Void> probe() {
+        if (!probing.compareAndSet(false, true)) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        final long[] latencies = new long[3];
+        final CompletableFuture<Void> probed;
+        try {
+            probed = probeRead(latencies)
+                    .thenCompose(ignored -> writeProbe ? probeWrite(latencies) : CompletableFuture.completedFuture(null));
+        } catch (final RuntimeException e) {
+            complete(latencies, e);
+            return CompletableFuture.completedFuture(null);
+        }
+        return probed.handle((ignored, error) -> {
+            complete(latencies, error);
+            return null;
+        });
+    }
+
+    private CompletableFuture<Void> probeRead(final long[] latencies) {
+        // read an arbitrary key that likely doesn't exist
+        final byte[] key = Tuple.from(subspacePath, UUID.randomUUID().toString()).pack();
+        return database.readAsync(transaction -> {
+            transaction.options().setTimeout(timeout.toMilliseconds());
+            transaction.options().setRetryLimit(retries);
+            final long startTime = System.nanoTime();
+            return transaction.getReadVersion().thenCompose(version -> {
+                final long readStartTime = System.nanoTime();
+                latencies[0] = readStartTime - startTime;
+                return transaction.get(key).thenAccept(value -> latencies[1] = System.nanoTime() - readStartTime);
+            });
+        }, executor).thenRun(() -> {
+            grvLatency.update(latencies[0]);
+            readLatency.update(latencies[1]);
+        });
+    }
+
+    private CompletableFuture<Void> probeWrite(final long[] latencies) {
+        final byte[] key = Tuple.from(subspacePath, UUID.randomUUID().toString()).pack();
+        final AtomicLong commitStartTime = new AtomicLong();
+        return database.runAsync(transaction -> {
+            transaction.options().setTimeout(timeout.toMilliseconds());
+            transaction.options().setRetryLimit(retries);
+            // the read version is requested before the commit starts, so the commit latency excludes it
+            return transaction.getReadVersion().thenRun(() -> {
+                transaction.set(key, Tuple.from(System.currentTimeMillis()).pack());
+                transaction.clear(key);
+                commitStartTime.set(System.nanoTime());
+            });
+        }, executor).thenRun(() -> {
+            latencies[2] = System.nanoTime() - commitStartTime.get();
+            commitLatency.update(latencies[2]);
+        });
+    }
+
+    private void complete(final long[] latencies, @Nullable final Throwable error) {
+        lastProbedAt.set(System.nanoTime());
+        result = error == null ? resultOf(latencies) : resultOf(unwrap(error));
+        probing.set(false);
+    }
+
+    private Result resultOf(final long[] latencies) {
+        final ResultBuilder builder = Result.builder()
+                .healthy()
+                .withDetail("grvLatencyInNanos", latencies[0])
+                .withDetail("readLatencyInNanos", latencies[1]);
+        if (writeProbe) {
+            builder.withDetail("commitLatencyInNanos", latencies[2]);
+        }
+
+        final long slowest = Math.max(latencies[0], Math.max(latencies[1], latencies[2]));
+        if (slowest > latencySloNanos) {
+            log.debug("Health probe against FoundationDB degraded for database={} latencyInNanos={}", name, slowest);
+            return builder.withMessage("Probe latency of %d ms is above the SLO", TimeUnit.NANOSECONDS.toMillis(slowest))
+                    .withDetail(STATE, "degraded")
+                    .build();
+        }
+        return builder.withDetail(STATE, "healthy").build();
+    }
+
+    private Result resultOf(final Throwable error) {
+        if (error instanceof FDBException) {
+            log.warn("FDB error caused health probe to fail for database={} with error code={}", name,
+                    ((FDBException) error).getCode(), error);
+        } else {
+            log.warn("Unable to perform a health probe against database={}", name, error);
+        }
+        return Result.builder()
+                .unhealthy(error)
+                .withMessage("Exception causing health check failure")
+                .withDetail(STATE, "unhealthy")
+                .build();
+    }
+
+    private static Throwable unwrap(final Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    @Override
+    public void start() throws Exception {
+        lastProbedAt.set(System.nanoTime());
+        probeTask = scheduler.scheduleAtFixedRate(this::probe, 0, interval.toMilliseconds(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() throws Exception {
+        if (probeTask != null) {
+            probeTask.cancel(false);
+        }
+    }
+}
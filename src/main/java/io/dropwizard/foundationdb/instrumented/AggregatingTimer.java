@@ -0,0 +1,165 @@
+package io.dropwizard.foundationdb.instrumented;
+
+import com.codahale.metrics.Clock;
+import com.codahale.metrics.Reservoir;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+import com.codahale.metrics.WeightedSnapshot;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A {@link Timer} whose reservoir is not updated on the recording thread. Samples are counted in striped, log-linear
+ * histograms (in the style of HdrHistogram, with 3 bits of sub-bucket precision), which {@link #flush()} merges into
+ * the snapshot of the timer; it is expected to be called periodically by a single thread.
+ * <p>
+ * Recording threads pick a stripe by thread id, so they rarely contend on the same cache lines, and never contend on
+ * the reservoir. The count and rates of the timer are updated as samples are recorded, through the striped counters of
+ * its meter, while its snapshot lags behind by up to one flush. A flush costs one pass over the buckets of every
+ * stripe, however many samples were recorded. The snapshot weighs samples as the default exponentially decaying
+ * reservoir does, towards the last five minutes, and reports them at the middle of their bucket (within ~6% of the
+ * recorded value).
+ */
+public class AggregatingTimer extends Timer {
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 40;
+    private static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+    private final StripedReservoir reservoir;
+
+    /**
+     * @param stripes the number of stripes to spread recording threads over, rounded up to a power of two
+     */
+    public AggregatingTimer(final int stripes) {
+        this(new StripedReservoir(stripes, Clock.defaultClock()), Clock.defaultClock());
+    }
+
+    AggregatingTimer(final int stripes, final Clock clock) {
+        this(new StripedReservoir(stripes, clock), clock);
+    }
+
+    private AggregatingTimer(final StripedReservoir reservoir, final Clock clock) {
+        super(reservoir, clock);
+        this.reservoir = reservoir;
+    }
+
+    /**
+     * Merges all samples recorded since the last flush into the snapshot of the timer.
+     */
+    public void flush() {
+        reservoir.flush();
+    }
+
+    static int bucketOf(final long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        final int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKETS - 1;
+        }
+        final int shift = exponent - SUB_BUCKET_BITS;
+        final int subBucket = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+        return (shift + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long valueOf(final int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        final int shift = bucket / SUB_BUCKETS - 1;
+        final long lowerBound = (long) (SUB_BUCKETS | bucket % SUB_BUCKETS) << shift;
+        return lowerBound + ((1L << shift) >>> 1);
+    }
+
+    /**
+     * Counts samples in striped buckets, and decays the merged buckets at every flush with the same forward decay
+     * factor as {@link com.codahale.metrics.ExponentiallyDecayingReservoir}.
+     */
+    private static final class StripedReservoir implements Reservoir {
+        private static final double ALPHA = 0.015;
+
+        private final Clock clock;
+        private final int stripeMask;
+        private final AtomicReferenceArray<AtomicLongArray> stripes;
+        private final double[] weights = new double[BUCKETS];
+        private long lastFlushTick;
+
+        private StripedReservoir(final int stripes, final Clock clock) {
+            int actualStripes = 1;
+            while (actualStripes < stripes) {
+                actualStripes <<= 1;
+            }
+            this.clock = clock;
+            this.stripeMask = actualStripes - 1;
+            this.stripes = new AtomicReferenceArray<>(actualStripes);
+            this.lastFlushTick = clock.getTick();
+        }
+
+        @Override
+        public void update(final long value) {
+            if (value < 0) {
+                return;
+            }
+
+            final int stripeIndex = (int) Thread.currentThread().getId() & stripeMask;
+            AtomicLongArray stripe = stripes.get(stripeIndex);
+            if (stripe == null) {
+                stripes.compareAndSet(stripeIndex, null, new AtomicLongArray(BUCKETS));
+                stripe = stripes.get(stripeIndex);
+            }
+            stripe.getAndIncrement(bucketOf(value));
+        }
+
+        synchronized void flush() {
+            final long tick = clock.getTick();
+            final double decay = Math.exp(-ALPHA * (tick - lastFlushTick) / (double) TimeUnit.SECONDS.toNanos(1));
+            lastFlushTick = tick;
+
+            for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                weights[bucket] *= decay;
+            }
+            for (int stripeIndex = 0; stripeIndex < stripes.length(); stripeIndex++) {
+                final AtomicLongArray stripe = stripes.get(stripeIndex);
+                if (stripe == null) {
+                    continue;
+                }
+                for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                    if (stripe.get(bucket) != 0L) {
+                        weights[bucket] += stripe.getAndSet(bucket, 0L);
+                    }
+                }
+            }
+        }
+
+        /**
+         * @return the number of buckets holding samples
+         */
+        @Override
+        public synchronized int size() {
+            int size = 0;
+            for (final double weight : weights) {
+                if (weight > 0) {
+                    size++;
+                }
+            }
+            return size;
+        }
+
+        @Override
+        public synchronized Snapshot getSnapshot() {
+            final List<WeightedSnapshot.WeightedSample> samples = new ArrayList<>();
+            for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                if (weights[bucket] > 0) {
+                    samples.add(new WeightedSnapshot.WeightedSample(valueOf(bucket), weights[bucket]));
+                }
+            }
+            return new WeightedSnapshot(samples);
+        }
+    }
+}
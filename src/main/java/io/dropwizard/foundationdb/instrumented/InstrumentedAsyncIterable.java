@@ -0,0 +1,98 @@
+package io.dropwizard.foundationdb.instrumented;
+
+import com.apple.foundationdb.KeyValue;
+import com.apple.foundationdb.async.AsyncIterable;
+import com.apple.foundationdb.async.AsyncIterator;
+
+import com.codahale.metrics.Timer;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * An {@link AsyncIterable} over a range read which records the time taken to exhaust the range along with the number
+ * of keys and bytes read.
+ */
+class InstrumentedAsyncIterable implements AsyncIterable<KeyValue> {
+    private final AsyncIterable<KeyValue> iterable;
+    private final TransactionMetrics metrics;
+
+    InstrumentedAsyncIterable(final AsyncIterable<KeyValue> iterable, final TransactionMetrics metrics) {
+        this.iterable = requireNonNull(iterable);
+        this.metrics = requireNonNull(metrics);
+    }
+
+    @Override
+    public AsyncIterator<KeyValue> iterator() {
+        return new InstrumentedAsyncIterator(iterable.iterator(), metrics.getGetRangeTimer().time());
+    }
+
+    @Override
+    public CompletableFuture<List<KeyValue>> asList() {
+        final Timer.Context timerCtx = metrics.getGetRangeTimer().time();
+        return iterable.asList().whenComplete((keyValues, error) -> {
+            timerCtx.stop();
+            if (keyValues != null) {
+                long bytes = 0L;
+                for (final KeyValue keyValue : keyValues) {
+                    bytes += keyValue.getKey().length + keyValue.getValue().length;
+                }
+                metrics.getKeysRead().mark(keyValues.size());
+                metrics.getBytesRead().mark(bytes);
+            }
+        });
+    }
+
+    private class InstrumentedAsyncIterator implements AsyncIterator<KeyValue> {
+        private final AsyncIterator<KeyValue> iterator;
+        @Nullable
+        private Timer.Context timerCtx;
+
+        private InstrumentedAsyncIterator(final AsyncIterator<KeyValue> iterator, final Timer.Context timerCtx) {
+            this.iterator = iterator;
+            this.timerCtx = timerCtx;
+        }
+
+        @Override
+        public CompletableFuture<Boolean> onHasNext() {
+            return iterator.onHasNext().whenComplete((hasNext, error) -> {
+                if (error != null || !hasNext) {
+                    stopTimer();
+                }
+            });
+        }
+
+        @Override
+        public boolean hasNext() {
+            final boolean hasNext = iterator.hasNext();
+            if (!hasNext) {
+                stopTimer();
+            }
+            return hasNext;
+        }
+
+        @Override
+        public KeyValue next() {
+            final KeyValue keyValue = iterator.next();
+            metrics.getKeysRead().mark();
+            metrics.getBytesRead().mark(keyValue.getKey().length + keyValue.getValue().length);
+            return keyValue;
+        }
+
+        @Override
+        public void cancel() {
+            stopTimer();
+            iterator.cancel();
+        }
+
+        private synchronized void stopTimer() {
+            if (timerCtx != null) {
+                timerCtx.stop();
+                timerCtx = null;
+            }
+        }
+    }
+}
@@ -7,62 +7,191 @@ import com.apple.foundationdb.KeyRangeArrayResult;
 import com.apple.foundationdb.ReadTransaction;
 import com.apple.foundationdb.Tenant;
 import com.apple.foundationdb.Transaction;
+import com.apple.foundationdb.TransactionOptions;
+import com.apple.foundationdb.async.AsyncUtil;
 
 import com.apple.foundationdb.tuple.Tuple;
 import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Timer;
+import io.dropwizard.foundationdb.limit.ConcurrencyLimiter;
+import io.dropwizard.foundationdb.readversion.ReadVersionCache;
+import io.dropwizard.util.Duration;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 import java.util.function.Function;
 
+import static java.util.Objects.requireNonNull;
+
 /**
  * A {@link MetricRegistry} instrumented FoundationDB {@link Database}. Instruments transactions with timers to record
- * timings and counts for database calls.
+ * timings and counts for database calls, along with the number of attempts and the error codes seen by their retry
+ * loops. The retry loops are run by this database, on transactions created by the wrapped database, so that the errors
+ * raised by their commits are recorded as well.
+ * <p>
+ * The retry loops can also share read versions through a {@link ReadVersionCache}, either with the default staleness
+ * of the database or with a staleness given per call. The first attempt of a loop then uses a cached read version,
+ * while retries always request a fresh one. A successful {@code run} or {@code runAsync} invalidates the cached read
+ * versions, so that the writes it made are visible to the loops that follow.
+ * <p>
+ * Tenants opened from the database are instrumented as well, see {@link InstrumentedTenant}.
+ * <p>
+ * When given a {@link ConcurrencyLimiter}, the {@code run} and {@code runAsync} retry loops only start once the limiter
+ * grants them a permit, and are rejected with a {@link java.util.concurrent.RejectedExecutionException} otherwise.
+ * <p>
+ * When given transaction options, they are set on every transaction created by the database and at the start of every
+ * attempt of its retry loops, as options such as the priority are reset when a transaction is retried. Further options,
+ * such as those of a transaction profile, are set by the views created through {@link #withTransactionOptions}.
+ * <p>
+ * When given {@link WorkloadTags}, the retry loops are tagged with the workload given at the call site, or else found in
+ * the MDC of the calling thread, which times them under {@code workloads.<workload>} and tags their transactions.
  */
 public class InstrumentedDatabase implements Database {
     private final Database database;
-    private final MetricRegistry metrics;
-    private final String readMetricName;
-    private final String readAsyncMetricName;
-    private final String runMetricName;
-    private final String runAsyncMetricName;
+    private final Timer readTimer;
+    private final Timer readAsyncTimer;
+    private final Timer runTimer;
+    private final Timer runAsyncTimer;
+    private final TransactionMetrics transactionMetrics;
+    private final RetryMetrics retryMetrics;
+    private final Histogram readAttempts;
+    private final Histogram readAsyncAttempts;
+    private final Histogram runAttempts;
+    private final Histogram runAsyncAttempts;
+    private final ReadVersionCache readVersionCache;
+    private final TenantMetrics tenantMetrics;
+    @Nullable
+    private final ConcurrencyLimiter concurrencyLimiter;
+    @Nullable
+    private final Consumer<? super TransactionOptions> transactionOptions;
+    @Nullable
+    private final WorkloadTags workloadTags;
 
     public InstrumentedDatabase(final Database database, final MetricRegistry metrics, final String name) {
+        this(builder(database, metrics, name));
+    }
+
+    private InstrumentedDatabase(final Builder builder) {
+        final Database database = builder.database;
+        final MetricRegistry metrics = builder.metrics;
+        final String name = builder.name;
+        final MetricRegistry.MetricSupplier<Timer> timerSupplier = builder.timerSupplier;
+        final Consumer<? super TransactionOptions> transactionOptions = builder.transactionOptions;
         this.database = database;
-        this.metrics = metrics;
-        this.readMetricName = MetricRegistry.name(name,"read.timeInNanos");
-        this.readAsyncMetricName = MetricRegistry.name(name,"readAsync.timeInNanos");
-        this.runMetricName = MetricRegistry.name(name,"run.timeInNanos");
-        this.runAsyncMetricName = MetricRegistry.name(name,"runAsync.timeInNanos");
+        this.readTimer = metrics.timer(MetricRegistry.name(name, "read.timeInNanos"), timerSupplier);
+        this.readAsyncTimer = metrics.timer(MetricRegistry.name(name, "readAsync.timeInNanos"), timerSupplier);
+        this.runTimer = metrics.timer(MetricRegistry.name(name, "run.timeInNanos"), timerSupplier);
+        this.runAsyncTimer = metrics.timer(MetricRegistry.name(name, "runAsync.timeInNanos"), timerSupplier);
+        this.transactionMetrics = new TransactionMetrics(metrics, name, timerSupplier);
+        this.retryMetrics = new RetryMetrics(metrics, name);
+        this.readAttempts = retryMetrics.attemptsHistogram("read");
+        this.readAsyncAttempts = retryMetrics.attemptsHistogram("readAsync");
+        this.runAttempts = retryMetrics.attemptsHistogram("run");
+        this.runAsyncAttempts = retryMetrics.attemptsHistogram("runAsync");
+        this.readVersionCache = new ReadVersionCache(database, builder.defaultReadVersionStaleness, transactionOptions,
+                metrics, name);
+        this.tenantMetrics = new TenantMetrics(metrics, name, timerSupplier, builder.maxTenantMetrics);
+        this.concurrencyLimiter = builder.concurrencyLimiter;
+        this.transactionOptions = transactionOptions;
+        this.workloadTags = builder.workloadTags;
 
         metrics.register(MetricRegistry.name(name, "MainThreadBusyness"),
                 (Gauge<Double>) this::getMainThreadBusyness);
     }
 
+    private InstrumentedDatabase(final InstrumentedDatabase parent,
+                                 final Consumer<? super TransactionOptions> transactionOptions,
+                                 final MetricRegistry metrics,
+                                 final String name,
+                                 final MetricRegistry.MetricSupplier<Timer> timerSupplier) {
+        this.database = parent.database;
+        this.readTimer = metrics.timer(MetricRegistry.name(name, "read.timeInNanos"), timerSupplier);
+        this.readAsyncTimer = metrics.timer(MetricRegistry.name(name, "readAsync.timeInNanos"), timerSupplier);
+        this.runTimer = metrics.timer(MetricRegistry.name(name, "run.timeInNanos"), timerSupplier);
+        this.runAsyncTimer = metrics.timer(MetricRegistry.name(name, "runAsync.timeInNanos"), timerSupplier);
+        this.transactionMetrics = parent.transactionMetrics;
+        this.retryMetrics = parent.retryMetrics;
+        this.readAttempts = parent.readAttempts;
+        this.readAsyncAttempts = parent.readAsyncAttempts;
+        this.runAttempts = parent.runAttempts;
+        this.runAsyncAttempts = parent.runAsyncAttempts;
+        this.tenantMetrics = parent.tenantMetrics;
+        this.concurrencyLimiter = parent.concurrencyLimiter;
+        this.workloadTags = parent.workloadTags;
+        final Consumer<? super TransactionOptions> parentOptions = parent.transactionOptions;
+        this.transactionOptions = parentOptions == null
+                ? transactionOptions
+                : options -> {
+                    parentOptions.accept(options);
+                    transactionOptions.accept(options);
+                };
+        // the read versions of the view are requested with its own options, e.g. its priority, but the writes made
+        // through either database invalidate the read versions cached by both
+        this.readVersionCache = parent.readVersionCache.withTransactionOptions(Duration.milliseconds(0),
+                this.transactionOptions, metrics, name);
+    }
+
+    /**
+     * @return a builder of a database instrumented under {@code name}, with the options of the builder left unset
+     */
+    public static Builder builder(final Database database, final MetricRegistry metrics, final String name) {
+        return new Builder(database, metrics, name);
+    }
+
+    /**
+     * Creates a view of this database whose transactions also get the given options, such as those of a transaction
+     * profile. The view runs its retry loops on the transactions of the wrapped database, timing them under its own
+     * name, and shares the transaction, retry, tenant and workload metrics and the concurrency limiter of this
+     * database, so that its transactions are instrumented once. Its loops request their own read versions unless given
+     * a staleness per call, and a write made through either the view or this database invalidates the read versions
+     * cached by both.
+     *
+     * @param name the name of the timers of the retry loops of the view, e.g. {@code FoundationDB.profiles.batch}
+     */
+    public InstrumentedDatabase withTransactionOptions(final Consumer<? super TransactionOptions> transactionOptions,
+                                                       final MetricRegistry metrics,
+                                                       final String name,
+                                                       final MetricRegistry.MetricSupplier<Timer> timerSupplier) {
+        return new InstrumentedDatabase(this, transactionOptions, metrics, name, timerSupplier);
+    }
+
     /**
+     * Creates an {@link InstrumentedTransaction}.
+     * <p>
      * {@inheritDoc}
      */
     @Override
     public Transaction createTransaction() {
-        return database.createTransaction();
+        return new InstrumentedTransaction(applyTransactionOptions(database.createTransaction()), this,
+                transactionMetrics);
     }
 
     /**
+     * Creates an {@link InstrumentedTransaction}.
+     * <p>
      * {@inheritDoc}
      */
     @Override
     public Transaction createTransaction(final Executor e) {
-        return database.createTransaction(e);
+        return new InstrumentedTransaction(applyTransactionOptions(database.createTransaction(e)), this,
+                transactionMetrics);
     }
 
     /**
+     * Creates an {@link InstrumentedTransaction}.
+     * <p>
      * {@inheritDoc}
      */
     @Override
     public Transaction createTransaction(final Executor e, final EventKeeper ek) {
-        return database.createTransaction(e, ek);
+        return new InstrumentedTransaction(applyTransactionOptions(database.createTransaction(e, ek)), this,
+                transactionMetrics);
     }
 
     /**
@@ -82,43 +211,57 @@ public class InstrumentedDatabase implements Database {
     }
 
     /**
+     * Opens an {@link InstrumentedTenant}.
+     * <p>
      * {@inheritDoc}
      */
     @Override
     public Tenant openTenant(Tuple tenantName) {
-        return database.openTenant(tenantName);
+        return instrumentTenant(database.openTenant(tenantName));
     }
 
     /**
+     * Opens an {@link InstrumentedTenant}.
+     * <p>
      * {@inheritDoc}
      */
     @Override
     public Tenant openTenant(byte[] tenantName, Executor e) {
-        return database.openTenant(tenantName, e);
+        return instrumentTenant(database.openTenant(tenantName, e));
     }
 
     /**
+     * Opens an {@link InstrumentedTenant}.
+     * <p>
      * {@inheritDoc}
      */
     @Override
     public Tenant openTenant(Tuple tenantName, Executor e) {
-        return database.openTenant(tenantName, e);
+        return instrumentTenant(database.openTenant(tenantName, e));
     }
 
     /**
+     * Opens an {@link InstrumentedTenant}.
+     * <p>
      * {@inheritDoc}
      */
     @Override
     public Tenant openTenant(byte[] tenantName, Executor e, EventKeeper eventKeeper) {
-        return database.openTenant(tenantName, e, eventKeeper);
+        return instrumentTenant(database.openTenant(tenantName, e, eventKeeper));
     }
 
     /**
+     * Opens an {@link InstrumentedTenant}.
+     * <p>
      * {@inheritDoc}
      */
     @Override
     public Tenant openTenant(Tuple tenantName, Executor e, EventKeeper eventKeeper) {
-        return database.openTenant(tenantName, e, eventKeeper);
+        return instrumentTenant(database.openTenant(tenantName, e, eventKeeper));
+    }
+
+    private Tenant instrumentTenant(final Tenant tenant) {
+        return new InstrumentedTenant(tenant, this, transactionMetrics, tenantMetrics.forTenant(tenant.getName()));
     }
 
     /**
@@ -169,13 +312,52 @@ public class InstrumentedDatabase implements Database {
         return database.verifyBlobRange(beginKey, endKey, version, e);
     }
 
+    public ReadVersionCache getReadVersionCache() {
+        return readVersionCache;
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public <T> T read(final Function<? super ReadTransaction, T> retryable, final Executor e) {
-        try (Timer.Context ignored = metrics.timer(readMetricName).time()) {
-            return database.read(retryable, e);
+        return read(retryable, e, readVersionCache.getDefaultStaleness(), null);
+    }
+
+    /**
+     * Runs a read-only retry loop whose first attempt uses a read version no older than the given staleness.
+     *
+     * @see #read(Function)
+     */
+    public <T> T read(final Function<? super ReadTransaction, T> retryable, final Duration maxStaleness) {
+        return read(retryable, getExecutor(), maxStaleness, null);
+    }
+
+    /**
+     * Runs a read-only retry loop for the given workload, see {@link WorkloadTags}.
+     *
+     * @see #read(Function)
+     */
+    public <T> T read(final String workload, final Function<? super ReadTransaction, T> retryable) {
+        return read(retryable, getExecutor(), readVersionCache.getDefaultStaleness(), workload);
+    }
+
+    private <T> T read(final Function<? super ReadTransaction, T> retryable,
+                       final Executor e,
+                       final Duration maxStaleness,
+                       @Nullable final String workload) {
+        final RetryMetrics.Tracker tracker = retryMetrics.newTracker(readAttempts);
+        final WorkloadTags.Call call = startWorkload(resolveWorkload(workload), WorkloadTags.Metrics::getRead);
+        try (Timer.Context ignored = readTimer.time()) {
+            final T result = retryLoop(this.<ReadTransaction, T>withTransactionOptions(
+                    this.<ReadTransaction, T>withCachedReadVersion(retryable, maxStaleness), call), e, tracker);
+            tracker.complete(null);
+            completeWorkload(call, null);
+            return result;
+        } catch (final RuntimeException error) {
+            tracker.complete(error);
+            completeWorkload(call, error);
+            throw error;
         }
     }
 
@@ -185,8 +367,46 @@ public class InstrumentedDatabase implements Database {
     @Override
     public <T> CompletableFuture<T> readAsync(final Function<? super ReadTransaction, ? extends CompletableFuture<T>> retryable,
                                               final Executor executor) {
-        final Timer.Context timerCtx = metrics.timer(readAsyncMetricName).time();
-        return database.readAsync(retryable, executor).whenComplete((result, error) -> timerCtx.stop());
+        return readAsync(retryable, executor, readVersionCache.getDefaultStaleness(), null);
+    }
+
+    /**
+     * Runs a read-only retry loop whose first attempt uses a read version no older than the given staleness.
+     *
+     * @see #readAsync(Function)
+     */
+    public <T> CompletableFuture<T> readAsync(final Function<? super ReadTransaction, ? extends CompletableFuture<T>> retryable,
+                                              final Duration maxStaleness) {
+        return readAsync(retryable, getExecutor(), maxStaleness, null);
+    }
+
+    /**
+     * Runs a read-only retry loop for the given workload, see {@link WorkloadTags}.
+     *
+     * @see #readAsync(Function)
+     */
+    public <T> CompletableFuture<T> readAsync(final String workload,
+                                              final Function<? super ReadTransaction, ? extends CompletableFuture<T>> retryable) {
+        return readAsync(retryable, getExecutor(), readVersionCache.getDefaultStaleness(), workload);
+    }
+
+    private <T> CompletableFuture<T> readAsync(final Function<? super ReadTransaction, ? extends CompletableFuture<T>> retryable,
+                                               final Executor executor,
+                                               final Duration maxStaleness,
+                                               @Nullable final String workload) {
+        final RetryMetrics.Tracker tracker = retryMetrics.newTracker(readAsyncAttempts);
+        final WorkloadTags.Call call = startWorkload(resolveWorkload(workload), WorkloadTags.Metrics::getReadAsync);
+        final Timer.Context timerCtx = readAsyncTimer.time();
+        return retryLoopAsync(database.createTransaction(executor),
+                        this.<ReadTransaction, T>withTransactionOptionsAsync(
+                                this.<ReadTransaction, T>withCachedReadVersionAsync(retryable, executor, maxStaleness),
+                                call),
+                        executor, tracker)
+                .whenComplete((result, error) -> {
+                    timerCtx.stop();
+                    tracker.complete(error);
+                    completeWorkload(call, error);
+                });
     }
 
     /**
@@ -194,8 +414,57 @@ public class InstrumentedDatabase implements Database {
      */
     @Override
     public <T> T run(final Function<? super Transaction, T> retryable, final Executor e) {
-        try (Timer.Context ignored = metrics.timer(runMetricName).time()) {
-            return database.run(retryable, e);
+        return run(retryable, e, readVersionCache.getDefaultStaleness(), null);
+    }
+
+    /**
+     * Runs a retry loop whose first attempt uses a read version no older than the given staleness.
+     *
+     * @see #run(Function)
+     */
+    public <T> T run(final Function<? super Transaction, T> retryable, final Duration maxStaleness) {
+        return run(retryable, getExecutor(), maxStaleness, null);
+    }
+
+    /**
+     * Runs a retry loop for the given workload, see {@link WorkloadTags}.
+     *
+     * @see #run(Function)
+     */
+    public <T> T run(final String workload, final Function<? super Transaction, T> retryable) {
+        return run(retryable, getExecutor(), readVersionCache.getDefaultStaleness(), workload);
+    }
+
+    private <T> T run(final Function<? super Transaction, T> retryable,
+                      final Executor e,
+                      final Duration maxStaleness,
+                      @Nullable final String workload) {
+        final String actualWorkload = resolveWorkload(workload);
+        if (concurrencyLimiter == null) {
+            return runLoop(retryable, e, maxStaleness, actualWorkload, null);
+        }
+        // the limiter sees the error of every attempt, including those raised by the commits
+        return concurrencyLimiter.<T>limit(errors -> runLoop(retryable, e, maxStaleness, actualWorkload, errors));
+    }
+
+    private <T> T runLoop(final Function<? super Transaction, T> retryable,
+                          final Executor e,
+                          final Duration maxStaleness,
+                          @Nullable final String workload,
+                          @Nullable final Consumer<Throwable> errors) {
+        final RetryMetrics.Tracker tracker = retryMetrics.newTracker(runAttempts, errors);
+        final WorkloadTags.Call call = startWorkload(workload, WorkloadTags.Metrics::getRun);
+        try (Timer.Context ignored = runTimer.time()) {
+            final T result = retryLoop(this.<Transaction, T>withTransactionOptions(
+                    this.<Transaction, T>withCachedReadVersion(retryable, maxStaleness), call), e, tracker);
+            readVersionCache.invalidate();
+            tracker.complete(null);
+            completeWorkload(call, null);
+            return result;
+        } catch (final RuntimeException error) {
+            tracker.complete(error);
+            completeWorkload(call, error);
+            throw error;
         }
     }
 
@@ -205,8 +474,226 @@ public class InstrumentedDatabase implements Database {
     @Override
     public <T> CompletableFuture<T> runAsync(final Function<? super Transaction, ? extends CompletableFuture<T>> retryable,
                                              final Executor executor) {
-        final Timer.Context timerCtx = metrics.timer(runAsyncMetricName).time();
-        return database.runAsync(retryable, executor).whenComplete((T result, Throwable error) -> timerCtx.stop());
+        return runAsync(retryable, executor, readVersionCache.getDefaultStaleness(), null);
+    }
+
+    /**
+     * Runs a retry loop whose first attempt uses a read version no older than the given staleness.
+     *
+     * @see #runAsync(Function)
+     */
+    public <T> CompletableFuture<T> runAsync(final Function<? super Transaction, ? extends CompletableFuture<T>> retryable,
+                                             final Duration maxStaleness) {
+        return runAsync(retryable, getExecutor(), maxStaleness, null);
+    }
+
+    /**
+     * Runs a retry loop for the given workload, see {@link WorkloadTags}.
+     *
+     * @see #runAsync(Function)
+     */
+    public <T> CompletableFuture<T> runAsync(final String workload,
+                                             final Function<? super Transaction, ? extends CompletableFuture<T>> retryable) {
+        return runAsync(retryable, getExecutor(), readVersionCache.getDefaultStaleness(), workload);
+    }
+
+    private <T> CompletableFuture<T> runAsync(final Function<? super Transaction, ? extends CompletableFuture<T>> retryable,
+                                              final Executor executor,
+                                              final Duration maxStaleness,
+                                              @Nullable final String workload) {
+        final String actualWorkload = resolveWorkload(workload);
+        if (concurrencyLimiter == null) {
+            return runAsyncLoop(retryable, executor, maxStaleness, actualWorkload, null);
+        }
+        return concurrencyLimiter.<T>limitAsync(
+                errors -> runAsyncLoop(retryable, executor, maxStaleness, actualWorkload, errors), executor);
+    }
+
+    private <T> CompletableFuture<T> runAsyncLoop(final Function<? super Transaction, ? extends CompletableFuture<T>> retryable,
+                                                  final Executor executor,
+                                                  final Duration maxStaleness,
+                                                  @Nullable final String workload,
+                                                  @Nullable final Consumer<Throwable> errors) {
+        final RetryMetrics.Tracker tracker = retryMetrics.newTracker(runAsyncAttempts, errors);
+        final WorkloadTags.Call call = startWorkload(workload, WorkloadTags.Metrics::getRunAsync);
+        final Timer.Context timerCtx = runAsyncTimer.time();
+        return retryLoopAsync(database.createTransaction(executor),
+                        this.<Transaction, T>withTransactionOptionsAsync(
+                                this.<Transaction, T>withCachedReadVersionAsync(retryable, executor, maxStaleness),
+                                call),
+                        executor, tracker)
+                .whenComplete((T result, Throwable error) -> {
+                    timerCtx.stop();
+                    if (error == null) {
+                        readVersionCache.invalidate();
+                    }
+                    tracker.complete(error);
+                    completeWorkload(call, error);
+                });
+    }
+
+    /**
+     * Runs the retry loop of a transaction, as the loops of the wrapped database do, but records the error of every
+     * failed attempt, whether raised by the retryable or by the commit. Read-only loops commit as well, which costs
+     * nothing as a read-only commit never reaches the cluster.
+     */
+    private <T> T retryLoop(final Function<? super Transaction, T> retryable,
+                            final Executor e,
+                            final RetryMetrics.Tracker tracker) {
+        Transaction transaction = database.createTransaction(e);
+        try {
+            while (true) {
+                tracker.startAttempt();
+                try {
+                    final T result = retryable.apply(transaction);
+                    transaction.commit().join();
+                    return result;
+                } catch (final RuntimeException error) {
+                    tracker.recordError(error);
+                    transaction = transaction.onError(error).join();
+                }
+            }
+        } finally {
+            transaction.close();
+        }
+    }
+
+    private <T> CompletableFuture<T> retryLoopAsync(final Transaction transaction,
+                                                    final Function<? super Transaction, ? extends CompletableFuture<T>> retryable,
+                                                    final Executor executor,
+                                                    final RetryMetrics.Tracker tracker) {
+        tracker.startAttempt();
+        return AsyncUtil.applySafely(retryable, transaction)
+                .thenCompose(result -> transaction.commit().thenApply(ignored -> result))
+                .handle((result, error) -> {
+                    if (error == null) {
+                        transaction.close();
+                        return CompletableFuture.completedFuture(result);
+                    }
+                    tracker.recordError(error);
+                    return transaction.onError(error)
+                            .whenComplete((retry, retryError) -> {
+                                if (retryError != null) {
+                                    transaction.close();
+                                }
+                            })
+                            // don't start the next attempt on the network thread completing the reset
+                            .thenComposeAsync(retry -> retryLoopAsync(retry, retryable, executor, tracker), executor);
+                })
+                .thenCompose(Function.identity());
+    }
+
+    private Transaction applyTransactionOptions(final Transaction transaction) {
+        if (transactionOptions != null) {
+            transactionOptions.accept(transaction.options());
+        }
+        return transaction;
+    }
+
+    @Nullable
+    private String resolveWorkload(@Nullable final String workload) {
+        return workloadTags != null ? workloadTags.resolve(workload) : null;
+    }
+
+    @Nullable
+    private WorkloadTags.Call startWorkload(@Nullable final String workload,
+                                            final Function<WorkloadTags.Metrics, Timer> operation) {
+        return workloadTags != null && workload != null ? workloadTags.start(workload, operation) : null;
+    }
+
+    private static void completeWorkload(@Nullable final WorkloadTags.Call call, @Nullable final Throwable error) {
+        if (call != null) {
+            call.complete(error);
+        }
+    }
+
+    /**
+     * Sets the transaction options and the workload tag at the start of every attempt, before the read version is set.
+     */
+    private <C extends ReadTransaction, T> Function<C, T> withTransactionOptions(final Function<? super C, T> retryable,
+                                                                               @Nullable final WorkloadTags.Call call) {
+        final Consumer<? super TransactionOptions> options = transactionOptions;
+        if (options == null && call == null) {
+            return retryable::apply;
+        }
+        return transaction -> {
+            setTransactionOptions(transaction.options(), options, call);
+            return retryable.apply(transaction);
+        };
+    }
+
+    private <C extends ReadTransaction, T> Function<C, CompletableFuture<T>> withTransactionOptionsAsync(
+            final Function<? super C, ? extends CompletableFuture<T>> retryable,
+            @Nullable final WorkloadTags.Call call) {
+        final Consumer<? super TransactionOptions> options = transactionOptions;
+        if (options == null && call == null) {
+            return retryable::apply;
+        }
+        return transaction -> {
+            setTransactionOptions(transaction.options(), options, call);
+            return retryable.apply(transaction);
+        };
+    }
+
+    private static void setTransactionOptions(final TransactionOptions transactionOptions,
+                                              @Nullable final Consumer<? super TransactionOptions> options,
+                                              @Nullable final WorkloadTags.Call call) {
+        if (options != null) {
+            options.accept(transactionOptions);
+        }
+        if (call != null) {
+            call.tag(transactionOptions);
+        }
+    }
+
+    private <C extends ReadTransaction, T> Function<C, T> withCachedReadVersion(final Function<? super C, T> retryable,
+                                                                              final Duration maxStaleness) {
+        if (maxStaleness.toNanoseconds() <= 0) {
+            return retryable::apply;
+        }
+
+        final AtomicBoolean firstAttempt = new AtomicBoolean(true);
+        return transaction -> {
+            if (firstAttempt.getAndSet(false)) {
+                useReadVersion(transaction, readVersionCache.getReadVersion(maxStaleness));
+            }
+            return retryable.apply(transaction);
+        };
+    }
+
+    private <C extends ReadTransaction, T> Function<C, CompletableFuture<T>> withCachedReadVersionAsync(
+            final Function<? super C, ? extends CompletableFuture<T>> retryable,
+            final Executor executor,
+            final Duration maxStaleness) {
+        if (maxStaleness.toNanoseconds() <= 0) {
+            return retryable::apply;
+        }
+
+        final AtomicBoolean firstAttempt = new AtomicBoolean(true);
+        return transaction -> {
+            if (!firstAttempt.getAndSet(false)) {
+                return retryable.apply(transaction);
+            }
+
+            final CompletableFuture<Long> readVersion = readVersionCache.getReadVersion(maxStaleness);
+            if (readVersion.isDone()) {
+                useReadVersion(transaction, readVersion);
+                return retryable.apply(transaction);
+            }
+            // don't run the retryable on the network thread completing the read version request
+            return readVersion.handleAsync((version, error) -> {
+                useReadVersion(transaction, readVersion);
+                return transaction;
+            }, executor).thenCompose(tr -> retryable.apply(tr));
+        };
+    }
+
+    private static void useReadVersion(final ReadTransaction transaction, final CompletableFuture<Long> readVersion) {
+        try {
+            transaction.setReadVersion(readVersion.join());
+        } catch (final CompletionException e) {
+            // the transaction requests its own read version, and surfaces any error through the retry loop
+        }
     }
 
     /**
@@ -248,4 +735,82 @@ public class InstrumentedDatabase implements Database {
     public CompletableFuture<byte[]> getClientStatus(Executor e) {
         return database.getClientStatus(e);
     }
+
+    /**
+     * Builds an {@link InstrumentedDatabase}.
+     */
+    public static class Builder {
+        private final Database database;
+        private final MetricRegistry metrics;
+        private final String name;
+        private MetricRegistry.MetricSupplier<Timer> timerSupplier = Timer::new;
+        private Duration defaultReadVersionStaleness = Duration.milliseconds(0);
+        private int maxTenantMetrics = TenantMetrics.DEFAULT_MAX_TENANTS;
+        @Nullable
+        private ConcurrencyLimiter concurrencyLimiter;
+        @Nullable
+        private Consumer<? super TransactionOptions> transactionOptions;
+        @Nullable
+        private WorkloadTags workloadTags;
+
+        private Builder(final Database database, final MetricRegistry metrics, final String name) {
+            this.database = requireNonNull(database);
+            this.metrics = requireNonNull(metrics);
+            this.name = requireNonNull(name);
+        }
+
+        /**
+         * @param timerSupplier the supplier used to create the timers of the database, see
+         *                      {@link MetricsAggregationFactory}
+         */
+        public Builder setTimerSupplier(final MetricRegistry.MetricSupplier<Timer> timerSupplier) {
+            this.timerSupplier = requireNonNull(timerSupplier);
+            return this;
+        }
+
+        /**
+         * @param defaultReadVersionStaleness the staleness of the read versions used by the retry loops of the
+         *                                    database, or zero to let every loop request its own read version
+         */
+        public Builder setDefaultReadVersionStaleness(final Duration defaultReadVersionStaleness) {
+            this.defaultReadVersionStaleness = requireNonNull(defaultReadVersionStaleness);
+            return this;
+        }
+
+        /**
+         * @param maxTenantMetrics the maximum number of tenants with timers of their own, see {@link TenantMetrics}
+         */
+        public Builder setMaxTenantMetrics(final int maxTenantMetrics) {
+            this.maxTenantMetrics = maxTenantMetrics;
+            return this;
+        }
+
+        /**
+         * @param concurrencyLimiter the limiter capping the {@code run} and {@code runAsync} loops in flight, if any
+         */
+        public Builder setConcurrencyLimiter(@Nullable final ConcurrencyLimiter concurrencyLimiter) {
+            this.concurrencyLimiter = concurrencyLimiter;
+            return this;
+        }
+
+        /**
+         * @param transactionOptions sets the options of every transaction of the database, if any
+         */
+        public Builder setTransactionOptions(@Nullable final Consumer<? super TransactionOptions> transactionOptions) {
+            this.transactionOptions = transactionOptions;
+            return this;
+        }
+
+        /**
+         * @param workloadTags tags the retry loops of the database with their workload, if any
+         */
+        public Builder setWorkloadTags(@Nullable final WorkloadTags workloadTags) {
+            this.workloadTags = workloadTags;
+            return this;
+        }
+
+        public InstrumentedDatabase build() {
+            return new InstrumentedDatabase(this);
+        }
+    }
 }
@@ -5,19 +5,32 @@ import com.apple.foundationdb.record.provider.foundationdb.FDBDatabaseFactory;
 import com.apple.foundationdb.record.provider.foundationdb.FDBRecordContext;
 import com.apple.foundationdb.record.provider.foundationdb.FDBStoreTimer;
 
+import com.codahale.metrics.Histogram;
 import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.google.common.cache.CacheBuilder;
+import io.dropwizard.foundationdb.limit.ConcurrencyLimiter;
 import org.checkerframework.checker.nullness.qual.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentMap;
 import java.util.function.Function;
 
 import static java.util.Objects.requireNonNull;
 
 /**
- * A {@link MetricRegistry} instrumented version of the RecDB {@link FDBDatabase}.
+ * A {@link MetricRegistry} instrumented version of the RecDB {@link FDBDatabase}. Records the number of attempts and
+ * the error codes seen by the retry loops of {@code run} and {@code runAsync}.
+ * <p>
+ * When given a {@link ConcurrencyLimiter}, those retry loops only start once the limiter grants them a permit, and are
+ * rejected with a {@link java.util.concurrent.RejectedExecutionException} otherwise.
+ * <p>
+ * When given {@link WorkloadTags}, those retry loops are tagged with the workload found under its MDC key in the MDC
+ * context given to them, or else in the MDC of the calling thread, which times them under {@code workloads.<workload>}
+ * and tags their transactions.
  */
 public class InstrumentedFDBDatabase extends FDBDatabase {
     private static final Logger log = LoggerFactory.getLogger(InstrumentedFDBDatabase.class);
@@ -25,49 +38,200 @@ public class InstrumentedFDBDatabase extends FDBDatabase {
     private final MetricRegistry metrics;
     private final FDBDatabase database;
     private final String name;
+    private final RetryMetrics retryMetrics;
+    private final Histogram runAttempts;
+    private final Histogram runAsyncAttempts;
+    private final StoreTimerMetrics storeTimerMetrics;
+    @Nullable
+    private final ConcurrencyLimiter concurrencyLimiter;
+    @Nullable
+    private final WorkloadTags workloadTags;
+    private final ConcurrentMap<FDBStoreTimer, InstrumentedFDBStoreTimer> instrumentedTimers = CacheBuilder.newBuilder()
+            .weakKeys()
+            .<FDBStoreTimer, InstrumentedFDBStoreTimer>build()
+            .asMap();
 
     public InstrumentedFDBDatabase(final FDBDatabaseFactory factory,
                                    @Nullable final String clusterFile,
                                    final FDBDatabase database,
                                    final MetricRegistry metrics,
                                    final String name) {
+        this(factory, clusterFile, database, metrics, name, Timer::new);
+    }
+
+    /**
+     * @param timerSupplier the supplier used to create the timers of this database, see
+     *                      {@link MetricsAggregationFactory}
+     */
+    public InstrumentedFDBDatabase(final FDBDatabaseFactory factory,
+                                   @Nullable final String clusterFile,
+                                   final FDBDatabase database,
+                                   final MetricRegistry metrics,
+                                   final String name,
+                                   final MetricRegistry.MetricSupplier<Timer> timerSupplier) {
+        this(factory, clusterFile, database, metrics, name, timerSupplier, null);
+    }
+
+    /**
+     * @param timerSupplier      the supplier used to create the timers of this database, see
+     *                           {@link MetricsAggregationFactory}
+     * @param concurrencyLimiter the limiter capping the {@code run} and {@code runAsync} loops in flight, if any
+     */
+    public InstrumentedFDBDatabase(final FDBDatabaseFactory factory,
+                                   @Nullable final String clusterFile,
+                                   final FDBDatabase database,
+                                   final MetricRegistry metrics,
+                                   final String name,
+                                   final MetricRegistry.MetricSupplier<Timer> timerSupplier,
+                                   @Nullable final ConcurrencyLimiter concurrencyLimiter) {
+        this(factory, clusterFile, database, metrics, name, timerSupplier, concurrencyLimiter, null);
+    }
+
+    /**
+     * @param timerSupplier      the supplier used to create the timers of this database, see
+     *                           {@link MetricsAggregationFactory}
+     * @param concurrencyLimiter the limiter capping the {@code run} and {@code runAsync} loops in flight, if any
+     * @param workloadTags       tags the {@code run} and {@code runAsync} loops with their workload, if any
+     */
+    public InstrumentedFDBDatabase(final FDBDatabaseFactory factory,
+                                   @Nullable final String clusterFile,
+                                   final FDBDatabase database,
+                                   final MetricRegistry metrics,
+                                   final String name,
+                                   final MetricRegistry.MetricSupplier<Timer> timerSupplier,
+                                   @Nullable final ConcurrencyLimiter concurrencyLimiter,
+                                   @Nullable final WorkloadTags workloadTags) {
         super(factory, clusterFile);
 
         this.database = requireNonNull(database);
         this.metrics = requireNonNull(metrics);
         this.name = requireNonNull(name);
+        this.retryMetrics = new RetryMetrics(metrics, name);
+        this.runAttempts = retryMetrics.attemptsHistogram("run");
+        this.runAsyncAttempts = retryMetrics.attemptsHistogram("runAsync");
+        this.storeTimerMetrics = new StoreTimerMetrics(metrics, name, timerSupplier);
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.workloadTags = workloadTags;
     }
 
     @Override
     public <T> T run(@Nullable final FDBStoreTimer timer,
                      @Nullable final Map<String, String> mdcContext,
                      final Function<? super FDBRecordContext, ? extends T> retriable) {
-        if (timer != null) {
-            return database.run(new InstrumentedFDBStoreTimer(timer, metrics, name), mdcContext, retriable);
+        final String workload = resolveWorkload(mdcContext);
+        if (concurrencyLimiter == null) {
+            return runLoop(timer, mdcContext, workload, retriable);
+        }
+        return concurrencyLimiter.<FDBRecordContext, T>limit(retriable,
+                limited -> runLoop(timer, mdcContext, workload, limited));
+    }
+
+    private <T> T runLoop(@Nullable final FDBStoreTimer timer,
+                          @Nullable final Map<String, String> mdcContext,
+                          @Nullable final String workload,
+                          final Function<? super FDBRecordContext, ? extends T> retriable) {
+        final FDBStoreTimer actualTimer = instrument(timer);
+        final RetryMetrics.Tracker tracker = retryMetrics.newTracker(runAttempts);
+        final WorkloadTags.Call call = startWorkload(workload, WorkloadTags.Metrics::getRun);
+        try {
+            final T result = database.run(actualTimer, mdcContext, tracker.<FDBRecordContext, T>wrap(
+                    withWorkloadTag(retriable, call)));
+            tracker.complete(null);
+            completeWorkload(call, null);
+            return result;
+        } catch (final RuntimeException error) {
+            tracker.complete(error);
+            completeWorkload(call, error);
+            throw error;
         }
-        return database.run(null, mdcContext, retriable);
     }
 
     @Override
     public <T> CompletableFuture<T> runAsync(@Nullable final FDBStoreTimer timer,
                                              @Nullable final Map<String, String> mdcContext,
                                              final Function<? super FDBRecordContext, CompletableFuture<? extends T>> retriable) {
-        if (timer != null) {
-            return database.runAsync(new InstrumentedFDBStoreTimer(timer, metrics, name), mdcContext, retriable);
+        final String workload = resolveWorkload(mdcContext);
+        if (concurrencyLimiter == null) {
+            return runAsyncLoop(timer, mdcContext, workload, retriable);
+        }
+        return concurrencyLimiter.<FDBRecordContext, CompletableFuture<? extends T>, T>limitAsync(retriable,
+                limited -> runAsyncLoop(timer, mdcContext, workload, limited), database.getExecutor());
+    }
+
+    private <T> CompletableFuture<T> runAsyncLoop(@Nullable final FDBStoreTimer timer,
+                                                  @Nullable final Map<String, String> mdcContext,
+                                                  @Nullable final String workload,
+                                                  final Function<? super FDBRecordContext, CompletableFuture<? extends T>> retriable) {
+        final FDBStoreTimer actualTimer = instrument(timer);
+        final RetryMetrics.Tracker tracker = retryMetrics.newTracker(runAsyncAttempts);
+        final WorkloadTags.Call call = startWorkload(workload, WorkloadTags.Metrics::getRunAsync);
+        return database.runAsync(actualTimer, mdcContext,
+                        tracker.<FDBRecordContext, CompletableFuture<? extends T>>wrapAsync(withWorkloadTag(retriable, call)))
+                .whenComplete((result, error) -> {
+                    tracker.complete(error);
+                    completeWorkload(call, error);
+                });
+    }
+
+    @Nullable
+    private String resolveWorkload(@Nullable final Map<String, String> mdcContext) {
+        return workloadTags != null ? workloadTags.resolveFromContext(mdcContext) : null;
+    }
+
+    @Nullable
+    private WorkloadTags.Call startWorkload(@Nullable final String workload,
+                                            final Function<WorkloadTags.Metrics, Timer> operation) {
+        return workloadTags != null && workload != null ? workloadTags.start(workload, operation) : null;
+    }
+
+    private static void completeWorkload(@Nullable final WorkloadTags.Call call, @Nullable final Throwable error) {
+        if (call != null) {
+            call.complete(error);
         }
-        return database.runAsync(null, mdcContext, retriable);
+    }
+
+    /**
+     * Tags the transaction of every attempt with the workload, as every attempt runs in a context of its own.
+     */
+    private static <R> Function<? super FDBRecordContext, R> withWorkloadTag(
+            final Function<? super FDBRecordContext, R> retriable,
+            @Nullable final WorkloadTags.Call call) {
+        if (call == null) {
+            return retriable;
+        }
+        return context -> {
+            call.tag(context.ensureActive().options());
+            return retriable.apply(context);
+        };
     }
 
     @Override
     public <T> T asyncToSync(final FDBStoreTimer timer, final FDBStoreTimer.Wait event, final CompletableFuture<T> async) {
-        if (timer != null) {
-            return database.asyncToSync(new InstrumentedFDBStoreTimer(timer, metrics, name), event, async);
-        }
-        return database.asyncToSync(null, event, async);
+        return database.asyncToSync(instrument(timer), event, async);
     }
 
     @Override
     public <T> CompletableFuture<T> runAsync(final Function<? super FDBRecordContext, CompletableFuture<? extends T>> retriable) {
         return runAsync(null, null, retriable);
     }
+
+    /**
+     * Wraps the timer in an {@link InstrumentedFDBStoreTimer}. The wrapper of a timer is reused for as long as it is in
+     * use, as callers usually pass the same timer to every call of a request, or to every call of the application.
+     * Wrappers are cached by the identity of their timer, which is only weakly referenced by the cache and by its
+     * wrapper, so that the wrapper is held for as long as its timer is reachable, and no longer.
+     */
+    @Nullable
+    private FDBStoreTimer instrument(@Nullable final FDBStoreTimer timer) {
+        if (timer == null || timer instanceof InstrumentedFDBStoreTimer) {
+            return timer;
+        }
+
+        final InstrumentedFDBStoreTimer instrumentedTimer = instrumentedTimers.get(timer);
+        if (instrumentedTimer != null) {
+            return instrumentedTimer;
+        }
+        return instrumentedTimers.computeIfAbsent(timer,
+                key -> InstrumentedFDBStoreTimer.weaklyWrapping(key, storeTimerMetrics));
+    }
 }
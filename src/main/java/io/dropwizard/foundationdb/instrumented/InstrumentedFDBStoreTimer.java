@@ -3,33 +3,74 @@ package io.dropwizard.foundationdb.instrumented;
 import com.apple.foundationdb.record.provider.foundationdb.FDBStoreTimer;
 
 import com.codahale.metrics.MetricRegistry;
+import org.checkerframework.checker.nullness.qual.Nullable;
 
+import java.lang.ref.WeakReference;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 import static java.util.Objects.requireNonNull;
 
 /**
  * A {@link MetricRegistry} instrumented version of the {@link FDBStoreTimer}.
- * All calls record will also record a time event in the instance metric registry.
+ * All calls to record will also record a time event in the instance metric registry, and all calls to increment will
+ * also mark a meter.
  */
 public class InstrumentedFDBStoreTimer extends FDBStoreTimer {
 
-    private final FDBStoreTimer timer;
-    private final MetricRegistry metrics;
-    private final String name;
+    private final Supplier<FDBStoreTimer> timer;
+    private final StoreTimerMetrics metrics;
 
-    public InstrumentedFDBStoreTimer(final FDBStoreTimer timer, 
+    public InstrumentedFDBStoreTimer(final FDBStoreTimer timer,
                                      final MetricRegistry metrics,
                                      final String name) {
-        this.timer = requireNonNull(timer);
+        this(timer, new StoreTimerMetrics(metrics, name));
+    }
+
+    public InstrumentedFDBStoreTimer(final FDBStoreTimer timer,
+                                     final StoreTimerMetrics metrics) {
+        requireNonNull(timer);
+        this.timer = () -> timer;
+        this.metrics = requireNonNull(metrics);
+    }
+
+    private InstrumentedFDBStoreTimer(final WeakReference<FDBStoreTimer> timer, final StoreTimerMetrics metrics) {
+        this.timer = timer::get;
         this.metrics = requireNonNull(metrics);
-        this.name = requireNonNull(name);
+    }
+
+    /**
+     * Wraps the timer without keeping it reachable, so that the wrapper can be cached by the timer it wraps for as
+     * long as that timer is in use. Events recorded once the timer has been collected are only recorded as metrics.
+     */
+    static InstrumentedFDBStoreTimer weaklyWrapping(final FDBStoreTimer timer, final StoreTimerMetrics metrics) {
+        return new InstrumentedFDBStoreTimer(new WeakReference<>(requireNonNull(timer)), metrics);
+    }
+
+    /**
+     * @return the timer all events are forwarded to, or {@code null} if this wrapper only weakly referenced it and it
+     * has been collected
+     */
+    @Nullable
+    public FDBStoreTimer getTimer() {
+        return timer.get();
     }
 
     @Override
     public void record(final Event event, final long timeDifferenceNanos) {
-        final String metricName = MetricRegistry.name(name, event.name());
-        metrics.timer(metricName).update(timeDifferenceNanos, TimeUnit.NANOSECONDS);
-        timer.record(event, timeDifferenceNanos);
+        metrics.timer(event).update(timeDifferenceNanos, TimeUnit.NANOSECONDS);
+        final FDBStoreTimer delegate = timer.get();
+        if (delegate != null) {
+            delegate.record(event, timeDifferenceNanos);
+        }
+    }
+
+    @Override
+    public void increment(final Count event, final int amount) {
+        metrics.meter(event).mark(amount);
+        final FDBStoreTimer delegate = timer.get();
+        if (delegate != null) {
+            delegate.increment(event, amount);
+        }
     }
 }
@@ -0,0 +1,304 @@
+package io.dropwizard.foundationdb.instrumented;
+
+import com.apple.foundationdb.EventKeeper;
+import com.apple.foundationdb.KeyArrayResult;
+import com.apple.foundationdb.KeyRangeArrayResult;
+import com.apple.foundationdb.KeySelector;
+import com.apple.foundationdb.KeyValue;
+import com.apple.foundationdb.MappedKeyValue;
+import com.apple.foundationdb.Range;
+import com.apple.foundationdb.ReadTransaction;
+import com.apple.foundationdb.StreamingMode;
+import com.apple.foundationdb.TransactionOptions;
+import com.apple.foundationdb.async.AsyncIterable;
+import com.apple.foundationdb.async.AsyncUtil;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A {@link MetricRegistry} instrumented FoundationDB {@link ReadTransaction}. Records timings for reads and the
+ * number of keys and bytes read.
+ */
+public class InstrumentedReadTransaction implements ReadTransaction {
+    private final ReadTransaction transaction;
+    protected final TransactionMetrics metrics;
+
+    public InstrumentedReadTransaction(final ReadTransaction transaction, final TransactionMetrics metrics) {
+        this.transaction = requireNonNull(transaction);
+        this.metrics = requireNonNull(metrics);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isSnapshot() {
+        return transaction.isSnapshot();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ReadTransaction snapshot() {
+        return new InstrumentedReadTransaction(transaction.snapshot(), metrics);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<Long> getReadVersion() {
+        final Timer.Context timerCtx = metrics.getGetReadVersionTimer().time();
+        return transaction.getReadVersion().whenComplete((version, error) -> timerCtx.stop());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setReadVersion(final long version) {
+        transaction.setReadVersion(version);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean addReadConflictRangeIfNotSnapshot(final byte[] beginKey, final byte[] endKey) {
+        return transaction.addReadConflictRangeIfNotSnapshot(beginKey, endKey);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean addReadConflictKeyIfNotSnapshot(final byte[] key) {
+        return transaction.addReadConflictKeyIfNotSnapshot(key);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<byte[]> get(final byte[] key) {
+        final Timer.Context timerCtx = metrics.getGetTimer().time();
+        return transaction.get(key).whenComplete((value, error) -> {
+            timerCtx.stop();
+            if (value != null) {
+                metrics.getKeysRead().mark();
+                metrics.getBytesRead().mark(key.length + value.length);
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<byte[]> getKey(final KeySelector selector) {
+        final Timer.Context timerCtx = metrics.getGetKeyTimer().time();
+        return transaction.getKey(selector).whenComplete((key, error) -> timerCtx.stop());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AsyncIterable<KeyValue> getRange(final KeySelector begin, final KeySelector end) {
+        return getRange(begin, end, ReadTransaction.ROW_LIMIT_UNLIMITED);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AsyncIterable<KeyValue> getRange(final KeySelector begin, final KeySelector end, final int limit) {
+        return getRange(begin, end, limit, false);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AsyncIterable<KeyValue> getRange(final KeySelector begin, final KeySelector end, final int limit,
+                                            final boolean reverse) {
+        return getRange(begin, end, limit, reverse, StreamingMode.ITERATOR);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AsyncIterable<KeyValue> getRange(final KeySelector begin, final KeySelector end, final int limit,
+                                            final boolean reverse, final StreamingMode mode) {
+        return new InstrumentedAsyncIterable(transaction.getRange(begin, end, limit, reverse, mode), metrics);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AsyncIterable<KeyValue> getRange(final byte[] begin, final byte[] end) {
+        return getRange(KeySelector.firstGreaterOrEqual(begin), KeySelector.firstGreaterOrEqual(end));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AsyncIterable<KeyValue> getRange(final byte[] begin, final byte[] end, final int limit) {
+        return getRange(KeySelector.firstGreaterOrEqual(begin), KeySelector.firstGreaterOrEqual(end), limit);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AsyncIterable<KeyValue> getRange(final byte[] begin, final byte[] end, final int limit,
+                                            final boolean reverse) {
+        return getRange(KeySelector.firstGreaterOrEqual(begin), KeySelector.firstGreaterOrEqual(end), limit, reverse);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AsyncIterable<KeyValue> getRange(final byte[] begin, final byte[] end, final int limit,
+                                            final boolean reverse, final StreamingMode mode) {
+        return getRange(KeySelector.firstGreaterOrEqual(begin), KeySelector.firstGreaterOrEqual(end), limit, reverse,
+                mode);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AsyncIterable<KeyValue> getRange(final Range range) {
+        return getRange(range.begin, range.end);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AsyncIterable<KeyValue> getRange(final Range range, final int limit) {
+        return getRange(range.begin, range.end, limit);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AsyncIterable<KeyValue> getRange(final Range range, final int limit, final boolean reverse) {
+        return getRange(range.begin, range.end, limit, reverse);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AsyncIterable<KeyValue> getRange(final Range range, final int limit, final boolean reverse,
+                                            final StreamingMode mode) {
+        return getRange(range.begin, range.end, limit, reverse, mode);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AsyncIterable<MappedKeyValue> getMappedRange(final KeySelector begin, final KeySelector end,
+                                                        final byte[] mapper, final int limit, final boolean reverse,
+                                                        final StreamingMode mode) {
+        return transaction.getMappedRange(begin, end, mapper, limit, reverse, mode);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<Long> getEstimatedRangeSizeBytes(final byte[] begin, final byte[] end) {
+        return transaction.getEstimatedRangeSizeBytes(begin, end);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<Long> getEstimatedRangeSizeBytes(final Range range) {
+        return transaction.getEstimatedRangeSizeBytes(range);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<KeyArrayResult> getRangeSplitPoints(final byte[] begin, final byte[] end,
+                                                                 final long chunkSize) {
+        return transaction.getRangeSplitPoints(begin, end, chunkSize);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<KeyArrayResult> getRangeSplitPoints(final Range range, final long chunkSize) {
+        return transaction.getRangeSplitPoints(range, chunkSize);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<KeyRangeArrayResult> getBlobGranuleRanges(final byte[] begin, final byte[] end,
+                                                                       final int rowLimit) {
+        return transaction.getBlobGranuleRanges(begin, end, rowLimit);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public TransactionOptions options() {
+        return transaction.options();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public EventKeeper getEventKeeper() {
+        return transaction.getEventKeeper();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T> T read(final Function<? super ReadTransaction, T> retryable) {
+        return retryable.apply(this);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T> CompletableFuture<T> readAsync(final Function<? super ReadTransaction, ? extends CompletableFuture<T>> retryable) {
+        return AsyncUtil.applySafely(retryable, this);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Executor getExecutor() {
+        return transaction.getExecutor();
+    }
+}
@@ -0,0 +1,213 @@
+package io.dropwizard.foundationdb.instrumented;
+
+import com.apple.foundationdb.Database;
+import com.apple.foundationdb.EventKeeper;
+import com.apple.foundationdb.KeyRangeArrayResult;
+import com.apple.foundationdb.ReadTransaction;
+import com.apple.foundationdb.Tenant;
+import com.apple.foundationdb.Transaction;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A {@link MetricRegistry} instrumented FoundationDB {@link Tenant}. Times the retry loops of the tenant with the
+ * timers of the tenant, see {@link TenantMetrics}, and instruments its transactions like those of the database.
+ */
+public class InstrumentedTenant implements Tenant {
+    private final Tenant tenant;
+    private final Database database;
+    private final TransactionMetrics transactionMetrics;
+    private final TenantMetrics.Timers timers;
+
+    /**
+     * @param database the database the tenant was opened from, returned by the transactions of the tenant
+     */
+    public InstrumentedTenant(final Tenant tenant,
+                              final Database database,
+                              final TransactionMetrics transactionMetrics,
+                              final TenantMetrics.Timers timers) {
+        this.tenant = requireNonNull(tenant);
+        this.database = requireNonNull(database);
+        this.transactionMetrics = requireNonNull(transactionMetrics);
+        this.timers = requireNonNull(timers);
+    }
+
+    /**
+     * Creates an {@link InstrumentedTransaction}.
+     * <p>
+     * {@inheritDoc}
+     */
+    @Override
+    public Transaction createTransaction() {
+        return new InstrumentedTransaction(tenant.createTransaction(), database, transactionMetrics);
+    }
+
+    /**
+     * Creates an {@link InstrumentedTransaction}.
+     * <p>
+     * {@inheritDoc}
+     */
+    @Override
+    public Transaction createTransaction(final Executor e) {
+        return new InstrumentedTransaction(tenant.createTransaction(e), database, transactionMetrics);
+    }
+
+    /**
+     * Creates an {@link InstrumentedTransaction}.
+     * <p>
+     * {@inheritDoc}
+     */
+    @Override
+    public Transaction createTransaction(final Executor e, final EventKeeper eventKeeper) {
+        return new InstrumentedTransaction(tenant.createTransaction(e, eventKeeper), database, transactionMetrics);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public byte[] getName() {
+        return tenant.getName();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T> T read(final Function<? super ReadTransaction, T> retryable, final Executor e) {
+        try (Timer.Context ignored = timers.getRead().time()) {
+            return tenant.read(retryable, e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T> CompletableFuture<T> readAsync(final Function<? super ReadTransaction, ? extends CompletableFuture<T>> retryable,
+                                              final Executor e) {
+        final Timer.Context timerCtx = timers.getReadAsync().time();
+        return tenant.readAsync(retryable, e)
+                .whenComplete((result, error) -> timerCtx.stop());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T> T run(final Function<? super Transaction, T> retryable, final Executor e) {
+        try (Timer.Context ignored = timers.getRun().time()) {
+            return tenant.run(retryable, e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T> CompletableFuture<T> runAsync(final Function<? super Transaction, ? extends CompletableFuture<T>> retryable,
+                                             final Executor e) {
+        final Timer.Context timerCtx = timers.getRunAsync().time();
+        return tenant.runAsync(retryable, e)
+                .whenComplete((result, error) -> timerCtx.stop());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<byte[]> purgeBlobGranules(final byte[] beginKey, final byte[] endKey, final long purgeVersion,
+                                                       final boolean force, final Executor e) {
+        return tenant.purgeBlobGranules(beginKey, endKey, purgeVersion, force, e);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<Void> waitPurgeGranulesComplete(final byte[] purgeKey, final Executor e) {
+        return tenant.waitPurgeGranulesComplete(purgeKey, e);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<Boolean> blobbifyRange(final byte[] beginKey, final byte[] endKey, final Executor e) {
+        return tenant.blobbifyRange(beginKey, endKey, e);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<Boolean> blobbifyRangeBlocking(final byte[] beginKey, final byte[] endKey, final Executor e) {
+        return tenant.blobbifyRangeBlocking(beginKey, endKey, e);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<Boolean> unblobbifyRange(final byte[] beginKey, final byte[] endKey, final Executor e) {
+        return tenant.unblobbifyRange(beginKey, endKey, e);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<KeyRangeArrayResult> listBlobbifiedRanges(final byte[] beginKey, final byte[] endKey,
+                                                                       final int rangeLimit, final Executor e) {
+        return tenant.listBlobbifiedRanges(beginKey, endKey, rangeLimit, e);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<Long> verifyBlobRange(final byte[] beginKey, final byte[] endKey, final long version,
+                                                   final Executor e) {
+        return tenant.verifyBlobRange(beginKey, endKey, version, e);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<Boolean> flushBlobRange(final byte[] beginKey, final byte[] endKey, final boolean compact,
+                                                     final long version, final Executor e) {
+        return tenant.flushBlobRange(beginKey, endKey, compact, version, e);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<Long> getId(final Executor e) {
+        return tenant.getId(e);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Executor getExecutor() {
+        return tenant.getExecutor();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() {
+        tenant.close();
+    }
+}
@@ -0,0 +1,215 @@
+package io.dropwizard.foundationdb.instrumented;
+
+import com.apple.foundationdb.Database;
+import com.apple.foundationdb.MutationType;
+import com.apple.foundationdb.Range;
+import com.apple.foundationdb.Transaction;
+import com.apple.foundationdb.async.AsyncUtil;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A {@link MetricRegistry} instrumented FoundationDB {@link Transaction}. In addition to the reads recorded by
+ * {@link InstrumentedReadTransaction}, records commit timings, the number of mutations and bytes written, and the
+ * approximate size of the transaction at commit time.
+ */
+public class InstrumentedTransaction extends InstrumentedReadTransaction implements Transaction {
+    private final Transaction transaction;
+    private final Database database;
+
+    public InstrumentedTransaction(final Transaction transaction,
+                                   final Database database,
+                                   final TransactionMetrics metrics) {
+        super(transaction, metrics);
+        this.transaction = transaction;
+        this.database = requireNonNull(database);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addReadConflictRange(final byte[] keyBegin, final byte[] keyEnd) {
+        transaction.addReadConflictRange(keyBegin, keyEnd);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addReadConflictKey(final byte[] key) {
+        transaction.addReadConflictKey(key);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addWriteConflictRange(final byte[] keyBegin, final byte[] keyEnd) {
+        transaction.addWriteConflictRange(keyBegin, keyEnd);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addWriteConflictKey(final byte[] key) {
+        transaction.addWriteConflictKey(key);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void set(final byte[] key, final byte[] value) {
+        transaction.set(key, value);
+        markWritten(key.length + value.length);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clear(final byte[] key) {
+        transaction.clear(key);
+        markWritten(key.length);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clear(final byte[] beginKey, final byte[] endKey) {
+        transaction.clear(beginKey, endKey);
+        markWritten(beginKey.length + endKey.length);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clear(final Range range) {
+        clear(range.begin, range.end);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Deprecated
+    public void clearRangeStartsWith(final byte[] prefix) {
+        clear(Range.startsWith(prefix));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void mutate(final MutationType optype, final byte[] key, final byte[] param) {
+        transaction.mutate(optype, key, param);
+        markWritten(key.length + param.length);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<Void> commit() {
+        transaction.getApproximateSize().thenAccept(metrics.getApproximateSize()::update);
+
+        final Timer.Context timerCtx = metrics.getCommitTimer().time();
+        return transaction.commit().whenComplete((result, error) -> timerCtx.stop());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Long getCommittedVersion() {
+        return transaction.getCommittedVersion();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<byte[]> getVersionstamp() {
+        return transaction.getVersionstamp();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<Long> getApproximateSize() {
+        return transaction.getApproximateSize();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<Transaction> onError(final Throwable e) {
+        return transaction.onError(e)
+                .thenApply(resetTransaction -> new InstrumentedTransaction(resetTransaction, database, metrics));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void cancel() {
+        transaction.cancel();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<Void> watch(final byte[] key) {
+        return transaction.watch(key);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Database getDatabase() {
+        return database;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T> T run(final Function<? super Transaction, T> retryable) {
+        return retryable.apply(this);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T> CompletableFuture<T> runAsync(final Function<? super Transaction, ? extends CompletableFuture<T>> retryable) {
+        return AsyncUtil.applySafely(retryable, this);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() {
+        transaction.close();
+    }
+
+    private void markWritten(final long bytes) {
+        metrics.getKeysWritten().mark();
+        metrics.getBytesWritten().mark(bytes);
+    }
+}
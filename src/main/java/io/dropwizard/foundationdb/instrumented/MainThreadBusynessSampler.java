@@ -0,0 +1,82 @@
+package io.dropwizard.foundationdb.instrumented;
+
+import com.apple.foundationdb.Database;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.foundationdb.client.DatabasePool;
+import io.dropwizard.lifecycle.Managed;
+import io.dropwizard.util.Duration;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Periodically samples the busyness of the network threads of a set of databases into the
+ * {@code MainThreadBusynessPercent} histogram, so that the distribution of busyness over time is recorded rather than
+ * only its value when the gauge is read. A {@link DatabasePool} is sampled handle by handle, which also updates the
+ * busyness its handles are selected by.
+ */
+public class MainThreadBusynessSampler implements Managed {
+    private static final Logger log = LoggerFactory.getLogger(MainThreadBusynessSampler.class);
+
+    private final List<Database> databases;
+    private final ScheduledExecutorService scheduler;
+    private final Duration sampleInterval;
+    private final String name;
+    private final Histogram busyness;
+    @Nullable
+    private ScheduledFuture<?> sampleTask;
+
+    public MainThreadBusynessSampler(final List<Database> databases,
+                                     final ScheduledExecutorService scheduler,
+                                     final Duration sampleInterval,
+                                     final MetricRegistry metrics,
+                                     final String name) {
+        this.databases = List.copyOf(databases);
+        this.scheduler = requireNonNull(scheduler);
+        this.sampleInterval = requireNonNull(sampleInterval);
+        this.name = requireNonNull(name);
+        this.busyness = metrics.histogram(MetricRegistry.name(name, "MainThreadBusynessPercent"));
+    }
+
+    public void sample() {
+        for (final Database database : databases) {
+            if (database instanceof DatabasePool) {
+                for (final double handleBusyness : ((DatabasePool) database).sampleBusyness()) {
+                    busyness.update(Math.round(handleBusyness * 100));
+                }
+            } else {
+                busyness.update(Math.round(database.getMainThreadBusyness() * 100));
+            }
+        }
+    }
+
+    private void sampleSafely() {
+        try {
+            sample();
+        } catch (final RuntimeException e) {
+            log.warn("Unable to sample the main thread busyness of database={}", name, e);
+        }
+    }
+
+    @Override
+    public void start() throws Exception {
+        final long intervalMillis = sampleInterval.toMilliseconds();
+        sampleTask = scheduler.scheduleAtFixedRate(this::sampleSafely, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() throws Exception {
+        if (sampleTask != null) {
+            sampleTask.cancel(false);
+        }
+    }
+}
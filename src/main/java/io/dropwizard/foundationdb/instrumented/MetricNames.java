@@ -0,0 +1,52 @@
+package io.dropwizard.foundationdb.instrumented;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Escapes the names given by the application, such as those of tenants and workloads, into parts of metric names.
+ * Letters, digits and dashes are kept, while every other byte, dots and underscores included, is written as an
+ * underscore followed by its two hex digits. Names therefore never split into several parts of a metric name nor carry
+ * characters a metrics backend would reject, and two names never share an escaped name.
+ * <p>
+ * The name {@value #OTHER} is reserved for the metrics shared by the names over a limit, so a name escaping to it has
+ * its first byte escaped as well, e.g. {@code _6fther}.
+ */
+final class MetricNames {
+    static final String OTHER = "other";
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private MetricNames() {
+    }
+
+    static String escape(final String name) {
+        return escape(name.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static String escape(final byte[] name) {
+        final StringBuilder escaped = new StringBuilder(name.length);
+        for (final byte b : name) {
+            if (isKept(b)) {
+                escaped.append((char) b);
+            } else {
+                appendEscaped(escaped, b);
+            }
+        }
+        if (OTHER.contentEquals(escaped)) {
+            escaped.setLength(0);
+            appendEscaped(escaped, name[0]);
+            escaped.append(OTHER, 1, OTHER.length());
+        }
+        return escaped.toString();
+    }
+
+    private static void appendEscaped(final StringBuilder escaped, final byte b) {
+        escaped.append('_')
+                .append(HEX_DIGITS[(b >> 4) & 0xf])
+                .append(HEX_DIGITS[b & 0xf]);
+    }
+
+    private static boolean isKept(final byte b) {
+        return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || (b >= '0' && b <= '9') || b == '-';
+    }
+}
@@ -0,0 +1,76 @@
+package io.dropwizard.foundationdb.instrumented;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.dropwizard.lifecycle.setup.LifecycleEnvironment;
+import io.dropwizard.util.Duration;
+import io.dropwizard.validation.MinDuration;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+
+/**
+ * Configures how the timers recorded by the instrumented databases are updated. By default every sample updates its
+ * timer synchronously. When enabled, samples are aggregated in striped {@link AggregatingTimer}s instead: their counts
+ * and rates are updated at once, while their snapshots are only updated when flushed on a schedule.
+ */
+public class MetricsAggregationFactory {
+    @JsonProperty
+    private boolean enabled = false;
+    @NotNull
+    @MinDuration(value = 1, unit = TimeUnit.MILLISECONDS)
+    @JsonProperty
+    private Duration flushInterval = Duration.seconds(1);
+    @Min(0)
+    @JsonProperty
+    private int stripes = 0;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(final boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Duration getFlushInterval() {
+        return flushInterval;
+    }
+
+    public void setFlushInterval(final Duration flushInterval) {
+        this.flushInterval = flushInterval;
+    }
+
+    /**
+     * @return the number of stripes per timer, or 0 to use one stripe per available processor
+     */
+    public int getStripes() {
+        return stripes;
+    }
+
+    public void setStripes(final int stripes) {
+        this.stripes = stripes;
+    }
+
+    /**
+     * @return the supplier to use when registering the timers of the database with the given name
+     */
+    public MetricRegistry.MetricSupplier<Timer> build(final LifecycleEnvironment lifecycle, final String name) {
+        if (!enabled) {
+            return Timer::new;
+        }
+
+        final ScheduledExecutorService scheduler = lifecycle.scheduledExecutorService(name + "-metrics-aggregator-%d")
+                .threads(1)
+                .build();
+        final int actualStripes = stripes > 0 ? stripes : Runtime.getRuntime().availableProcessors();
+        final MetricsAggregator aggregator = new MetricsAggregator(scheduler, flushInterval, actualStripes, name);
+        lifecycle.manage(aggregator);
+
+        return aggregator.timerSupplier();
+    }
+}
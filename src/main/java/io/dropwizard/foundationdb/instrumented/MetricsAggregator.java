@@ -0,0 +1,88 @@
+package io.dropwizard.foundationdb.instrumented;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import io.dropwizard.lifecycle.Managed;
+import io.dropwizard.util.Duration;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Creates {@link AggregatingTimer}s and periodically flushes them into their {@link MetricRegistry}, along with a final
+ * flush when the application stops.
+ */
+public class MetricsAggregator implements Managed {
+    private static final Logger log = LoggerFactory.getLogger(MetricsAggregator.class);
+
+    private final ScheduledExecutorService scheduler;
+    private final Duration flushInterval;
+    private final int stripes;
+    private final String name;
+    private final List<AggregatingTimer> timers = new CopyOnWriteArrayList<>();
+    @Nullable
+    private ScheduledFuture<?> flushTask;
+
+    public MetricsAggregator(final ScheduledExecutorService scheduler,
+                             final Duration flushInterval,
+                             final int stripes,
+                             final String name) {
+        this.scheduler = requireNonNull(scheduler);
+        this.flushInterval = requireNonNull(flushInterval);
+        this.stripes = stripes;
+        this.name = requireNonNull(name);
+    }
+
+    /**
+     * @return a new timer which will be flushed by this aggregator
+     */
+    public Timer newTimer() {
+        final AggregatingTimer timer = new AggregatingTimer(stripes);
+        timers.add(timer);
+        return timer;
+    }
+
+    /**
+     * @return a supplier to use when registering timers which should be flushed by this aggregator
+     */
+    public MetricRegistry.MetricSupplier<Timer> timerSupplier() {
+        return this::newTimer;
+    }
+
+    public void flush() {
+        for (final AggregatingTimer timer : timers) {
+            timer.flush();
+        }
+    }
+
+    @Override
+    public void start() throws Exception {
+        final long intervalMillis = flushInterval.toMilliseconds();
+        flushTask = scheduler.scheduleAtFixedRate(this::flushSafely, intervalMillis, intervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() throws Exception {
+        if (flushTask != null) {
+            flushTask.cancel(false);
+        }
+        flush();
+    }
+
+    private void flushSafely() {
+        try {
+            flush();
+        } catch (final RuntimeException e) {
+            log.warn("Unable to flush aggregated metrics for database={}", name, e);
+        }
+    }
+}
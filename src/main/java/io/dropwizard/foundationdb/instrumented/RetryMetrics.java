@@ -0,0 +1,177 @@
+package io.dropwizard.foundationdb.instrumented;
+
+import com.apple.foundationdb.FDBException;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Records how many attempts the retry loops of a database needed, and which {@link FDBException} error codes caused
+ * them.
+ * <p>
+ * A loop run by the instrumented database itself, such as those of {@link InstrumentedDatabase}, records the error of
+ * every failed attempt through {@link Tracker#recordError(Throwable)}, so that every retry is attributed to its error
+ * code, including the {@code 1020 not_committed} and {@code 1021 commit_unknown_result} raised by commits.
+ * <p>
+ * A loop run by the wrapped database, such as the runner of the Record Layer, can only be observed by wrapping the
+ * retryable handed to it. The errors of its commits are only visible to that loop, so a retry that was not preceded by
+ * an error from the retryable is counted under {@code retries.commit}; if the loop gives up, the error it finally
+ * surfaces is attributed to its error code.
+ */
+public class RetryMetrics {
+    private final MetricRegistry metrics;
+    private final String name;
+    private final Meter retries;
+    private final Meter commitRetries;
+    private final ConcurrentMap<Integer, Meter> errorMeters = new ConcurrentHashMap<>();
+
+    public RetryMetrics(final MetricRegistry metrics, final String name) {
+        this.metrics = requireNonNull(metrics);
+        this.name = requireNonNull(name);
+        this.retries = metrics.meter(MetricRegistry.name(name, "retries"));
+        this.commitRetries = metrics.meter(MetricRegistry.name(name, "retries", "commit"));
+    }
+
+    /**
+     * @param operation the name of the operation whose attempts are recorded, e.g. {@code run}
+     * @return the histogram recording the number of attempts per call of the operation
+     */
+    public Histogram attemptsHistogram(final String operation) {
+        return metrics.histogram(MetricRegistry.name(name, operation, "attempts"));
+    }
+
+    /**
+     * @param attempts the histogram returned by {@link #attemptsHistogram(String)} for the operation
+     * @return a tracker for a single call of the operation
+     */
+    public Tracker newTracker(final Histogram attempts) {
+        return new Tracker(attempts, null);
+    }
+
+    /**
+     * @param attempts the histogram returned by {@link #attemptsHistogram(String)} for the operation
+     * @param errors   also handed the error of every failed attempt, such as a concurrency limiter watching for
+     *                 throttling
+     * @return a tracker for a single call of the operation
+     */
+    public Tracker newTracker(final Histogram attempts, @Nullable final Consumer<Throwable> errors) {
+        return new Tracker(attempts, errors);
+    }
+
+    private void markError(final Throwable error) {
+        Throwable current = error;
+        while (current != null) {
+            if (current instanceof FDBException) {
+                final int code = ((FDBException) current).getCode();
+                errorMeters.computeIfAbsent(code,
+                        key -> metrics.meter(MetricRegistry.name(name, "errors", Integer.toString(key))))
+                        .mark();
+                return;
+            }
+            current = current.getCause();
+        }
+    }
+
+    /**
+     * Tracks the attempts of a single call to a retry loop. Attempts of a retry loop never overlap, so a tracker is
+     * only ever used by one thread at a time.
+     */
+    public class Tracker {
+        private final Histogram attemptsHistogram;
+        @Nullable
+        private final Consumer<Throwable> errors;
+        private volatile int attempts;
+        private volatile boolean errorRecorded;
+
+        private Tracker(final Histogram attemptsHistogram, @Nullable final Consumer<Throwable> errors) {
+            this.attemptsHistogram = requireNonNull(attemptsHistogram);
+            this.errors = errors;
+        }
+
+        /**
+         * Marks the start of an attempt. Must be called at the start of every attempt of the loop.
+         */
+        public void startAttempt() {
+            final int attempt = attempts + 1;
+            attempts = attempt;
+            if (attempt > 1) {
+                retries.mark();
+                if (!errorRecorded) {
+                    commitRetries.mark();
+                }
+            }
+            errorRecorded = false;
+        }
+
+        /**
+         * Records the error the current attempt failed with, if any.
+         */
+        public void recordError(@Nullable final Throwable error) {
+            if (error != null) {
+                errorRecorded = true;
+                markError(error);
+                if (errors != null) {
+                    errors.accept(error);
+                }
+            }
+        }
+
+        /**
+         * Completes tracking once the retry loop has finished.
+         *
+         * @param error the error the retry loop finished with, if any
+         */
+        public void complete(@Nullable final Throwable error) {
+            attemptsHistogram.update(attempts);
+            if (error != null && !errorRecorded) {
+                recordError(error);
+            }
+        }
+
+        public int getAttempts() {
+            return attempts;
+        }
+
+        /**
+         * Wraps the retryable handed to a loop run by the wrapped database, to track its attempts.
+         */
+        public <C, T> Function<C, T> wrap(final Function<? super C, ? extends T> retryable) {
+            return context -> {
+                startAttempt();
+                try {
+                    return retryable.apply(context);
+                } catch (final RuntimeException e) {
+                    recordError(e);
+                    throw e;
+                }
+            };
+        }
+
+        /**
+         * Wraps the retryable handed to an asynchronous loop run by the wrapped database, to track its attempts.
+         */
+        @SuppressWarnings("unchecked")
+        public <C, F extends CompletableFuture<?>> Function<C, F> wrapAsync(final Function<? super C, ? extends F> retryable) {
+            return context -> {
+                startAttempt();
+                try {
+                    // the loop sees the error only once it has been recorded
+                    return (F) retryable.apply(context).whenComplete((result, error) -> recordError(error));
+                } catch (final RuntimeException e) {
+                    recordError(e);
+                    throw e;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package io.dropwizard.foundationdb.instrumented;
+
+import com.apple.foundationdb.record.provider.common.StoreTimer;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * The per-database table of {@link MetricRegistry} metrics recorded for {@link StoreTimer} events.
+ * <p>
+ * Events are looked up by identity in a copy-on-write table, so recording an event that has been seen before neither
+ * builds a metric name nor touches the registry. Timed events are recorded as timers named after the event, while
+ * {@link StoreTimer.Count} events are recorded as meters under {@code counts}.
+ */
+public class StoreTimerMetrics {
+    private final MetricRegistry metrics;
+    private final String name;
+    private final MetricRegistry.MetricSupplier<Timer> timerSupplier;
+    private volatile Map<StoreTimer.Event, Timer> timers = new IdentityHashMap<>();
+    private volatile Map<StoreTimer.Count, Meter> meters = new IdentityHashMap<>();
+
+    public StoreTimerMetrics(final MetricRegistry metrics, final String name) {
+        this(metrics, name, Timer::new);
+    }
+
+    public StoreTimerMetrics(final MetricRegistry metrics,
+                             final String name,
+                             final MetricRegistry.MetricSupplier<Timer> timerSupplier) {
+        this.metrics = requireNonNull(metrics);
+        this.name = requireNonNull(name);
+        this.timerSupplier = requireNonNull(timerSupplier);
+    }
+
+    public Timer timer(final StoreTimer.Event event) {
+        final Timer timer = timers.get(event);
+        return timer != null ? timer : addTimer(event);
+    }
+
+    public Meter meter(final StoreTimer.Count event) {
+        final Meter meter = meters.get(event);
+        return meter != null ? meter : addMeter(event);
+    }
+
+    private synchronized Timer addTimer(final StoreTimer.Event event) {
+        final Timer existing = timers.get(event);
+        if (existing != null) {
+            return existing;
+        }
+
+        final Timer timer = metrics.timer(MetricRegistry.name(name, event.name()), timerSupplier);
+        final Map<StoreTimer.Event, Timer> updated = new IdentityHashMap<>(timers);
+        updated.put(event, timer);
+        timers = updated;
+        return timer;
+    }
+
+    private synchronized Meter addMeter(final StoreTimer.Count event) {
+        final Meter existing = meters.get(event);
+        if (existing != null) {
+            return existing;
+        }
+
+        final Meter meter = metrics.meter(MetricRegistry.name(name, "counts", event.name()));
+        final Map<StoreTimer.Count, Meter> updated = new IdentityHashMap<>(meters);
+        updated.put(event, meter);
+        meters = updated;
+        return meter;
+    }
+}
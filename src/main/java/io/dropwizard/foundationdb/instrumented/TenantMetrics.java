@@ -0,0 +1,102 @@
+package io.dropwizard.foundationdb.instrumented;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Holds the timers of the tenants of a database. As an application may serve far more tenants than a metrics backend
+ * can track, only the first {@code maxTenants} tenants to be opened get timers of their own, named after the tenant;
+ * the others share the timers of the {@code other} tenant, and are counted by the {@code tenants.overflow} meter. The
+ * names of tenants are {@link MetricNames#escape(byte[]) escaped}, e.g. the tuple-packed {@code ("acme")} is timed as
+ * {@code _02acme_00}.
+ */
+public class TenantMetrics {
+    public static final int DEFAULT_MAX_TENANTS = 100;
+
+    private final MetricRegistry metrics;
+    private final String name;
+    private final MetricRegistry.MetricSupplier<Timer> timerSupplier;
+    private final int maxTenants;
+    private final ConcurrentMap<String, Timers> timers = new ConcurrentHashMap<>();
+    private final Timers otherTimers;
+    private final Meter overflow;
+
+    /**
+     * @param maxTenants the maximum number of tenants with timers of their own
+     */
+    public TenantMetrics(final MetricRegistry metrics,
+                         final String name,
+                         final MetricRegistry.MetricSupplier<Timer> timerSupplier,
+                         final int maxTenants) {
+        this.metrics = requireNonNull(metrics);
+        this.name = requireNonNull(name);
+        this.timerSupplier = requireNonNull(timerSupplier);
+        this.maxTenants = maxTenants;
+        this.otherTimers = new Timers(MetricNames.OTHER);
+        this.overflow = metrics.meter(MetricRegistry.name(name, "tenants", "overflow"));
+
+        metrics.register(MetricRegistry.name(name, "tenants", "tracked"), (Gauge<Integer>) timers::size);
+    }
+
+    /**
+     * @return the timers of the tenant, or those shared by the tenants over the limit
+     */
+    public Timers forTenant(final byte[] tenantName) {
+        final String tenant = MetricNames.escape(tenantName);
+        final Timers existing = timers.get(tenant);
+        if (existing != null) {
+            return existing;
+        }
+        synchronized (timers) {
+            if (timers.size() >= maxTenants) {
+                overflow.mark();
+                return otherTimers;
+            }
+            return timers.computeIfAbsent(tenant, Timers::new);
+        }
+    }
+
+    /**
+     * The timers of the retry loops of a tenant.
+     */
+    public class Timers {
+        private final Timer read;
+        private final Timer readAsync;
+        private final Timer run;
+        private final Timer runAsync;
+
+        private Timers(final String tenant) {
+            this.read = timer(tenant, "read");
+            this.readAsync = timer(tenant, "readAsync");
+            this.run = timer(tenant, "run");
+            this.runAsync = timer(tenant, "runAsync");
+        }
+
+        private Timer timer(final String tenant, final String operation) {
+            return metrics.timer(MetricRegistry.name(name, "tenants", tenant, operation + ".timeInNanos"), timerSupplier);
+        }
+
+        public Timer getRead() {
+            return read;
+        }
+
+        public Timer getReadAsync() {
+            return readAsync;
+        }
+
+        public Timer getRun() {
+            return run;
+        }
+
+        public Timer getRunAsync() {
+            return runAsync;
+        }
+    }
+}
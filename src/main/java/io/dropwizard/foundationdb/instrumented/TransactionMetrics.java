@@ -0,0 +1,96 @@
+package io.dropwizard.foundationdb.instrumented;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * The set of {@link MetricRegistry} metrics recorded by an {@link InstrumentedTransaction}. The metrics are resolved
+ * once per database, so that the transaction operations themselves never have to look anything up in the registry.
+ */
+public class TransactionMetrics {
+    private final Timer getTimer;
+    private final Timer getKeyTimer;
+    private final Timer getRangeTimer;
+    private final Timer getReadVersionTimer;
+    private final Timer commitTimer;
+    private final Meter keysRead;
+    private final Meter bytesRead;
+    private final Meter keysWritten;
+    private final Meter bytesWritten;
+    private final Histogram approximateSize;
+
+    public TransactionMetrics(final MetricRegistry metrics, final String name) {
+        this(metrics, name, Timer::new);
+    }
+
+    public TransactionMetrics(final MetricRegistry metrics,
+                              final String name,
+                              final MetricRegistry.MetricSupplier<Timer> timerSupplier) {
+        requireNonNull(metrics);
+        requireNonNull(name);
+        requireNonNull(timerSupplier);
+
+        this.getTimer = metrics.timer(MetricRegistry.name(name, "transaction", "get.timeInNanos"),
+                timerSupplier);
+        this.getKeyTimer = metrics.timer(MetricRegistry.name(name, "transaction", "getKey.timeInNanos"),
+                timerSupplier);
+        this.getRangeTimer = metrics.timer(MetricRegistry.name(name, "transaction", "getRange.timeInNanos"),
+                timerSupplier);
+        this.getReadVersionTimer = metrics.timer(MetricRegistry.name(name, "transaction", "getReadVersion.timeInNanos"),
+                timerSupplier);
+        this.commitTimer = metrics.timer(MetricRegistry.name(name, "transaction", "commit.timeInNanos"),
+                timerSupplier);
+        this.keysRead = metrics.meter(MetricRegistry.name(name, "transaction", "keysRead"));
+        this.bytesRead = metrics.meter(MetricRegistry.name(name, "transaction", "bytesRead"));
+        this.keysWritten = metrics.meter(MetricRegistry.name(name, "transaction", "keysWritten"));
+        this.bytesWritten = metrics.meter(MetricRegistry.name(name, "transaction", "bytesWritten"));
+        this.approximateSize = metrics.histogram(MetricRegistry.name(name, "transaction", "approximateSize"));
+    }
+
+    public Timer getGetTimer() {
+        return getTimer;
+    }
+
+    public Timer getGetKeyTimer() {
+        return getKeyTimer;
+    }
+
+    public Timer getGetRangeTimer() {
+        return getRangeTimer;
+    }
+
+    public Timer getGetReadVersionTimer() {
+        return getReadVersionTimer;
+    }
+
+    public Timer getCommitTimer() {
+        return commitTimer;
+    }
+
+    public Meter getKeysRead() {
+        return keysRead;
+    }
+
+    public Meter getBytesRead() {
+        return bytesRead;
+    }
+
+    /**
+     * Marked once for every mutation (set, clear, clear range or atomic operation) issued by a transaction.
+     */
+    public Meter getKeysWritten() {
+        return keysWritten;
+    }
+
+    public Meter getBytesWritten() {
+        return bytesWritten;
+    }
+
+    public Histogram getApproximateSize() {
+        return approximateSize;
+    }
+}
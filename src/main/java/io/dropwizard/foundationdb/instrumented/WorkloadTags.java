@@ -0,0 +1,213 @@
+package io.dropwizard.foundationdb.instrumented;
+
+import com.apple.foundationdb.TransactionOptions;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.slf4j.MDC;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Tags the retry loops of a database with the workload they run for, taken from the call site or else from the MDC of
+ * the calling thread, so that every workload gets its own timers and error meter, and its transactions carry the
+ * workload as an FDB transaction tag for the tag throttler of the cluster.
+ * <p>
+ * As a metrics backend can only track so many workloads, only the first {@code maxWorkloads} workloads get metrics of
+ * their own, named after the workload; the others share the metrics of the {@code other} workload, and are counted by
+ * the {@code workloads.overflow} meter. The names of workloads are {@link MetricNames#escape(String) escaped} as those
+ * of tenants are, so that a workload named {@code other} does not share the metrics of the workloads over the limit.
+ * Every workload is still set as a transaction tag as is, unless it is longer than the {@value #MAX_TAG_LENGTH} bytes
+ * the cluster accepts.
+ */
+public class WorkloadTags {
+    public static final int DEFAULT_MAX_WORKLOADS = 100;
+    public static final int MAX_TAG_LENGTH = 16;
+
+    private final MetricRegistry metrics;
+    private final String name;
+    private final MetricRegistry.MetricSupplier<Timer> timerSupplier;
+    private final String mdcKey;
+    private final int maxWorkloads;
+    private final boolean autoThrottle;
+    private final ConcurrentMap<String, Metrics> workloads = new ConcurrentHashMap<>();
+    private final Metrics otherWorkloads;
+    private final Meter overflow;
+
+    /**
+     * @param mdcKey       the MDC key holding the workload of the calling thread
+     * @param maxWorkloads the maximum number of workloads with metrics of their own
+     * @param autoThrottle whether the cluster may throttle busy workloads on its own, or only once told to
+     */
+    public WorkloadTags(final MetricRegistry metrics,
+                        final String name,
+                        final MetricRegistry.MetricSupplier<Timer> timerSupplier,
+                        final String mdcKey,
+                        final int maxWorkloads,
+                        final boolean autoThrottle) {
+        this.metrics = requireNonNull(metrics);
+        this.name = requireNonNull(name);
+        this.timerSupplier = requireNonNull(timerSupplier);
+        this.mdcKey = requireNonNull(mdcKey);
+        this.maxWorkloads = maxWorkloads;
+        this.autoThrottle = autoThrottle;
+        this.otherWorkloads = new Metrics(MetricNames.OTHER);
+        this.overflow = metrics.meter(MetricRegistry.name(name, "workloads", "overflow"));
+
+        metrics.register(MetricRegistry.name(name, "workloads", "tracked"), (Gauge<Integer>) workloads::size);
+    }
+
+    /**
+     * @return the workload given at the call site, or else the workload in the MDC of the calling thread, if any
+     */
+    @Nullable
+    public String resolve(@Nullable final String workload) {
+        if (workload != null && !workload.isEmpty()) {
+            return workload;
+        }
+        final String mdcWorkload = MDC.get(mdcKey);
+        return mdcWorkload != null && !mdcWorkload.isEmpty() ? mdcWorkload : null;
+    }
+
+    /**
+     * @return the workload in the MDC context given at the call site, or else in the MDC of the calling thread, if any
+     */
+    @Nullable
+    public String resolveFromContext(@Nullable final Map<String, String> mdcContext) {
+        return resolve(mdcContext != null ? mdcContext.get(mdcKey) : null);
+    }
+
+    /**
+     * @return the metrics of the workload, or those shared by the workloads over the limit
+     */
+    public Metrics forWorkload(final String workload) {
+        final Metrics existing = workloads.get(workload);
+        if (existing != null) {
+            return existing;
+        }
+        synchronized (workloads) {
+            if (workloads.size() >= maxWorkloads && !workloads.containsKey(workload)) {
+                overflow.mark();
+                return otherWorkloads;
+            }
+            return workloads.computeIfAbsent(workload, key -> new Metrics(MetricNames.escape(key)));
+        }
+    }
+
+    /**
+     * Starts timing a retry loop of a workload with one of its timers, e.g. {@link Metrics#getRun()}.
+     */
+    public Call start(final String workload, final Function<Metrics, Timer> operation) {
+        final Metrics workloadMetrics = forWorkload(workload);
+        return new Call(workload, workloadMetrics, operation.apply(workloadMetrics).time());
+    }
+
+    /**
+     * Sets the workload as a tag of a transaction, which has to be done at the start of every attempt as the options of
+     * a transaction are reset when it is retried.
+     */
+    public void tag(final TransactionOptions options, final String workload) {
+        if (workload.getBytes(StandardCharsets.UTF_8).length > MAX_TAG_LENGTH) {
+            return;
+        }
+        if (autoThrottle) {
+            options.setAutoThrottleTag(workload);
+        } else {
+            options.setTag(workload);
+        }
+    }
+
+    /**
+     * A retry loop of a workload, timed from its start.
+     */
+    public class Call {
+        private final String workload;
+        private final Metrics workloadMetrics;
+        private final Timer.Context timerCtx;
+
+        private Call(final String workload, final Metrics workloadMetrics, final Timer.Context timerCtx) {
+            this.workload = workload;
+            this.workloadMetrics = workloadMetrics;
+            this.timerCtx = timerCtx;
+        }
+
+        public String getWorkload() {
+            return workload;
+        }
+
+        /**
+         * Sets the workload as a tag of the transaction of an attempt of the loop.
+         */
+        public void tag(final TransactionOptions options) {
+            WorkloadTags.this.tag(options, workload);
+        }
+
+        /**
+         * Stops timing the loop once it has finished.
+         *
+         * @param error the error the loop finished with, if any
+         */
+        public void complete(@Nullable final Throwable error) {
+            timerCtx.stop();
+            if (error != null) {
+                workloadMetrics.getErrors().mark();
+            }
+        }
+    }
+
+    /**
+     * The timers and error meter of the retry loops of a workload.
+     */
+    public class Metrics {
+        private final Timer read;
+        private final Timer readAsync;
+        private final Timer run;
+        private final Timer runAsync;
+        private final Meter errors;
+
+        private Metrics(final String workload) {
+            this.read = timer(workload, "read");
+            this.readAsync = timer(workload, "readAsync");
+            this.run = timer(workload, "run");
+            this.runAsync = timer(workload, "runAsync");
+            this.errors = metrics.meter(MetricRegistry.name(name, "workloads", workload, "errors"));
+        }
+
+        private Timer timer(final String workload, final String operation) {
+            return metrics.timer(MetricRegistry.name(name, "workloads", workload, operation + ".timeInNanos"),
+                    timerSupplier);
+        }
+
+        public Timer getRead() {
+            return read;
+        }
+
+        public Timer getReadAsync() {
+            return readAsync;
+        }
+
+        public Timer getRun() {
+            return run;
+        }
+
+        public Timer getRunAsync() {
+            return runAsync;
+        }
+
+        /**
+         * Marked once for every retry loop of the workload which fails.
+         */
+        public Meter getErrors() {
+            return errors;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package io.dropwizard.foundationdb.instrumented;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+
+/**
+ * Configures the {@link WorkloadTags} of a database.
+ */
+public class WorkloadTagsFactory {
+    @NotEmpty
+    @JsonProperty
+    private String mdcKey = "workload";
+    @Min(0)
+    @JsonProperty
+    private int maxWorkloads = WorkloadTags.DEFAULT_MAX_WORKLOADS;
+    @JsonProperty
+    private boolean autoThrottle = true;
+
+    /**
+     * @return the MDC key holding the workload of the calling thread, used when no workload is given at the call site
+     */
+    public String getMdcKey() {
+        return mdcKey;
+    }
+
+    public void setMdcKey(final String mdcKey) {
+        this.mdcKey = mdcKey;
+    }
+
+    public int getMaxWorkloads() {
+        return maxWorkloads;
+    }
+
+    public void setMaxWorkloads(final int maxWorkloads) {
+        this.maxWorkloads = maxWorkloads;
+    }
+
+    /**
+     * @return whether transactions carry their workload as an auto-throttle tag, which the cluster may throttle on its
+     * own when the workload is busy, rather than as a tag which is only throttled once an operator says so
+     */
+    public boolean isAutoThrottle() {
+        return autoThrottle;
+    }
+
+    public void setAutoThrottle(final boolean autoThrottle) {
+        this.autoThrottle = autoThrottle;
+    }
+
+    public WorkloadTags build(final MetricRegistry metrics,
+                              final String name,
+                              final MetricRegistry.MetricSupplier<Timer> timerSupplier) {
+        return new WorkloadTags(metrics, name, timerSupplier, mdcKey, maxWorkloads, autoThrottle);
+    }
+}
@@ -0,0 +1,117 @@
+package io.dropwizard.foundationdb.limit;
+
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.dropwizard.util.Duration;
+import io.dropwizard.validation.MinDuration;
+import io.dropwizard.validation.ValidationMethod;
+
+import java.util.concurrent.TimeUnit;
+
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+
+/**
+ * Configures the {@link ConcurrencyLimiter} placed in front of the {@code run} and {@code runAsync} retry loops of a
+ * database. The latency threshold should sit well above the usual latency of those loops, as every loop exceeding it
+ * backs the limit off.
+ */
+public class ConcurrencyLimitFactory {
+    @Min(1)
+    @JsonProperty
+    private int initialLimit = 20;
+    @Min(1)
+    @JsonProperty
+    private int minLimit = 1;
+    @Min(1)
+    @JsonProperty
+    private int maxLimit = 1_000;
+    @DecimalMin(value = "0.1")
+    @DecimalMax(value = "1.0", inclusive = false)
+    @JsonProperty
+    private double backoffRatio = 0.9;
+    @NotNull
+    @MinDuration(value = 1, unit = TimeUnit.MILLISECONDS)
+    @JsonProperty
+    private Duration latencyThreshold = Duration.seconds(1);
+    @Min(0)
+    @JsonProperty
+    private int maxQueueSize = 100;
+    @NotNull
+    @MinDuration(value = 0, unit = TimeUnit.MILLISECONDS)
+    @JsonProperty
+    private Duration maxQueueWait = Duration.seconds(1);
+
+    public int getInitialLimit() {
+        return initialLimit;
+    }
+
+    public void setInitialLimit(final int initialLimit) {
+        this.initialLimit = initialLimit;
+    }
+
+    public int getMinLimit() {
+        return minLimit;
+    }
+
+    public void setMinLimit(final int minLimit) {
+        this.minLimit = minLimit;
+    }
+
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    public void setMaxLimit(final int maxLimit) {
+        this.maxLimit = maxLimit;
+    }
+
+    public double getBackoffRatio() {
+        return backoffRatio;
+    }
+
+    public void setBackoffRatio(final double backoffRatio) {
+        this.backoffRatio = backoffRatio;
+    }
+
+    public Duration getLatencyThreshold() {
+        return latencyThreshold;
+    }
+
+    public void setLatencyThreshold(final Duration latencyThreshold) {
+        this.latencyThreshold = latencyThreshold;
+    }
+
+    /**
+     * @return the maximum number of retry loops waiting for a permit, or zero to reject loops over the limit right away
+     */
+    public int getMaxQueueSize() {
+        return maxQueueSize;
+    }
+
+    public void setMaxQueueSize(final int maxQueueSize) {
+        this.maxQueueSize = maxQueueSize;
+    }
+
+    public Duration getMaxQueueWait() {
+        return maxQueueWait;
+    }
+
+    public void setMaxQueueWait(final Duration maxQueueWait) {
+        this.maxQueueWait = maxQueueWait;
+    }
+
+    @JsonIgnore
+    @ValidationMethod(message = "initialLimit must be between minLimit and maxLimit")
+    public boolean isInitialLimitWithinBounds() {
+        return minLimit <= initialLimit && initialLimit <= maxLimit;
+    }
+
+    public ConcurrencyLimiter build(final MetricRegistry metrics, final String name) {
+        return new ConcurrencyLimiter(initialLimit, minLimit, maxLimit, backoffRatio, latencyThreshold, maxQueueSize,
+                maxQueueWait, metrics, name);
+    }
+}
@@ -0,0 +1,337 @@
+package io.dropwizard.foundationdb.limit;
+
+import com.apple.foundationdb.FDBException;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import io.dropwizard.util.Duration;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Caps the number of retry loops in flight against a database, adapting the cap to how the cluster copes with the load
+ * using additive-increase/multiplicative-decrease (AIMD).
+ * <p>
+ * Every retry loop completing below the latency threshold, while at least half of the limit was in use, raises the
+ * limit by one over the course of a limit's worth of loops. A loop which took longer than the threshold, or any of
+ * whose attempts failed with {@code 1213 tag_throttled} or {@code 1037 process_behind}, cuts the limit by the backoff
+ * ratio instead. Loops started before the last cut do not cut it again, so a burst of slow loops only backs off once.
+ * The errors of the attempts are those raised by the retryable, unless the loop reports the error of every attempt
+ * itself, including those raised by its commits.
+ * <p>
+ * Loops over the limit wait in a bounded queue, in order of arrival, for up to the maximum queue wait. Once the queue
+ * is full, or a loop has waited too long, the loop is rejected with a {@link RejectedExecutionException} without
+ * reaching the cluster.
+ */
+public class ConcurrencyLimiter {
+    private static final int TAG_THROTTLED = 1213;
+    private static final int PROCESS_BEHIND = 1037;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final long latencyThresholdNanos;
+    private final int maxQueueSize;
+    private final Duration maxQueueWait;
+    private final Queue<CompletableFuture<Permit>> waiters = new ArrayDeque<>();
+    private final Timer queueWaitTimer;
+    private final Meter rejected;
+    private final Meter backoffs;
+    private double limit;
+    private int inFlight;
+    private long acquisitions;
+    private long lastBackoffAt;
+
+    /**
+     * @param latencyThreshold the latency above which a retry loop is taken as a sign of overload
+     * @param maxQueueSize     the maximum number of retry loops waiting for a permit, or zero to reject them right away
+     */
+    public ConcurrencyLimiter(final int initialLimit,
+                              final int minLimit,
+                              final int maxLimit,
+                              final double backoffRatio,
+                              final Duration latencyThreshold,
+                              final int maxQueueSize,
+                              final Duration maxQueueWait,
+                              final MetricRegistry metrics,
+                              final String name) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.latencyThresholdNanos = latencyThreshold.toNanoseconds();
+        this.maxQueueSize = maxQueueSize;
+        this.maxQueueWait = requireNonNull(maxQueueWait);
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        this.queueWaitTimer = metrics.timer(MetricRegistry.name(name, "limiter", "queueWait.timeInNanos"));
+        this.rejected = metrics.meter(MetricRegistry.name(name, "limiter", "rejected"));
+        this.backoffs = metrics.meter(MetricRegistry.name(name, "limiter", "backoffs"));
+
+        metrics.register(MetricRegistry.name(name, "limiter", "limit"), (Gauge<Integer>) this::getLimit);
+        metrics.register(MetricRegistry.name(name, "limiter", "inFlight"), (Gauge<Integer>) this::getInFlight);
+        metrics.register(MetricRegistry.name(name, "limiter", "queued"), (Gauge<Integer>) this::getQueued);
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    public synchronized int getQueued() {
+        return waiters.size();
+    }
+
+    /**
+     * Runs a blocking retry loop once a permit is available, blocking the caller while it waits in the queue.
+     *
+     * @param retryable the retryable handed to the loop, whose errors are watched for throttling
+     * @param loop      runs the retry loop with the retryable it is given
+     * @throws RejectedExecutionException if the loop was rejected by the limiter
+     */
+    public <C, T> T limit(final Function<? super C, ? extends T> retryable, final Function<Function<C, T>, T> loop) {
+        return limit(errors -> loop.apply(observe(retryable, errors)));
+    }
+
+    /**
+     * Runs a blocking retry loop once a permit is available, blocking the caller while it waits in the queue. The loop
+     * reports the error of every failed attempt itself, so that the errors raised by its commits are watched for
+     * throttling as well.
+     *
+     * @param loop runs the retry loop, handing the error of every failed attempt to the consumer it is given
+     * @throws RejectedExecutionException if the loop was rejected by the limiter
+     */
+    public <T> T limit(final Function<Consumer<Throwable>, T> loop) {
+        final Permit permit;
+        try {
+            permit = acquire().join();
+        } catch (final CompletionException e) {
+            throw (RejectedExecutionException) e.getCause();
+        }
+
+        try {
+            final T result = loop.apply(permit::recordError);
+            permit.release(null);
+            return result;
+        } catch (final RuntimeException error) {
+            permit.release(error);
+            throw error;
+        }
+    }
+
+    /**
+     * Runs an asynchronous retry loop once a permit is available.
+     *
+     * @param retryable the retryable handed to the loop, whose errors are watched for throttling
+     * @param loop      runs the retry loop with the retryable it is given
+     * @param executor  the executor starting the loop once a queued loop is granted its permit, rather than the thread
+     *                  releasing that permit
+     * @return the result of the loop, or a future failed with a {@link RejectedExecutionException} if the loop was
+     * rejected by the limiter
+     */
+    public <C, F extends CompletableFuture<?>, T> CompletableFuture<T> limitAsync(
+            final Function<? super C, ? extends F> retryable,
+            final Function<Function<C, F>, CompletableFuture<T>> loop,
+            final Executor executor) {
+        return limitAsync(errors -> loop.apply(observeAsync(retryable, errors)), executor);
+    }
+
+    /**
+     * Runs an asynchronous retry loop once a permit is available. The loop reports the error of every failed attempt
+     * itself, so that the errors raised by its commits are watched for throttling as well.
+     *
+     * @param loop     runs the retry loop, handing the error of every failed attempt to the consumer it is given
+     * @param executor the executor starting the loop once a queued loop is granted its permit, rather than the thread
+     *                 releasing that permit
+     * @return the result of the loop, or a future failed with a {@link RejectedExecutionException} if the loop was
+     * rejected by the limiter
+     */
+    public <T> CompletableFuture<T> limitAsync(final Function<Consumer<Throwable>, CompletableFuture<T>> loop,
+                                               final Executor executor) {
+        final CompletableFuture<Permit> permit = acquire();
+        final Function<Permit, CompletableFuture<T>> run = granted -> {
+            final CompletableFuture<T> result;
+            try {
+                result = loop.apply(granted::recordError);
+            } catch (final RuntimeException error) {
+                granted.release(error);
+                throw error;
+            }
+            return result.whenComplete((ignored, error) -> granted.release(error));
+        };
+        return permit.isDone() ? permit.thenCompose(run) : permit.thenComposeAsync(run, executor);
+    }
+
+    /**
+     * @return the retryable, handing the errors it raises to the given consumer
+     */
+    private static <C, T> Function<C, T> observe(final Function<? super C, ? extends T> retryable,
+                                                 final Consumer<Throwable> errors) {
+        return context -> {
+            try {
+                return retryable.apply(context);
+            } catch (final RuntimeException e) {
+                errors.accept(e);
+                throw e;
+            }
+        };
+    }
+
+    /**
+     * @return the asynchronous retryable, handing the errors it raises or completes with to the given consumer
+     */
+    private static <C, F extends CompletableFuture<?>> Function<C, F> observeAsync(
+            final Function<? super C, ? extends F> retryable,
+            final Consumer<Throwable> errors) {
+        return context -> {
+            try {
+                final F result = retryable.apply(context);
+                result.whenComplete((ignored, error) -> {
+                    if (error != null) {
+                        errors.accept(error);
+                    }
+                });
+                return result;
+            } catch (final RuntimeException e) {
+                errors.accept(e);
+                throw e;
+            }
+        };
+    }
+
+    /**
+     * @return a future completing with a permit once one is available, or failing with a
+     * {@link RejectedExecutionException} if none became available in time
+     */
+    CompletableFuture<Permit> acquire() {
+        final CompletableFuture<Permit> waiter;
+        synchronized (this) {
+            if (waiters.isEmpty() && inFlight < (int) limit) {
+                return CompletableFuture.completedFuture(newPermit());
+            }
+            if (waiters.size() >= maxQueueSize) {
+                rejected.mark();
+                return CompletableFuture.failedFuture(new RejectedExecutionException(
+                        "The concurrency limit of " + (int) limit + " transactions has been reached"));
+            }
+            waiter = new CompletableFuture<>();
+            waiters.add(waiter);
+        }
+
+        final Timer.Context waitCtx = queueWaitTimer.time();
+        waiter.whenComplete((permit, error) -> waitCtx.stop());
+        CompletableFuture.delayedExecutor(maxQueueWait.toNanoseconds(), TimeUnit.NANOSECONDS).execute(() -> {
+            if (waiter.completeExceptionally(new RejectedExecutionException(
+                    "No transaction permit became available within " + maxQueueWait))) {
+                rejected.mark();
+                synchronized (this) {
+                    waiters.remove(waiter);
+                }
+            }
+        });
+        return waiter;
+    }
+
+    private Permit newPermit() {
+        inFlight++;
+        acquisitions++;
+        return new Permit(acquisitions, inFlight);
+    }
+
+    private void onRelease(final Permit permit, final boolean overloaded) {
+        final long latency = System.nanoTime() - permit.startTime;
+        synchronized (this) {
+            inFlight--;
+            if (overloaded || latency > latencyThresholdNanos) {
+                if (permit.acquisition > lastBackoffAt) {
+                    limit = Math.max(minLimit, limit * backoffRatio);
+                    lastBackoffAt = acquisitions;
+                    backoffs.mark();
+                }
+            } else if (permit.inFlightAtStart * 2 >= (int) limit) {
+                limit = Math.min(maxLimit, limit + 1.0 / limit);
+            }
+        }
+        grantWaiters();
+    }
+
+    private void grantWaiters() {
+        while (true) {
+            final CompletableFuture<Permit> waiter;
+            final Permit permit;
+            synchronized (this) {
+                if (inFlight >= (int) limit) {
+                    return;
+                }
+                waiter = waiters.poll();
+                if (waiter == null) {
+                    return;
+                }
+                permit = newPermit();
+            }
+            // completed outside the lock, as blocking waiters resume as soon as their permit is granted
+            if (!waiter.complete(permit)) {
+                synchronized (this) {
+                    inFlight--;
+                }
+            }
+        }
+    }
+
+    private static boolean isOverloadError(@Nullable final Throwable error) {
+        Throwable current = error;
+        while (current != null) {
+            if (current instanceof FDBException) {
+                final int code = ((FDBException) current).getCode();
+                return code == TAG_THROTTLED || code == PROCESS_BEHIND;
+            }
+            current = current.getCause();
+        }
+        return false;
+    }
+
+    /**
+     * The right of a single retry loop to run, which must be released once the loop has finished.
+     */
+    class Permit {
+        private final long acquisition;
+        private final int inFlightAtStart;
+        private final long startTime = System.nanoTime();
+        private volatile boolean overloaded;
+        private volatile boolean released;
+
+        private Permit(final long acquisition, final int inFlight) {
+            this.acquisition = acquisition;
+            this.inFlightAtStart = inFlight;
+        }
+
+        private void recordError(@Nullable final Throwable error) {
+            if (isOverloadError(error)) {
+                overloaded = true;
+            }
+        }
+
+        void release(@Nullable final Throwable error) {
+            if (released) {
+                return;
+            }
+            released = true;
+            recordError(error);
+            onRelease(this, overloaded);
+        }
+    }
+}
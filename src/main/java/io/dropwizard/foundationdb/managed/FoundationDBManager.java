@@ -3,29 +3,43 @@ package io.dropwizard.foundationdb.managed;
 import com.apple.foundationdb.FDB;
 
 import io.dropwizard.lifecycle.Managed;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import static java.util.Objects.requireNonNull;
 
 /**
- * Manages FDB with the application lifecycle.
+ * Manages FDB with the application lifecycle. When given a {@link WarmUp}, the database is warmed up on start, which
+ * holds back the start of the application, and so the traffic it receives, until warm-up has finished or timed out.
  */
 public class FoundationDBManager implements Managed {
     private final Logger log = LoggerFactory.getLogger(FoundationDBManager.class);
 
     private final FDB fdb;
     private final String name;
+    @Nullable
+    private final WarmUp warmUp;
 
     public FoundationDBManager(final FDB fdb,
                                final String name) {
+        this(fdb, name, null);
+    }
+
+    public FoundationDBManager(final FDB fdb,
+                               final String name,
+                               @Nullable final WarmUp warmUp) {
         this.fdb = requireNonNull(fdb);
         this.name = requireNonNull(name);
+        this.warmUp = warmUp;
     }
 
     @Override
     public void start() throws Exception {
         log.info("FoundationDB {} starting", name);
+        if (warmUp != null) {
+            warmUp.run();
+        }
     }
 
     @Override
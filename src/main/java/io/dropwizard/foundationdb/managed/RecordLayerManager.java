@@ -3,26 +3,43 @@ package io.dropwizard.foundationdb.managed;
 import com.apple.foundationdb.record.provider.foundationdb.FDBDatabase;
 
 import io.dropwizard.lifecycle.Managed;
+import org.checkerframework.checker.nullness.qual.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import static java.util.Objects.requireNonNull;
 
+/**
+ * Manages a Record Layer database with the application lifecycle. When given a {@link WarmUp}, the database is warmed
+ * up on start, which holds back the start of the application until warm-up has finished or timed out.
+ */
 public class RecordLayerManager implements Managed {
     private static final Logger log = LoggerFactory.getLogger(RecordLayerManager.class);
 
     private final FDBDatabase fdbDatabase;
     private final String name;
+    @Nullable
+    private final WarmUp warmUp;
 
     public RecordLayerManager(final FDBDatabase fdbDatabase,
                               final String name) {
+        this(fdbDatabase, name, null);
+    }
+
+    public RecordLayerManager(final FDBDatabase fdbDatabase,
+                              final String name,
+                              @Nullable final WarmUp warmUp) {
         this.fdbDatabase = requireNonNull(fdbDatabase);
         this.name = requireNonNull(name);
+        this.warmUp = warmUp;
     }
 
     @Override
     public void start() throws Exception {
         log.info("RecordLayer {} starting", name);
+        if (warmUp != null) {
+            warmUp.run();
+        }
     }
 
     @Override
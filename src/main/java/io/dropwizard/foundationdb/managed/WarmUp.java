@@ -0,0 +1,142 @@
+package io.dropwizard.foundationdb.managed;
+
+import com.apple.foundationdb.Database;
+import com.apple.foundationdb.LocalityUtil;
+import com.apple.foundationdb.Range;
+import com.apple.foundationdb.async.AsyncUtil;
+import com.apple.foundationdb.async.CloseableAsyncIterator;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import io.dropwizard.util.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Warms a database up before it serves requests, so the first requests after a deploy do not pay for connecting to the
+ * coordinators, the first read version, directory resolution and location cache misses.
+ * <p>
+ * Every database handle gets a read version, every directory is looked up, and the first key of every shard of the hot
+ * ranges is read, which fills the location cache of the handle with the storage servers of those shards. Warm-up is
+ * given up once the timeout has passed, as a slow warm-up should not keep the application from starting.
+ */
+public class WarmUp {
+    private static final Logger log = LoggerFactory.getLogger(WarmUp.class);
+
+    private final List<Database> databases;
+    private final List<List<String>> directories;
+    private final Function<List<String>, CompletableFuture<?>> directoryResolver;
+    private final List<Range> hotRanges;
+    private final Duration timeout;
+    private final String name;
+    private final Timer timer;
+    private final Meter failures;
+
+    /**
+     * @param databases         the handles to warm up, each of which has its own connection and location cache
+     * @param directoryResolver looks a directory path up without creating it, caching it where the application resolves
+     *                          its directories
+     */
+    public WarmUp(final List<Database> databases,
+                  final List<List<String>> directories,
+                  final Function<List<String>, CompletableFuture<?>> directoryResolver,
+                  final List<Range> hotRanges,
+                  final Duration timeout,
+                  final MetricRegistry metrics,
+                  final String name) {
+        this.databases = List.copyOf(databases);
+        this.directories = List.copyOf(directories);
+        this.directoryResolver = requireNonNull(directoryResolver);
+        this.hotRanges = List.copyOf(hotRanges);
+        this.timeout = requireNonNull(timeout);
+        this.name = requireNonNull(name);
+        this.timer = metrics.timer(MetricRegistry.name(name, "warmUp.timeInNanos"));
+        this.failures = metrics.meter(MetricRegistry.name(name, "warmUp.failures"));
+    }
+
+    /**
+     * Warms the database up, blocking until warm-up has finished, failed or timed out. A failed warm-up is logged and
+     * leaves the database to warm up as it serves requests.
+     */
+    public void run() {
+        final Timer.Context timerCtx = timer.time();
+        final CompletableFuture<Void> warmUp = warmUp();
+        try {
+            warmUp.get(timeout.toMilliseconds(), TimeUnit.MILLISECONDS);
+            log.info("FoundationDB {} warmed up in {}ms", name, TimeUnit.NANOSECONDS.toMillis(timerCtx.stop()));
+        } catch (final TimeoutException e) {
+            timerCtx.stop();
+            failures.mark();
+            warmUp.cancel(true);
+            log.warn("FoundationDB {} did not warm up within {}, starting anyway", name, timeout);
+        } catch (final ExecutionException e) {
+            timerCtx.stop();
+            failures.mark();
+            log.warn("FoundationDB {} failed to warm up, starting anyway", name, e.getCause());
+        } catch (final InterruptedException e) {
+            timerCtx.stop();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    CompletableFuture<Void> warmUp() {
+        final List<CompletableFuture<?>> readVersions = new ArrayList<>(databases.size());
+        for (final Database database : databases) {
+            readVersions.add(database.readAsync(transaction -> transaction.getReadVersion()));
+        }
+
+        return allOf(readVersions)
+                .thenCompose(ignored -> {
+                    final List<CompletableFuture<?>> resolved = new ArrayList<>(directories.size());
+                    for (final List<String> directory : directories) {
+                        resolved.add(directoryResolver.apply(directory));
+                    }
+                    return allOf(resolved);
+                })
+                .thenCompose(ignored -> {
+                    final List<CompletableFuture<?>> primed = new ArrayList<>();
+                    for (final Database database : databases) {
+                        for (final Range range : hotRanges) {
+                            primed.add(primeLocations(database, range));
+                        }
+                    }
+                    return allOf(primed);
+                });
+    }
+
+    /**
+     * Reads the first key of every shard of a range, filling the location cache with the servers of those shards.
+     */
+    private static CompletableFuture<Void> primeLocations(final Database database, final Range range) {
+        final CloseableAsyncIterator<byte[]> boundaries = LocalityUtil.getBoundaryKeys(database, range.begin, range.end);
+        return AsyncUtil.collectRemaining(boundaries)
+                .thenCompose(boundaryKeys -> {
+                    final List<CompletableFuture<?>> reads = new ArrayList<>(boundaryKeys.size() + 1);
+                    reads.add(readFirstKey(database, range.begin, range.end));
+                    for (final byte[] boundaryKey : boundaryKeys) {
+                        reads.add(readFirstKey(database, boundaryKey, range.end));
+                    }
+                    return allOf(reads);
+                })
+                .whenComplete((ignored, error) -> boundaries.close());
+    }
+
+    private static CompletableFuture<Void> allOf(final List<CompletableFuture<?>> futures) {
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]));
+    }
+
+    private static CompletableFuture<?> readFirstKey(final Database database, final byte[] begin, final byte[] end) {
+        return database.readAsync(transaction -> transaction.snapshot().getRange(begin, end, 1).asList());
+    }
+}
@@ -0,0 +1,131 @@
+package io.dropwizard.foundationdb.managed;
+
+import com.apple.foundationdb.Database;
+import com.apple.foundationdb.Range;
+import com.apple.foundationdb.directory.DirectoryLayer;
+import com.apple.foundationdb.directory.NoSuchDirectoryException;
+import com.apple.foundationdb.record.provider.foundationdb.FDBDatabase;
+import com.apple.foundationdb.record.provider.foundationdb.FDBRecordContext;
+import com.apple.foundationdb.record.provider.foundationdb.keyspace.ScopedDirectoryLayer;
+import com.apple.foundationdb.tuple.Tuple;
+
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.dropwizard.foundationdb.directory.DirectoryCache;
+import io.dropwizard.util.Duration;
+import io.dropwizard.validation.MinDuration;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import jakarta.validation.constraints.NotNull;
+
+/**
+ * Configures the {@link WarmUp} run when a database starts. Directories are paths of directory names, and every hot
+ * range is the tuple-encoded form of its name, as with the health check subspace.
+ * <p>
+ * Directories are only looked up, never created, so that starting an application does not write to the directory
+ * layer: a directory which does not exist yet is skipped, and is resolved by the first request using it.
+ */
+public class WarmUpFactory {
+    @NotNull
+    @MinDuration(value = 1, unit = TimeUnit.MILLISECONDS)
+    @JsonProperty
+    private Duration timeout = Duration.seconds(30);
+    @NotNull
+    @JsonProperty
+    private List<List<String>> directories = new ArrayList<>();
+    @NotNull
+    @JsonProperty
+    private List<String> hotRanges = new ArrayList<>();
+
+    /**
+     * @return how long the start of the application is held back for warm-up, after which it starts anyway
+     */
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(final Duration timeout) {
+        this.timeout = timeout;
+    }
+
+    public List<List<String>> getDirectories() {
+        return directories;
+    }
+
+    public void setDirectories(final List<List<String>> directories) {
+        this.directories = directories;
+    }
+
+    public List<String> getHotRanges() {
+        return hotRanges;
+    }
+
+    public void setHotRanges(final List<String> hotRanges) {
+        this.hotRanges = hotRanges;
+    }
+
+    /**
+     * Builds a warm-up of the given database handles, opening the directories through the directory cache, which keeps
+     * their subspaces for the requests that follow. Without a directory cache, the directories are only checked for
+     * existence, which keeps nothing.
+     *
+     * @param directoryCache the cache the application opens its directories through, if any
+     */
+    public WarmUp build(final List<Database> databases,
+                        @Nullable final DirectoryCache directoryCache,
+                        final MetricRegistry metrics,
+                        final String name) {
+        final Database database = databases.get(0);
+        return new WarmUp(databases, directories, path -> {
+            if (directoryCache != null) {
+                return skipIfMissing(directoryCache.open(path), NoSuchDirectoryException.class);
+            }
+            return DirectoryLayer.getDefault().exists(database, path);
+        }, buildHotRanges(), timeout, metrics, name);
+    }
+
+    /**
+     * Builds a warm-up of a Record Layer database, looking every name of the directories up through its global
+     * resolver, which fills the directory cache of the database.
+     */
+    public WarmUp build(final FDBDatabase database, final MetricRegistry metrics, final String name) {
+        final ScopedDirectoryLayer resolver = ScopedDirectoryLayer.global(database);
+        return new WarmUp(List.of(database.database()), directories, path -> {
+            final FDBRecordContext context = database.openContext();
+            final List<CompletableFuture<?>> resolved = path.stream()
+                    .map(directoryName -> skipIfMissing(resolver.mustResolve(context, directoryName),
+                            NoSuchElementException.class))
+                    .collect(Collectors.toList());
+            return CompletableFuture.allOf(resolved.toArray(new CompletableFuture<?>[0]))
+                    .whenComplete((ignored, error) -> context.close());
+        }, buildHotRanges(), timeout, metrics, name);
+    }
+
+    /**
+     * @return a future completed once the lookup is, successfully if it only failed because the directory is missing
+     */
+    private static <T> CompletableFuture<T> skipIfMissing(final CompletableFuture<T> lookup,
+                                                          final Class<? extends Throwable> missing) {
+        return lookup.handle((result, error) -> {
+            final Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+            if (cause == null || missing.isInstance(cause)) {
+                return CompletableFuture.completedFuture(result);
+            }
+            return CompletableFuture.<T>failedFuture(cause);
+        }).thenCompose(skipped -> skipped);
+    }
+
+    private List<Range> buildHotRanges() {
+        return hotRanges.stream()
+                .map(hotRange -> Range.startsWith(Tuple.from(hotRange).pack()))
+                .collect(Collectors.toList());
+    }
+}
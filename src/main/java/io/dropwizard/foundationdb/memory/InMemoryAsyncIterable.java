@@ -0,0 +1,70 @@
+package io.dropwizard.foundationdb.memory;
+
+import com.apple.foundationdb.KeyValue;
+import com.apple.foundationdb.async.AsyncIterable;
+import com.apple.foundationdb.async.AsyncIterator;
+
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * The result of a range read against an {@link InMemoryDatabase}, read every time it is iterated, as a range read
+ * against a cluster is.
+ */
+class InMemoryAsyncIterable implements AsyncIterable<KeyValue> {
+    private final Supplier<List<KeyValue>> read;
+
+    InMemoryAsyncIterable(final Supplier<List<KeyValue>> read) {
+        this.read = requireNonNull(read);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AsyncIterator<KeyValue> iterator() {
+        final CompletableFuture<List<KeyValue>> keyValues = asList();
+        return new AsyncIterator<KeyValue>() {
+            private int position = 0;
+
+            @Override
+            public CompletableFuture<Boolean> onHasNext() {
+                return keyValues.thenApply(list -> position < list.size());
+            }
+
+            @Override
+            public boolean hasNext() {
+                return onHasNext().join();
+            }
+
+            @Override
+            public KeyValue next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return keyValues.join().get(position++);
+            }
+
+            @Override
+            public void cancel() {
+                // nothing to cancel, the range has already been read
+            }
+        };
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<List<KeyValue>> asList() {
+        try {
+            return CompletableFuture.completedFuture(read.get());
+        } catch (final RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+}
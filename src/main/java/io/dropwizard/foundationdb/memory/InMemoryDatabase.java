@@ -0,0 +1,572 @@
+package io.dropwizard.foundationdb.memory;
+
+import com.apple.foundationdb.Database;
+import com.apple.foundationdb.DatabaseOptions;
+import com.apple.foundationdb.EventKeeper;
+import com.apple.foundationdb.FDBException;
+import com.apple.foundationdb.KeyRangeArrayResult;
+import com.apple.foundationdb.Range;
+import com.apple.foundationdb.ReadTransaction;
+import com.apple.foundationdb.Tenant;
+import com.apple.foundationdb.Transaction;
+import com.apple.foundationdb.async.AsyncUtil;
+import com.apple.foundationdb.tuple.ByteArrayUtil;
+import com.apple.foundationdb.tuple.Tuple;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.function.LongFunction;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * An in-process {@link Database}, for tests and load tests which should run without a FoundationDB cluster.
+ * <p>
+ * Keys are kept in a sorted concurrent map holding the recent versions of every value, so that transactions read a
+ * consistent snapshot at their read version while others commit. Versions advance by about a million a second, and
+ * versions older than five seconds are discarded, reads at them failing with {@code 1007 transaction_too_old}, as they
+ * would against a cluster. Commits are checked for conflicts one at a time: a transaction whose read conflict ranges
+ * intersect the write conflict ranges of a transaction committed after its read version fails with
+ * {@code 1020 not_committed}, to be retried by {@link Transaction#onError(Throwable)}.
+ * <p>
+ * Tenants, blob granules and mapped ranges are not supported, and nothing is persisted. Split points are computed from
+ * the estimated size of the keys and values of the range, as a cluster estimates it.
+ */
+public class InMemoryDatabase implements Database {
+    static final long MVCC_WINDOW_VERSIONS = 5_000_000L;
+
+    private final ConcurrentSkipListMap<byte[], Versioned> data = new ConcurrentSkipListMap<>(ByteArrayUtil::compareUnsigned);
+    private final Deque<CommittedWrites> committedWrites = new ArrayDeque<>();
+    private final Deque<ClearedKeys> clearedKeys = new ArrayDeque<>();
+    private final List<Watch> watches = new ArrayList<>();
+    private final DatabaseOptions options = new DatabaseOptions((code, parameter) -> {
+        // database options only tune the client, which this database does without
+    });
+    private final Executor executor;
+    private final long startTime = System.nanoTime();
+    private volatile long version;
+
+    public InMemoryDatabase(final Executor executor) {
+        this.executor = requireNonNull(executor);
+    }
+
+    /**
+     * @return the version of the last commit
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Transaction createTransaction() {
+        return createTransaction(executor);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Transaction createTransaction(final Executor e) {
+        return createTransaction(e, null);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Transaction createTransaction(final Executor e, @Nullable final EventKeeper ek) {
+        return new InMemoryTransaction(this, e, ek);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public DatabaseOptions options() {
+        return options;
+    }
+
+    /**
+     * @return zero, as there is no network thread
+     */
+    @Override
+    public double getMainThreadBusyness() {
+        return 0;
+    }
+
+    /**
+     * @throws UnsupportedOperationException as tenants are not supported
+     */
+    @Override
+    public Tenant openTenant(final Tuple tenantName) {
+        throw unsupported("Tenants");
+    }
+
+    /**
+     * @throws UnsupportedOperationException as tenants are not supported
+     */
+    @Override
+    public Tenant openTenant(final byte[] tenantName, final Executor e) {
+        throw unsupported("Tenants");
+    }
+
+    /**
+     * @throws UnsupportedOperationException as tenants are not supported
+     */
+    @Override
+    public Tenant openTenant(final Tuple tenantName, final Executor e) {
+        throw unsupported("Tenants");
+    }
+
+    /**
+     * @throws UnsupportedOperationException as tenants are not supported
+     */
+    @Override
+    public Tenant openTenant(final byte[] tenantName, final Executor e, final EventKeeper eventKeeper) {
+        throw unsupported("Tenants");
+    }
+
+    /**
+     * @throws UnsupportedOperationException as tenants are not supported
+     */
+    @Override
+    public Tenant openTenant(final Tuple tenantName, final Executor e, final EventKeeper eventKeeper) {
+        throw unsupported("Tenants");
+    }
+
+    /**
+     * @return a future failed with an {@link UnsupportedOperationException}, as blob granules are not supported
+     */
+    @Override
+    public CompletableFuture<byte[]> purgeBlobGranules(final byte[] beginKey, final byte[] endKey, final long purgeVersion,
+                                                       final boolean force, final Executor e) {
+        return CompletableFuture.failedFuture(unsupported("Blob granules"));
+    }
+
+    /**
+     * @return a future failed with an {@link UnsupportedOperationException}, as blob granules are not supported
+     */
+    @Override
+    public CompletableFuture<Void> waitPurgeGranulesComplete(final byte[] purgeKey, final Executor e) {
+        return CompletableFuture.failedFuture(unsupported("Blob granules"));
+    }
+
+    /**
+     * @return a future failed with an {@link UnsupportedOperationException}, as blob granules are not supported
+     */
+    @Override
+    public CompletableFuture<Boolean> blobbifyRange(final byte[] beginKey, final byte[] endKey, final Executor e) {
+        return CompletableFuture.failedFuture(unsupported("Blob granules"));
+    }
+
+    /**
+     * @return a future failed with an {@link UnsupportedOperationException}, as blob granules are not supported
+     */
+    @Override
+    public CompletableFuture<Boolean> unblobbifyRange(final byte[] beginKey, final byte[] endKey, final Executor e) {
+        return CompletableFuture.failedFuture(unsupported("Blob granules"));
+    }
+
+    /**
+     * @return a future failed with an {@link UnsupportedOperationException}, as blob granules are not supported
+     */
+    @Override
+    public CompletableFuture<KeyRangeArrayResult> listBlobbifiedRanges(final byte[] beginKey, final byte[] endKey,
+                                                                       final int rangeLimit, final Executor e) {
+        return CompletableFuture.failedFuture(unsupported("Blob granules"));
+    }
+
+    /**
+     * @return a future failed with an {@link UnsupportedOperationException}, as blob granules are not supported
+     */
+    @Override
+    public CompletableFuture<Long> verifyBlobRange(final byte[] beginKey, final byte[] endKey, final long version,
+                                                   final Executor e) {
+        return CompletableFuture.failedFuture(unsupported("Blob granules"));
+    }
+
+    /**
+     * @return a future failed with an {@link UnsupportedOperationException}, as blob granules are not supported
+     */
+    @Override
+    public CompletableFuture<Boolean> blobbifyRangeBlocking(final byte[] beginKey, final byte[] endKey, final Executor e) {
+        return CompletableFuture.failedFuture(unsupported("Blob granules"));
+    }
+
+    /**
+     * @return a future failed with an {@link UnsupportedOperationException}, as blob granules are not supported
+     */
+    @Override
+    public CompletableFuture<Boolean> flushBlobRange(final byte[] beginKey, final byte[] endKey, final boolean compact,
+                                                     final long version, final Executor e) {
+        return CompletableFuture.failedFuture(unsupported("Blob granules"));
+    }
+
+    /**
+     * @return a future failed with an {@link UnsupportedOperationException}, as there is no client to report on
+     */
+    @Override
+    public CompletableFuture<byte[]> getClientStatus(final Executor e) {
+        return CompletableFuture.failedFuture(unsupported("Client status"));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T> T read(final Function<? super ReadTransaction, T> retryable, final Executor e) {
+        return runLoop(retryable, e, false);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T> CompletableFuture<T> readAsync(final Function<? super ReadTransaction, ? extends CompletableFuture<T>> retryable,
+                                              final Executor e) {
+        return runAsyncLoop(createTransaction(e), retryable, e, false);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T> T run(final Function<? super Transaction, T> retryable, final Executor e) {
+        return runLoop(retryable, e, true);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T> CompletableFuture<T> runAsync(final Function<? super Transaction, ? extends CompletableFuture<T>> retryable,
+                                             final Executor e) {
+        return runAsyncLoop(createTransaction(e), retryable, e, true);
+    }
+
+    /**
+     * Drops every key.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            data.clear();
+            committedWrites.clear();
+            clearedKeys.clear();
+            watches.forEach(watch -> watch.future.completeExceptionally(new FDBException("operation_cancelled", 1101)));
+            watches.clear();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    private <T> T runLoop(final Function<? super Transaction, T> retryable, final Executor e, final boolean commit) {
+        Transaction transaction = createTransaction(e);
+        try {
+            while (true) {
+                try {
+                    final T result = retryable.apply(transaction);
+                    if (commit) {
+                        transaction.commit().join();
+                    }
+                    return result;
+                } catch (final RuntimeException error) {
+                    try {
+                        transaction = transaction.onError(error).join();
+                    } catch (final CompletionException retryError) {
+                        throw retryError.getCause() instanceof RuntimeException
+                                ? (RuntimeException) retryError.getCause()
+                                : retryError;
+                    }
+                }
+            }
+        } finally {
+            transaction.close();
+        }
+    }
+
+    private <T> CompletableFuture<T> runAsyncLoop(final Transaction transaction,
+                                                  final Function<? super Transaction, ? extends CompletableFuture<T>> retryable,
+                                                  final Executor e,
+                                                  final boolean commit) {
+        return AsyncUtil.applySafely(retryable, transaction)
+                .thenCompose(result -> commit
+                        ? transaction.commit().thenApply(ignored -> result)
+                        : CompletableFuture.completedFuture(result))
+                .handle((result, error) -> {
+                    if (error == null) {
+                        transaction.close();
+                        return CompletableFuture.completedFuture(result);
+                    }
+                    return transaction.onError(error)
+                            .whenComplete((retry, retryError) -> {
+                                if (retryError != null) {
+                                    transaction.close();
+                                }
+                            })
+                            .thenComposeAsync(retry -> runAsyncLoop(retry, retryable, e, commit), e);
+                })
+                .thenCompose(Function.identity());
+    }
+
+    /**
+     * @return the version to read at for a transaction starting now
+     */
+    long getReadVersion() {
+        return version;
+    }
+
+    /**
+     * @throws FDBException {@code 1007 transaction_too_old} if the versions at {@code readVersion} have been discarded
+     */
+    void checkReadVersion(final long readVersion) {
+        if (readVersion < version - MVCC_WINDOW_VERSIONS) {
+            throw new FDBException("transaction_too_old", 1007);
+        }
+    }
+
+    @Nullable
+    byte[] get(final byte[] key, final long readVersion) {
+        final Versioned versioned = data.get(key);
+        return versioned == null ? null : versioned.valueAt(readVersion);
+    }
+
+    /**
+     * @return the stored keys of a range, some of which may not have a value at the version being read
+     */
+    NavigableMap<byte[], Versioned> getData() {
+        return data;
+    }
+
+    /**
+     * Commits the writes of a transaction, after checking them for conflicts with the transactions committed since its
+     * read version.
+     *
+     * @param writeConflictRanges the write conflict ranges added explicitly, besides those of the writes themselves
+     * @param clears              the ranges to clear before applying the writes
+     * @param writes              resolves the writes at the commit version, to a map of the keys to set or clear to
+     *                            their value, or {@code null}; reads made while resolving them see every prior commit
+     * @return the commit version
+     * @throws FDBException {@code 1020 not_committed} if the transaction conflicts with one committed since its read
+     *                      version
+     */
+    synchronized long commit(final long readVersion,
+                             final List<Range> readConflictRanges,
+                             final List<Range> writeConflictRanges,
+                             final List<Range> clears,
+                             final LongFunction<NavigableMap<byte[], byte[]>> writes) {
+        checkReadVersion(readVersion);
+        final Iterator<CommittedWrites> newestFirst = committedWrites.descendingIterator();
+        while (newestFirst.hasNext()) {
+            final CommittedWrites committed = newestFirst.next();
+            if (committed.version <= readVersion) {
+                break;
+            }
+            if (intersects(committed.ranges, readConflictRanges)) {
+                throw new FDBException("not_committed", 1020);
+            }
+        }
+
+        final long commitVersion = Math.max(version + 1, (System.nanoTime() - startTime) / 1_000);
+        // readers check their read version against the published version, so only what it no longer allows is discarded
+        final long oldest = version - MVCC_WINDOW_VERSIONS;
+        final NavigableMap<byte[], byte[]> resolved = writes.apply(commitVersion);
+        final List<Range> ranges = new ArrayList<>(writeConflictRanges);
+        final List<byte[]> cleared = new ArrayList<>();
+        for (final Range range : clears) {
+            ranges.add(range);
+            for (final Map.Entry<byte[], Versioned> entry : data.subMap(range.begin, true, range.end, false).entrySet()) {
+                if (entry.getValue().value != null && !resolved.containsKey(entry.getKey())) {
+                    write(entry.getKey(), null, commitVersion, oldest);
+                    cleared.add(entry.getKey());
+                }
+            }
+        }
+        for (final Map.Entry<byte[], byte[]> entry : resolved.entrySet()) {
+            ranges.add(keyRange(entry.getKey()));
+            write(entry.getKey(), entry.getValue(), commitVersion, oldest);
+            if (entry.getValue() == null) {
+                cleared.add(entry.getKey());
+            }
+        }
+
+        committedWrites.add(new CommittedWrites(commitVersion, ranges));
+        if (!cleared.isEmpty()) {
+            clearedKeys.add(new ClearedKeys(commitVersion, cleared));
+        }
+        version = commitVersion;
+
+        notifyWatches();
+        discardOldVersions(oldest);
+        return commitVersion;
+    }
+
+    /**
+     * Sets or clears a key at the commit version, discarding the values no transaction can read anymore.
+     *
+     * @param oldest the oldest version transactions may still read at
+     */
+    private void write(final byte[] key, @Nullable final byte[] value, final long commitVersion, final long oldest) {
+        data.compute(key, (ignored, previous) -> new Versioned(commitVersion, value,
+                previous == null ? null : previous.retainedSince(oldest)));
+    }
+
+    /**
+     * Starts a watch on a key, completing once its value differs from the given one.
+     */
+    synchronized void watch(final byte[] key, @Nullable final byte[] value, final CompletableFuture<Void> future) {
+        final Watch watch = new Watch(key, value, future);
+        if (!watch.fireIfChanged(get(key, version))) {
+            watches.add(watch);
+        }
+    }
+
+    private void notifyWatches() {
+        if (!watches.isEmpty()) {
+            watches.removeIf(watch -> watch.future.isDone() || watch.fireIfChanged(get(watch.key, version)));
+        }
+    }
+
+    private void discardOldVersions(final long oldest) {
+        while (!committedWrites.isEmpty() && committedWrites.peekFirst().version < oldest) {
+            committedWrites.removeFirst();
+        }
+        while (!clearedKeys.isEmpty() && clearedKeys.peekFirst().version < oldest) {
+            for (final byte[] key : clearedKeys.removeFirst().keys) {
+                final Versioned versioned = data.get(key);
+                if (versioned != null && versioned.value == null && versioned.version < oldest) {
+                    data.remove(key, versioned);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the range holding only the given key
+     */
+    static Range keyRange(final byte[] key) {
+        return new Range(key, ByteArrayUtil.join(key, new byte[]{0}));
+    }
+
+    private static boolean intersects(final List<Range> ranges, final List<Range> others) {
+        for (final Range range : ranges) {
+            for (final Range other : others) {
+                if (ByteArrayUtil.compareUnsigned(range.begin, other.end) < 0
+                        && ByteArrayUtil.compareUnsigned(other.begin, range.end) < 0) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static UnsupportedOperationException unsupported(final String feature) {
+        return new UnsupportedOperationException(feature + " are not supported by the in-memory database");
+    }
+
+    /**
+     * The values of a key, newest first, a {@code null} value marking the key as cleared.
+     */
+    static final class Versioned {
+        private final long version;
+        @Nullable
+        private final byte[] value;
+        @Nullable
+        private final Versioned previous;
+
+        private Versioned(final long version, @Nullable final byte[] value, @Nullable final Versioned previous) {
+            this.version = version;
+            this.value = value;
+            this.previous = previous;
+        }
+
+        @Nullable
+        byte[] valueAt(final long readVersion) {
+            Versioned current = this;
+            while (current != null && current.version > readVersion) {
+                current = current.previous;
+            }
+            return current == null ? null : current.value;
+        }
+
+        /**
+         * @return the values which can still be read at {@code oldest} or later
+         */
+        @Nullable
+        private Versioned retainedSince(final long oldest) {
+            if (version <= oldest) {
+                return value == null ? null : new Versioned(version, value, null);
+            }
+            return new Versioned(version, value, previous == null ? null : previous.retainedSince(oldest));
+        }
+    }
+
+    /**
+     * The write conflict ranges of a commit.
+     */
+    private static final class CommittedWrites {
+        private final long version;
+        private final List<Range> ranges;
+
+        private CommittedWrites(final long version, final List<Range> ranges) {
+            this.version = version;
+            this.ranges = ranges;
+        }
+    }
+
+    /**
+     * The keys cleared by a commit, to be dropped once no transaction can read their previous values.
+     */
+    private static final class ClearedKeys {
+        private final long version;
+        private final List<byte[]> keys;
+
+        private ClearedKeys(final long version, final List<byte[]> keys) {
+            this.version = version;
+            this.keys = keys;
+        }
+    }
+
+    private static final class Watch {
+        private final byte[] key;
+        @Nullable
+        private final byte[] value;
+        private final CompletableFuture<Void> future;
+
+        private Watch(final byte[] key, @Nullable final byte[] value, final CompletableFuture<Void> future) {
+            this.key = key;
+            this.value = value;
+            this.future = future;
+        }
+
+        private boolean fireIfChanged(@Nullable final byte[] current) {
+            if (Arrays.equals(value, current)) {
+                return false;
+            }
+            future.complete(null);
+            return true;
+        }
+    }
+}
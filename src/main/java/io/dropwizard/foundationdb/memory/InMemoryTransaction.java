@@ -0,0 +1,1041 @@
+package io.dropwizard.foundationdb.memory;
+
+import com.apple.foundationdb.Database;
+import com.apple.foundationdb.EventKeeper;
+import com.apple.foundationdb.FDBException;
+import com.apple.foundationdb.KeyArrayResult;
+import com.apple.foundationdb.KeyRangeArrayResult;
+import com.apple.foundationdb.KeySelector;
+import com.apple.foundationdb.KeyValue;
+import com.apple.foundationdb.MappedKeyValue;
+import com.apple.foundationdb.MutationType;
+import com.apple.foundationdb.Range;
+import com.apple.foundationdb.ReadTransaction;
+import com.apple.foundationdb.StreamingMode;
+import com.apple.foundationdb.Transaction;
+import com.apple.foundationdb.TransactionOptions;
+import com.apple.foundationdb.async.AsyncIterable;
+import com.apple.foundationdb.async.AsyncUtil;
+import com.apple.foundationdb.tuple.ByteArrayUtil;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.lang.reflect.Constructor;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A {@link Transaction} against an {@link InMemoryDatabase}.
+ * <p>
+ * Reads are made at the read version of the transaction and see its own writes, which are buffered until the commit.
+ * Reads which are not snapshot reads add read conflict ranges, and writes add write conflict ranges, as they do against
+ * a cluster. The {@code timeout}, {@code retry_limit} and {@code max_retry_delay} options are honoured and kept
+ * across retries; other options are accepted and ignored.
+ */
+class InMemoryTransaction implements Transaction {
+    private static final int TIMEOUT_OPTION = 500;
+    private static final int RETRY_LIMIT_OPTION = 501;
+    private static final int MAX_RETRY_DELAY_OPTION = 502;
+    private static final long INITIAL_RETRY_DELAY_MILLIS = 10;
+    private static final int MAX_KEY_SIZE = 10_000;
+    private static final int MAX_VALUE_SIZE = 100_000;
+    private static final long MAX_TRANSACTION_SIZE = 10_000_000;
+    private static final byte[] END_OF_KEYSPACE = {(byte) 0xff};
+    private static final byte[] END_OF_SYSTEM_KEYSPACE = {(byte) 0xff, (byte) 0xff};
+    private static final Comparator<byte[]> KEY_ORDER = ByteArrayUtil::compareUnsigned;
+
+    private final InMemoryDatabase database;
+    private final State state;
+    private final boolean snapshot;
+
+    InMemoryTransaction(final InMemoryDatabase database, final Executor executor, @Nullable final EventKeeper eventKeeper) {
+        this(database, new State(executor, eventKeeper, System.nanoTime(), 0, -1, 1_000, 0), false);
+    }
+
+    private InMemoryTransaction(final InMemoryDatabase database, final State state, final boolean snapshot) {
+        this.database = requireNonNull(database);
+        this.state = requireNonNull(state);
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isSnapshot() {
+        return snapshot;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ReadTransaction snapshot() {
+        return new InMemoryTransaction(database, state, true);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<Long> getReadVersion() {
+        return supply(this::readVersion);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setReadVersion(final long version) {
+        synchronized (state) {
+            checkUsable();
+            state.readVersion = version;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean addReadConflictRangeIfNotSnapshot(final byte[] beginKey, final byte[] endKey) {
+        if (snapshot) {
+            return false;
+        }
+        addReadConflictRange(beginKey, endKey);
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean addReadConflictKeyIfNotSnapshot(final byte[] key) {
+        return addReadConflictRangeIfNotSnapshot(key, ByteArrayUtil.join(key, new byte[]{0}));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<byte[]> get(final byte[] key) {
+        return supply(() -> {
+            final byte[] value = readValue(key);
+            addReadConflict(InMemoryDatabase.keyRange(key));
+            return value;
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<byte[]> getKey(final KeySelector selector) {
+        return supply(() -> {
+            final byte[] key = resolve(selector);
+            final byte[] anchor = selector.getKey();
+            addReadConflict(KEY_ORDER.compare(key, anchor) < 0
+                    ? new Range(key, ByteArrayUtil.join(anchor, new byte[]{0}))
+                    : new Range(anchor, ByteArrayUtil.join(key, new byte[]{0})));
+            return key;
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AsyncIterable<KeyValue> getRange(final KeySelector begin, final KeySelector end) {
+        return getRange(begin, end, ROW_LIMIT_UNLIMITED);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AsyncIterable<KeyValue> getRange(final KeySelector begin, final KeySelector end, final int limit) {
+        return getRange(begin, end, limit, false);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AsyncIterable<KeyValue> getRange(final KeySelector begin, final KeySelector end, final int limit,
+                                            final boolean reverse) {
+        return getRange(begin, end, limit, reverse, StreamingMode.ITERATOR);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AsyncIterable<KeyValue> getRange(final KeySelector begin, final KeySelector end, final int limit,
+                                            final boolean reverse, final StreamingMode mode) {
+        return new InMemoryAsyncIterable(() -> {
+            synchronized (state) {
+                return readRange(begin, end, limit, reverse);
+            }
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AsyncIterable<KeyValue> getRange(final byte[] begin, final byte[] end) {
+        return getRange(KeySelector.firstGreaterOrEqual(begin), KeySelector.firstGreaterOrEqual(end));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AsyncIterable<KeyValue> getRange(final byte[] begin, final byte[] end, final int limit) {
+        return getRange(KeySelector.firstGreaterOrEqual(begin), KeySelector.firstGreaterOrEqual(end), limit);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AsyncIterable<KeyValue> getRange(final byte[] begin, final byte[] end, final int limit,
+                                            final boolean reverse) {
+        return getRange(KeySelector.firstGreaterOrEqual(begin), KeySelector.firstGreaterOrEqual(end), limit, reverse);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AsyncIterable<KeyValue> getRange(final byte[] begin, final byte[] end, final int limit,
+                                            final boolean reverse, final StreamingMode mode) {
+        return getRange(KeySelector.firstGreaterOrEqual(begin), KeySelector.firstGreaterOrEqual(end), limit, reverse,
+                mode);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AsyncIterable<KeyValue> getRange(final Range range) {
+        return getRange(range.begin, range.end);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AsyncIterable<KeyValue> getRange(final Range range, final int limit) {
+        return getRange(range.begin, range.end, limit);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AsyncIterable<KeyValue> getRange(final Range range, final int limit, final boolean reverse) {
+        return getRange(range.begin, range.end, limit, reverse);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public AsyncIterable<KeyValue> getRange(final Range range, final int limit, final boolean reverse,
+                                            final StreamingMode mode) {
+        return getRange(range.begin, range.end, limit, reverse, mode);
+    }
+
+    /**
+     * @throws UnsupportedOperationException as mapped ranges are not supported
+     */
+    @Override
+    public AsyncIterable<MappedKeyValue> getMappedRange(final KeySelector begin, final KeySelector end,
+                                                        final byte[] mapper, final int limit, final boolean reverse,
+                                                        final StreamingMode mode) {
+        throw new UnsupportedOperationException("Mapped ranges are not supported by the in-memory database");
+    }
+
+    /**
+     * @return the total size of the keys and values of the range, as of the read version
+     */
+    @Override
+    public CompletableFuture<Long> getEstimatedRangeSizeBytes(final byte[] begin, final byte[] end) {
+        return supply(() -> {
+            final long readVersion = readVersion();
+            long size = 0;
+            for (final Map.Entry<byte[], InMemoryDatabase.Versioned> entry
+                    : database.getData().subMap(begin, true, end, false).entrySet()) {
+                final byte[] value = entry.getValue().valueAt(readVersion);
+                if (value != null) {
+                    size += entry.getKey().length + value.length;
+                }
+            }
+            return size;
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<Long> getEstimatedRangeSizeBytes(final Range range) {
+        return getEstimatedRangeSizeBytes(range.begin, range.end);
+    }
+
+    /**
+     * Splits the range into chunks of about {@code chunkSize} bytes, as estimated by
+     * {@link #getEstimatedRangeSizeBytes}, cutting at the first key past each chunk.
+     *
+     * @return the beginning of the range, the split points and the end of the range, as a cluster returns them
+     */
+    @Override
+    public CompletableFuture<KeyArrayResult> getRangeSplitPoints(final byte[] begin, final byte[] end,
+                                                                 final long chunkSize) {
+        return supply(() -> {
+            final long readVersion = readVersion();
+            final List<byte[]> splitPoints = new ArrayList<>();
+            splitPoints.add(begin);
+            long size = 0;
+            for (final Map.Entry<byte[], InMemoryDatabase.Versioned> entry
+                    : database.getData().subMap(begin, true, end, false).entrySet()) {
+                final byte[] value = entry.getValue().valueAt(readVersion);
+                if (value == null) {
+                    continue;
+                }
+                if (size >= chunkSize && KEY_ORDER.compare(entry.getKey(), begin) > 0) {
+                    splitPoints.add(entry.getKey());
+                    size = 0;
+                }
+                size += entry.getKey().length + value.length;
+            }
+            splitPoints.add(end);
+            return keyArrayResult(splitPoints);
+        });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<KeyArrayResult> getRangeSplitPoints(final Range range, final long chunkSize) {
+        return getRangeSplitPoints(range.begin, range.end, chunkSize);
+    }
+
+    /**
+     * Builds a {@link KeyArrayResult} through its constructor from packed keys, which the bindings only call from
+     * native code and thus do not make public.
+     */
+    private static KeyArrayResult keyArrayResult(final List<byte[]> keys) {
+        final ByteBuffer keyBytes = ByteBuffer.allocate(keys.stream().mapToInt(key -> key.length).sum());
+        final int[] keyLengths = new int[keys.size()];
+        for (int i = 0; i < keyLengths.length; i++) {
+            keyBytes.put(keys.get(i));
+            keyLengths[i] = keys.get(i).length;
+        }
+        try {
+            final Constructor<KeyArrayResult> constructor =
+                    KeyArrayResult.class.getDeclaredConstructor(byte[].class, int[].class);
+            constructor.setAccessible(true);
+            return constructor.newInstance(keyBytes.array(), keyLengths);
+        } catch (final ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot build the split points of a range", e);
+        }
+    }
+
+    /**
+     * @return a future failed with an {@link UnsupportedOperationException}, as blob granules are not supported
+     */
+    @Override
+    public CompletableFuture<KeyRangeArrayResult> getBlobGranuleRanges(final byte[] begin, final byte[] end,
+                                                                       final int rowLimit) {
+        return CompletableFuture.failedFuture(
+                new UnsupportedOperationException("Blob granules are not supported by the in-memory database"));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public TransactionOptions options() {
+        return state.options;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public EventKeeper getEventKeeper() {
+        return state.eventKeeper;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T> T read(final Function<? super ReadTransaction, T> retryable) {
+        return retryable.apply(this);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T> CompletableFuture<T> readAsync(final Function<? super ReadTransaction, ? extends CompletableFuture<T>> retryable) {
+        return AsyncUtil.applySafely(retryable, this);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Executor getExecutor() {
+        return state.executor;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addReadConflictRange(final byte[] keyBegin, final byte[] keyEnd) {
+        synchronized (state) {
+            checkUsable();
+            state.readConflictRanges.add(new Range(keyBegin, keyEnd));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addReadConflictKey(final byte[] key) {
+        addReadConflictRange(key, ByteArrayUtil.join(key, new byte[]{0}));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addWriteConflictRange(final byte[] keyBegin, final byte[] keyEnd) {
+        synchronized (state) {
+            checkUsable();
+            state.writeConflictRanges.add(new Range(keyBegin, keyEnd));
+            state.size += keyBegin.length + keyEnd.length;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void addWriteConflictKey(final byte[] key) {
+        addWriteConflictRange(key, ByteArrayUtil.join(key, new byte[]{0}));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void set(final byte[] key, final byte[] value) {
+        checkKey(key);
+        if (value.length > MAX_VALUE_SIZE) {
+            throw new FDBException("value_too_large", 2103);
+        }
+        synchronized (state) {
+            checkUsable();
+            state.writes.put(key, PendingWrite.replacing(value));
+            state.size += key.length + value.length;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clear(final byte[] key) {
+        checkKey(key);
+        synchronized (state) {
+            checkUsable();
+            state.writes.put(key, PendingWrite.replacing(null));
+            state.size += key.length;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clear(final byte[] beginKey, final byte[] endKey) {
+        synchronized (state) {
+            checkUsable();
+            if (KEY_ORDER.compare(beginKey, endKey) >= 0) {
+                return;
+            }
+            state.clear(beginKey, endKey);
+            state.size += beginKey.length + endKey.length;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clear(final Range range) {
+        clear(range.begin, range.end);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @Deprecated
+    public void clearRangeStartsWith(final byte[] prefix) {
+        clear(Range.startsWith(prefix));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void mutate(final MutationType optype, final byte[] key, final byte[] param) {
+        synchronized (state) {
+            checkUsable();
+            state.size += key.length + param.length;
+            if (optype == MutationType.SET_VERSIONSTAMPED_KEY) {
+                state.versionstampedKeys.add(new KeyValue(key, param));
+                return;
+            }
+            checkKey(key);
+            if (optype == MutationType.SET_VERSIONSTAMPED_VALUE) {
+                state.writes.put(key, PendingWrite.versionstamped(param));
+                return;
+            }
+
+            final PendingWrite write = state.writes.get(key);
+            if (write == null && state.isCleared(key)) {
+                state.writes.put(key, PendingWrite.replacing(Mutations.apply(optype, null, param)));
+            } else if (write == null) {
+                state.writes.put(key, PendingWrite.mutating(optype, param));
+            } else {
+                write.mutate(optype, param);
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<Void> commit() {
+        final List<Watch> watches;
+        try {
+            synchronized (state) {
+                checkUsable();
+                if (state.size > MAX_TRANSACTION_SIZE) {
+                    throw new FDBException("transaction_too_large", 2101);
+                }
+                if (state.isReadOnly()) {
+                    state.committedVersion = -1;
+                } else {
+                    final long readVersion = readVersion();
+                    state.committedVersion = database.commit(readVersion, state.readConflictRanges,
+                            state.writeConflictRanges, state.getClearedRanges(), this::resolveWrites);
+                }
+                watches = new ArrayList<>(state.watches);
+                state.watches.clear();
+            }
+        } catch (final RuntimeException e) {
+            state.versionstamp.completeExceptionally(e);
+            failWatches(e);
+            return CompletableFuture.failedFuture(e);
+        }
+
+        if (state.committedVersion < 0) {
+            state.versionstamp.completeExceptionally(new FDBException("no_commit_version", 2021));
+        } else {
+            state.versionstamp.complete(Mutations.versionstamp(state.committedVersion));
+        }
+        for (final Watch watch : watches) {
+            database.watch(watch.key, watch.value, watch.future);
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Long getCommittedVersion() {
+        return state.committedVersion;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<byte[]> getVersionstamp() {
+        return state.versionstamp;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<Long> getApproximateSize() {
+        synchronized (state) {
+            return CompletableFuture.completedFuture(state.size);
+        }
+    }
+
+    /**
+     * Returns a new transaction, after a backoff, if the error can be retried and the retry limit allows it. The
+     * options which outlive a retry, and the start time from which the timeout is measured, are carried over.
+     */
+    @Override
+    public CompletableFuture<Transaction> onError(final Throwable e) {
+        Throwable error = e;
+        while ((error instanceof CompletionException || error instanceof ExecutionException) && error.getCause() != null) {
+            error = error.getCause();
+        }
+        if (!(error instanceof FDBException) || !isRetryable(((FDBException) error).getCode())) {
+            return CompletableFuture.failedFuture(error);
+        }
+
+        final State retry;
+        synchronized (state) {
+            if (state.retryLimit >= 0 && state.attempts >= state.retryLimit) {
+                return CompletableFuture.failedFuture(error);
+            }
+            retry = new State(state.executor, state.eventKeeper, state.startTime, state.timeoutMillis, state.retryLimit,
+                    state.maxRetryDelayMillis, state.attempts + 1);
+        }
+        close();
+
+        final long delay = Math.min(state.maxRetryDelayMillis,
+                INITIAL_RETRY_DELAY_MILLIS << Math.min(state.attempts, 20));
+        final CompletableFuture<Transaction> reset = new CompletableFuture<>();
+        CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS, state.executor)
+                .execute(() -> reset.complete(new InMemoryTransaction(database, retry, false)));
+        return reset;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void cancel() {
+        synchronized (state) {
+            state.cancelled = true;
+        }
+        failWatches(new FDBException("transaction_cancelled", 1025));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<Void> watch(final byte[] key) {
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+        synchronized (state) {
+            checkUsable();
+            state.watches.add(new Watch(key, readValue(key), future));
+        }
+        return future;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Database getDatabase() {
+        return database;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T> T run(final Function<? super Transaction, T> retryable) {
+        return retryable.apply(this);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T> CompletableFuture<T> runAsync(final Function<? super Transaction, ? extends CompletableFuture<T>> retryable) {
+        return AsyncUtil.applySafely(retryable, this);
+    }
+
+    /**
+     * Fails the watches which have not been committed.
+     */
+    @Override
+    public void close() {
+        failWatches(new FDBException("transaction_cancelled", 1025));
+    }
+
+    private static boolean isRetryable(final int code) {
+        // transaction_too_old, future_version, not_committed, commit_unknown_result, process_behind, tag_throttled
+        return code == 1007 || code == 1009 || code == 1020 || code == 1021 || code == 1037 || code == 1213;
+    }
+
+    private static void checkKey(final byte[] key) {
+        if (key.length > MAX_KEY_SIZE) {
+            throw new FDBException("key_too_large", 2102);
+        }
+    }
+
+    private void checkUsable() {
+        if (state.cancelled) {
+            throw new FDBException("transaction_cancelled", 1025);
+        }
+        if (state.timeoutMillis > 0
+                && System.nanoTime() - state.startTime > TimeUnit.MILLISECONDS.toNanos(state.timeoutMillis)) {
+            throw new FDBException("transaction_timed_out", 1031);
+        }
+    }
+
+    private <T> CompletableFuture<T> supply(final Supplier<T> read) {
+        try {
+            synchronized (state) {
+                return CompletableFuture.completedFuture(read.get());
+            }
+        } catch (final RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private void failWatches(final RuntimeException error) {
+        final List<Watch> watches;
+        synchronized (state) {
+            watches = new ArrayList<>(state.watches);
+            state.watches.clear();
+        }
+        watches.forEach(watch -> watch.future.completeExceptionally(error));
+    }
+
+    /**
+     * @return the read version, taking the version of the last commit on the first read
+     */
+    private long readVersion() {
+        checkUsable();
+        if (state.readVersion < 0) {
+            state.readVersion = database.getReadVersion();
+        }
+        database.checkReadVersion(state.readVersion);
+        return state.readVersion;
+    }
+
+    private void addReadConflict(final Range range) {
+        if (!snapshot) {
+            state.readConflictRanges.add(range);
+        }
+    }
+
+    /**
+     * @return the value of a key as of the read version, with the writes of the transaction applied
+     */
+    @Nullable
+    private byte[] readValue(final byte[] key) {
+        final long readVersion = readVersion();
+        final PendingWrite write = state.writes.get(key);
+        if (write == null) {
+            return state.isCleared(key) ? null : database.get(key, readVersion);
+        }
+        if (write.versionstamped) {
+            throw new FDBException("accessed_unreadable", 1036);
+        }
+        return write.applyTo(write.replaces || state.isCleared(key) ? null : database.get(key, readVersion));
+    }
+
+    /**
+     * Resolves the writes of the transaction at its commit version, against the values committed before it.
+     */
+    private NavigableMap<byte[], byte[]> resolveWrites(final long commitVersion) {
+        final byte[] versionstamp = Mutations.versionstamp(commitVersion);
+        final NavigableMap<byte[], byte[]> resolved = new TreeMap<>(KEY_ORDER);
+        for (final Map.Entry<byte[], PendingWrite> entry : state.writes.entrySet()) {
+            final PendingWrite write = entry.getValue();
+            final byte[] base;
+            if (write.versionstamped) {
+                base = Mutations.stamp(write.value, versionstamp);
+            } else if (write.replaces || state.isCleared(entry.getKey())) {
+                base = null;
+            } else {
+                base = database.get(entry.getKey(), Long.MAX_VALUE);
+            }
+            resolved.put(entry.getKey(), write.applyTo(base));
+        }
+        for (final KeyValue keyValue : state.versionstampedKeys) {
+            resolved.put(Mutations.stamp(keyValue.getKey(), versionstamp), keyValue.getValue());
+        }
+        return resolved;
+    }
+
+    private List<KeyValue> readRange(final KeySelector begin, final KeySelector end, final int limit,
+                                     final boolean reverse) {
+        final byte[] beginKey = resolve(begin);
+        final byte[] endKey = resolve(end);
+        if (KEY_ORDER.compare(beginKey, endKey) >= 0) {
+            return List.of();
+        }
+
+        final NavigableMap<byte[], ?> stored = database.getData().subMap(beginKey, true, endKey, false);
+        final NavigableMap<byte[], ?> written = state.writes.subMap(beginKey, true, endKey, false);
+        final List<KeyValue> keyValues = reverse
+                ? scan(stored.descendingMap(), written.descendingMap(), limit, KEY_ORDER.reversed())
+                : scan(stored, written, limit, KEY_ORDER);
+
+        if (limit > 0 && keyValues.size() == limit) {
+            final byte[] lastKey = keyValues.get(keyValues.size() - 1).getKey();
+            addReadConflict(reverse
+                    ? new Range(lastKey, endKey)
+                    : new Range(beginKey, ByteArrayUtil.join(lastKey, new byte[]{0})));
+        } else {
+            addReadConflict(new Range(beginKey, endKey));
+        }
+        return keyValues;
+    }
+
+    /**
+     * @return the key a selector resolves to, the end of the keyspace if it lies past the last key or the empty key if it
+     * lies before the first; selectors on normal keys do not resolve to system keys
+     */
+    private byte[] resolve(final KeySelector selector) {
+        final byte[] key = selector.getKey();
+        final boolean orEqual = isOrEqual(selector);
+        final int offset = selector.getOffset();
+        if (offset > 0) {
+            final byte[] end = KEY_ORDER.compare(key, END_OF_KEYSPACE) <= 0 ? END_OF_KEYSPACE : END_OF_SYSTEM_KEYSPACE;
+            if (KEY_ORDER.compare(key, end) >= 0) {
+                return end;
+            }
+            final List<KeyValue> after = scan(database.getData().subMap(key, !orEqual, end, false),
+                    state.writes.subMap(key, !orEqual, end, false), offset, KEY_ORDER);
+            return after.size() == offset ? after.get(offset - 1).getKey() : end;
+        }
+        final List<KeyValue> before = scan(database.getData().headMap(key, orEqual).descendingMap(),
+                state.writes.headMap(key, orEqual).descendingMap(), 1 - offset, KEY_ORDER.reversed());
+        return before.size() == 1 - offset ? before.get(-offset).getKey() : new byte[0];
+    }
+
+    /**
+     * {@link KeySelector} only exposes its or-equal flag to the client itself, so it is read from the end of its string
+     * form, {@code (key, orEqual, offset)}, which the key cannot be mistaken for.
+     */
+    private static boolean isOrEqual(final KeySelector selector) {
+        final String description = selector.toString();
+        final String withoutOffset = description.substring(0, description.lastIndexOf(','));
+        return withoutOffset.endsWith("true");
+    }
+
+    /**
+     * Merges the committed keys with those written by the transaction, in the given order, returning up to
+     * {@code limit} of them which have a value, or all of them if the limit is not positive.
+     */
+    private List<KeyValue> scan(final NavigableMap<byte[], ?> stored, final NavigableMap<byte[], ?> written,
+                                final int limit, final Comparator<byte[]> order) {
+        final List<KeyValue> keyValues = new ArrayList<>();
+        final Iterator<byte[]> storedKeys = stored.keySet().iterator();
+        final Iterator<byte[]> writtenKeys = written.keySet().iterator();
+        byte[] nextStored = storedKeys.hasNext() ? storedKeys.next() : null;
+        byte[] nextWritten = writtenKeys.hasNext() ? writtenKeys.next() : null;
+        while ((nextStored != null || nextWritten != null) && (limit <= 0 || keyValues.size() < limit)) {
+            final byte[] key;
+            final int comparison = nextStored == null ? 1 : nextWritten == null ? -1 : order.compare(nextStored, nextWritten);
+            if (comparison < 0) {
+                key = nextStored;
+                nextStored = storedKeys.hasNext() ? storedKeys.next() : null;
+            } else {
+                key = nextWritten;
+                nextWritten = writtenKeys.hasNext() ? writtenKeys.next() : null;
+                if (comparison == 0) {
+                    nextStored = storedKeys.hasNext() ? storedKeys.next() : null;
+                }
+            }
+            final byte[] value = readValue(key);
+            if (value != null) {
+                keyValues.add(new KeyValue(key, value));
+            }
+        }
+        return keyValues;
+    }
+
+    /**
+     * The state of a transaction, shared with its snapshot view.
+     */
+    private static final class State {
+        private final Executor executor;
+        @Nullable
+        private final EventKeeper eventKeeper;
+        private final long startTime;
+        private final int attempts;
+        private final TransactionOptions options = new TransactionOptions(this::setOption);
+        private final NavigableMap<byte[], PendingWrite> writes = new TreeMap<>(KEY_ORDER);
+        private final NavigableMap<byte[], byte[]> clears = new TreeMap<>(KEY_ORDER);
+        private final List<KeyValue> versionstampedKeys = new ArrayList<>();
+        private final List<Range> readConflictRanges = new ArrayList<>();
+        private final List<Range> writeConflictRanges = new ArrayList<>();
+        private final List<Watch> watches = new ArrayList<>();
+        private final CompletableFuture<byte[]> versionstamp = new CompletableFuture<>();
+        private volatile long timeoutMillis;
+        private volatile long retryLimit;
+        private volatile long maxRetryDelayMillis;
+        private long readVersion = -1;
+        private long committedVersion = -1;
+        private long size;
+        private boolean cancelled;
+
+        private State(final Executor executor,
+                      @Nullable final EventKeeper eventKeeper,
+                      final long startTime,
+                      final long timeoutMillis,
+                      final long retryLimit,
+                      final long maxRetryDelayMillis,
+                      final int attempts) {
+            this.executor = requireNonNull(executor);
+            this.eventKeeper = eventKeeper;
+            this.startTime = startTime;
+            this.timeoutMillis = timeoutMillis;
+            this.retryLimit = retryLimit;
+            this.maxRetryDelayMillis = maxRetryDelayMillis;
+            this.attempts = attempts;
+        }
+
+        private void setOption(final int code, @Nullable final byte[] parameter) {
+            if (parameter == null || parameter.length != Long.BYTES) {
+                return;
+            }
+            final long value = ByteBuffer.wrap(parameter).order(ByteOrder.LITTLE_ENDIAN).getLong();
+            if (code == TIMEOUT_OPTION) {
+                timeoutMillis = value;
+            } else if (code == RETRY_LIMIT_OPTION) {
+                retryLimit = value;
+            } else if (code == MAX_RETRY_DELAY_OPTION) {
+                maxRetryDelayMillis = value;
+            }
+        }
+
+        private boolean isReadOnly() {
+            return writes.isEmpty() && clears.isEmpty() && versionstampedKeys.isEmpty() && writeConflictRanges.isEmpty();
+        }
+
+        private List<Range> getClearedRanges() {
+            final List<Range> ranges = new ArrayList<>(clears.size());
+            clears.forEach((begin, end) -> ranges.add(new Range(begin, end)));
+            return ranges;
+        }
+
+        private boolean isCleared(final byte[] key) {
+            final Map.Entry<byte[], byte[]> clear = clears.floorEntry(key);
+            return clear != null && KEY_ORDER.compare(key, clear.getValue()) < 0;
+        }
+
+        /**
+         * Clears a range, merging it with the ranges already cleared, and drops the writes it covers.
+         */
+        private void clear(final byte[] beginKey, final byte[] endKey) {
+            byte[] begin = beginKey;
+            byte[] end = endKey;
+            final Map.Entry<byte[], byte[]> floor = clears.floorEntry(begin);
+            if (floor != null && KEY_ORDER.compare(floor.getValue(), begin) >= 0) {
+                begin = floor.getKey();
+                if (KEY_ORDER.compare(floor.getValue(), end) > 0) {
+                    end = floor.getValue();
+                }
+            }
+            final Iterator<Map.Entry<byte[], byte[]>> overlapping = clears.subMap(begin, true, end, true).entrySet().iterator();
+            while (overlapping.hasNext()) {
+                final byte[] overlappingEnd = overlapping.next().getValue();
+                if (KEY_ORDER.compare(overlappingEnd, end) > 0) {
+                    end = overlappingEnd;
+                }
+                overlapping.remove();
+            }
+            clears.put(begin, end);
+            writes.subMap(beginKey, true, endKey, false).clear();
+        }
+    }
+
+    /**
+     * A write to a key buffered until the commit: a value replacing the committed one, or atomic operations applying
+     * to it, or both.
+     */
+    private static final class PendingWrite {
+        private final boolean replaces;
+        private final boolean versionstamped;
+        private final List<Map.Entry<MutationType, byte[]>> mutations = new ArrayList<>();
+        @Nullable
+        private byte[] value;
+
+        private PendingWrite(final boolean replaces, final boolean versionstamped, @Nullable final byte[] value) {
+            this.replaces = replaces;
+            this.versionstamped = versionstamped;
+            this.value = value;
+        }
+
+        private static PendingWrite replacing(@Nullable final byte[] value) {
+            return new PendingWrite(true, false, value);
+        }
+
+        private static PendingWrite versionstamped(final byte[] template) {
+            return new PendingWrite(true, true, template);
+        }
+
+        private static PendingWrite mutating(final MutationType type, final byte[] param) {
+            final PendingWrite write = new PendingWrite(false, false, null);
+            write.mutate(type, param);
+            return write;
+        }
+
+        private void mutate(final MutationType type, final byte[] param) {
+            if (replaces && !versionstamped) {
+                value = Mutations.apply(type, value, param);
+            } else {
+                mutations.add(Map.entry(type, param));
+            }
+        }
+
+        /**
+         * @param base the value the write applies to when it does not replace it
+         */
+        @Nullable
+        private byte[] applyTo(@Nullable final byte[] base) {
+            byte[] result = replaces && !versionstamped ? value : base;
+            for (final Map.Entry<MutationType, byte[]> mutation : mutations) {
+                result = Mutations.apply(mutation.getKey(), result, mutation.getValue());
+            }
+            return result;
+        }
+    }
+
+    private static final class Watch {
+        private final byte[] key;
+        @Nullable
+        private final byte[] value;
+        private final CompletableFuture<Void> future;
+
+        private Watch(final byte[] key, @Nullable final byte[] value, final CompletableFuture<Void> future) {
+            this.key = key;
+            this.value = value;
+            this.future = future;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package io.dropwizard.foundationdb.memory;
+
+import com.apple.foundationdb.FDBException;
+import com.apple.foundationdb.MutationType;
+import com.apple.foundationdb.tuple.ByteArrayUtil;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Applies atomic operations the way the storage servers do, as described in the documentation of {@link MutationType}.
+ */
+final class Mutations {
+    static final int VERSIONSTAMP_LENGTH = 10;
+    private static final int MAX_VALUE_SIZE = 100_000;
+
+    private Mutations() {
+    }
+
+    /**
+     * @param existing the value the operation applies to, or {@code null} if the key is not set
+     * @return the value resulting from the operation, or {@code null} if it clears the key
+     */
+    @SuppressWarnings("deprecation")
+    @Nullable
+    static byte[] apply(final MutationType type, @Nullable final byte[] existing, final byte[] param) {
+        switch (type) {
+            case ADD:
+                return add(existing, param);
+            case AND:
+            case BIT_AND:
+                return existing == null ? param : bitwise(existing, param, (a, b) -> a & b);
+            case OR:
+            case BIT_OR:
+                return bitwise(existing, param, (a, b) -> a | b);
+            case XOR:
+            case BIT_XOR:
+                return bitwise(existing, param, (a, b) -> a ^ b);
+            case APPEND_IF_FITS:
+                return appendIfFits(existing, param);
+            case MAX:
+                return existing == null || compareLittleEndian(existing, param) < 0 ? param : resize(existing, param.length);
+            case MIN:
+                return existing == null || compareLittleEndian(existing, param) > 0 ? param : resize(existing, param.length);
+            case BYTE_MAX:
+                return existing == null || ByteArrayUtil.compareUnsigned(existing, param) < 0 ? param : existing;
+            case BYTE_MIN:
+                return existing == null || ByteArrayUtil.compareUnsigned(existing, param) > 0 ? param : existing;
+            case COMPARE_AND_CLEAR:
+                return Arrays.equals(existing, param) ? null : existing;
+            default:
+                throw new FDBException("invalid_mutation_type", 2004);
+        }
+    }
+
+    /**
+     * Fills in the versionstamp of a {@code SET_VERSIONSTAMPED_KEY} key or {@code SET_VERSIONSTAMPED_VALUE} value,
+     * whose last four bytes hold the little-endian position of the versionstamp.
+     */
+    static byte[] stamp(final byte[] template, final byte[] versionstamp) {
+        if (template.length < 4) {
+            throw new FDBException("client_invalid_operation", 2000);
+        }
+        final int length = template.length - 4;
+        final int position = ByteBuffer.wrap(template, length, 4).order(ByteOrder.LITTLE_ENDIAN).getInt();
+        if (position < 0 || position + VERSIONSTAMP_LENGTH > length) {
+            throw new FDBException("client_invalid_operation", 2000);
+        }
+        final byte[] stamped = Arrays.copyOf(template, length);
+        System.arraycopy(versionstamp, 0, stamped, position, VERSIONSTAMP_LENGTH);
+        return stamped;
+    }
+
+    /**
+     * @return the ten bytes of the versionstamp of a commit: its version, big-endian, followed by its order in the batch
+     */
+    static byte[] versionstamp(final long version) {
+        return ByteBuffer.allocate(VERSIONSTAMP_LENGTH).putLong(version).putShort((short) 0).array();
+    }
+
+    private static byte[] add(@Nullable final byte[] existing, final byte[] param) {
+        final byte[] sum = resize(existing, param.length);
+        int carry = 0;
+        for (int i = 0; i < sum.length; i++) {
+            final int total = (sum[i] & 0xff) + (param[i] & 0xff) + carry;
+            sum[i] = (byte) total;
+            carry = total >>> 8;
+        }
+        return sum;
+    }
+
+    private static byte[] bitwise(@Nullable final byte[] existing, final byte[] param, final ByteOperator operator) {
+        final byte[] result = resize(existing, param.length);
+        for (int i = 0; i < result.length; i++) {
+            result[i] = (byte) operator.apply(result[i], param[i]);
+        }
+        return result;
+    }
+
+    private static byte[] appendIfFits(@Nullable final byte[] existing, final byte[] param) {
+        if (existing == null) {
+            return param;
+        }
+        if (existing.length + param.length > MAX_VALUE_SIZE) {
+            return existing;
+        }
+        return ByteArrayUtil.join(existing, param);
+    }
+
+    private static int compareLittleEndian(final byte[] existing, final byte[] param) {
+        final byte[] resized = resize(existing, param.length);
+        for (int i = param.length - 1; i >= 0; i--) {
+            final int comparison = Integer.compare(resized[i] & 0xff, param[i] & 0xff);
+            if (comparison != 0) {
+                return comparison;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Truncates or zero-pads a little-endian value to the given length, a missing value counting as zero.
+     */
+    private static byte[] resize(@Nullable final byte[] value, final int length) {
+        return value == null ? new byte[length] : Arrays.copyOf(value, length);
+    }
+
+    @FunctionalInterface
+    private interface ByteOperator {
+        int apply(byte a, byte b);
+    }
+}
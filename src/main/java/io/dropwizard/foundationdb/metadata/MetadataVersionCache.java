@@ -0,0 +1,137 @@
+package io.dropwizard.foundationdb.metadata;
+
+import com.apple.foundationdb.Database;
+import com.apple.foundationdb.MutationType;
+import com.apple.foundationdb.ReadTransaction;
+import com.apple.foundationdb.Transaction;
+import com.apple.foundationdb.tuple.ByteArrayUtil;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A bounded cache of objects derived from the database which almost never change but must never be stale, such as
+ * schemas, routing tables or feature configurations.
+ * <p>
+ * Every entry is tagged with the metadata version, {@code \xff/metadataVersion}, of the transaction that loaded it, and
+ * is only used by transactions reading the same metadata version. As the metadata version comes back with the read
+ * version of a transaction, a hit costs no round trip to the cluster. Any change to cached data must therefore bump
+ * the metadata version in the transaction making it, through {@link #update} or {@link #bumpMetadataVersion}; this
+ * drops the entries of every cache of the cluster, which makes it suited to rare changes only. A transaction bumping the
+ * metadata version can no longer read it, and therefore cannot read through a cache afterwards.
+ *
+ * @param <K> the type of the keys of the cache
+ * @param <V> the type of the cached objects, which must not be changed once loaded
+ */
+public class MetadataVersionCache<K, V> {
+    public static final byte[] METADATA_VERSION_KEY = ByteArrayUtil.join(new byte[]{(byte) 0xff},
+            "/metadataVersion".getBytes(StandardCharsets.US_ASCII));
+    /**
+     * The versionstamp placeholder followed by its offset, the only value the metadata version key accepts.
+     */
+    private static final byte[] METADATA_VERSION_STAMP = new byte[14];
+
+    private final Database database;
+    private final Cache<K, Entry<V>> cache;
+    private final Meter hits;
+    private final Meter misses;
+
+    /**
+     * @param name the name of the metrics of the cache
+     */
+    public MetadataVersionCache(final Database database,
+                                final long maximumSize,
+                                final MetricRegistry metrics,
+                                final String name) {
+        this.database = requireNonNull(database);
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .build();
+        this.hits = metrics.meter(MetricRegistry.name(name, "hits"));
+        this.misses = metrics.meter(MetricRegistry.name(name, "misses"));
+
+        metrics.register(MetricRegistry.name(name, "size"), (Gauge<Long>) cache::size);
+    }
+
+    /**
+     * @param loader loads the object of a key within the transaction, which must not have changed the data it reads
+     * @return the cached object of the key, loading it if it is not cached at the metadata version of the transaction
+     */
+    public CompletableFuture<V> get(final ReadTransaction transaction,
+                                    final K key,
+                                    final BiFunction<? super ReadTransaction, ? super K, ? extends CompletableFuture<V>> loader) {
+        return transaction.get(METADATA_VERSION_KEY).thenCompose(metadataVersion -> {
+            final Entry<V> cached = cache.getIfPresent(key);
+            if (cached != null && Arrays.equals(cached.metadataVersion, metadataVersion)) {
+                hits.mark();
+                return CompletableFuture.completedFuture(cached.value);
+            }
+
+            misses.mark();
+            return loader.apply(transaction, key).thenApply(value -> {
+                cache.put(key, new Entry<>(metadataVersion, value));
+                return value;
+            });
+        });
+    }
+
+    /**
+     * @return the cached object of the key, read in a transaction of its own
+     */
+    public CompletableFuture<V> get(final K key,
+                                    final BiFunction<? super ReadTransaction, ? super K, ? extends CompletableFuture<V>> loader) {
+        return database.readAsync(transaction -> get(transaction, key, loader));
+    }
+
+    /**
+     * Runs a change to cached data, bumping the metadata version atomically with it.
+     */
+    public <T> CompletableFuture<T> update(final Function<? super Transaction, ? extends CompletableFuture<T>> change) {
+        return database.runAsync(transaction -> change.apply(transaction).thenApply(result -> {
+            bumpMetadataVersion(transaction);
+            return result;
+        }));
+    }
+
+    /**
+     * Drops the entry of a key from this cache only; the caches of other processes drop it once the metadata version
+     * has been bumped.
+     */
+    public void invalidate(final K key) {
+        cache.invalidate(key);
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    /**
+     * Bumps the metadata version at the commit of the transaction, so that every cache loads its entries again.
+     */
+    public static void bumpMetadataVersion(final Transaction transaction) {
+        transaction.mutate(MutationType.SET_VERSIONSTAMPED_VALUE, METADATA_VERSION_KEY, METADATA_VERSION_STAMP);
+    }
+
+    private static final class Entry<V> {
+        @Nullable
+        private final byte[] metadataVersion;
+        private final V value;
+
+        private Entry(@Nullable final byte[] metadataVersion, final V value) {
+            this.metadataVersion = metadataVersion;
+            this.value = value;
+        }
+    }
+}
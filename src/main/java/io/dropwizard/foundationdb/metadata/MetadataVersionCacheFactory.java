@@ -0,0 +1,31 @@
+package io.dropwizard.foundationdb.metadata;
+
+import com.apple.foundationdb.Database;
+
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import jakarta.validation.constraints.Min;
+
+/**
+ * Configures a {@link MetadataVersionCache}.
+ */
+public class MetadataVersionCacheFactory {
+    @Min(1)
+    @JsonProperty
+    private long maximumSize = 1_000;
+
+    public long getMaximumSize() {
+        return maximumSize;
+    }
+
+    public void setMaximumSize(final long maximumSize) {
+        this.maximumSize = maximumSize;
+    }
+
+    public <K, V> MetadataVersionCache<K, V> build(final Database database,
+                                                   final MetricRegistry metrics,
+                                                   final String name) {
+        return new MetadataVersionCache<>(database, maximumSize, metrics, name);
+    }
+}
@@ -0,0 +1,44 @@
+package io.dropwizard.foundationdb.profile;
+
+import com.apple.foundationdb.TransactionOptions;
+import com.apple.foundationdb.record.provider.foundationdb.FDBTransactionPriority;
+
+/**
+ * The priority with which the read versions of transactions are requested, and thus how soon they are throttled when
+ * the cluster is saturated.
+ */
+public enum TransactionPriority {
+    /**
+     * Throttled before any other transaction, for work which can wait, such as batch jobs.
+     */
+    BATCH(FDBTransactionPriority.BATCH),
+    DEFAULT(FDBTransactionPriority.DEFAULT),
+    /**
+     * Never throttled, and meant for the few transactions the cluster needs to make progress. Should be used sparingly.
+     */
+    SYSTEM_IMMEDIATE(FDBTransactionPriority.SYSTEM_IMMEDIATE);
+
+    private final FDBTransactionPriority recordLayerPriority;
+
+    TransactionPriority(final FDBTransactionPriority recordLayerPriority) {
+        this.recordLayerPriority = recordLayerPriority;
+    }
+
+    public FDBTransactionPriority getRecordLayerPriority() {
+        return recordLayerPriority;
+    }
+
+    void applyTo(final TransactionOptions options) {
+        switch (this) {
+            case BATCH:
+                options.setPriorityBatch();
+                break;
+            case SYSTEM_IMMEDIATE:
+                options.setPrioritySystemImmediate();
+                break;
+            default:
+                // the default priority needs no option
+                break;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package io.dropwizard.foundationdb.profile;
+
+import com.apple.foundationdb.TransactionOptions;
+import com.apple.foundationdb.record.provider.foundationdb.FDBDatabase;
+import com.apple.foundationdb.record.provider.foundationdb.FDBDatabaseRunner;
+import com.apple.foundationdb.record.provider.foundationdb.FDBRecordContextConfig;
+import com.apple.foundationdb.record.provider.foundationdb.FDBStoreTimer;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.dropwizard.foundationdb.instrumented.InstrumentedDatabase;
+import io.dropwizard.util.Duration;
+
+import java.util.Optional;
+
+import jakarta.validation.constraints.NotNull;
+
+/**
+ * Configures a named transaction profile, setting the same options on every transaction of a workload. Options left
+ * unset keep the defaults of the database.
+ * <p>
+ * The options are set again at the start of every attempt, since most of them are reset when a transaction is retried.
+ * A {@code retryLimit} of {@code -1} lifts the retry limit of the database.
+ */
+public class TransactionProfileFactory {
+    @NotNull
+    @JsonProperty
+    private TransactionPriority priority = TransactionPriority.DEFAULT;
+    @NotNull
+    @JsonProperty
+    private Optional<Duration> timeout = Optional.empty();
+    @NotNull
+    @JsonProperty
+    private Optional<Integer> retryLimit = Optional.empty();
+    @NotNull
+    @JsonProperty
+    private Optional<Duration> maxRetryDelay = Optional.empty();
+    @JsonProperty
+    private boolean readYourWritesDisable = false;
+    @JsonProperty
+    private boolean snapshotRywDisable = false;
+    @JsonProperty
+    private boolean causalReadRisky = false;
+
+    public TransactionPriority getPriority() {
+        return priority;
+    }
+
+    public void setPriority(final TransactionPriority priority) {
+        this.priority = priority;
+    }
+
+    public Optional<Duration> getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(final Optional<Duration> timeout) {
+        this.timeout = timeout;
+    }
+
+    public Optional<Integer> getRetryLimit() {
+        return retryLimit;
+    }
+
+    public void setRetryLimit(final Optional<Integer> retryLimit) {
+        this.retryLimit = retryLimit;
+    }
+
+    public Optional<Duration> getMaxRetryDelay() {
+        return maxRetryDelay;
+    }
+
+    public void setMaxRetryDelay(final Optional<Duration> maxRetryDelay) {
+        this.maxRetryDelay = maxRetryDelay;
+    }
+
+    public boolean isReadYourWritesDisable() {
+        return readYourWritesDisable;
+    }
+
+    public void setReadYourWritesDisable(final boolean readYourWritesDisable) {
+        this.readYourWritesDisable = readYourWritesDisable;
+    }
+
+    /**
+     * @return whether snapshot reads skip the writes made earlier in the same transaction
+     */
+    public boolean isSnapshotRywDisable() {
+        return snapshotRywDisable;
+    }
+
+    public void setSnapshotRywDisable(final boolean snapshotRywDisable) {
+        this.snapshotRywDisable = snapshotRywDisable;
+    }
+
+    /**
+     * @return whether read versions are handed out without confirming that no newer version has been committed, which
+     * only risks stale reads if a recovery is under way
+     */
+    public boolean isCausalReadRisky() {
+        return causalReadRisky;
+    }
+
+    public void setCausalReadRisky(final boolean causalReadRisky) {
+        this.causalReadRisky = causalReadRisky;
+    }
+
+    /**
+     * @return whether the profile only sets options which the Record Layer can set through its
+     * {@link FDBRecordContextConfig}
+     */
+    @JsonIgnore
+    public boolean isSupportedByRecordLayer() {
+        return !readYourWritesDisable && !snapshotRywDisable && !causalReadRisky;
+    }
+
+    /**
+     * Sets the options of the profile on a transaction.
+     */
+    public void applyTo(final TransactionOptions options) {
+        priority.applyTo(options);
+        timeout.ifPresent(duration -> options.setTimeout(duration.toMilliseconds()));
+        retryLimit.ifPresent(limit -> options.setRetryLimit(limit));
+        maxRetryDelay.ifPresent(delay -> options.setMaxRetryDelay(delay.toMilliseconds()));
+        if (readYourWritesDisable) {
+            options.setReadYourWritesDisable();
+        }
+        if (snapshotRywDisable) {
+            options.setSnapshotRywDisable();
+        }
+        if (causalReadRisky) {
+            options.setCausalReadRisky();
+        }
+    }
+
+    /**
+     * Builds a view of the instrumented database whose transactions use the profile, see
+     * {@link InstrumentedDatabase#withTransactionOptions}. Its retry loops are timed under {@code name}, while its
+     * transactions are instrumented and limited by the database itself.
+     *
+     * @param name the name of the metrics of the profile, e.g. {@code FoundationDB.profiles.batch}
+     */
+    public InstrumentedDatabase build(final InstrumentedDatabase database,
+                                      final MetricRegistry metrics,
+                                      final MetricRegistry.MetricSupplier<Timer> timerSupplier,
+                                      final String name) {
+        return database.withTransactionOptions(this::applyTo, metrics, name, timerSupplier);
+    }
+
+    /**
+     * Creates a runner whose transactions use the profile, recording their events into the given timer.
+     *
+     * @throws IllegalStateException if the profile sets options the Record Layer cannot set
+     */
+    public FDBDatabaseRunner newRunner(final FDBDatabase database, final FDBStoreTimer timer) {
+        if (!isSupportedByRecordLayer()) {
+            throw new IllegalStateException("Record Layer runners cannot disable read-your-writes or risk causal reads");
+        }
+
+        final FDBRecordContextConfig.Builder config = FDBRecordContextConfig.newBuilder()
+                .setPriority(priority.getRecordLayerPriority())
+                .setTimer(timer);
+        timeout.ifPresent(duration -> config.setTransactionTimeoutMillis(duration.toMilliseconds()));
+
+        final FDBDatabaseRunner runner = database.newRunner(config);
+        retryLimit.ifPresent(limit -> runner.setMaxAttempts(limit < 0 ? Integer.MAX_VALUE : limit + 1));
+        maxRetryDelay.ifPresent(delay -> runner.setMaxDelayMillis(delay.toMilliseconds()));
+        return runner;
+    }
+}
@@ -0,0 +1,192 @@
+package io.dropwizard.foundationdb.readversion;
+
+import com.apple.foundationdb.Database;
+import com.apple.foundationdb.Transaction;
+import com.apple.foundationdb.TransactionOptions;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.util.Duration;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Shares read versions between the transactions of a database, in the spirit of the Record Layer's
+ * {@code WeakReadSemantics}.
+ * <p>
+ * A request for a read version is served from the most recently fetched version if that version was requested within
+ * the allowed staleness, or joins the read version request already in flight if that one was started within the
+ * allowed staleness. Otherwise a new read version is requested from the cluster and shared with the requests that
+ * follow. The age of a version is measured from the moment it was requested, so it is never underestimated.
+ * <p>
+ * A transaction using a cached read version will not observe commits made since that version, including the ones made
+ * by this client, unless the cache is {@link #invalidate() invalidated} after they commit. As a transaction can only
+ * run for five seconds past its read version, the staleness is capped at {@link #MAX_STALENESS}.
+ * <p>
+ * Read versions are requested with the options of the transactions they are shared with, such as their priority, so
+ * that a cached version is throttled by the cluster as the transactions themselves would be.
+ */
+public class ReadVersionCache {
+    public static final Duration MAX_STALENESS = Duration.seconds(1);
+
+    private final Database database;
+    private final Duration defaultStaleness;
+    @Nullable
+    private final Consumer<? super TransactionOptions> transactionOptions;
+    private final Meter fetched;
+    private final Meter saved;
+    private final Histogram age;
+    @Nullable
+    private volatile CachedVersion cached;
+    @Nullable
+    private volatile CachedVersion inFlight;
+    private final AtomicLong generation;
+
+    /**
+     * @param database         the database read versions are requested from
+     * @param defaultStaleness the staleness allowed by the retry loops of the database when none is given per call
+     */
+    public ReadVersionCache(final Database database,
+                            final Duration defaultStaleness,
+                            final MetricRegistry metrics,
+                            final String name) {
+        this(database, defaultStaleness, null, metrics, name);
+    }
+
+    /**
+     * @param database           the database read versions are requested from
+     * @param defaultStaleness   the staleness allowed by the retry loops of the database when none is given per call
+     * @param transactionOptions sets the options of the transactions requesting read versions, such as their priority,
+     *                           if any
+     */
+    public ReadVersionCache(final Database database,
+                            final Duration defaultStaleness,
+                            @Nullable final Consumer<? super TransactionOptions> transactionOptions,
+                            final MetricRegistry metrics,
+                            final String name) {
+        this(database, defaultStaleness, transactionOptions, metrics, name, new AtomicLong());
+    }
+
+    private ReadVersionCache(final Database database,
+                             final Duration defaultStaleness,
+                             @Nullable final Consumer<? super TransactionOptions> transactionOptions,
+                             final MetricRegistry metrics,
+                             final String name,
+                             final AtomicLong generation) {
+        this.database = requireNonNull(database);
+        this.defaultStaleness = requireNonNull(defaultStaleness);
+        this.transactionOptions = transactionOptions;
+        this.generation = generation;
+        this.fetched = metrics.meter(MetricRegistry.name(name, "readVersionCache", "fetched"));
+        this.saved = metrics.meter(MetricRegistry.name(name, "readVersionCache", "saved"));
+        this.age = metrics.histogram(MetricRegistry.name(name, "readVersionCache", "ageInNanos"));
+    }
+
+    /**
+     * Creates a cache of read versions requested with other transaction options, such as another priority, which
+     * shares the invalidations of this cache: invalidating either cache stops both from serving the read versions
+     * requested so far.
+     *
+     * @param defaultStaleness   the staleness allowed by the retry loops using the new cache when none is given per call
+     * @param transactionOptions sets the options of the transactions requesting read versions, if any
+     */
+    public ReadVersionCache withTransactionOptions(final Duration defaultStaleness,
+                                                   @Nullable final Consumer<? super TransactionOptions> transactionOptions,
+                                                   final MetricRegistry metrics,
+                                                   final String name) {
+        return new ReadVersionCache(database, defaultStaleness, transactionOptions, metrics, name, generation);
+    }
+
+    public Duration getDefaultStaleness() {
+        return defaultStaleness;
+    }
+
+    /**
+     * @param maxStaleness how long ago the returned read version may have been requested, up to {@link #MAX_STALENESS}
+     * @return a read version no older than the given staleness
+     */
+    public CompletableFuture<Long> getReadVersion(final Duration maxStaleness) {
+        final long now = System.nanoTime();
+        final long oldestAcceptable = now - Math.min(maxStaleness.toNanoseconds(), MAX_STALENESS.toNanoseconds());
+
+        final CachedVersion current = cached;
+        if (isAcceptable(current, oldestAcceptable)) {
+            saved.mark();
+            age.update(now - current.requestedAt);
+            return current.version.copy();
+        }
+
+        final CachedVersion pending = inFlight;
+        if (isAcceptable(pending, oldestAcceptable)) {
+            saved.mark();
+            return pending.version.copy();
+        }
+
+        return fetch(oldestAcceptable);
+    }
+
+    /**
+     * Stops serving the read versions requested so far, typically because this client has committed a transaction
+     * whose writes must be visible to the transactions that follow. The caches created through
+     * {@link #withTransactionOptions} are invalidated as well.
+     */
+    public void invalidate() {
+        generation.incrementAndGet();
+    }
+
+    private boolean isAcceptable(@Nullable final CachedVersion version, final long oldestAcceptable) {
+        return version != null
+                && version.generation == generation.get()
+                && version.requestedAt - oldestAcceptable >= 0;
+    }
+
+    private synchronized CompletableFuture<Long> fetch(final long oldestAcceptable) {
+        final CachedVersion pending = inFlight;
+        if (isAcceptable(pending, oldestAcceptable)) {
+            saved.mark();
+            return pending.version.copy();
+        }
+
+        fetched.mark();
+        final long requestGeneration = generation.get();
+        final long requestedAt = System.nanoTime();
+        final Transaction transaction = database.createTransaction();
+        if (transactionOptions != null) {
+            transactionOptions.accept(transaction.options());
+        }
+        final CompletableFuture<Long> version = transaction.getReadVersion()
+                .whenComplete((result, error) -> transaction.close());
+        final CachedVersion request = new CachedVersion(version, requestedAt, requestGeneration);
+        inFlight = request;
+        version.whenComplete((result, error) -> complete(request, error == null));
+        return version.copy();
+    }
+
+    private synchronized void complete(final CachedVersion version, final boolean succeeded) {
+        final CachedVersion current = cached;
+        if (succeeded && (current == null || version.requestedAt - current.requestedAt > 0)) {
+            cached = version;
+        }
+        if (inFlight == version) {
+            inFlight = null;
+        }
+    }
+
+    private static class CachedVersion {
+        private final CompletableFuture<Long> version;
+        private final long requestedAt;
+        private final long generation;
+
+        private CachedVersion(final CompletableFuture<Long> version, final long requestedAt, final long generation) {
+            this.version = version;
+            this.requestedAt = requestedAt;
+            this.generation = generation;
+        }
+    }
+}
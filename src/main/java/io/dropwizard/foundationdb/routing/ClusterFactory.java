@@ -0,0 +1,54 @@
+package io.dropwizard.foundationdb.routing;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.dropwizard.util.Duration;
+import io.dropwizard.validation.MinDuration;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+
+/**
+ * Configures one of the clusters of a {@link io.dropwizard.foundationdb.MultiClusterFactory}.
+ */
+public class ClusterFactory {
+    @NotEmpty
+    @JsonProperty
+    private String clusterFilePath;
+    @JsonProperty
+    private Optional<String> dataCenter = Optional.empty();
+    @NotNull
+    @MinDuration(value = 0, unit = TimeUnit.MILLISECONDS)
+    @JsonProperty
+    private Duration maxReplicationLag = Duration.seconds(0);
+
+    public String getClusterFilePath() {
+        return clusterFilePath;
+    }
+
+    public void setClusterFilePath(final String clusterFilePath) {
+        this.clusterFilePath = clusterFilePath;
+    }
+
+    public Optional<String> getDataCenter() {
+        return dataCenter;
+    }
+
+    public void setDataCenter(final Optional<String> dataCenter) {
+        this.dataCenter = dataCenter;
+    }
+
+    /**
+     * @return how far behind the primary the cluster may be; reads are only routed to a replica when they tolerate at
+     * least this much staleness
+     */
+    public Duration getMaxReplicationLag() {
+        return maxReplicationLag;
+    }
+
+    public void setMaxReplicationLag(final Duration maxReplicationLag) {
+        this.maxReplicationLag = maxReplicationLag;
+    }
+}
@@ -0,0 +1,475 @@
+package io.dropwizard.foundationdb.routing;
+
+import com.apple.foundationdb.Database;
+import com.apple.foundationdb.DatabaseOptions;
+import com.apple.foundationdb.EventKeeper;
+import com.apple.foundationdb.FDBException;
+import com.apple.foundationdb.KeyRangeArrayResult;
+import com.apple.foundationdb.ReadTransaction;
+import com.apple.foundationdb.Tenant;
+import com.apple.foundationdb.Transaction;
+import com.apple.foundationdb.tuple.Tuple;
+
+import com.codahale.metrics.Clock;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.util.Duration;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Routes the work of an application across a primary cluster and replicas of it. Transactions, writes and reads which
+ * must observe the latest writes always go to the primary; read-only retry loops which tolerate some staleness are
+ * routed to the cluster with the lowest recent latency among those allowed to lag that far behind.
+ * <p>
+ * The latency of every cluster is tracked as a peak-sensitive moving average: a slower sample is adopted at once,
+ * while faster ones are blended in, and the average decays over the configured decay time when no reads complete. A
+ * cluster starts at {@link #DEFAULT_LATENCY}, and its latency never falls below {@link #MIN_LATENCY}. The cost of a
+ * cluster is its latency multiplied by the number of reads in flight plus one, so that a cluster slowing down sheds load
+ * quickly, a cluster which has not been read from recently is tried again, and reads in flight are always counted.
+ * <p>
+ * A read failing with a FoundationDB error, such as a timeout, is not counted as a latency. The replica it was routed
+ * to is instead ejected for the decay time, during which its reads go to the other clusters; the primary is never
+ * ejected.
+ */
+public class RoutingDatabase implements Database {
+    /**
+     * The latency assumed for a cluster no read has completed on yet.
+     */
+    public static final Duration DEFAULT_LATENCY = Duration.milliseconds(5);
+    /**
+     * The lowest latency of a cluster, however fast or idle.
+     */
+    public static final Duration MIN_LATENCY = Duration.microseconds(100);
+
+    private final Database primary;
+    private final List<Route> routes;
+    private final double decayNanos;
+    private final Clock clock;
+
+    /**
+     * @param primaryName the name of the primary cluster
+     * @param decayTime   the time over which the latency of a cluster decays when no reads complete, and for which a
+     *                    failing replica is ejected
+     */
+    public RoutingDatabase(final String primaryName,
+                           final Database primary,
+                           final List<Replica> replicas,
+                           final Duration decayTime,
+                           final MetricRegistry metrics,
+                           final String name) {
+        this(primaryName, primary, replicas, decayTime, metrics, name, Clock.defaultClock());
+    }
+
+    RoutingDatabase(final String primaryName,
+                    final Database primary,
+                    final List<Replica> replicas,
+                    final Duration decayTime,
+                    final MetricRegistry metrics,
+                    final String name,
+                    final Clock clock) {
+        this.primary = requireNonNull(primary);
+        this.decayNanos = Math.max(decayTime.toNanoseconds(), 1L);
+        this.clock = requireNonNull(clock);
+
+        final List<Route> allRoutes = new ArrayList<>();
+        // replicas come first, so that reads are offloaded from the primary when the costs are even
+        for (final Replica replica : replicas) {
+            allRoutes.add(new Route(replica.name, replica.database, replica.maxReplicationLag.toNanoseconds(), true,
+                    metrics, name));
+        }
+        allRoutes.add(new Route(primaryName, primary, 0L, false, metrics, name));
+        this.routes = List.copyOf(allRoutes);
+    }
+
+    public Database getPrimary() {
+        return primary;
+    }
+
+    /**
+     * @return the database of the named cluster, primary or replica
+     */
+    public Optional<Database> getDatabase(final String cluster) {
+        return routes.stream()
+                .filter(route -> route.name.equals(cluster))
+                .<Database>map(route -> route.database)
+                .findFirst();
+    }
+
+    /**
+     * @return the cheapest cluster lagging no more than the given replication lag, and not ejected
+     */
+    Route select(final Duration maxReplicationLag) {
+        final long now = clock.getTick();
+        final long maxReplicationLagNanos = maxReplicationLag.toNanoseconds();
+        Route selected = null;
+        double selectedCost = Double.MAX_VALUE;
+        for (final Route route : routes) {
+            if (route.maxReplicationLagNanos > maxReplicationLagNanos || route.isEjected(now)) {
+                continue;
+            }
+            final double cost = route.cost(now);
+            if (selected == null || cost < selectedCost) {
+                selected = route;
+                selectedCost = cost;
+            }
+        }
+        // the primary never lags nor is ejected, so there is always a route
+        return requireNonNull(selected);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Transaction createTransaction() {
+        return primary.createTransaction();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Transaction createTransaction(final Executor e) {
+        return primary.createTransaction(e);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Transaction createTransaction(final Executor e, final EventKeeper ek) {
+        return primary.createTransaction(e, ek);
+    }
+
+    /**
+     * @return the options of the primary cluster; the options of a replica are set through {@link #getDatabase(String)}
+     */
+    @Override
+    public DatabaseOptions options() {
+        return primary.options();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getMainThreadBusyness() {
+        return primary.getMainThreadBusyness();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Tenant openTenant(final Tuple tenantName) {
+        return primary.openTenant(tenantName);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Tenant openTenant(final byte[] tenantName, final Executor e) {
+        return primary.openTenant(tenantName, e);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Tenant openTenant(final Tuple tenantName, final Executor e) {
+        return primary.openTenant(tenantName, e);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Tenant openTenant(final byte[] tenantName, final Executor e, final EventKeeper eventKeeper) {
+        return primary.openTenant(tenantName, e, eventKeeper);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Tenant openTenant(final Tuple tenantName, final Executor e, final EventKeeper eventKeeper) {
+        return primary.openTenant(tenantName, e, eventKeeper);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<byte[]> purgeBlobGranules(final byte[] beginKey, final byte[] endKey, final long purgeVersion,
+                                                       final boolean force, final Executor e) {
+        return primary.purgeBlobGranules(beginKey, endKey, purgeVersion, force, e);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<Void> waitPurgeGranulesComplete(final byte[] purgeKey, final Executor e) {
+        return primary.waitPurgeGranulesComplete(purgeKey, e);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<Boolean> blobbifyRange(final byte[] beginKey, final byte[] endKey, final Executor e) {
+        return primary.blobbifyRange(beginKey, endKey, e);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<Boolean> unblobbifyRange(final byte[] beginKey, final byte[] endKey, final Executor e) {
+        return primary.unblobbifyRange(beginKey, endKey, e);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<KeyRangeArrayResult> listBlobbifiedRanges(final byte[] beginKey, final byte[] endKey,
+                                                                       final int rangeLimit, final Executor e) {
+        return primary.listBlobbifiedRanges(beginKey, endKey, rangeLimit, e);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<Long> verifyBlobRange(final byte[] beginKey, final byte[] endKey, final long version,
+                                                   final Executor e) {
+        return primary.verifyBlobRange(beginKey, endKey, version, e);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T> T read(final Function<? super ReadTransaction, T> retryable, final Executor e) {
+        return primary.read(retryable, e);
+    }
+
+    /**
+     * Runs a read-only retry loop on the cluster with the lowest recent latency among those replicating with no more
+     * than the given lag behind the primary, the primary included.
+     *
+     * @see #read(Function)
+     */
+    public <T> T readRouted(final Function<? super ReadTransaction, T> retryable, final Duration maxReplicationLag) {
+        final Route route = select(maxReplicationLag);
+        route.reads.mark();
+        route.inFlight.incrementAndGet();
+        final long startTime = clock.getTick();
+        Throwable error = null;
+        try {
+            return route.database.read(retryable, route.database.getExecutor());
+        } catch (RuntimeException | Error e) {
+            error = e;
+            throw e;
+        } finally {
+            route.inFlight.decrementAndGet();
+            route.complete(startTime, clock.getTick(), error);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T> CompletableFuture<T> readAsync(final Function<? super ReadTransaction, ? extends CompletableFuture<T>> retryable,
+                                              final Executor executor) {
+        return primary.readAsync(retryable, executor);
+    }
+
+    /**
+     * Runs a read-only retry loop on the cluster with the lowest recent latency among those replicating with no more
+     * than the given lag behind the primary, the primary included.
+     *
+     * @see #readAsync(Function)
+     */
+    public <T> CompletableFuture<T> readRoutedAsync(final Function<? super ReadTransaction, ? extends CompletableFuture<T>> retryable,
+                                                    final Duration maxReplicationLag) {
+        final Route route = select(maxReplicationLag);
+        route.reads.mark();
+        route.inFlight.incrementAndGet();
+        final long startTime = clock.getTick();
+        return route.database.readAsync(retryable, route.database.getExecutor())
+                .whenComplete((result, error) -> {
+                    route.inFlight.decrementAndGet();
+                    route.complete(startTime, clock.getTick(), error);
+                });
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T> T run(final Function<? super Transaction, T> retryable, final Executor e) {
+        return primary.run(retryable, e);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <T> CompletableFuture<T> runAsync(final Function<? super Transaction, ? extends CompletableFuture<T>> retryable,
+                                             final Executor executor) {
+        return primary.runAsync(retryable, executor);
+    }
+
+    /**
+     * Closes the databases of every cluster.
+     */
+    @Override
+    public void close() {
+        routes.forEach(route -> route.database.close());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Executor getExecutor() {
+        return primary.getExecutor();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<Boolean> blobbifyRangeBlocking(final byte[] beginKey, final byte[] endKey, final Executor e) {
+        return primary.blobbifyRangeBlocking(beginKey, endKey, e);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<Boolean> flushBlobRange(final byte[] beginKey, final byte[] endKey, final boolean compact,
+                                                     final long version, final Executor e) {
+        return primary.flushBlobRange(beginKey, endKey, compact, version, e);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CompletableFuture<byte[]> getClientStatus(final Executor e) {
+        return primary.getClientStatus(e);
+    }
+
+    /**
+     * A replica of the primary cluster.
+     */
+    public static class Replica {
+        private final String name;
+        private final Database database;
+        private final Duration maxReplicationLag;
+
+        /**
+         * @param maxReplicationLag how far behind the primary the replica may be
+         */
+        public Replica(final String name, final Database database, final Duration maxReplicationLag) {
+            this.name = requireNonNull(name);
+            this.database = requireNonNull(database);
+            this.maxReplicationLag = requireNonNull(maxReplicationLag);
+        }
+    }
+
+    /**
+     * A cluster reads can be routed to, along with its recent latency.
+     */
+    class Route {
+        private final String name;
+        private final Database database;
+        private final long maxReplicationLagNanos;
+        private final boolean ejectable;
+        private final Meter reads;
+        private final Meter errors;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private double latencyNanos = DEFAULT_LATENCY.toNanoseconds();
+        private long lastObservedAt;
+        private volatile long ejectedUntil;
+
+        private Route(final String name,
+                      final Database database,
+                      final long maxReplicationLagNanos,
+                      final boolean ejectable,
+                      final MetricRegistry metrics,
+                      final String metricsName) {
+            this.name = name;
+            this.database = database;
+            this.maxReplicationLagNanos = maxReplicationLagNanos;
+            this.ejectable = ejectable;
+            this.reads = metrics.meter(MetricRegistry.name(metricsName, "routing", name, "reads"));
+            this.errors = metrics.meter(MetricRegistry.name(metricsName, "routing", name, "errors"));
+            this.lastObservedAt = clock.getTick();
+            this.ejectedUntil = lastObservedAt;
+            metrics.register(MetricRegistry.name(metricsName, "routing", name, "latencyInNanos"),
+                    (Gauge<Double>) () -> latency(clock.getTick()));
+        }
+
+        String getName() {
+            return name;
+        }
+
+        private void complete(final long startTime, final long endTime, @Nullable final Throwable error) {
+            if (error == null) {
+                observe(endTime - startTime, endTime);
+            } else if (unwrap(error) instanceof FDBException) {
+                errors.mark();
+                if (ejectable) {
+                    ejectedUntil = endTime + (long) decayNanos;
+                }
+            }
+            // any other error was thrown by the retry loop itself, and says nothing of the cluster
+        }
+
+        private boolean isEjected(final long now) {
+            return ejectedUntil - now > 0;
+        }
+
+        private synchronized void observe(final long elapsedNanos, final long now) {
+            final double decayed = latency(now);
+            latencyNanos = elapsedNanos > decayed
+                    ? elapsedNanos
+                    : decayed + elapsedNanos * (1 - weight(now - lastObservedAt));
+            lastObservedAt = now;
+        }
+
+        private synchronized double latency(final long now) {
+            return Math.max(latencyNanos * weight(now - lastObservedAt), MIN_LATENCY.toNanoseconds());
+        }
+
+        private double cost(final long now) {
+            return latency(now) * (inFlight.get() + 1);
+        }
+
+        private double weight(final long elapsedNanos) {
+            return Math.exp(-Math.max(elapsedNanos, 0L) / decayNanos);
+        }
+    }
+
+    private static Throwable unwrap(final Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+}
@@ -0,0 +1,228 @@
+package io.dropwizard.foundationdb.scan;
+
+import com.apple.foundationdb.Database;
+import com.apple.foundationdb.KeySelector;
+import com.apple.foundationdb.KeyValue;
+import com.apple.foundationdb.Range;
+import com.apple.foundationdb.StreamingMode;
+import com.apple.foundationdb.Transaction;
+import com.apple.foundationdb.subspace.Subspace;
+
+import io.dropwizard.util.Duration;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A {@link Flow.Publisher} of the key-values of a range, reading no more than its subscribers have requested.
+ * <p>
+ * Every subscription reads the range on its own, one page at a time: a page is only read once there is outstanding
+ * demand, and holds at most as many rows as requested (bounded by the page size). Small requests are read with
+ * {@link StreamingMode#EXACT}, while requests of at least a page are read with {@link StreamingMode#WANT_ALL}.
+ * <p>
+ * Pages are read with snapshot reads from a transaction which is replaced once it has been open for the configured
+ * time budget, or when it fails with a retryable error, resuming after the last key published. As a subscription spans
+ * many transactions, it does not observe a single snapshot of the range.
+ */
+public class RangePublisher implements Flow.Publisher<KeyValue> {
+    public static final int DEFAULT_PAGE_SIZE = 1_000;
+    public static final Duration DEFAULT_TRANSACTION_TIME_BUDGET = Duration.seconds(3);
+
+    private final Database database;
+    private final Range range;
+    private final Executor executor;
+    private final int pageSize;
+    private final Duration transactionTimeBudget;
+
+    public RangePublisher(final Database database, final Subspace subspace) {
+        this(database, subspace.range());
+    }
+
+    public RangePublisher(final Database database, final Range range) {
+        this(database, range, database.getExecutor(), DEFAULT_PAGE_SIZE, DEFAULT_TRANSACTION_TIME_BUDGET);
+    }
+
+    /**
+     * @param executor the executor signalling the subscribers
+     * @param pageSize the maximum number of rows read at once
+     */
+    public RangePublisher(final Database database,
+                          final Range range,
+                          final Executor executor,
+                          final int pageSize,
+                          final Duration transactionTimeBudget) {
+        this.database = requireNonNull(database);
+        this.range = requireNonNull(range);
+        this.executor = requireNonNull(executor);
+        this.pageSize = pageSize;
+        this.transactionTimeBudget = requireNonNull(transactionTimeBudget);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void subscribe(final Flow.Subscriber<? super KeyValue> subscriber) {
+        requireNonNull(subscriber);
+        final RangeSubscription subscription = new RangeSubscription(subscriber);
+        subscriber.onSubscribe(subscription);
+    }
+
+    /**
+     * Reads pages on behalf of a single subscriber. Only the holder of {@code reading} reads a page and signals the
+     * subscriber, which keeps the signals serialized.
+     */
+    private class RangeSubscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super KeyValue> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicBoolean reading = new AtomicBoolean();
+        private volatile boolean cancelled = false;
+        @Nullable
+        private volatile Throwable invalidRequest;
+        @Nullable
+        private Transaction transaction;
+        private long transactionStartedAt;
+        @Nullable
+        private byte[] lastKey;
+
+        private RangeSubscription(final Flow.Subscriber<? super KeyValue> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(final long n) {
+            if (n <= 0) {
+                invalidRequest = new IllegalArgumentException("The number of requested elements must be positive, was "
+                        + n);
+                cancelled = true;
+                signalInvalidRequest();
+                return;
+            }
+            demand.getAndAccumulate(n, (current, added) -> {
+                final long sum = current + added;
+                return sum < 0 ? Long.MAX_VALUE : sum;
+            });
+            readNextPage();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            if (reading.compareAndSet(false, true)) {
+                closeTransaction();
+            }
+        }
+
+        private void readNextPage() {
+            if (cancelled || demand.get() == 0 || !reading.compareAndSet(false, true)) {
+                return;
+            }
+
+            final long requested = demand.get();
+            final int limit = (int) Math.min(requested, pageSize);
+            final StreamingMode mode = requested >= pageSize ? StreamingMode.WANT_ALL : StreamingMode.EXACT;
+
+            readPage(limit, mode).whenCompleteAsync((page, error) -> {
+                if (error != null) {
+                    closeTransaction();
+                    if (!cancelled) {
+                        cancelled = true;
+                        subscriber.onError(unwrap(error));
+                    }
+                    return;
+                }
+
+                for (final KeyValue keyValue : page) {
+                    if (cancelled) {
+                        break;
+                    }
+                    lastKey = keyValue.getKey();
+                    demand.decrementAndGet();
+                    subscriber.onNext(keyValue);
+                }
+
+                if (cancelled) {
+                    closeTransaction();
+                    reading.set(false);
+                    signalInvalidRequest();
+                } else if (page.size() < limit) {
+                    closeTransaction();
+                    cancelled = true;
+                    subscriber.onComplete();
+                } else {
+                    reading.set(false);
+                    readNextPage();
+                }
+            }, executor);
+        }
+
+        private CompletableFuture<List<KeyValue>> readPage(final int limit, final StreamingMode mode) {
+            final Transaction current;
+            try {
+                current = currentTransaction();
+            } catch (final RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+            final KeySelector begin = lastKey == null
+                    ? KeySelector.firstGreaterOrEqual(range.begin)
+                    : KeySelector.firstGreaterThan(lastKey);
+
+            return current.snapshot()
+                    .getRange(begin, KeySelector.firstGreaterOrEqual(range.end), limit, false, mode)
+                    .asList()
+                    .handle((page, error) -> {
+                        if (error == null) {
+                            return CompletableFuture.completedFuture(page);
+                        }
+                        // backs off and resets the transaction if the error is retryable, fails otherwise
+                        return current.onError(unwrap(error)).thenCompose(reset -> {
+                            transaction = reset;
+                            transactionStartedAt = System.nanoTime();
+                            return readPage(limit, mode);
+                        });
+                    })
+                    .thenCompose(page -> page);
+        }
+
+        private Transaction currentTransaction() {
+            final Transaction current = transaction;
+            if (current != null && System.nanoTime() - transactionStartedAt < transactionTimeBudget.toNanoseconds()) {
+                return current;
+            }
+            closeTransaction();
+            final Transaction created = database.createTransaction(executor);
+            transaction = created;
+            transactionStartedAt = System.nanoTime();
+            return created;
+        }
+
+        private void closeTransaction() {
+            final Transaction current = transaction;
+            transaction = null;
+            if (current != null) {
+                current.close();
+            }
+        }
+
+        private Throwable unwrap(final Throwable error) {
+            return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        }
+
+        private void signalInvalidRequest() {
+            final Throwable error = invalidRequest;
+            if (error != null && reading.compareAndSet(false, true)) {
+                invalidRequest = null;
+                closeTransaction();
+                subscriber.onError(error);
+            }
+        }
+    }
+}
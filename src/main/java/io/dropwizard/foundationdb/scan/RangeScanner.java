@@ -0,0 +1,230 @@
+package io.dropwizard.foundationdb.scan;
+
+import com.apple.foundationdb.Database;
+import com.apple.foundationdb.KeySelector;
+import com.apple.foundationdb.KeyValue;
+import com.apple.foundationdb.Range;
+import com.apple.foundationdb.ReadTransaction;
+import com.apple.foundationdb.StreamingMode;
+import com.apple.foundationdb.async.AsyncIterator;
+import com.apple.foundationdb.async.AsyncUtil;
+import com.apple.foundationdb.subspace.Subspace;
+import com.apple.foundationdb.tuple.ByteArrayUtil;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import io.dropwizard.util.Duration;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Scans large ranges of keys in parallel, without being bound by the five second transaction limit.
+ * <p>
+ * A range is split into shards of roughly equal size using the split points and size estimate maintained by the
+ * cluster. Up to {@code parallelism} shards are then scanned concurrently, each through a sequence of read-only
+ * transactions: a transaction stops reading once it has been open for the configured time budget, and the next one
+ * resumes after the last key read. Retryable errors, such as {@code 1007 transaction_too_old}, resume the same way, so
+ * every key is handed to the consumer exactly once.
+ * <p>
+ * As a scan spans many transactions, it does not observe a single snapshot of the range. Keys are handed to the
+ * consumer in order within a shard, but shards are scanned concurrently, so the consumer must be thread-safe.
+ */
+public class RangeScanner {
+    private final Database database;
+    private final Executor executor;
+    private final int parallelism;
+    private final long minShardBytes;
+    private final Duration transactionTimeBudget;
+    private final Timer shardTimer;
+    private final Histogram shardKeysPerSecond;
+    private final Histogram shardBytesPerSecond;
+    private final Meter keysRead;
+    private final Meter bytesRead;
+    private final Meter transactions;
+
+    /**
+     * @param executor    the executor running the scans, whose threads call the consumers
+     * @param parallelism the maximum number of shards scanned concurrently by a scan
+     */
+    public RangeScanner(final Database database,
+                        final Executor executor,
+                        final int parallelism,
+                        final long minShardBytes,
+                        final Duration transactionTimeBudget,
+                        final MetricRegistry metrics,
+                        final String name) {
+        this.database = requireNonNull(database);
+        this.executor = requireNonNull(executor);
+        this.parallelism = parallelism;
+        this.minShardBytes = minShardBytes;
+        this.transactionTimeBudget = requireNonNull(transactionTimeBudget);
+        this.shardTimer = metrics.timer(MetricRegistry.name(name, "scan", "shard.timeInNanos"));
+        this.shardKeysPerSecond = metrics.histogram(MetricRegistry.name(name, "scan", "shard.keysPerSecond"));
+        this.shardBytesPerSecond = metrics.histogram(MetricRegistry.name(name, "scan", "shard.bytesPerSecond"));
+        this.keysRead = metrics.meter(MetricRegistry.name(name, "scan", "keysRead"));
+        this.bytesRead = metrics.meter(MetricRegistry.name(name, "scan", "bytesRead"));
+        this.transactions = metrics.meter(MetricRegistry.name(name, "scan", "transactions"));
+    }
+
+    /**
+     * Scans every key of the subspace.
+     *
+     * @see #scan(Range, Consumer)
+     */
+    public CompletableFuture<Void> scan(final Subspace subspace, final Consumer<? super KeyValue> consumer) {
+        return scan(subspace.range(), consumer);
+    }
+
+    /**
+     * Scans every key of the range, handing each key to the consumer.
+     *
+     * @return a future completing once the whole range has been scanned, or completing exceptionally with the first
+     * non-retryable error, after which no further shards are started
+     */
+    public CompletableFuture<Void> scan(final Range range, final Consumer<? super KeyValue> consumer) {
+        return split(range).thenComposeAsync(shards -> {
+            final Queue<Shard> pending = new ConcurrentLinkedQueue<>(shards);
+            final List<CompletableFuture<Void>> workers = new ArrayList<>();
+            for (int i = 0; i < Math.min(parallelism, shards.size()); i++) {
+                workers.add(AsyncUtil.whileTrue(() -> {
+                    final Shard shard = pending.poll();
+                    if (shard == null) {
+                        return AsyncUtil.READY_FALSE;
+                    }
+                    return scanShard(shard, consumer)
+                            .whenComplete((ignored, error) -> {
+                                if (error != null) {
+                                    pending.clear();
+                                }
+                            })
+                            .thenApply(ignored -> true);
+                }, executor));
+            }
+            return CompletableFuture.allOf(workers.toArray(new CompletableFuture<?>[0]));
+        }, executor);
+    }
+
+    /**
+     * Splits the range into shards of at least {@code minShardBytes}, aiming for a few shards per concurrent scan so
+     * that a slow shard does not hold back the whole scan.
+     */
+    CompletableFuture<List<Shard>> split(final Range range) {
+        return database.readAsync(transaction -> transaction.getEstimatedRangeSizeBytes(range.begin, range.end)
+                .thenCompose(estimatedBytes -> {
+                    final long chunkSize = Math.max(minShardBytes, estimatedBytes / (parallelism * 4L));
+                    return transaction.getRangeSplitPoints(range.begin, range.end, chunkSize);
+                })
+                .thenApply(splitPoints -> {
+                    final List<Shard> shards = new ArrayList<>();
+                    byte[] begin = range.begin;
+                    for (final byte[] splitPoint : splitPoints.getKeys()) {
+                        if (ByteArrayUtil.compareUnsigned(splitPoint, begin) > 0
+                                && ByteArrayUtil.compareUnsigned(splitPoint, range.end) < 0) {
+                            shards.add(new Shard(begin, splitPoint));
+                            begin = splitPoint;
+                        }
+                    }
+                    shards.add(new Shard(begin, range.end));
+                    return shards;
+                }), executor);
+    }
+
+    private CompletableFuture<Void> scanShard(final Shard shard, final Consumer<? super KeyValue> consumer) {
+        final long startTime = System.nanoTime();
+        return AsyncUtil.whileTrue(() -> database.readAsync(transaction -> scanInTransaction(transaction, shard, consumer),
+                        executor), executor)
+                .thenRun(() -> {
+                    final long elapsed = System.nanoTime() - startTime;
+                    shardTimer.update(elapsed, TimeUnit.NANOSECONDS);
+                    final double seconds = Math.max(elapsed, 1L) / (double) TimeUnit.SECONDS.toNanos(1);
+                    shardKeysPerSecond.update((long) (shard.keys / seconds));
+                    shardBytesPerSecond.update((long) (shard.bytes / seconds));
+                });
+    }
+
+    /**
+     * Reads the shard from its last key until it is exhausted or the time budget of the transaction runs out.
+     *
+     * @return whether the shard has keys left to read
+     */
+    private CompletableFuture<Boolean> scanInTransaction(final ReadTransaction transaction,
+                                                         final Shard shard,
+                                                         final Consumer<? super KeyValue> consumer) {
+        transactions.mark();
+        final long deadline = System.nanoTime() + transactionTimeBudget.toNanoseconds();
+        final AsyncIterator<KeyValue> iterator = transaction.getRange(shard.resumeFrom(),
+                KeySelector.firstGreaterOrEqual(shard.end), ReadTransaction.ROW_LIMIT_UNLIMITED, false,
+                StreamingMode.WANT_ALL).iterator();
+
+        return AsyncUtil.whileTrue(() -> iterator.onHasNext().thenApply(hasNext -> {
+            if (!hasNext) {
+                shard.exhausted = true;
+                return false;
+            }
+            // drain whatever has already been fetched before waiting on the next batch
+            do {
+                final KeyValue keyValue = iterator.next();
+                consumer.accept(keyValue);
+                shard.advance(keyValue);
+                keysRead.mark();
+                bytesRead.mark(keyValue.getKey().length + keyValue.getValue().length);
+            } while (iterator.onHasNext().isDone() && iterator.hasNext());
+
+            if (System.nanoTime() - deadline >= 0) {
+                iterator.cancel();
+                return false;
+            }
+            return true;
+        }), executor).thenApply(ignored -> !shard.exhausted);
+    }
+
+    /**
+     * A contiguous part of the scanned range, along with the progress made reading it. A shard is only ever read by
+     * one transaction at a time.
+     */
+    static class Shard {
+        private final byte[] begin;
+        private final byte[] end;
+        @Nullable
+        private volatile byte[] lastKey;
+        private volatile boolean exhausted;
+        private volatile long keys;
+        private volatile long bytes;
+
+        Shard(final byte[] begin, final byte[] end) {
+            this.begin = begin;
+            this.end = end;
+        }
+
+        byte[] getBegin() {
+            return begin;
+        }
+
+        byte[] getEnd() {
+            return end;
+        }
+
+        private KeySelector resumeFrom() {
+            final byte[] key = lastKey;
+            return key == null ? KeySelector.firstGreaterOrEqual(begin) : KeySelector.firstGreaterThan(key);
+        }
+
+        private void advance(final KeyValue keyValue) {
+            lastKey = keyValue.getKey();
+            keys = keys + 1;
+            bytes = bytes + keyValue.getKey().length + keyValue.getValue().length;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package io.dropwizard.foundationdb.scan;
+
+import com.apple.foundationdb.Database;
+
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.dropwizard.lifecycle.setup.LifecycleEnvironment;
+import io.dropwizard.util.DataSize;
+import io.dropwizard.util.DataSizeUnit;
+import io.dropwizard.util.Duration;
+import io.dropwizard.validation.MaxDuration;
+import io.dropwizard.validation.MinDataSize;
+import io.dropwizard.validation.MinDuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+
+/**
+ * Configures a {@link RangeScanner}. The time budget of each scan transaction must stay below the five second
+ * transaction limit, leaving room for the reads in flight when it runs out.
+ */
+public class RangeScannerFactory {
+    @Min(1)
+    @JsonProperty
+    private int parallelism = 8;
+    @NotNull
+    @MinDataSize(value = 1, unit = DataSizeUnit.BYTES)
+    @JsonProperty
+    private DataSize minShardSize = DataSize.megabytes(10);
+    @NotNull
+    @MinDuration(value = 1, unit = TimeUnit.MILLISECONDS)
+    @MaxDuration(value = 5, unit = TimeUnit.SECONDS, inclusive = false)
+    @JsonProperty
+    private Duration transactionTimeBudget = Duration.seconds(3);
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(final int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public DataSize getMinShardSize() {
+        return minShardSize;
+    }
+
+    public void setMinShardSize(final DataSize minShardSize) {
+        this.minShardSize = minShardSize;
+    }
+
+    public Duration getTransactionTimeBudget() {
+        return transactionTimeBudget;
+    }
+
+    public void setTransactionTimeBudget(final Duration transactionTimeBudget) {
+        this.transactionTimeBudget = transactionTimeBudget;
+    }
+
+    /**
+     * Builds a scanner for the database, running its scans on a lifecycle managed pool of {@code parallelism}
+     * threads.
+     */
+    public RangeScanner build(final Database database,
+                              final MetricRegistry metrics,
+                              final LifecycleEnvironment lifecycle,
+                              final String name) {
+        final ExecutorService executor = lifecycle.executorService(name + "-range-scanner-%d")
+                .minThreads(parallelism)
+                .maxThreads(parallelism)
+                .build();
+
+        return new RangeScanner(database, executor, parallelism, minShardSize.toBytes(), transactionTimeBudget,
+                metrics, name);
+    }
+}
@@ -0,0 +1,48 @@
+package io.dropwizard.foundationdb.status;
+
+import com.apple.foundationdb.Database;
+
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.dropwizard.lifecycle.setup.LifecycleEnvironment;
+import io.dropwizard.util.Duration;
+import io.dropwizard.validation.MinDuration;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.validation.constraints.NotNull;
+
+/**
+ * Configures a {@link ClientStatusReporter}.
+ */
+public class ClientStatusFactory {
+    @NotNull
+    @MinDuration(value = 1, unit = TimeUnit.SECONDS)
+    @JsonProperty
+    private Duration interval = Duration.seconds(10);
+
+    public Duration getInterval() {
+        return interval;
+    }
+
+    public void setInterval(final Duration interval) {
+        this.interval = interval;
+    }
+
+    /**
+     * Builds a reporter reading the client status of the database on a lifecycle managed scheduler.
+     */
+    public ClientStatusReporter build(final Database database,
+                                      final MetricRegistry metrics,
+                                      final LifecycleEnvironment lifecycle,
+                                      final String name) {
+        final ScheduledExecutorService scheduler = lifecycle.scheduledExecutorService(name + "-client-status-%d")
+                .threads(1)
+                .build();
+        final ClientStatusReporter reporter = new ClientStatusReporter(database, scheduler, interval, metrics, name);
+        lifecycle.manage(reporter);
+
+        return reporter;
+    }
+}
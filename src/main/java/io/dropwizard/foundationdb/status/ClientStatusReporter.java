@@ -0,0 +1,200 @@
+package io.dropwizard.foundationdb.status;
+
+import com.apple.foundationdb.Database;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.MissingNode;
+import io.dropwizard.lifecycle.Managed;
+import io.dropwizard.util.Duration;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Periodically reads the status of the client from {@link Database#getClientStatus()}, and publishes it as gauges
+ * under {@code <name>.clientStatus}: whether the client considers itself healthy, the number of coordinators, GRV
+ * proxies and commit proxies it is connected to, and the number of storage servers referenced by its location cache.
+ * Every connection of the client also gets gauges of its own, named after its address, with its state, connection
+ * failures, ping timeouts and bytes exchanged; the gauges of a connection are removed once it is gone.
+ * <p>
+ * Along with the client-side GRV and commit latencies recorded by {@link
+ * io.dropwizard.foundationdb.instrumented.TransactionMetrics}, these gauges tell a slow or disconnected client apart
+ * from a slow cluster.
+ */
+public class ClientStatusReporter implements Managed {
+    private static final Logger log = LoggerFactory.getLogger(ClientStatusReporter.class);
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String CONNECTED = "connected";
+
+    private final Database database;
+    private final ScheduledExecutorService scheduler;
+    private final Duration interval;
+    private final MetricRegistry metrics;
+    private final String name;
+    private final Meter failures;
+    private final AtomicBoolean reporting = new AtomicBoolean();
+    private final ConcurrentMap<String, JsonNode> connections = new ConcurrentHashMap<>();
+    private volatile boolean healthy = false;
+    private volatile int connectedCoordinators = 0;
+    private volatile int connectedGrvProxies = 0;
+    private volatile int connectedCommitProxies = 0;
+    private volatile int storageServers = 0;
+    @Nullable
+    private ScheduledFuture<?> reportTask;
+
+    public ClientStatusReporter(final Database database,
+                                final ScheduledExecutorService scheduler,
+                                final Duration interval,
+                                final MetricRegistry metrics,
+                                final String name) {
+        this.database = requireNonNull(database);
+        this.scheduler = requireNonNull(scheduler);
+        this.interval = requireNonNull(interval);
+        this.metrics = requireNonNull(metrics);
+        this.name = requireNonNull(name);
+        this.failures = metrics.meter(MetricRegistry.name(name, "clientStatus", "failures"));
+
+        metrics.register(MetricRegistry.name(name, "clientStatus", "healthy"), (Gauge<Boolean>) () -> healthy);
+        metrics.register(MetricRegistry.name(name, "clientStatus", "coordinators.connected"),
+                (Gauge<Integer>) () -> connectedCoordinators);
+        metrics.register(MetricRegistry.name(name, "clientStatus", "grvProxies.connected"),
+                (Gauge<Integer>) () -> connectedGrvProxies);
+        metrics.register(MetricRegistry.name(name, "clientStatus", "commitProxies.connected"),
+                (Gauge<Integer>) () -> connectedCommitProxies);
+        metrics.register(MetricRegistry.name(name, "clientStatus", "storageServers"),
+                (Gauge<Integer>) () -> storageServers);
+    }
+
+    /**
+     * Reads the client status and updates the gauges, unless the previous report is still running.
+     *
+     * @return a future completing once the report has completed
+     */
+    public CompletableFuture<Void> report() {
+        if (!reporting.compareAndSet(false, true)) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        final CompletableFuture<byte[]> status;
+        try {
+            status = database.getClientStatus(database.getExecutor());
+        } catch (final RuntimeException e) {
+            fail(e);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return status.thenAccept(json -> {
+            try {
+                update(MAPPER.readTree(json));
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            reporting.set(false);
+        }).exceptionally(error -> {
+            fail(error);
+            return null;
+        });
+    }
+
+    private void update(final JsonNode root) {
+        // with the multi-version client, the status of the database is nested within the status of the client
+        final JsonNode status = root.has("DatabaseStatus") ? root.get("DatabaseStatus") : root;
+        healthy = root.path("Healthy").asBoolean(false) && status.path("Healthy").asBoolean(true);
+
+        final Map<String, JsonNode> current = new HashMap<>();
+        for (final JsonNode connection : status.path("Connections")) {
+            current.put(connection.path("Address").asText(), connection);
+        }
+
+        connectedCoordinators = countConnected(status.path("Coordinators"), current);
+        connectedGrvProxies = countConnected(status.path("GrvProxies"), current);
+        connectedCommitProxies = countConnected(status.path("CommitProxies"), current);
+        storageServers = status.path("StorageServers").size();
+
+        final Set<String> gone = new HashSet<>(connections.keySet());
+        gone.removeAll(current.keySet());
+        for (final String address : gone) {
+            connections.remove(address);
+            metrics.removeMatching((metricName, metric) -> metricName.startsWith(connectionPrefix(address) + "."));
+        }
+        for (final Map.Entry<String, JsonNode> connection : current.entrySet()) {
+            if (connections.put(connection.getKey(), connection.getValue()) == null) {
+                registerConnection(connection.getKey());
+            }
+        }
+    }
+
+    private static int countConnected(final JsonNode addresses, final Map<String, JsonNode> connections) {
+        int connected = 0;
+        for (final JsonNode address : addresses) {
+            final JsonNode connection = connections.get(address.asText());
+            if (connection != null && CONNECTED.equals(connection.path("Status").asText())) {
+                connected++;
+            }
+        }
+        return connected;
+    }
+
+    private void registerConnection(final String address) {
+        final String prefix = connectionPrefix(address);
+        metrics.register(MetricRegistry.name(prefix, "connected"),
+                (Gauge<Boolean>) () -> CONNECTED.equals(connectionField(address, "Status").asText()));
+        metrics.register(MetricRegistry.name(prefix, "connectFailures"),
+                (Gauge<Long>) () -> connectionField(address, "ConnectFailedCount").asLong());
+        metrics.register(MetricRegistry.name(prefix, "pingTimeouts"),
+                (Gauge<Long>) () -> connectionField(address, "PingTimeoutCount").asLong());
+        metrics.register(MetricRegistry.name(prefix, "bytesReceived"),
+                (Gauge<Long>) () -> connectionField(address, "BytesReceived").asLong());
+        metrics.register(MetricRegistry.name(prefix, "bytesSent"),
+                (Gauge<Long>) () -> connectionField(address, "BytesSent").asLong());
+    }
+
+    private JsonNode connectionField(final String address, final String field) {
+        final JsonNode connection = connections.get(address);
+        return connection == null ? MissingNode.getInstance() : connection.path(field);
+    }
+
+    private String connectionPrefix(final String address) {
+        // addresses contain dots, which would otherwise split the metric name
+        return MetricRegistry.name(name, "clientStatus", "connections", address.replace('.', '_').replace(':', '_'));
+    }
+
+    private void fail(final Throwable error) {
+        failures.mark();
+        reporting.set(false);
+        log.warn("Unable to report the client status of database={}", name, error);
+    }
+
+    @Override
+    public void start() throws Exception {
+        reportTask = scheduler.scheduleAtFixedRate(this::report, 0, interval.toMilliseconds(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() throws Exception {
+        if (reportTask != null) {
+            reportTask.cancel(false);
+        }
+    }
+}
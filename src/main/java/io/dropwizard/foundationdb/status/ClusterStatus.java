@@ -0,0 +1,99 @@
+package io.dropwizard.foundationdb.status;
+
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+/**
+ * The cluster-level signals of a FoundationDB status document. Signals missing from the document, for example while
+ * the cluster is recovering and has no {@code qos} section, are unknown: {@link #UNKNOWN_BYTES} for sizes,
+ * {@link Double#NaN} for lags and rates, and {@code null} for names.
+ */
+public class ClusterStatus {
+    public static final long UNKNOWN_BYTES = -1L;
+
+    static final ClusterStatus UNKNOWN = new ClusterStatus(UNKNOWN_BYTES, UNKNOWN_BYTES, Double.NaN, null, Double.NaN,
+            Double.NaN, Double.NaN, null);
+
+    private static final String WORKLOAD = "workload";
+
+    private final long worstStorageQueueBytes;
+    private final long worstLogQueueBytes;
+    private final double worstDurabilityLagSeconds;
+    @Nullable
+    private final String performanceLimitedBy;
+    private final double transactionsPerSecondLimit;
+    private final double batchTransactionsPerSecondLimit;
+    private final double releasedTransactionsPerSecond;
+    @Nullable
+    private final String recoveryState;
+
+    public ClusterStatus(final long worstStorageQueueBytes,
+                         final long worstLogQueueBytes,
+                         final double worstDurabilityLagSeconds,
+                         @Nullable final String performanceLimitedBy,
+                         final double transactionsPerSecondLimit,
+                         final double batchTransactionsPerSecondLimit,
+                         final double releasedTransactionsPerSecond,
+                         @Nullable final String recoveryState) {
+        this.worstStorageQueueBytes = worstStorageQueueBytes;
+        this.worstLogQueueBytes = worstLogQueueBytes;
+        this.worstDurabilityLagSeconds = worstDurabilityLagSeconds;
+        this.performanceLimitedBy = performanceLimitedBy;
+        this.transactionsPerSecondLimit = transactionsPerSecondLimit;
+        this.batchTransactionsPerSecondLimit = batchTransactionsPerSecondLimit;
+        this.releasedTransactionsPerSecond = releasedTransactionsPerSecond;
+        this.recoveryState = recoveryState;
+    }
+
+    /**
+     * @return the largest storage server queue, or {@link #UNKNOWN_BYTES}
+     */
+    public long getWorstStorageQueueBytes() {
+        return worstStorageQueueBytes;
+    }
+
+    /**
+     * @return the largest log server queue, or {@link #UNKNOWN_BYTES}
+     */
+    public long getWorstLogQueueBytes() {
+        return worstLogQueueBytes;
+    }
+
+    public double getWorstDurabilityLagSeconds() {
+        return worstDurabilityLagSeconds;
+    }
+
+    /**
+     * @return the reason ratekeeper is limiting the transaction rate, {@code workload} when it is not, or {@code null}
+     */
+    @Nullable
+    public String getPerformanceLimitedBy() {
+        return performanceLimitedBy;
+    }
+
+    public double getTransactionsPerSecondLimit() {
+        return transactionsPerSecondLimit;
+    }
+
+    public double getBatchTransactionsPerSecondLimit() {
+        return batchTransactionsPerSecondLimit;
+    }
+
+    public double getReleasedTransactionsPerSecond() {
+        return releasedTransactionsPerSecond;
+    }
+
+    /**
+     * @return the recovery state of the cluster, {@code fully_recovered} when it is available, or {@code null}
+     */
+    @Nullable
+    public String getRecoveryState() {
+        return recoveryState;
+    }
+
+    /**
+     * @return whether ratekeeper is throttling the cluster for any other reason than the workload itself
+     */
+    public boolean isRatekeeperLimiting() {
+        return performanceLimitedBy != null && !WORKLOAD.equals(performanceLimitedBy);
+    }
+}
@@ -0,0 +1,149 @@
+package io.dropwizard.foundationdb.status;
+
+import com.apple.foundationdb.Database;
+import com.apple.foundationdb.tuple.ByteArrayUtil;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.lifecycle.Managed;
+import io.dropwizard.util.Duration;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Periodically reads the status document of the cluster from the {@code \xff\xff/status/json} special key, and
+ * publishes its cluster-level signals as gauges under {@code <name>.status}: the worst storage and log queue sizes, the
+ * worst durability lag, the reason ratekeeper is limiting the transaction rate along with the rate limits, and the
+ * recovery state.
+ * <p>
+ * The latest status is also available through {@link #getStatus()}, so that the application can shed load itself
+ * when {@link ClusterStatus#isRatekeeperLimiting() ratekeeper is throttling} the cluster.
+ */
+public class ClusterStatusCollector implements Managed {
+    private static final Logger log = LoggerFactory.getLogger(ClusterStatusCollector.class);
+
+    static final byte[] STATUS_KEY = ByteArrayUtil.join(new byte[]{(byte) 0xff, (byte) 0xff}, "/status/json".getBytes(StandardCharsets.US_ASCII));
+
+    private final Database database;
+    private final ScheduledExecutorService scheduler;
+    private final Duration interval;
+    private final Duration timeout;
+    private final String name;
+    private final Meter failures;
+    private final AtomicBoolean collecting = new AtomicBoolean();
+    private volatile ClusterStatus status = ClusterStatus.UNKNOWN;
+    private volatile long collectedAt = 0L;
+    @Nullable
+    private ScheduledFuture<?> collectTask;
+
+    /**
+     * @param interval the interval between two reads of the status document
+     * @param timeout  the timeout of a read of the status document, which may take a while on large clusters
+     */
+    public ClusterStatusCollector(final Database database,
+                                  final ScheduledExecutorService scheduler,
+                                  final Duration interval,
+                                  final Duration timeout,
+                                  final MetricRegistry metrics,
+                                  final String name) {
+        this.database = requireNonNull(database);
+        this.scheduler = requireNonNull(scheduler);
+        this.interval = requireNonNull(interval);
+        this.timeout = requireNonNull(timeout);
+        this.name = requireNonNull(name);
+        this.failures = metrics.meter(MetricRegistry.name(name, "status", "failures"));
+
+        register(metrics, "storageQueueBytes", ClusterStatus::getWorstStorageQueueBytes);
+        register(metrics, "logQueueBytes", ClusterStatus::getWorstLogQueueBytes);
+        register(metrics, "durabilityLagSeconds", ClusterStatus::getWorstDurabilityLagSeconds);
+        register(metrics, "performanceLimitedBy", ClusterStatus::getPerformanceLimitedBy);
+        register(metrics, "ratekeeperLimiting", ClusterStatus::isRatekeeperLimiting);
+        register(metrics, "transactionsPerSecondLimit", ClusterStatus::getTransactionsPerSecondLimit);
+        register(metrics, "batchTransactionsPerSecondLimit", ClusterStatus::getBatchTransactionsPerSecondLimit);
+        register(metrics, "releasedTransactionsPerSecond", ClusterStatus::getReleasedTransactionsPerSecond);
+        register(metrics, "recoveryState", ClusterStatus::getRecoveryState);
+        metrics.register(MetricRegistry.name(name, "status", "ageInMillis"),
+                (Gauge<Long>) () -> collectedAt == 0L ? -1L : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - collectedAt));
+    }
+
+    private <T> void register(final MetricRegistry metrics, final String signal, final Function<ClusterStatus, T> value) {
+        metrics.register(MetricRegistry.name(name, "status", signal), (Gauge<T>) () -> value.apply(status));
+    }
+
+    /**
+     * @return the latest status collected, with every signal unknown until the first collection completes
+     */
+    public ClusterStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * Reads and parses the status document, unless the previous collection is still running.
+     *
+     * @return a future completing once the collection has completed
+     */
+    public CompletableFuture<Void> collect() {
+        if (!collecting.compareAndSet(false, true)) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        final CompletableFuture<byte[]> document;
+        try {
+            document = database.readAsync(transaction -> {
+                transaction.options().setTimeout(timeout.toMilliseconds());
+                return transaction.get(STATUS_KEY);
+            }, database.getExecutor());
+        } catch (final RuntimeException e) {
+            fail(e);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return document.thenAccept(json -> {
+            if (json == null) {
+                throw new IllegalStateException("The cluster returned no status document");
+            }
+            try {
+                status = ClusterStatusParser.parse(json);
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            collectedAt = System.nanoTime();
+            collecting.set(false);
+        }).exceptionally(error -> {
+            fail(error);
+            return null;
+        });
+    }
+
+    private void fail(final Throwable error) {
+        failures.mark();
+        collecting.set(false);
+        log.warn("Unable to collect the cluster status of database={}", name, error);
+    }
+
+    @Override
+    public void start() throws Exception {
+        collectTask = scheduler.scheduleAtFixedRate(this::collect, 0, interval.toMilliseconds(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void stop() throws Exception {
+        if (collectTask != null) {
+            collectTask.cancel(false);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package io.dropwizard.foundationdb.status;
+
+import com.apple.foundationdb.Database;
+
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.dropwizard.lifecycle.setup.LifecycleEnvironment;
+import io.dropwizard.util.Duration;
+import io.dropwizard.validation.MinDuration;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.validation.constraints.NotNull;
+
+/**
+ * Configures a {@link ClusterStatusCollector}. Producing the status document is expensive for the cluster, so it
+ * should not be collected more often than every few seconds.
+ */
+public class ClusterStatusFactory {
+    @NotNull
+    @MinDuration(value = 1, unit = TimeUnit.SECONDS)
+    @JsonProperty
+    private Duration interval = Duration.seconds(10);
+    @NotNull
+    @MinDuration(value = 1, unit = TimeUnit.MILLISECONDS)
+    @JsonProperty
+    private Duration timeout = Duration.seconds(5);
+
+    public Duration getInterval() {
+        return interval;
+    }
+
+    public void setInterval(final Duration interval) {
+        this.interval = interval;
+    }
+
+    public Duration getTimeout() {
+        return timeout;
+    }
+
+    public void setTimeout(final Duration timeout) {
+        this.timeout = timeout;
+    }
+
+    /**
+     * Builds a collector reading the status of the database on a lifecycle managed scheduler.
+     */
+    public ClusterStatusCollector build(final Database database,
+                                        final MetricRegistry metrics,
+                                        final LifecycleEnvironment lifecycle,
+                                        final String name) {
+        final ScheduledExecutorService scheduler = lifecycle.scheduledExecutorService(name + "-cluster-status-%d")
+                .threads(1)
+                .build();
+        final ClusterStatusCollector collector = new ClusterStatusCollector(database, scheduler, interval, timeout,
+                metrics, name);
+        lifecycle.manage(collector);
+
+        return collector;
+    }
+}
@@ -0,0 +1,123 @@
+package io.dropwizard.foundationdb.status;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.checkerframework.checker.nullness.qual.Nullable;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Set;
+
+/**
+ * Extracts a {@link ClusterStatus} from a status document without building its tree. Only the objects leading to the
+ * extracted fields are traversed; every other object and array, such as the per-process and per-machine sections
+ * making up most of the document, is skipped as it is read.
+ */
+class ClusterStatusParser {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private static final Set<String> TRAVERSED = Set.of(
+            "cluster",
+            "cluster.qos",
+            "cluster.qos.worst_durability_lag_storage_server",
+            "cluster.qos.performance_limited_by",
+            "cluster.recovery_state");
+
+    // the fields missing from the document stay unknown
+    private long worstStorageQueueBytes = ClusterStatus.UNKNOWN_BYTES;
+    private long worstLogQueueBytes = ClusterStatus.UNKNOWN_BYTES;
+    private double worstDurabilityLagSeconds = Double.NaN;
+    @Nullable
+    private String performanceLimitedBy;
+    private double transactionsPerSecondLimit = Double.NaN;
+    private double batchTransactionsPerSecondLimit = Double.NaN;
+    private double releasedTransactionsPerSecond = Double.NaN;
+    @Nullable
+    private String recoveryState;
+
+    private ClusterStatusParser() {
+    }
+
+    static ClusterStatus parse(final byte[] json) throws IOException {
+        return new ClusterStatusParser().read(json);
+    }
+
+    private ClusterStatus read(final byte[] json) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("The status document is not a JSON object");
+            }
+
+            final Deque<String> path = new ArrayDeque<>();
+            String field = null;
+            JsonToken token;
+            while ((token = parser.nextToken()) != null) {
+                switch (token) {
+                    case FIELD_NAME:
+                        field = parser.getCurrentName();
+                        break;
+                    case START_OBJECT:
+                        if (TRAVERSED.contains(pathOf(path, field))) {
+                            path.addLast(field);
+                        } else {
+                            parser.skipChildren();
+                        }
+                        break;
+                    case START_ARRAY:
+                        parser.skipChildren();
+                        break;
+                    case END_OBJECT:
+                        path.pollLast();
+                        break;
+                    default:
+                        readValue(pathOf(path, field), parser);
+                        break;
+                }
+            }
+        }
+
+        return new ClusterStatus(worstStorageQueueBytes, worstLogQueueBytes, worstDurabilityLagSeconds,
+                performanceLimitedBy, transactionsPerSecondLimit, batchTransactionsPerSecondLimit,
+                releasedTransactionsPerSecond, recoveryState);
+    }
+
+    private void readValue(final String path, final JsonParser parser) throws IOException {
+        switch (path) {
+            case "cluster.qos.worst_queue_bytes_storage_server":
+                worstStorageQueueBytes = parser.getValueAsLong();
+                break;
+            case "cluster.qos.worst_queue_bytes_log_server":
+                worstLogQueueBytes = parser.getValueAsLong();
+                break;
+            case "cluster.qos.worst_durability_lag_storage_server.seconds":
+                worstDurabilityLagSeconds = parser.getValueAsDouble();
+                break;
+            case "cluster.qos.performance_limited_by.name":
+                performanceLimitedBy = parser.getValueAsString();
+                break;
+            case "cluster.qos.transactions_per_second_limit":
+                transactionsPerSecondLimit = parser.getValueAsDouble();
+                break;
+            case "cluster.qos.batch_transactions_per_second_limit":
+                batchTransactionsPerSecondLimit = parser.getValueAsDouble();
+                break;
+            case "cluster.qos.released_transactions_per_second":
+                releasedTransactionsPerSecond = parser.getValueAsDouble();
+                break;
+            case "cluster.recovery_state.name":
+                recoveryState = parser.getValueAsString();
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static String pathOf(final Deque<String> path, final String field) {
+        if (path.isEmpty()) {
+            return field;
+        }
+        return String.join(".", path) + "." + field;
+    }
+}
@@ -0,0 +1,147 @@
+package io.dropwizard.foundationdb.store;
+
+import com.apple.foundationdb.record.IsolationLevel;
+import com.apple.foundationdb.record.RecordMetaData;
+import com.apple.foundationdb.record.provider.common.StoreTimer;
+import com.apple.foundationdb.record.provider.foundationdb.FDBDatabase;
+import com.apple.foundationdb.record.provider.foundationdb.FDBRecordContext;
+import com.apple.foundationdb.record.provider.foundationdb.FDBRecordStore;
+import com.apple.foundationdb.record.provider.foundationdb.keyspace.KeySpacePath;
+
+import io.dropwizard.lifecycle.Managed;
+import org.checkerframework.checker.nullness.qual.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Opens record stores with a {@link RecordMetaData} shared by every context, so that it is not loaded and parsed again
+ * in every transaction.
+ * <p>
+ * The meta-data is tagged with the metadata version stamp of the context that loaded it, and is only used by contexts
+ * reading the same stamp; it is loaded again by every context while the stamp has never been set. Changes to the
+ * meta-data must therefore set the stamp, through {@link FDBRecordContext#setMetaDataVersionStamp()}. Hits and misses
+ * are counted on the timer of the context as {@link Counts}, which reach the metrics of an instrumented database when
+ * the context is given a timer.
+ * <p>
+ * The meta-data is loaded on start, so that the first requests do not load it.
+ */
+public class RecordStoreProvider implements Managed {
+    private static final Logger log = LoggerFactory.getLogger(RecordStoreProvider.class);
+
+    private final FDBDatabase database;
+    private final Function<? super FDBRecordContext, CompletableFuture<RecordMetaData>> metaDataLoader;
+    @Nullable
+    private volatile Entry cached;
+
+    /**
+     * @param metaDataLoader loads the meta-data within a context, for example from an {@code FDBMetaDataStore}
+     */
+    public RecordStoreProvider(final FDBDatabase database,
+                               final Function<? super FDBRecordContext, CompletableFuture<RecordMetaData>> metaDataLoader) {
+        this.database = requireNonNull(database);
+        this.metaDataLoader = requireNonNull(metaDataLoader);
+    }
+
+    /**
+     * @return the meta-data at the metadata version stamp of the context, loading it if it is not cached
+     */
+    public CompletableFuture<RecordMetaData> getMetaDataAsync(final FDBRecordContext context) {
+        return context.getMetaDataVersionStampAsync(IsolationLevel.SERIALIZABLE).thenCompose(stamp -> {
+            final Entry entry = cached;
+            if (stamp != null && entry != null && Arrays.equals(entry.stamp, stamp)) {
+                context.increment(Counts.META_DATA_CACHE_HIT);
+                return CompletableFuture.completedFuture(entry.metaData);
+            }
+
+            context.increment(Counts.META_DATA_CACHE_MISS);
+            return metaDataLoader.apply(context).thenApply(metaData -> {
+                if (stamp != null) {
+                    cached = new Entry(stamp, metaData);
+                }
+                return metaData;
+            });
+        });
+    }
+
+    /**
+     * @return the record store at the path, created if it does not exist, opened with the shared meta-data
+     */
+    public CompletableFuture<FDBRecordStore> createOrOpenAsync(final FDBRecordContext context, final KeySpacePath path) {
+        return getMetaDataAsync(context).thenCompose(metaData -> FDBRecordStore.newBuilder()
+                .setContext(context)
+                .setKeySpacePath(path)
+                .setMetaDataProvider(metaData)
+                .createOrOpenAsync());
+    }
+
+    @Override
+    public void start() throws Exception {
+        final RecordMetaData metaData = database.<RecordMetaData>runAsync(this::getMetaDataAsync).join();
+        log.info("Loaded record meta-data version {}", metaData.getVersion());
+    }
+
+    /**
+     * Drops the shared meta-data, the application no longer serving requests.
+     */
+    @Override
+    public void stop() throws Exception {
+        cached = null;
+    }
+
+    /**
+     * The events counted on the timer of a context by a {@link RecordStoreProvider}.
+     */
+    public enum Counts implements StoreTimer.Count {
+        META_DATA_CACHE_HIT("meta-data cache hit"),
+        META_DATA_CACHE_MISS("meta-data cache miss");
+
+        private final String title;
+        private final String logKey;
+
+        Counts(final String title) {
+            this.title = title;
+            this.logKey = name().toLowerCase(Locale.ROOT);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String title() {
+            return title;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String logKey() {
+            return logKey;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean isSize() {
+            return false;
+        }
+    }
+
+    private static final class Entry {
+        private final byte[] stamp;
+        private final RecordMetaData metaData;
+
+        private Entry(final byte[] stamp, final RecordMetaData metaData) {
+            this.stamp = stamp;
+            this.metaData = metaData;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package io.dropwizard.foundationdb.store;
+
+import com.apple.foundationdb.record.provider.foundationdb.storestate.FDBRecordStoreStateCacheFactory;
+import com.apple.foundationdb.record.provider.foundationdb.storestate.MetaDataVersionStampStoreStateCacheFactory;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.dropwizard.util.Duration;
+import io.dropwizard.validation.MinDuration;
+
+import java.util.concurrent.TimeUnit;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+
+/**
+ * Configures the Record Layer store state cache, which keeps the header and index states of the record stores keyed by
+ * the metadata version, so that opening a cached store reads neither. Only stores marked cacheable through
+ * {@code FDBRecordStore#setStateCacheabilityAsync(true)} are cached, and marking a store bumps the metadata version.
+ */
+public class StoreStateCacheFactory {
+    @Min(1)
+    @JsonProperty
+    private long maximumSize = 500;
+    @NotNull
+    @MinDuration(value = 1, unit = TimeUnit.MILLISECONDS)
+    @JsonProperty
+    private Duration expireAfterAccess = Duration.minutes(1);
+
+    public long getMaximumSize() {
+        return maximumSize;
+    }
+
+    public void setMaximumSize(final long maximumSize) {
+        this.maximumSize = maximumSize;
+    }
+
+    public Duration getExpireAfterAccess() {
+        return expireAfterAccess;
+    }
+
+    public void setExpireAfterAccess(final Duration expireAfterAccess) {
+        this.expireAfterAccess = expireAfterAccess;
+    }
+
+    public FDBRecordStoreStateCacheFactory build() {
+        return MetaDataVersionStampStoreStateCacheFactory.newInstance()
+                .setMaxSize(maximumSize)
+                .setExpireAfterAccessMillis(expireAfterAccess.toMilliseconds());
+    }
+}
@@ -0,0 +1,195 @@
+package io.dropwizard.foundationdb.tenant;
+
+import com.apple.foundationdb.Database;
+import com.apple.foundationdb.Tenant;
+import com.apple.foundationdb.tuple.Tuple;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalNotification;
+import io.dropwizard.lifecycle.Managed;
+import io.dropwizard.util.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * A bounded cache of {@link Tenant} handles, so that requests for the same tenant share one handle instead of opening
+ * it again every time.
+ * <p>
+ * The least recently used handles are evicted once the cache is full, and handles are evicted once they have not been
+ * used for the configured idle time. Handles are {@link #acquire(byte[]) acquired} and {@link Handle#close() released}
+ * by the requests using them, and an evicted handle is only closed once the last request using it has released it.
+ */
+public class TenantCache implements Managed {
+    private static final Logger log = LoggerFactory.getLogger(TenantCache.class);
+
+    private final Database database;
+    private final Cache<ByteBuffer, CachedTenant> cache;
+    private final Meter hits;
+    private final Meter misses;
+    private final Meter evictions;
+
+    public TenantCache(final Database database,
+                       final long maximumSize,
+                       final Duration expireAfterIdle,
+                       final MetricRegistry metrics,
+                       final String name) {
+        this.database = requireNonNull(database);
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterAccess(expireAfterIdle.getQuantity(), expireAfterIdle.getUnit())
+                .removalListener(this::onRemoval)
+                .build();
+        this.hits = metrics.meter(MetricRegistry.name(name, "tenantCache", "hits"));
+        this.misses = metrics.meter(MetricRegistry.name(name, "tenantCache", "misses"));
+        this.evictions = metrics.meter(MetricRegistry.name(name, "tenantCache", "evictions"));
+
+        metrics.register(MetricRegistry.name(name, "tenantCache", "size"), (Gauge<Long>) cache::size);
+    }
+
+    /**
+     * @return the handle of the tenant, opening it if it is not cached, to be released once the request is done with it
+     */
+    public Handle acquire(final Tuple tenantName) {
+        return acquire(tenantName.pack());
+    }
+
+    /**
+     * @return the handle of the tenant, opening it if it is not cached, to be released once the request is done with it
+     */
+    public Handle acquire(final byte[] tenantName) {
+        final ByteBuffer cacheKey = ByteBuffer.wrap(tenantName.clone());
+        final CachedTenant cached = cache.getIfPresent(cacheKey);
+        if (cached != null && cached.retain()) {
+            hits.mark();
+            return new Handle(cached);
+        }
+
+        misses.mark();
+        while (true) {
+            final CachedTenant opened = cache.asMap().computeIfAbsent(cacheKey,
+                    key -> new CachedTenant(database.openTenant(key.array())));
+            if (opened.retain()) {
+                return new Handle(opened);
+            }
+            // closed by its eviction in the meantime, and no longer cached
+            cache.asMap().remove(cacheKey, opened);
+        }
+    }
+
+    /**
+     * Evicts the handle of a tenant, for example once the tenant has been deleted.
+     */
+    public void invalidate(final byte[] tenantName) {
+        cache.invalidate(ByteBuffer.wrap(tenantName));
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    private void onRemoval(final RemovalNotification<ByteBuffer, CachedTenant> notification) {
+        final CachedTenant cached = notification.getValue();
+        if (cached == null) {
+            return;
+        }
+        if (notification.wasEvicted()) {
+            evictions.mark();
+        }
+        cached.evict();
+    }
+
+    @Override
+    public void start() throws Exception {
+        // nothing to start, handles are opened on demand
+    }
+
+    /**
+     * Evicts every cached handle, each being closed once released by the requests still using it.
+     */
+    @Override
+    public void stop() throws Exception {
+        cache.invalidateAll();
+    }
+
+    /**
+     * A tenant handle acquired from the cache, which must be closed to release it.
+     */
+    public static class Handle implements AutoCloseable {
+        private final CachedTenant cached;
+        private boolean released = false;
+
+        private Handle(final CachedTenant cached) {
+            this.cached = cached;
+        }
+
+        public Tenant getTenant() {
+            return cached.tenant;
+        }
+
+        /**
+         * Releases the handle, closing the tenant if it has been evicted and no other request is using it.
+         */
+        @Override
+        public synchronized void close() {
+            if (!released) {
+                released = true;
+                cached.release();
+            }
+        }
+    }
+
+    /**
+     * A cached tenant along with the number of requests using it, which is negative once the tenant has been closed.
+     */
+    private static class CachedTenant {
+        private final Tenant tenant;
+        private final AtomicInteger references = new AtomicInteger();
+        private volatile boolean evicted = false;
+
+        private CachedTenant(final Tenant tenant) {
+            this.tenant = requireNonNull(tenant);
+        }
+
+        private boolean retain() {
+            int current;
+            do {
+                current = references.get();
+                if (current < 0) {
+                    return false;
+                }
+            } while (!references.compareAndSet(current, current + 1));
+            return true;
+        }
+
+        private void release() {
+            if (references.decrementAndGet() == 0 && evicted) {
+                closeIfUnused();
+            }
+        }
+
+        private void evict() {
+            evicted = true;
+            closeIfUnused();
+        }
+
+        private void closeIfUnused() {
+            if (!references.compareAndSet(0, -1)) {
+                return;
+            }
+            try {
+                tenant.close();
+            } catch (final RuntimeException e) {
+                log.warn("Unable to close an evicted tenant handle", e);
+            }
+        }
+    }
+}
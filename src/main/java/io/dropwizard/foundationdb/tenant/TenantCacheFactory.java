@@ -0,0 +1,53 @@
+package io.dropwizard.foundationdb.tenant;
+
+import com.apple.foundationdb.Database;
+
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.dropwizard.lifecycle.setup.LifecycleEnvironment;
+import io.dropwizard.util.Duration;
+import io.dropwizard.validation.MinDuration;
+
+import java.util.concurrent.TimeUnit;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+
+/**
+ * Configures a {@link TenantCache}.
+ */
+public class TenantCacheFactory {
+    @Min(1)
+    @JsonProperty
+    private long maximumSize = 10_000;
+    @NotNull
+    @MinDuration(value = 1, unit = TimeUnit.SECONDS)
+    @JsonProperty
+    private Duration expireAfterIdle = Duration.minutes(10);
+
+    public long getMaximumSize() {
+        return maximumSize;
+    }
+
+    public void setMaximumSize(final long maximumSize) {
+        this.maximumSize = maximumSize;
+    }
+
+    public Duration getExpireAfterIdle() {
+        return expireAfterIdle;
+    }
+
+    public void setExpireAfterIdle(final Duration expireAfterIdle) {
+        this.expireAfterIdle = expireAfterIdle;
+    }
+
+    public TenantCache build(final Database database,
+                             final MetricRegistry metrics,
+                             final LifecycleEnvironment lifecycle,
+                             final String name) {
+        final TenantCache tenantCache = new TenantCache(database, maximumSize, expireAfterIdle, metrics, name);
+        lifecycle.manage(tenantCache);
+
+        return tenantCache;
+    }
+}
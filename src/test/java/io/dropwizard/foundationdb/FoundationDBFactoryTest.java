@@ -3,8 +3,11 @@ package io.dropwizard.foundationdb;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.io.Resources;
 import io.dropwizard.configuration.YamlConfigurationFactory;
+import io.dropwizard.foundationdb.profile.TransactionPriority;
+import io.dropwizard.foundationdb.profile.TransactionProfileFactory;
 import io.dropwizard.jackson.Jackson;
 import io.dropwizard.jersey.validation.Validators;
+import io.dropwizard.util.Duration;
 import org.junit.jupiter.api.Test;
 
 import java.io.File;
@@ -28,4 +31,32 @@ public class FoundationDBFactoryTest {
         assertThat(fdbFactory.getClusterFilePath())
                 .isEqualTo("src/test/resources/fdb_dev.cluster");
     }
+
+    @Test
+    public void shouldBuildAnInMemoryFoundationDBFactoryWithoutAClusterFile() throws Exception {
+        final File yml = new File(Resources.getResource("yml/in-memory.yml").toURI());
+        final FoundationDBFactory fdbFactory = factory.build(yml);
+        assertThat(fdbFactory.getType())
+                .isEqualTo(DatabaseType.IN_MEMORY);
+        assertThat(fdbFactory.getClusterFilePath())
+                .isNull();
+    }
+
+    @Test
+    public void shouldBuildTheTransactionProfiles() throws Exception {
+        final File yml = new File(Resources.getResource("yml/foundationdb.yml").toURI());
+        final FoundationDBFactory fdbFactory = factory.build(yml);
+        assertThat(fdbFactory.getProfiles())
+                .containsOnlyKeys("interactive", "batch");
+
+        final TransactionProfileFactory batch = fdbFactory.getProfiles().get("batch");
+        assertThat(batch.getPriority())
+                .isEqualTo(TransactionPriority.BATCH);
+        assertThat(batch.getTimeout())
+                .contains(Duration.seconds(30));
+        assertThat(batch.getRetryLimit())
+                .isEmpty();
+        assertThat(batch.isReadYourWritesDisable())
+                .isTrue();
+    }
 }
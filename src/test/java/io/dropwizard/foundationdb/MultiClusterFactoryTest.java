@@ -0,0 +1,44 @@
+package io.dropwizard.foundationdb;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.io.Resources;
+import io.dropwizard.configuration.YamlConfigurationFactory;
+import io.dropwizard.jackson.Jackson;
+import io.dropwizard.jersey.validation.Validators;
+import io.dropwizard.util.Duration;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+
+import jakarta.validation.Validator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MultiClusterFactoryTest {
+    private final ObjectMapper objectMapper = Jackson.newObjectMapper();
+    private final Validator validator = Validators.newValidator();
+    private final YamlConfigurationFactory<MultiClusterFactory> factory =
+            new YamlConfigurationFactory<>(MultiClusterFactory.class, validator, objectMapper, "dw");
+
+    @Test
+    public void shouldBuildAMultiClusterFactory() throws Exception {
+        final File yml = new File(Resources.getResource("yml/multi-cluster.yml").toURI());
+        final MultiClusterFactory multiClusterFactory = factory.build(yml);
+        assertThat(multiClusterFactory.getPrimary())
+                .isEqualTo("primary");
+        assertThat(multiClusterFactory.getClusters())
+                .containsOnlyKeys("primary", "replica");
+        assertThat(multiClusterFactory.getClusters().get("replica").getMaxReplicationLag())
+                .isEqualTo(Duration.seconds(5));
+    }
+
+    @Test
+    public void shouldRequireThePrimaryToBeACluster() throws Exception {
+        final File yml = new File(Resources.getResource("yml/multi-cluster.yml").toURI());
+        final MultiClusterFactory multiClusterFactory = factory.build(yml);
+        multiClusterFactory.setPrimary("unknown");
+
+        assertThat(validator.validate(multiClusterFactory))
+                .isNotEmpty();
+    }
+}
@@ -28,5 +28,7 @@ public class RecordLayerFactoryTest {
                 .isEqualTo("src/test/resources/fdb_dev.cluster");
         assertThat(fdbFactory.getInitialTransactionRetryDelay())
                 .isEqualTo(Duration.milliseconds(5));
+        assertThat(fdbFactory.getStoreStateCache())
+                .hasValueSatisfying(cacheConf -> assertThat(cacheConf.getMaximumSize()).isEqualTo(100L));
     }
 }
@@ -0,0 +1,182 @@
+package io.dropwizard.foundationdb.batch;
+
+import com.apple.foundationdb.Database;
+import com.apple.foundationdb.MutationType;
+import com.apple.foundationdb.Transaction;
+
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.util.Duration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+public class BatchingWriterTest {
+    private static final String NAME = "FoundationDB";
+    private static final byte[] KEY = {1, 2, 3, 4};
+    private static final byte[] VALUE = {5, 6, 7, 8};
+
+    @Mock
+    private Database database;
+    @Mock
+    private Transaction transaction;
+
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        lenient().when(database.getExecutor()).thenReturn(Runnable::run);
+        lenient().when(database.runAsync(any(), any())).thenAnswer(invocation ->
+                invocation.<Function<Transaction, CompletableFuture<?>>>getArgument(0).apply(transaction));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    public void shouldCommitMutationsTogether() {
+        final BatchingWriter writer = new BatchingWriter(database, scheduler, Duration.minutes(1), 1_000, 100,
+                metricRegistry, NAME);
+
+        final CompletableFuture<Void> first = writer.set(KEY, VALUE);
+        final CompletableFuture<Void> second = writer.clear(KEY);
+        final CompletableFuture<Void> third = writer.set(VALUE, KEY);
+
+        verify(database, never()).runAsync(any(), any());
+        assertThat(first)
+                .isNotDone();
+
+        writer.flush();
+
+        verify(database, times(1)).runAsync(any(), any());
+        verify(transaction).set(KEY, VALUE);
+        verify(transaction).clear(KEY);
+        verify(transaction).set(VALUE, KEY);
+        assertThat(CompletableFuture.allOf(first, second, third))
+                .isCompleted();
+        assertThat(metricRegistry.histogram(MetricRegistry.name(NAME, "batch", "mutations")).getSnapshot().getMax())
+                .isEqualTo(3L);
+    }
+
+    @Test
+    public void shouldCommitTheBatchWhenTheByteBudgetIsExceeded() {
+        final BatchingWriter writer = new BatchingWriter(database, scheduler, Duration.minutes(1), 30, 100,
+                metricRegistry, NAME);
+
+        final CompletableFuture<Void> first = writer.set(KEY, VALUE);
+        final CompletableFuture<Void> second = writer.set(VALUE, KEY);
+
+        verify(database, times(1)).runAsync(any(), any());
+        assertThat(first)
+                .isCompleted();
+        assertThat(second)
+                .isNotDone();
+    }
+
+    @Test
+    public void shouldCommitAfterTheLingerTime() {
+        final BatchingWriter writer = new BatchingWriter(database, scheduler, Duration.milliseconds(10), 1_000, 100,
+                metricRegistry, NAME);
+
+        writer.set(KEY, VALUE).join();
+
+        verify(database, times(1)).runAsync(any(), any());
+    }
+
+    @Test
+    public void shouldFlushPendingMutationsOnStop() throws Exception {
+        final BatchingWriter writer = new BatchingWriter(database, scheduler, Duration.minutes(1), 1_000, 100,
+                metricRegistry, NAME);
+
+        final CompletableFuture<Void> pending = writer.set(KEY, VALUE);
+
+        writer.stop();
+
+        assertThat(pending)
+                .isCompleted();
+        assertThat(writer.set(KEY, VALUE))
+                .isCompletedExceptionally();
+    }
+
+    @Test
+    public void shouldRejectOnlyTheMutationOverTheSizeLimits() {
+        final BatchingWriter writer = new BatchingWriter(database, scheduler, Duration.minutes(1), 1_000, 100,
+                metricRegistry, NAME);
+
+        final CompletableFuture<Void> accepted = writer.set(KEY, VALUE);
+        final CompletableFuture<Void> rejected = writer.set(KEY, new byte[BatchingWriter.MAX_VALUE_SIZE + 1]);
+
+        assertThat(rejected)
+                .isCompletedExceptionally();
+
+        writer.flush();
+
+        verify(transaction).set(KEY, VALUE);
+        assertThat(accepted)
+                .isCompleted();
+    }
+
+    @Test
+    public void shouldRejectNonIdempotentMutationsUnlessAllowed() {
+        final BatchingWriter writer = new BatchingWriter(database, scheduler, Duration.minutes(1), 1_000, 100,
+                metricRegistry, NAME);
+        final BatchingWriter allowingWriter = new BatchingWriter(database, scheduler, Duration.minutes(1), 1_000, 100,
+                true, metricRegistry, NAME + "-allowing");
+
+        assertThat(writer.mutate(MutationType.ADD, KEY, VALUE))
+                .isCompletedExceptionally();
+        assertThat(writer.mutate(MutationType.MAX, KEY, VALUE))
+                .isNotDone();
+        assertThat(allowingWriter.mutate(MutationType.ADD, KEY, VALUE))
+                .isNotDone();
+    }
+
+    @Test
+    public void shouldWaitOnStopForBatchesTakenButNotYetCommitted() throws Exception {
+        final CompletableFuture<Void> commit = new CompletableFuture<>();
+        doReturn(commit).when(database).runAsync(any(), any());
+        final BatchingWriter writer = new BatchingWriter(database, scheduler, Duration.minutes(1), 1_000, 1,
+                metricRegistry, NAME);
+
+        final CompletableFuture<Void> written = writer.set(KEY, VALUE);
+        final CompletableFuture<Void> stopped = CompletableFuture.runAsync(() -> {
+            try {
+                writer.stop();
+            } catch (final Exception e) {
+                throw new IllegalStateException(e);
+            }
+        });
+
+        assertThatThrownBy(() -> stopped.get(100, TimeUnit.MILLISECONDS))
+                .isInstanceOf(TimeoutException.class);
+
+        commit.complete(null);
+        stopped.join();
+
+        assertThat(written)
+                .isCompleted();
+    }
+}
@@ -0,0 +1,168 @@
+package io.dropwizard.foundationdb.cache;
+
+import com.apple.foundationdb.Database;
+import com.apple.foundationdb.FDBException;
+import com.apple.foundationdb.ReadTransaction;
+import com.apple.foundationdb.Transaction;
+import com.apple.foundationdb.tuple.Tuple;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.base.Ticker;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class CachingDatabaseTest {
+    private static final String NAME = "FoundationDB";
+    private static final byte[] CACHED_KEY = Tuple.from("flags", "enabled").pack();
+    private static final byte[] OTHER_KEY = Tuple.from("other", "key").pack();
+    private static final byte[] VALUE = Tuple.from("value").pack();
+
+    @Mock
+    private Database database;
+    @Mock
+    private Transaction transaction;
+
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+    private final AtomicLong nanos = new AtomicLong();
+    private CachingDatabase cachingDatabase;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        cachingDatabase = new CachingDatabase(database, List.of(Tuple.from("flags").pack()), 100, 10,
+                metricRegistry, NAME, new Ticker() {
+                    @Override
+                    public long read() {
+                        return nanos.get();
+                    }
+                });
+
+        lenient().when(database.runAsync(any(), any())).thenAnswer(invocation ->
+                invocation.<Function<Transaction, CompletableFuture<?>>>getArgument(0).apply(transaction));
+        lenient().when(database.run(any(), any())).thenAnswer(invocation ->
+                invocation.<Function<Transaction, ?>>getArgument(0).apply(transaction));
+        lenient().when(transaction.get(any())).thenReturn(CompletableFuture.completedFuture(VALUE));
+    }
+
+    @Test
+    public void shouldServeCachedKeysFromTheCacheUntilTheirWatchFires() {
+        final CompletableFuture<Void> watch = new CompletableFuture<>();
+        when(transaction.watch(CACHED_KEY)).thenReturn(watch);
+
+        assertThat(cachingDatabase.get(CACHED_KEY).join())
+                .isEqualTo(VALUE);
+        assertThat(cachingDatabase.get(CACHED_KEY).join())
+                .isEqualTo(VALUE);
+
+        verify(transaction, times(1)).get(CACHED_KEY);
+        assertThat(metricRegistry.meter(MetricRegistry.name(NAME, "cache", "hits")).getCount())
+                .isEqualTo(1L);
+        assertThat(metricRegistry.meter(MetricRegistry.name(NAME, "cache", "misses")).getCount())
+                .isEqualTo(1L);
+
+        watch.complete(null);
+        when(transaction.watch(CACHED_KEY)).thenReturn(new CompletableFuture<>());
+
+        assertThat(cachingDatabase.get(CACHED_KEY).join())
+                .isEqualTo(VALUE);
+
+        verify(transaction, times(2)).get(CACHED_KEY);
+    }
+
+    @Test
+    public void shouldInvalidateKeysWrittenThroughTheDatabase() {
+        when(transaction.watch(CACHED_KEY)).thenReturn(new CompletableFuture<>());
+
+        cachingDatabase.get(CACHED_KEY).join();
+        cachingDatabase.run(tr -> {
+            tr.set(CACHED_KEY, VALUE);
+            return null;
+        });
+        cachingDatabase.get(CACHED_KEY).join();
+
+        verify(transaction, times(2)).get(CACHED_KEY);
+        assertThat(metricRegistry.meter(MetricRegistry.name(NAME, "cache", "misses")).getCount())
+                .isEqualTo(2L);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldReadKeysOutsideTheCachedSubspacesDirectly() {
+        final ReadTransaction readTransaction = transaction;
+        when(database.readAsync(any(), any())).thenAnswer(invocation ->
+                invocation.<Function<ReadTransaction, CompletableFuture<?>>>getArgument(0).apply(readTransaction));
+
+        assertThat(cachingDatabase.isCached(OTHER_KEY))
+                .isFalse();
+        assertThat(cachingDatabase.get(OTHER_KEY).join())
+                .isEqualTo(VALUE);
+
+        verify(transaction, never()).watch(any());
+        assertThat(metricRegistry.meter(MetricRegistry.name(NAME, "cache", "misses")).getCount())
+                .isZero();
+    }
+
+    @Test
+    public void shouldNotCountReadsOfValuesStillLoadingAsHits() {
+        final CompletableFuture<byte[]> value = new CompletableFuture<>();
+        when(transaction.watch(CACHED_KEY)).thenReturn(new CompletableFuture<>());
+        when(transaction.get(CACHED_KEY)).thenReturn(value);
+
+        final CompletableFuture<byte[]> first = cachingDatabase.get(CACHED_KEY);
+        final CompletableFuture<byte[]> second = cachingDatabase.get(CACHED_KEY);
+        value.complete(VALUE);
+
+        assertThat(second.join())
+                .isEqualTo(first.join());
+        verify(transaction, times(1)).get(CACHED_KEY);
+        assertThat(metricRegistry.meter(MetricRegistry.name(NAME, "cache", "hits")).getCount())
+                .isZero();
+        assertThat(metricRegistry.meter(MetricRegistry.name(NAME, "cache", "misses")).getCount())
+                .isEqualTo(2L);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldRaiseTheWatchLimitBackAMinuteAfterTooManyWatches() {
+        final ReadTransaction readTransaction = transaction;
+        when(database.readAsync(any(), any())).thenAnswer(invocation ->
+                invocation.<Function<ReadTransaction, CompletableFuture<?>>>getArgument(0).apply(readTransaction));
+        when(transaction.watch(CACHED_KEY))
+                .thenReturn(CompletableFuture.failedFuture(new FDBException("too_many_watches", 1032)))
+                .thenReturn(new CompletableFuture<>());
+
+        cachingDatabase.get(CACHED_KEY).join();
+        cachingDatabase.get(CACHED_KEY).join();
+
+        assertThat(metricRegistry.meter(MetricRegistry.name(NAME, "cache", "fallbacks")).getCount())
+                .isEqualTo(1L);
+
+        nanos.addAndGet(TimeUnit.MINUTES.toNanos(1));
+        cachingDatabase.get(CACHED_KEY).join();
+        cachingDatabase.get(CACHED_KEY).join();
+
+        verify(transaction, times(2)).watch(CACHED_KEY);
+        assertThat(metricRegistry.meter(MetricRegistry.name(NAME, "cache", "fallbacks")).getCount())
+                .isEqualTo(1L);
+        assertThat(metricRegistry.meter(MetricRegistry.name(NAME, "cache", "hits")).getCount())
+                .isEqualTo(1L);
+    }
+}
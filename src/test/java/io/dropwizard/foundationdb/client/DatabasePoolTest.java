@@ -0,0 +1,117 @@
+package io.dropwizard.foundationdb.client;
+
+import com.apple.foundationdb.Database;
+import com.apple.foundationdb.DatabaseOptions;
+import com.apple.foundationdb.OptionConsumer;
+import com.apple.foundationdb.Transaction;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class DatabasePoolTest {
+    @Mock
+    private Database busy;
+    @Mock
+    private Database idle;
+
+    @Test
+    public void shouldSpreadTransactionsOverDatabasesOfTheSameBusyness() {
+        final List<Database> databases = List.of(mock(Database.class), mock(Database.class), mock(Database.class),
+                mock(Database.class));
+        for (final Database database : databases) {
+            when(database.createTransaction()).thenReturn(mock(Transaction.class));
+        }
+        final DatabasePool pool = new DatabasePool(databases);
+
+        final List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            transactions.add(pool.createTransaction());
+        }
+
+        // the transactions in flight steer the next ones to the other databases, without any new sample
+        assertThat(pool.getInFlight())
+                .allSatisfy(inFlight -> assertThat(inFlight).isBetween(90, 110));
+
+        transactions.forEach(Transaction::close);
+        assertThat(pool.getInFlight())
+                .containsOnly(0);
+    }
+
+    @Test
+    public void shouldHandMoreTransactionsToTheLessBusyDatabase() {
+        when(busy.getMainThreadBusyness()).thenReturn(0.9);
+        when(idle.getMainThreadBusyness()).thenReturn(0.1);
+        when(busy.createTransaction()).thenReturn(mock(Transaction.class));
+        when(idle.createTransaction()).thenReturn(mock(Transaction.class));
+        final DatabasePool pool = new DatabasePool(List.of(busy, idle));
+
+        assertThat(pool.sampleBusyness())
+                .containsExactly(0.9, 0.1);
+        assertThat(pool.getMainThreadBusyness())
+                .isEqualTo(0.5);
+        for (int i = 0; i < 100; i++) {
+            pool.createTransaction();
+        }
+
+        // both databases are used, the less busy one nine times as much
+        final int[] inFlight = pool.getInFlight();
+        assertThat(inFlight[0])
+                .isBetween(5, 15);
+        assertThat(inFlight[1])
+                .isEqualTo(100 - inFlight[0]);
+    }
+
+    @Test
+    public void shouldCountARetriedTransactionOnce() {
+        final Transaction transaction = mock(Transaction.class);
+        final Transaction retried = mock(Transaction.class);
+        when(idle.createTransaction()).thenReturn(transaction);
+        when(transaction.onError(any())).thenReturn(CompletableFuture.completedFuture(retried));
+        final DatabasePool pool = new DatabasePool(List.of(idle));
+
+        final Transaction pooled = pool.createTransaction();
+        final Transaction reset = pooled.onError(new RuntimeException()).join();
+        assertThat(pool.getInFlight())
+                .containsExactly(1);
+
+        reset.close();
+        pooled.close();
+        assertThat(pool.getInFlight())
+                .containsExactly(0);
+        verify(retried).close();
+    }
+
+    @Test
+    public void shouldApplyOptionsToEveryDatabase() {
+        final OptionConsumer busyOptions = mock(OptionConsumer.class);
+        final OptionConsumer idleOptions = mock(OptionConsumer.class);
+        when(busy.options()).thenReturn(new DatabaseOptions(busyOptions));
+        when(idle.options()).thenReturn(new DatabaseOptions(idleOptions));
+
+        new DatabasePool(List.of(busy, idle)).options().setDatacenterId("DC1");
+
+        verify(busyOptions).setOption(anyInt(), any());
+        verify(idleOptions).setOption(anyInt(), any());
+    }
+
+    @Test
+    public void shouldRequireAtLeastOneDatabase() {
+        assertThatThrownBy(() -> new DatabasePool(List.of()))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,57 @@
+package io.dropwizard.foundationdb.directory;
+
+import com.apple.foundationdb.Database;
+import com.apple.foundationdb.directory.DirectoryLayer;
+import com.apple.foundationdb.directory.DirectorySubspace;
+import com.apple.foundationdb.directory.NoSuchDirectoryException;
+
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.foundationdb.memory.InMemoryDatabase;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CompletionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class DirectoryCacheTest {
+    private static final String NAME = "FoundationDB";
+    private static final List<String> USERS = List.of("app", "users");
+
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+    private final Database database = new InMemoryDatabase(Runnable::run);
+    private final DirectoryCache directoryCache = new DirectoryCache(database, DirectoryLayer.getDefault(), 10,
+            metricRegistry, NAME);
+
+    @Test
+    public void shouldResolveAPathOnceWhileTheMetadataVersionIsUnchanged() {
+        final DirectorySubspace created = database.run(transaction ->
+                directoryCache.createOrOpen(transaction, USERS).join());
+        final DirectorySubspace opened = database.read(transaction -> directoryCache.open(transaction, USERS).join());
+        final DirectorySubspace cached = database.read(transaction -> directoryCache.open(transaction, USERS).join());
+
+        assertThat(opened.getKey())
+                .isEqualTo(created.getKey());
+        assertThat(cached)
+                .isSameAs(opened);
+        assertThat(metricRegistry.meter(MetricRegistry.name(NAME, "directoryCache", "misses")).getCount())
+                .isEqualTo(2L);
+        assertThat(metricRegistry.meter(MetricRegistry.name(NAME, "directoryCache", "hits")).getCount())
+                .isEqualTo(1L);
+    }
+
+    @Test
+    public void shouldResolveAPathAgainOnceItHasBeenMoved() {
+        database.run(transaction -> directoryCache.createOrOpen(transaction, USERS).join());
+        database.read(transaction -> directoryCache.open(transaction, USERS).join());
+
+        database.run(transaction -> directoryCache.move(transaction, USERS, List.of("app", "customers")).join());
+
+        assertThatThrownBy(() -> database.read(transaction -> directoryCache.open(transaction, USERS).join()))
+                .isInstanceOf(CompletionException.class)
+                .hasCauseInstanceOf(NoSuchDirectoryException.class);
+        assertThat(metricRegistry.meter(MetricRegistry.name(NAME, "directoryCache", "hits")).getCount())
+                .isZero();
+    }
+}
@@ -0,0 +1,100 @@
+package io.dropwizard.foundationdb.executor;
+
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.io.Resources;
+import io.dropwizard.configuration.YamlConfigurationFactory;
+import io.dropwizard.jackson.Jackson;
+import io.dropwizard.jersey.validation.Validators;
+import io.dropwizard.lifecycle.setup.LifecycleEnvironment;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import jakarta.validation.Validator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ExecutorFactoryTest {
+    private final ObjectMapper objectMapper = Jackson.newObjectMapper();
+    private final Validator validator = Validators.newValidator();
+    private final YamlConfigurationFactory<ExecutorFactory> factory =
+            new YamlConfigurationFactory<>(ExecutorFactory.class, validator, objectMapper, "dw");
+
+    @Test
+    public void shouldBuildAFixedThreadPoolExecutorFactory() throws Exception {
+        final File yml = new File(Resources.getResource("yml/executor.yml").toURI());
+        final ExecutorFactory executorFactory = factory.build(yml);
+        assertThat(executorFactory)
+                .isInstanceOf(FixedThreadPoolExecutorFactory.class);
+        final FixedThreadPoolExecutorFactory fixedFactory = (FixedThreadPoolExecutorFactory) executorFactory;
+        assertThat(fixedFactory.getThreads())
+                .isEqualTo(4);
+        assertThat(fixedFactory.getMaxQueueSize())
+                .isEqualTo(100);
+    }
+
+    @Test
+    public void shouldInstrumentTheExecutor() throws Exception {
+        final MetricRegistry metrics = new MetricRegistry();
+        final ExecutorService executor = new WorkStealingExecutorFactory()
+                .build(new LifecycleEnvironment(metrics), metrics, "FoundationDB");
+        try {
+            executor.submit(() -> null).get();
+        } finally {
+            executor.shutdown();
+            assertThat(executor.awaitTermination(10, TimeUnit.SECONDS))
+                    .isTrue();
+        }
+
+        assertThat(metrics.meter(MetricRegistry.name("FoundationDB", "executor", "completed")).getCount())
+                .isEqualTo(1L);
+        assertThat(metrics.getGauges())
+                .containsKey(MetricRegistry.name("FoundationDB", "executor", "queueDepth"));
+    }
+
+    @Test
+    public void shouldRejectTasksWhenTheQueueIsFull() throws Exception {
+        final FixedThreadPoolExecutorFactory executorFactory = new FixedThreadPoolExecutorFactory();
+        executorFactory.setThreads(1);
+        executorFactory.setMaxQueueSize(1);
+        final MetricRegistry metrics = new MetricRegistry();
+        final ExecutorService executor = executorFactory.build(new LifecycleEnvironment(metrics), metrics, "FoundationDB");
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch blocked = new CountDownLatch(1);
+        try {
+            final CompletableFuture<Void> running = CompletableFuture.runAsync(() -> {
+                started.countDown();
+                try {
+                    blocked.await();
+                } catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, executor);
+            assertThat(started.await(10, TimeUnit.SECONDS))
+                    .isTrue();
+            final CompletableFuture<Void> queued = CompletableFuture.runAsync(() -> { }, executor);
+
+            assertThatThrownBy(() -> executor.execute(() -> { }))
+                    .isInstanceOf(RejectedExecutionException.class);
+            assertThat(metrics.meter(MetricRegistry.name("FoundationDB", "executor", "rejected")).getCount())
+                    .isEqualTo(1L);
+            assertThat(metrics.getGauges().get(MetricRegistry.name("FoundationDB", "executor", "queueDepth")).getValue())
+                    .isEqualTo(1L);
+
+            blocked.countDown();
+
+            assertThat(CompletableFuture.allOf(running, queued))
+                    .succeedsWithin(10, TimeUnit.SECONDS);
+        } finally {
+            blocked.countDown();
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package io.dropwizard.foundationdb.health;
+
+import com.apple.foundationdb.Database;
+import com.apple.foundationdb.FDBException;
+import com.apple.foundationdb.ReadTransaction;
+import com.apple.foundationdb.TransactionOptions;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.health.HealthCheck;
+import io.dropwizard.util.Duration;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class ProbingHealthCheckTest {
+    private static final String NAME = "FoundationDB";
+
+    @Mock
+    private Database database;
+    @Mock
+    private ReadTransaction transaction;
+    @Mock
+    private TransactionOptions options;
+    @Mock
+    private ScheduledExecutorService scheduler;
+
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+
+    @Test
+    public void shouldBeUnhealthyBeforeTheFirstProbe() {
+        assertThat(healthCheck(Duration.seconds(1)).execute().isHealthy())
+                .isFalse();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldReturnTheResultOfTheLastProbe() {
+        when(database.readAsync(any(), any())).thenAnswer(invocation ->
+                invocation.<Function<ReadTransaction, CompletableFuture<?>>>getArgument(0).apply(transaction));
+        when(transaction.options()).thenReturn(options);
+        when(transaction.getReadVersion()).thenReturn(CompletableFuture.completedFuture(1L));
+        when(transaction.get(any())).thenReturn(CompletableFuture.completedFuture(null));
+
+        final ProbingHealthCheck healthCheck = healthCheck(Duration.seconds(1));
+        healthCheck.probe().join();
+        final HealthCheck.Result result = healthCheck.execute();
+
+        assertThat(result.isHealthy())
+                .isTrue();
+        assertThat(result.getDetails())
+                .containsEntry("state", "healthy");
+        assertThat(metricRegistry.histogram(MetricRegistry.name(NAME, "health", "probe", "readLatencyInNanos")).getCount())
+                .isEqualTo(1L);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldBeDegradedWhenTheProbeIsSlowerThanTheSlo() {
+        when(database.readAsync(any(), any())).thenAnswer(invocation ->
+                invocation.<Function<ReadTransaction, CompletableFuture<?>>>getArgument(0).apply(transaction));
+        when(transaction.options()).thenReturn(options);
+        when(transaction.getReadVersion()).thenReturn(CompletableFuture.supplyAsync(() -> {
+            try {
+                Thread.sleep(20);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return 1L;
+        }));
+        when(transaction.get(any())).thenReturn(CompletableFuture.completedFuture(null));
+
+        final ProbingHealthCheck healthCheck = healthCheck(Duration.milliseconds(1));
+        healthCheck.probe().join();
+        final HealthCheck.Result result = healthCheck.execute();
+
+        assertThat(result.isHealthy())
+                .isTrue();
+        assertThat(result.getDetails())
+                .containsEntry("state", "degraded");
+    }
+
+    @Test
+    public void shouldBeUnhealthyWhenTheProbeFails() {
+        when(database.readAsync(any(), any())).thenReturn(CompletableFuture.failedFuture(new FDBException("timed out", 1031)));
+
+        final ProbingHealthCheck healthCheck = healthCheck(Duration.seconds(1));
+        healthCheck.probe().join();
+
+        assertThat(healthCheck.execute().isHealthy())
+                .isFalse();
+    }
+
+    private ProbingHealthCheck healthCheck(final Duration latencySlo) {
+        return new ProbingHealthCheck(database, NAME, "health-checking", Duration.seconds(5), 5, scheduler,
+                Duration.seconds(5), latencySlo, false, metricRegistry);
+    }
+}
@@ -0,0 +1,52 @@
+package io.dropwizard.foundationdb.instrumented;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class AggregatingTimerTest {
+    @Test
+    public void shouldCountSamplesAtOnceAndOnlyUpdateTheSnapshotOnFlush() throws Exception {
+        final AggregatingTimer timer = new AggregatingTimer(4);
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            for (int i = 0; i < 8; i++) {
+                executor.execute(() -> {
+                    for (int j = 0; j < 1_000; j++) {
+                        timer.update(5, TimeUnit.MILLISECONDS);
+                    }
+                });
+            }
+        } finally {
+            executor.shutdown();
+            assertThat(executor.awaitTermination(10, TimeUnit.SECONDS))
+                    .isTrue();
+        }
+
+        assertThat(timer.getCount())
+                .isEqualTo(8_000L);
+        assertThat(timer.getSnapshot().size())
+                .isZero();
+
+        timer.flush();
+
+        assertThat(timer.getCount())
+                .isEqualTo(8_000L);
+        assertThat((double) timer.getSnapshot().getMax())
+                .isCloseTo(TimeUnit.MILLISECONDS.toNanos(5), within(TimeUnit.MILLISECONDS.toNanos(5) * 0.07));
+    }
+
+    @Test
+    public void shouldMapValuesToNearbyBuckets() {
+        for (long value = 1L; value < TimeUnit.MINUTES.toNanos(10); value = value * 3 + 1) {
+            final long bucketValue = AggregatingTimer.valueOf(AggregatingTimer.bucketOf(value));
+            assertThat((double) bucketValue)
+                    .isCloseTo(value, within(value * 0.07));
+        }
+    }
+}
@@ -1,20 +1,32 @@
 package io.dropwizard.foundationdb.instrumented;
 
 import com.apple.foundationdb.Database;
+import com.apple.foundationdb.FDBException;
+import com.apple.foundationdb.Transaction;
+import com.apple.foundationdb.TransactionOptions;
 import com.apple.foundationdb.tuple.Tuple;
 
 import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 import com.google.common.base.Throwables;
+import io.dropwizard.foundationdb.limit.ConcurrencyLimiter;
+import io.dropwizard.util.Duration;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.slf4j.MDC;
 
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -23,12 +35,19 @@ public class InstrumentedDatabaseTest {
 
     @Mock
     private Database database;
+    @Mock
+    private Transaction transaction;
+    @Mock
+    private TransactionOptions transactionOptions;
 
     @Test
     public void shouldRecordMetricsForInstrumentedDatabase() {
         final MetricRegistry metricRegistry = new MetricRegistry();
         final InstrumentedDatabase instrumentedDatabase = new InstrumentedDatabase(database, metricRegistry, NAME);
 
+        when(database.createTransaction(any())).thenReturn(transaction);
+        when(transaction.commit()).thenReturn(CompletableFuture.completedFuture(null));
+
         instrumentedDatabase.run((transaction) -> {
             transaction.set(Tuple.from("hello").pack(), Tuple.from("world").pack());
             return null;
@@ -36,13 +55,14 @@ public class InstrumentedDatabaseTest {
 
         assertThat(metricRegistry.timer(MetricRegistry.name(NAME, "run.timeInNanos")).getCount())
                 .isEqualTo(1L);
+        verify(transaction).close();
     }
 
     @Test
     public void shouldRecordMetricsForInstrumentedDatabaseAsyncCalls() throws InterruptedException, ExecutionException {
         final MetricRegistry metricRegistry = new MetricRegistry();
         final InstrumentedDatabase instrumentedDatabase = new InstrumentedDatabase(database, metricRegistry, NAME);
-        final CompletableFuture<Object> testFuture = CompletableFuture.supplyAsync(() -> {
+        final CompletableFuture<Void> testFuture = CompletableFuture.supplyAsync(() -> {
             try {
                 Thread.sleep(50);
             } catch (InterruptedException e) {
@@ -52,7 +72,8 @@ public class InstrumentedDatabaseTest {
             return null;
         });
 
-        when(database.runAsync(any(), any())).thenReturn(testFuture);
+        when(database.createTransaction(any())).thenReturn(transaction);
+        when(transaction.commit()).thenReturn(testFuture);
 
         instrumentedDatabase.runAsync((transaction) -> {
             transaction.set(Tuple.from("hello").pack(), Tuple.from("world").pack());
@@ -65,4 +86,139 @@ public class InstrumentedDatabaseTest {
         assertThat(metricRegistry.timer(runAsyncTimerName).getSnapshot().getMax())
                 .isGreaterThan(50L);
     }
+
+    @Test
+    public void shouldRecordRetriesAndErrorCodes() {
+        final MetricRegistry metricRegistry = new MetricRegistry();
+        final InstrumentedDatabase instrumentedDatabase = new InstrumentedDatabase(database, metricRegistry, NAME);
+        final AtomicInteger calls = new AtomicInteger();
+
+        // retry once after an error raised by the retryable, then once more after the commit conflicted
+        when(database.createTransaction(any())).thenReturn(transaction);
+        when(transaction.commit())
+                .thenReturn(CompletableFuture.failedFuture(new FDBException("not_committed", 1020)))
+                .thenReturn(CompletableFuture.completedFuture(null));
+        when(transaction.onError(any())).thenReturn(CompletableFuture.completedFuture(transaction));
+
+        instrumentedDatabase.run(tr -> {
+            if (calls.getAndIncrement() == 0) {
+                throw new FDBException("transaction_too_old", 1007);
+            }
+            return null;
+        });
+
+        assertThat(metricRegistry.histogram(MetricRegistry.name(NAME, "run", "attempts")).getSnapshot().getMax())
+                .isEqualTo(3L);
+        assertThat(metricRegistry.meter(MetricRegistry.name(NAME, "retries")).getCount())
+                .isEqualTo(2L);
+        assertThat(metricRegistry.meter(MetricRegistry.name(NAME, "retries", "commit")).getCount())
+                .isEqualTo(0L);
+        assertThat(metricRegistry.meter(MetricRegistry.name(NAME, "errors", "1007")).getCount())
+                .isEqualTo(1L);
+        assertThat(metricRegistry.meter(MetricRegistry.name(NAME, "errors", "1020")).getCount())
+                .isEqualTo(1L);
+    }
+
+    @Test
+    public void shouldRecordTheErrorCodesOfAsyncCommits() {
+        final MetricRegistry metricRegistry = new MetricRegistry();
+        final InstrumentedDatabase instrumentedDatabase = new InstrumentedDatabase(database, metricRegistry, NAME);
+
+        when(database.getExecutor()).thenReturn(Runnable::run);
+        when(database.createTransaction(any())).thenReturn(transaction);
+        when(transaction.commit())
+                .thenReturn(CompletableFuture.failedFuture(new FDBException("commit_unknown_result", 1021)));
+        when(transaction.onError(any()))
+                .thenReturn(CompletableFuture.failedFuture(new FDBException("commit_unknown_result", 1021)));
+
+        assertThatThrownBy(() -> instrumentedDatabase.runAsync(tr -> CompletableFuture.completedFuture(null)).join())
+                .hasCauseInstanceOf(FDBException.class);
+
+        assertThat(metricRegistry.meter(MetricRegistry.name(NAME, "errors", "1021")).getCount())
+                .isEqualTo(1L);
+        assertThat(metricRegistry.histogram(MetricRegistry.name(NAME, "runAsync", "attempts")).getSnapshot().getMax())
+                .isEqualTo(1L);
+        verify(transaction).close();
+    }
+
+    @Test
+    public void shouldTimeAndTagTheRetryLoopsOfAWorkload() {
+        final MetricRegistry metricRegistry = new MetricRegistry();
+        final WorkloadTags workloadTags = new WorkloadTags(metricRegistry, NAME, Timer::new, "workload", 1, true);
+        final InstrumentedDatabase instrumentedDatabase = InstrumentedDatabase.builder(database, metricRegistry, NAME)
+                .setWorkloadTags(workloadTags)
+                .build();
+
+        when(transaction.options()).thenReturn(transactionOptions);
+        when(database.createTransaction(any())).thenReturn(transaction);
+        when(transaction.commit()).thenReturn(CompletableFuture.completedFuture(null));
+
+        instrumentedDatabase.run("import", tr -> null);
+        MDC.put("workload", "export");
+        try {
+            instrumentedDatabase.run(tr -> null);
+        } finally {
+            MDC.remove("workload");
+        }
+
+        verify(transactionOptions).setAutoThrottleTag("import");
+        verify(transactionOptions).setAutoThrottleTag("export");
+        assertThat(metricRegistry.timer(MetricRegistry.name(NAME, "workloads", "import", "run.timeInNanos")).getCount())
+                .isEqualTo(1L);
+        assertThat(metricRegistry.timer(MetricRegistry.name(NAME, "workloads", "other", "run.timeInNanos")).getCount())
+                .isEqualTo(1L);
+        assertThat(metricRegistry.meter(MetricRegistry.name(NAME, "workloads", "overflow")).getCount())
+                .isEqualTo(1L);
+    }
+
+    @Test
+    public void shouldInvalidateTheReadVersionsOfTheDatabaseOnceAViewCommits() {
+        final MetricRegistry metricRegistry = new MetricRegistry();
+        final InstrumentedDatabase instrumentedDatabase = InstrumentedDatabase.builder(database, metricRegistry, NAME)
+                .setDefaultReadVersionStaleness(Duration.seconds(1))
+                .build();
+        final InstrumentedDatabase view = instrumentedDatabase.withTransactionOptions(
+                TransactionOptions::setPriorityBatch, metricRegistry, MetricRegistry.name(NAME, "profiles", "batch"),
+                Timer::new);
+        final Transaction readVersionTransaction = mock(Transaction.class);
+
+        when(transaction.options()).thenReturn(transactionOptions);
+        when(database.createTransaction(any())).thenReturn(transaction);
+        when(transaction.commit()).thenReturn(CompletableFuture.completedFuture(null));
+        when(database.createTransaction()).thenReturn(readVersionTransaction);
+        when(readVersionTransaction.getReadVersion()).thenReturn(CompletableFuture.completedFuture(42L),
+                CompletableFuture.completedFuture(43L));
+
+        instrumentedDatabase.read(tr -> null);
+        view.run(tr -> null);
+        instrumentedDatabase.read(tr -> null);
+
+        // the second read doesn't reuse the read version requested before the write made through the view
+        verify(transaction).setReadVersion(42L);
+        verify(transaction).setReadVersion(43L);
+        verify(database, times(2)).createTransaction();
+    }
+
+    @Test
+    public void shouldBackOffTheConcurrencyLimitWhenACommitIsThrottled() {
+        final MetricRegistry metricRegistry = new MetricRegistry();
+        final ConcurrencyLimiter limiter = new ConcurrencyLimiter(10, 1, 100, 0.5, Duration.seconds(10), 0,
+                Duration.seconds(1), metricRegistry, NAME);
+        final InstrumentedDatabase instrumentedDatabase = InstrumentedDatabase.builder(database, metricRegistry, NAME)
+                .setConcurrencyLimiter(limiter)
+                .build();
+
+        when(database.createTransaction(any())).thenReturn(transaction);
+        when(transaction.commit())
+                .thenReturn(CompletableFuture.failedFuture(new FDBException("tag_throttled", 1213)))
+                .thenReturn(CompletableFuture.completedFuture(null));
+        when(transaction.onError(any())).thenReturn(CompletableFuture.completedFuture(transaction));
+
+        instrumentedDatabase.run(tr -> null);
+
+        assertThat(metricRegistry.meter(MetricRegistry.name(NAME, "limiter", "backoffs")).getCount())
+                .isEqualTo(1L);
+        assertThat(limiter.getLimit())
+                .isEqualTo(5);
+    }
 }
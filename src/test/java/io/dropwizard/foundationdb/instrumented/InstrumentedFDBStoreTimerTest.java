@@ -0,0 +1,60 @@
+package io.dropwizard.foundationdb.instrumented;
+
+import com.apple.foundationdb.record.provider.foundationdb.FDBStoreTimer;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class InstrumentedFDBStoreTimerTest {
+    private static final String NAME = "RecordLayer";
+
+    @Test
+    public void shouldRecordEventsAndForwardThem() {
+        final MetricRegistry metricRegistry = new MetricRegistry();
+        final FDBStoreTimer timer = new FDBStoreTimer();
+        final InstrumentedFDBStoreTimer instrumentedTimer =
+                new InstrumentedFDBStoreTimer(timer, new StoreTimerMetrics(metricRegistry, NAME));
+
+        instrumentedTimer.record(FDBStoreTimer.Events.COMMIT, 1_000L);
+        instrumentedTimer.record(FDBStoreTimer.Events.COMMIT, 2_000L);
+        instrumentedTimer.increment(FDBStoreTimer.Counts.OPEN_CONTEXT, 3);
+
+        assertThat(metricRegistry.timer(MetricRegistry.name(NAME, FDBStoreTimer.Events.COMMIT.name())).getCount())
+                .isEqualTo(2L);
+        assertThat(metricRegistry.meter(MetricRegistry.name(NAME, "counts", FDBStoreTimer.Counts.OPEN_CONTEXT.name())).getCount())
+                .isEqualTo(3L);
+        assertThat(timer.getCount(FDBStoreTimer.Events.COMMIT))
+                .isEqualTo(2);
+        assertThat(timer.getCount(FDBStoreTimer.Counts.OPEN_CONTEXT))
+                .isEqualTo(3);
+    }
+
+    @Test
+    public void shouldForwardEventsToAWeaklyWrappedTimer() {
+        final MetricRegistry metricRegistry = new MetricRegistry();
+        final FDBStoreTimer timer = new FDBStoreTimer();
+        final InstrumentedFDBStoreTimer instrumentedTimer =
+                InstrumentedFDBStoreTimer.weaklyWrapping(timer, new StoreTimerMetrics(metricRegistry, NAME));
+
+        instrumentedTimer.record(FDBStoreTimer.Events.COMMIT, 1_000L);
+
+        assertThat(metricRegistry.timer(MetricRegistry.name(NAME, FDBStoreTimer.Events.COMMIT.name())).getCount())
+                .isEqualTo(1L);
+        assertThat(instrumentedTimer.getTimer())
+                .isSameAs(timer);
+        assertThat(timer.getCount(FDBStoreTimer.Events.COMMIT))
+                .isEqualTo(1);
+    }
+
+    @Test
+    public void shouldResolveEachEventOnce() {
+        final StoreTimerMetrics storeTimerMetrics = new StoreTimerMetrics(new MetricRegistry(), NAME);
+
+        assertThat(storeTimerMetrics.timer(FDBStoreTimer.Events.COMMIT))
+                .isSameAs(storeTimerMetrics.timer(FDBStoreTimer.Events.COMMIT));
+        assertThat(storeTimerMetrics.meter(FDBStoreTimer.Counts.OPEN_CONTEXT))
+                .isSameAs(storeTimerMetrics.meter(FDBStoreTimer.Counts.OPEN_CONTEXT));
+    }
+}
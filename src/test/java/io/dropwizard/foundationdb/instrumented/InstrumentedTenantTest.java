@@ -0,0 +1,59 @@
+package io.dropwizard.foundationdb.instrumented;
+
+import com.apple.foundationdb.Database;
+import com.apple.foundationdb.Tenant;
+import com.apple.foundationdb.tuple.ByteArrayUtil;
+import com.apple.foundationdb.tuple.Tuple;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class InstrumentedTenantTest {
+    private static final String NAME = "FoundationDB";
+
+    @Mock
+    private Database database;
+    @Mock
+    private Tenant firstTenant;
+    @Mock
+    private Tenant secondTenant;
+
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+
+    @Test
+    public void shouldRecordMetricsPerTenantUpToTheLimit() {
+        final byte[] firstName = Tuple.from("first").pack();
+        final byte[] secondName = Tuple.from("second").pack();
+        when(database.openTenant(any(Tuple.class))).thenReturn(firstTenant, secondTenant);
+        when(firstTenant.getName()).thenReturn(firstName);
+        when(secondTenant.getName()).thenReturn(secondName);
+
+        final InstrumentedDatabase instrumentedDatabase = InstrumentedDatabase.builder(database, metricRegistry, NAME)
+                .setMaxTenantMetrics(1)
+                .build();
+        final Tenant first = instrumentedDatabase.openTenant(Tuple.from("first"));
+        final Tenant second = instrumentedDatabase.openTenant(Tuple.from("second"));
+
+        assertThat(first)
+                .isInstanceOf(InstrumentedTenant.class);
+
+        first.run(transaction -> null);
+        second.run(transaction -> null);
+
+        assertThat(metricRegistry.timer(MetricRegistry.name(NAME, "tenants", ByteArrayUtil.printable(firstName),
+                "run.timeInNanos")).getCount())
+                .isEqualTo(1L);
+        assertThat(metricRegistry.timer(MetricRegistry.name(NAME, "tenants", "other", "run.timeInNanos")).getCount())
+                .isEqualTo(1L);
+        assertThat(metricRegistry.meter(MetricRegistry.name(NAME, "tenants", "overflow")).getCount())
+                .isEqualTo(1L);
+    }
+}
@@ -0,0 +1,92 @@
+package io.dropwizard.foundationdb.instrumented;
+
+import com.apple.foundationdb.Database;
+import com.apple.foundationdb.Transaction;
+import com.apple.foundationdb.tuple.Tuple;
+
+import com.codahale.metrics.MetricRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class InstrumentedTransactionTest {
+    private static final String NAME = "FoundationDB";
+
+    @Mock
+    private Database database;
+    @Mock
+    private Transaction transaction;
+
+    private MetricRegistry metricRegistry;
+    private InstrumentedDatabase instrumentedDatabase;
+
+    @BeforeEach
+    public void setUp() {
+        metricRegistry = new MetricRegistry();
+        instrumentedDatabase = new InstrumentedDatabase(database, metricRegistry, NAME);
+    }
+
+    @Test
+    public void shouldInstrumentCreatedTransactions() {
+        when(database.createTransaction()).thenReturn(transaction);
+
+        assertThat(instrumentedDatabase.createTransaction())
+                .isInstanceOf(InstrumentedTransaction.class);
+    }
+
+    @Test
+    public void shouldRecordReadMetrics() throws Exception {
+        final byte[] key = Tuple.from("hello").pack();
+        final byte[] value = Tuple.from("world").pack();
+        when(database.createTransaction()).thenReturn(transaction);
+        when(transaction.get(key)).thenReturn(CompletableFuture.completedFuture(value));
+        when(transaction.getReadVersion()).thenReturn(CompletableFuture.completedFuture(42L));
+
+        final Transaction instrumentedTransaction = instrumentedDatabase.createTransaction();
+        assertThat(instrumentedTransaction.getReadVersion().get())
+                .isEqualTo(42L);
+        assertThat(instrumentedTransaction.get(key).get())
+                .isEqualTo(value);
+
+        assertThat(metricRegistry.timer(MetricRegistry.name(NAME, "transaction", "getReadVersion.timeInNanos")).getCount())
+                .isEqualTo(1L);
+        assertThat(metricRegistry.timer(MetricRegistry.name(NAME, "transaction", "get.timeInNanos")).getCount())
+                .isEqualTo(1L);
+        assertThat(metricRegistry.meter(MetricRegistry.name(NAME, "transaction", "keysRead")).getCount())
+                .isEqualTo(1L);
+        assertThat(metricRegistry.meter(MetricRegistry.name(NAME, "transaction", "bytesRead")).getCount())
+                .isEqualTo(key.length + value.length);
+    }
+
+    @Test
+    public void shouldRecordWriteAndCommitMetrics() throws Exception {
+        final byte[] key = Tuple.from("hello").pack();
+        final byte[] value = Tuple.from("world").pack();
+        when(database.createTransaction()).thenReturn(transaction);
+        when(transaction.getApproximateSize()).thenReturn(CompletableFuture.completedFuture(128L));
+        when(transaction.commit()).thenReturn(CompletableFuture.completedFuture(null));
+
+        final Transaction instrumentedTransaction = instrumentedDatabase.createTransaction();
+        instrumentedTransaction.set(key, value);
+        instrumentedTransaction.commit().get();
+
+        verify(transaction).set(key, value);
+        assertThat(metricRegistry.meter(MetricRegistry.name(NAME, "transaction", "keysWritten")).getCount())
+                .isEqualTo(1L);
+        assertThat(metricRegistry.meter(MetricRegistry.name(NAME, "transaction", "bytesWritten")).getCount())
+                .isEqualTo(key.length + value.length);
+        assertThat(metricRegistry.timer(MetricRegistry.name(NAME, "transaction", "commit.timeInNanos")).getCount())
+                .isEqualTo(1L);
+        assertThat(metricRegistry.histogram(MetricRegistry.name(NAME, "transaction", "approximateSize")).getSnapshot().getMax())
+                .isEqualTo(128L);
+    }
+}
@@ -0,0 +1,37 @@
+package io.dropwizard.foundationdb.instrumented;
+
+import com.apple.foundationdb.tuple.Tuple;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MetricNamesTest {
+    @Test
+    public void shouldKeepLettersDigitsAndDashes() {
+        assertThat(MetricNames.escape("acme-42"))
+                .isEqualTo("acme-42");
+    }
+
+    @Test
+    public void shouldEscapeEveryOtherByte() {
+        assertThat(MetricNames.escape("a.b c_d"))
+                .isEqualTo("a_2eb_20c_5fd");
+        assertThat(MetricNames.escape(Tuple.from("acme").pack()))
+                .isEqualTo("_02acme_00");
+    }
+
+    @Test
+    public void shouldReserveTheNameOfTheNamesOverTheLimit() {
+        assertThat(MetricNames.escape("other"))
+                .isEqualTo("_6fther");
+        assertThat(MetricNames.escape("others"))
+                .isEqualTo("others");
+    }
+
+    @Test
+    public void shouldNeverEscapeTwoNamesAlike() {
+        assertThat(MetricNames.escape("a_2e"))
+                .isNotEqualTo(MetricNames.escape("a."));
+    }
+}
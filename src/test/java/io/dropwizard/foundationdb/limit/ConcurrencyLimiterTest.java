@@ -0,0 +1,82 @@
+package io.dropwizard.foundationdb.limit;
+
+import com.apple.foundationdb.FDBException;
+
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.util.Duration;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ConcurrencyLimiterTest {
+    private static final String NAME = "FoundationDB";
+
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+
+    @Test
+    public void shouldRejectRightAwayWithoutAQueue() {
+        final ConcurrencyLimiter limiter = limiter(1, 0);
+
+        limiter.acquire().join();
+
+        assertThatThrownBy(() -> limiter.acquire().join())
+                .isInstanceOf(CompletionException.class)
+                .hasCauseInstanceOf(RejectedExecutionException.class);
+        assertThat(metricRegistry.meter(MetricRegistry.name(NAME, "limiter", "rejected")).getCount())
+                .isEqualTo(1L);
+    }
+
+    @Test
+    public void shouldGrantQueuedLoopsOnceAPermitIsReleased() {
+        final ConcurrencyLimiter limiter = limiter(1, 1);
+
+        final ConcurrencyLimiter.Permit first = limiter.acquire().join();
+        final CompletableFuture<ConcurrencyLimiter.Permit> second = limiter.acquire();
+
+        assertThat(second)
+                .isNotDone();
+        assertThat(limiter.getQueued())
+                .isEqualTo(1);
+
+        first.release(null);
+
+        assertThat(second)
+                .isCompletedWithValueMatching(permit -> permit != null);
+        assertThat(limiter.getInFlight())
+                .isEqualTo(1);
+    }
+
+    @Test
+    public void shouldBackOffWhenAnAttemptIsThrottled() {
+        final ConcurrencyLimiter limiter = limiter(10, 0);
+
+        final String result = limiter.<Object, String>limit(context -> {
+            throw new FDBException("tag_throttled", 1213);
+        }, retryable -> {
+            try {
+                return retryable.apply(new Object());
+            } catch (final FDBException e) {
+                return "retried";
+            }
+        });
+
+        assertThat(result)
+                .isEqualTo("retried");
+        assertThat(limiter.getLimit())
+                .isEqualTo(9);
+        assertThat(limiter.getInFlight())
+                .isZero();
+        assertThat(metricRegistry.meter(MetricRegistry.name(NAME, "limiter", "backoffs")).getCount())
+                .isEqualTo(1L);
+    }
+
+    private ConcurrencyLimiter limiter(final int initialLimit, final int maxQueueSize) {
+        return new ConcurrencyLimiter(initialLimit, 1, 100, 0.9, Duration.seconds(10), maxQueueSize,
+                Duration.seconds(10), metricRegistry, NAME);
+    }
+}
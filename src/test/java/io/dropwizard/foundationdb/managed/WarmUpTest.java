@@ -0,0 +1,71 @@
+package io.dropwizard.foundationdb.managed;
+
+import com.apple.foundationdb.Database;
+import com.apple.foundationdb.directory.DirectoryLayer;
+
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.foundationdb.directory.DirectoryCache;
+import io.dropwizard.foundationdb.memory.InMemoryDatabase;
+import io.dropwizard.util.Duration;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class WarmUpTest {
+    private static final String NAME = "FoundationDB";
+
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+    private final Database database = new InMemoryDatabase(Runnable::run);
+
+    @Test
+    public void shouldResolveEveryDirectory() {
+        final List<List<String>> resolved = new ArrayList<>();
+        final WarmUp warmUp = new WarmUp(List.of(database), List.of(List.of("app", "users"), List.of("app", "orders")),
+                path -> {
+                    resolved.add(path);
+                    return CompletableFuture.completedFuture(null);
+                }, List.of(), Duration.seconds(5), metricRegistry, NAME);
+
+        warmUp.run();
+
+        assertThat(resolved)
+                .containsExactly(List.of("app", "users"), List.of("app", "orders"));
+        assertThat(metricRegistry.timer(MetricRegistry.name(NAME, "warmUp.timeInNanos")).getCount())
+                .isEqualTo(1L);
+        assertThat(metricRegistry.meter(MetricRegistry.name(NAME, "warmUp.failures")).getCount())
+                .isZero();
+    }
+
+    @Test
+    public void shouldGiveUpOnceTheTimeoutHasPassed() {
+        final WarmUp warmUp = new WarmUp(List.of(database), List.of(List.of("app")),
+                path -> new CompletableFuture<>(), List.of(), Duration.milliseconds(50), metricRegistry, NAME);
+
+        warmUp.run();
+
+        assertThat(metricRegistry.meter(MetricRegistry.name(NAME, "warmUp.failures")).getCount())
+                .isEqualTo(1L);
+    }
+
+    @Test
+    public void shouldOpenTheExistingDirectoriesIntoTheDirectoryCacheWithoutCreatingTheOthers() {
+        final DirectoryCache directoryCache = new DirectoryCache(database, DirectoryLayer.getDefault(), 10,
+                metricRegistry, NAME);
+        database.run(transaction -> DirectoryLayer.getDefault().create(transaction, List.of("app", "users")).join());
+        final WarmUpFactory warmUpFactory = new WarmUpFactory();
+        warmUpFactory.setDirectories(List.of(List.of("app", "users"), List.of("app", "orders")));
+
+        warmUpFactory.build(List.of(database), directoryCache, metricRegistry, NAME).run();
+
+        assertThat(directoryCache.size())
+                .isEqualTo(1L);
+        assertThat(DirectoryLayer.getDefault().exists(database, List.of("app", "orders")).join())
+                .isFalse();
+        assertThat(metricRegistry.meter(MetricRegistry.name(NAME, "warmUp.failures")).getCount())
+                .isZero();
+    }
+}
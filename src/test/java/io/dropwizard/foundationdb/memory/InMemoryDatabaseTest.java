@@ -0,0 +1,179 @@
+package io.dropwizard.foundationdb.memory;
+
+import com.apple.foundationdb.FDBException;
+import com.apple.foundationdb.KeyValue;
+import com.apple.foundationdb.MutationType;
+import com.apple.foundationdb.Range;
+import com.apple.foundationdb.Transaction;
+import com.apple.foundationdb.tuple.Tuple;
+
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.foundationdb.scan.RangeScanner;
+import io.dropwizard.util.Duration;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class InMemoryDatabaseTest {
+    private static final Range RANGE = Range.startsWith(Tuple.from("memory").pack());
+
+    private final InMemoryDatabase database = new InMemoryDatabase(Runnable::run);
+
+    @Test
+    public void shouldReadItsOwnWritesOverTheCommittedValues() {
+        database.run(transaction -> {
+            for (int i = 0; i < 4; i++) {
+                transaction.set(key(i), Tuple.from(i).pack());
+            }
+            return null;
+        });
+
+        final List<Long> values = database.run(transaction -> {
+            transaction.clear(key(1));
+            transaction.set(key(5), Tuple.from(5).pack());
+            return transaction.getRange(RANGE).asList().join().stream()
+                    .map(keyValue -> Tuple.fromBytes(keyValue.getValue()).getLong(0))
+                    .collect(Collectors.toList());
+        });
+
+        assertThat(values)
+                .containsExactly(0L, 2L, 3L, 5L);
+        assertThat(database.read(transaction -> transaction.get(key(1)).join()))
+                .isNull();
+    }
+
+    @Test
+    public void shouldNotCommitATransactionWhoseReadsWereOverwritten() {
+        database.run(transaction -> {
+            transaction.set(key(0), Tuple.from(0).pack());
+            return null;
+        });
+
+        final Transaction reader = database.createTransaction();
+        reader.get(key(0)).join();
+        reader.set(key(1), Tuple.from(1).pack());
+
+        database.run(transaction -> {
+            transaction.set(key(0), Tuple.from(10).pack());
+            return null;
+        });
+
+        assertThatThrownBy(() -> reader.commit().join())
+                .isInstanceOf(CompletionException.class)
+                .hasCauseInstanceOf(FDBException.class)
+                .hasRootCauseMessage("not_committed");
+        assertThat(database.read(transaction -> transaction.get(key(1)).join()))
+                .isNull();
+    }
+
+    @Test
+    public void shouldCommitASnapshotReadWhoseKeyWasOverwritten() {
+        final Transaction reader = database.createTransaction();
+        reader.snapshot().get(key(0)).join();
+        reader.set(key(1), Tuple.from(1).pack());
+
+        database.run(transaction -> {
+            transaction.set(key(0), Tuple.from(10).pack());
+            return null;
+        });
+
+        reader.commit().join();
+
+        assertThat(reader.getCommittedVersion())
+                .isEqualTo(database.getVersion());
+    }
+
+    @Test
+    public void shouldRetryConflictingTransactions() {
+        final AtomicInteger attempts = new AtomicInteger();
+
+        database.run(transaction -> {
+            transaction.get(key(0)).join();
+            if (attempts.incrementAndGet() == 1) {
+                database.run(other -> {
+                    other.set(key(0), Tuple.from(1).pack());
+                    return null;
+                });
+            }
+            transaction.set(key(1), Tuple.from(1).pack());
+            return null;
+        });
+
+        assertThat(attempts)
+                .hasValue(2);
+    }
+
+    @Test
+    public void shouldApplyAtomicOperationsAtCommit() {
+        for (int i = 0; i < 3; i++) {
+            database.run(transaction -> {
+                transaction.mutate(MutationType.ADD, key(0), littleEndian(5));
+                return null;
+            });
+        }
+
+        final List<KeyValue> keyValues = database.read(transaction -> transaction.getRange(RANGE).asList().join());
+
+        assertThat(keyValues)
+                .hasSize(1);
+        assertThat(ByteBuffer.wrap(keyValues.get(0).getValue()).order(ByteOrder.LITTLE_ENDIAN).getLong())
+                .isEqualTo(15L);
+    }
+
+    @Test
+    public void shouldSplitARangeIntoChunksOfTheGivenSize() {
+        database.run(transaction -> {
+            for (int i = 0; i < 10; i++) {
+                transaction.set(key(i), new byte[100]);
+            }
+            return null;
+        });
+
+        final List<byte[]> splitPoints = database.read(transaction ->
+                transaction.getRangeSplitPoints(RANGE, 250).join().getKeys());
+
+        assertThat(splitPoints)
+                .containsExactly(RANGE.begin, key(3), key(6), key(9), RANGE.end);
+    }
+
+    @Test
+    public void shouldBeScannedInShards() {
+        final MetricRegistry metricRegistry = new MetricRegistry();
+        database.run(transaction -> {
+            for (int i = 0; i < 100; i++) {
+                transaction.set(key(i), Tuple.from(i).pack());
+            }
+            return null;
+        });
+        final RangeScanner scanner = new RangeScanner(database, Runnable::run, 2, 1, Duration.seconds(3),
+                metricRegistry, "FoundationDB");
+
+        final List<KeyValue> scanned = Collections.synchronizedList(new ArrayList<>());
+        scanner.scan(RANGE, scanned::add).join();
+
+        assertThat(scanned)
+                .extracting(keyValue -> Tuple.fromBytes(keyValue.getKey()).getLong(1))
+                .containsExactlyInAnyOrderElementsOf(LongStream.range(0, 100).boxed().collect(Collectors.toList()));
+        assertThat(metricRegistry.timer(MetricRegistry.name("FoundationDB", "scan", "shard.timeInNanos")).getCount())
+                .isGreaterThan(1L);
+    }
+
+    private static byte[] key(final int i) {
+        return Tuple.from("memory", i).pack();
+    }
+
+    private static byte[] littleEndian(final long value) {
+        return ByteBuffer.allocate(Long.BYTES).order(ByteOrder.LITTLE_ENDIAN).putLong(value).array();
+    }
+}
@@ -0,0 +1,70 @@
+package io.dropwizard.foundationdb.metadata;
+
+import com.apple.foundationdb.Database;
+import com.apple.foundationdb.ReadTransaction;
+import com.apple.foundationdb.tuple.Tuple;
+
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.foundationdb.memory.InMemoryDatabase;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MetadataVersionCacheTest {
+    private static final String NAME = "FoundationDB.metadataCaches.routing";
+    private static final byte[] ROUTING_KEY = Tuple.from("routing", "users").pack();
+
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+    private final Database database = new InMemoryDatabase(Runnable::run);
+    private final MetadataVersionCache<String, String> cache = new MetadataVersionCache<>(database, 10, metricRegistry,
+            NAME);
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @BeforeEach
+    public void setUp() {
+        cache.update(transaction -> {
+            transaction.set(ROUTING_KEY, Tuple.from("cluster-a").pack());
+            return CompletableFuture.completedFuture(null);
+        }).join();
+    }
+
+    @Test
+    public void shouldLoadOnceWhileTheMetadataVersionIsUnchanged() {
+        assertThat(cache.get("users", this::load).join())
+                .isEqualTo("cluster-a");
+        assertThat(cache.get("users", this::load).join())
+                .isEqualTo("cluster-a");
+
+        assertThat(loads)
+                .hasValue(1);
+        assertThat(metricRegistry.meter(MetricRegistry.name(NAME, "hits")).getCount())
+                .isEqualTo(1L);
+        assertThat(metricRegistry.meter(MetricRegistry.name(NAME, "misses")).getCount())
+                .isEqualTo(1L);
+    }
+
+    @Test
+    public void shouldLoadAgainOnceAnUpdateHasBumpedTheMetadataVersion() {
+        cache.get("users", this::load).join();
+
+        cache.update(transaction -> {
+            transaction.set(ROUTING_KEY, Tuple.from("cluster-b").pack());
+            return CompletableFuture.completedFuture(null);
+        }).join();
+
+        assertThat(cache.get("users", this::load).join())
+                .isEqualTo("cluster-b");
+        assertThat(loads)
+                .hasValue(2);
+    }
+
+    private CompletableFuture<String> load(final ReadTransaction transaction, final String key) {
+        loads.incrementAndGet();
+        return transaction.get(Tuple.from("routing", key).pack())
+                .thenApply(value -> Tuple.fromBytes(value).getString(0));
+    }
+}
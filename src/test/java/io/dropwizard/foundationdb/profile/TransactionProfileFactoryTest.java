@@ -0,0 +1,89 @@
+package io.dropwizard.foundationdb.profile;
+
+import com.apple.foundationdb.Database;
+import com.apple.foundationdb.FDBException;
+import com.apple.foundationdb.Transaction;
+import com.apple.foundationdb.TransactionOptions;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import io.dropwizard.foundationdb.instrumented.InstrumentedDatabase;
+import io.dropwizard.util.Duration;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class TransactionProfileFactoryTest {
+    private static final String NAME = "FoundationDB.profiles.batch";
+
+    @Mock
+    private Database database;
+    @Mock
+    private Transaction transaction;
+    @Mock
+    private TransactionOptions options;
+
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+
+    @Test
+    public void shouldOnlySetTheConfiguredOptions() {
+        final TransactionProfileFactory profileFactory = new TransactionProfileFactory();
+        profileFactory.setPriority(TransactionPriority.BATCH);
+        profileFactory.setTimeout(Optional.of(Duration.seconds(30)));
+        profileFactory.setCausalReadRisky(true);
+
+        profileFactory.applyTo(options);
+
+        verify(options).setPriorityBatch();
+        verify(options).setTimeout(30_000L);
+        verify(options).setCausalReadRisky();
+        verifyNoMoreInteractions(options);
+    }
+
+    @Test
+    public void shouldSetTheOptionsOnEveryAttempt() {
+        final TransactionProfileFactory profileFactory = new TransactionProfileFactory();
+        profileFactory.setPriority(TransactionPriority.BATCH);
+        final InstrumentedDatabase instrumentedDatabase = new InstrumentedDatabase(database, metricRegistry,
+                "FoundationDB");
+        final InstrumentedDatabase profileDatabase = profileFactory.build(instrumentedDatabase, metricRegistry,
+                Timer::new, NAME);
+
+        when(transaction.options()).thenReturn(options);
+        when(database.createTransaction(any())).thenReturn(transaction);
+        when(transaction.commit()).thenReturn(CompletableFuture.completedFuture(null));
+        // retried, as the retry loop of the database would
+        when(transaction.onError(any())).thenReturn(CompletableFuture.completedFuture(transaction));
+
+        final int[] attempts = {0};
+        final String result = profileDatabase.run(tr -> {
+            if (attempts[0]++ == 0) {
+                throw new FDBException("not_committed", 1020);
+            }
+            return "committed";
+        });
+
+        assertThat(result)
+                .isEqualTo("committed");
+        verify(options, times(2)).setPriorityBatch();
+        assertThat(metricRegistry.timer(MetricRegistry.name(NAME, "run.timeInNanos")).getCount())
+                .isEqualTo(1L);
+        // the transactions are instrumented once, by the database the profile applies to
+        assertThat(metricRegistry.timer(MetricRegistry.name("FoundationDB", "run.timeInNanos")).getCount())
+                .isEqualTo(0L);
+        assertThat(metricRegistry.getNames())
+                .noneMatch(metric -> metric.startsWith(NAME + ".transaction"));
+    }
+}
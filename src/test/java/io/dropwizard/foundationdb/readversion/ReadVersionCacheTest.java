@@ -0,0 +1,106 @@
+package io.dropwizard.foundationdb.readversion;
+
+import com.apple.foundationdb.Database;
+import com.apple.foundationdb.Transaction;
+import com.apple.foundationdb.TransactionOptions;
+
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.util.Duration;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class ReadVersionCacheTest {
+    private static final String NAME = "FoundationDB";
+    private static final Duration STALENESS = Duration.minutes(1);
+
+    @Mock
+    private Database database;
+    @Mock
+    private Transaction transaction;
+
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+
+    @Test
+    public void shouldShareReadVersionsWithinTheStaleness() {
+        final CompletableFuture<Long> readVersion = new CompletableFuture<>();
+        when(database.createTransaction()).thenReturn(transaction);
+        when(transaction.getReadVersion()).thenReturn(readVersion);
+        final ReadVersionCache cache = new ReadVersionCache(database, STALENESS, metricRegistry, NAME);
+
+        final CompletableFuture<Long> first = cache.getReadVersion(STALENESS);
+        final CompletableFuture<Long> second = cache.getReadVersion(STALENESS);
+        readVersion.complete(42L);
+
+        assertThat(first.join())
+                .isEqualTo(42L);
+        assertThat(second.join())
+                .isEqualTo(42L);
+        assertThat(cache.getReadVersion(STALENESS).join())
+                .isEqualTo(42L);
+
+        verify(database, times(1)).createTransaction();
+        verify(transaction).close();
+        assertThat(metricRegistry.meter(MetricRegistry.name(NAME, "readVersionCache", "fetched")).getCount())
+                .isEqualTo(1L);
+        assertThat(metricRegistry.meter(MetricRegistry.name(NAME, "readVersionCache", "saved")).getCount())
+                .isEqualTo(2L);
+        assertThat(metricRegistry.histogram(MetricRegistry.name(NAME, "readVersionCache", "ageInNanos")).getCount())
+                .isEqualTo(1L);
+    }
+
+    @Test
+    public void shouldRequestANewReadVersionOnceInvalidated() {
+        when(database.createTransaction()).thenReturn(transaction);
+        when(transaction.getReadVersion()).thenReturn(CompletableFuture.completedFuture(42L),
+                CompletableFuture.completedFuture(43L));
+        final ReadVersionCache cache = new ReadVersionCache(database, STALENESS, metricRegistry, NAME);
+
+        assertThat(cache.getReadVersion(STALENESS).join())
+                .isEqualTo(42L);
+
+        cache.invalidate();
+
+        assertThat(cache.getReadVersion(STALENESS).join())
+                .isEqualTo(43L);
+        verify(database, times(2)).createTransaction();
+    }
+
+    @Test
+    public void shouldNotShareFailedReadVersionRequests() {
+        when(database.createTransaction()).thenReturn(transaction);
+        when(transaction.getReadVersion()).thenReturn(CompletableFuture.failedFuture(new IllegalStateException()),
+                CompletableFuture.completedFuture(43L));
+        final ReadVersionCache cache = new ReadVersionCache(database, STALENESS, metricRegistry, NAME);
+
+        assertThat(cache.getReadVersion(STALENESS))
+                .isCompletedExceptionally();
+        assertThat(cache.getReadVersion(STALENESS).join())
+                .isEqualTo(43L);
+    }
+
+    @Test
+    public void shouldRequestReadVersionsWithTheOptionsOfTheDatabase() {
+        final TransactionOptions options = mock(TransactionOptions.class);
+        when(database.createTransaction()).thenReturn(transaction);
+        when(transaction.options()).thenReturn(options);
+        when(transaction.getReadVersion()).thenReturn(CompletableFuture.completedFuture(42L));
+        final ReadVersionCache cache = new ReadVersionCache(database, STALENESS, TransactionOptions::setPriorityBatch,
+                metricRegistry, NAME);
+
+        assertThat(cache.getReadVersion(STALENESS).join())
+                .isEqualTo(42L);
+
+        verify(options).setPriorityBatch();
+    }
+}
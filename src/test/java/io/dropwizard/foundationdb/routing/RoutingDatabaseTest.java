@@ -0,0 +1,145 @@
+package io.dropwizard.foundationdb.routing;
+
+import com.apple.foundationdb.Database;
+import com.apple.foundationdb.FDBException;
+
+import com.codahale.metrics.Clock;
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.util.Duration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class RoutingDatabaseTest {
+    private static final String NAME = "FoundationDB";
+
+    @Mock
+    private Database primary;
+    @Mock
+    private Database nearReplica;
+    @Mock
+    private Database farReplica;
+
+    private final ManualClock clock = new ManualClock();
+    private RoutingDatabase routingDatabase;
+
+    @BeforeEach
+    public void setUp() {
+        routingDatabase = new RoutingDatabase("primary", primary, List.of(
+                new RoutingDatabase.Replica("near", nearReplica, Duration.seconds(1)),
+                new RoutingDatabase.Replica("far", farReplica, Duration.seconds(1))),
+                Duration.seconds(10), new MetricRegistry(), NAME, clock);
+    }
+
+    @Test
+    public void shouldAlwaysWriteToThePrimary() {
+        routingDatabase.createTransaction();
+        routingDatabase.runAsync(transaction -> CompletableFuture.completedFuture(null));
+
+        verify(primary).createTransaction();
+        verify(primary).runAsync(any(), any());
+        verify(nearReplica, never()).createTransaction();
+        verify(farReplica, never()).createTransaction();
+    }
+
+    @Test
+    public void shouldOnlyRouteReadsToReplicasLaggingLessThanTheirStaleness() {
+        assertThat(routingDatabase.select(Duration.milliseconds(500)).getName())
+                .isEqualTo("primary");
+    }
+
+    @Test
+    public void shouldRouteStaleReadsToTheClusterWithTheLowestLatency() {
+        readTaking(nearReplica, 10);
+        readTaking(farReplica, 100);
+        readTaking(primary, 50);
+
+        assertThat(routingDatabase.select(Duration.seconds(1)).getName())
+                .isEqualTo("near");
+    }
+
+    @Test
+    public void shouldTrySlowClustersAgainOnceTheirLatencyHasDecayed() {
+        readTaking(nearReplica, 100);
+        readTaking(farReplica, 10);
+        readTaking(primary, 10);
+        readTaking(farReplica, 10);
+        readTaking(primary, 10);
+
+        clock.advance(TimeUnit.SECONDS.toNanos(60));
+        readTaking(farReplica, 10);
+        readTaking(primary, 10);
+
+        assertThat(routingDatabase.select(Duration.seconds(1)).getName())
+                .isEqualTo("near");
+    }
+
+    @Test
+    public void shouldChargeReadsInFlightOnClustersNotReadFromYet() {
+        when(nearReplica.readAsync(any(), any())).thenReturn(new CompletableFuture<>());
+        routingDatabase.readRoutedAsync(transaction -> CompletableFuture.completedFuture(null), Duration.seconds(1));
+
+        assertThat(routingDatabase.select(Duration.seconds(1)).getName())
+                .isEqualTo("far");
+    }
+
+    @Test
+    public void shouldEjectReplicasFailingReadsForTheDecayTime() {
+        when(nearReplica.readAsync(any(), any()))
+                .thenReturn(CompletableFuture.failedFuture(new FDBException("timed_out", 1031)));
+        routingDatabase.readRoutedAsync(transaction -> CompletableFuture.completedFuture(null), Duration.seconds(1));
+
+        assertThat(routingDatabase.select(Duration.seconds(1)).getName())
+                .isEqualTo("far");
+
+        clock.advance(TimeUnit.SECONDS.toNanos(10));
+        assertThat(routingDatabase.select(Duration.seconds(1)).getName())
+                .isEqualTo("near");
+    }
+
+    @Test
+    public void shouldNeverEjectThePrimary() {
+        when(primary.readAsync(any(), any()))
+                .thenReturn(CompletableFuture.failedFuture(new FDBException("timed_out", 1031)));
+        routingDatabase.readRoutedAsync(transaction -> CompletableFuture.completedFuture(null), Duration.milliseconds(0));
+
+        assertThat(routingDatabase.select(Duration.milliseconds(500)).getName())
+                .isEqualTo("primary");
+    }
+
+    private void readTaking(final Database database, final long millis) {
+        final CompletableFuture<Object> read = new CompletableFuture<>();
+        when(database.readAsync(any(), any())).thenReturn(read);
+        assertThat(routingDatabase.select(Duration.seconds(1)).getName())
+                .isEqualTo(database == primary ? "primary" : database == nearReplica ? "near" : "far");
+        routingDatabase.readRoutedAsync(transaction -> CompletableFuture.completedFuture(null), Duration.seconds(1));
+        clock.advance(TimeUnit.MILLISECONDS.toNanos(millis));
+        read.complete(null);
+    }
+
+    private static class ManualClock extends Clock {
+        private long tick = 0;
+
+        @Override
+        public long getTick() {
+            return tick;
+        }
+
+        private void advance(final long nanos) {
+            tick += nanos;
+        }
+    }
+}
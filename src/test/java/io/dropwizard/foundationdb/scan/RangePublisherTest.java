@@ -0,0 +1,122 @@
+package io.dropwizard.foundationdb.scan;
+
+import com.apple.foundationdb.Database;
+import com.apple.foundationdb.KeySelector;
+import com.apple.foundationdb.KeyValue;
+import com.apple.foundationdb.Range;
+import com.apple.foundationdb.ReadTransaction;
+import com.apple.foundationdb.StreamingMode;
+import com.apple.foundationdb.Transaction;
+import com.apple.foundationdb.async.AsyncIterable;
+import com.apple.foundationdb.tuple.Tuple;
+
+import io.dropwizard.util.Duration;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class RangePublisherTest {
+    private static final Range RANGE = Range.startsWith(Tuple.from("publish").pack());
+    private static final Executor DIRECT = Runnable::run;
+
+    @Mock
+    private Database database;
+    @Mock
+    private Transaction transaction;
+    @Mock
+    private ReadTransaction snapshot;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldOnlyReadWhatHasBeenRequested() {
+        final AsyncIterable<KeyValue> firstPage = mock(AsyncIterable.class);
+        final AsyncIterable<KeyValue> lastPage = mock(AsyncIterable.class);
+        when(database.createTransaction(DIRECT)).thenReturn(transaction);
+        when(transaction.snapshot()).thenReturn(snapshot);
+        when(snapshot.getRange(any(KeySelector.class), any(KeySelector.class), eq(3), eq(false), eq(StreamingMode.EXACT)))
+                .thenReturn(firstPage);
+        when(snapshot.getRange(any(KeySelector.class), any(KeySelector.class), eq(10), eq(false), eq(StreamingMode.WANT_ALL)))
+                .thenReturn(lastPage);
+        when(firstPage.asList()).thenReturn(CompletableFuture.completedFuture(keyValues(0, 3)));
+        when(lastPage.asList()).thenReturn(CompletableFuture.completedFuture(keyValues(3, 5)));
+
+        final RecordingSubscriber subscriber = new RecordingSubscriber();
+        new RangePublisher(database, RANGE, DIRECT, 10, Duration.seconds(3)).subscribe(subscriber);
+
+        subscriber.subscription.request(3);
+
+        assertThat(subscriber.received)
+                .hasSize(3);
+        assertThat(subscriber.completed)
+                .isFalse();
+
+        subscriber.subscription.request(Long.MAX_VALUE);
+
+        assertThat(subscriber.received)
+                .hasSize(5);
+        assertThat(subscriber.completed)
+                .isTrue();
+        verify(transaction).close();
+    }
+
+    @Test
+    public void shouldSignalAnErrorForNonPositiveRequests() {
+        final RecordingSubscriber subscriber = new RecordingSubscriber();
+        new RangePublisher(database, RANGE, DIRECT, 10, Duration.seconds(3)).subscribe(subscriber);
+
+        subscriber.subscription.request(0);
+
+        assertThat(subscriber.error)
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static List<KeyValue> keyValues(final int from, final int to) {
+        final List<KeyValue> keyValues = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            keyValues.add(new KeyValue(Tuple.from("publish", i).pack(), Tuple.from(i).pack()));
+        }
+        return keyValues;
+    }
+
+    private static class RecordingSubscriber implements Flow.Subscriber<KeyValue> {
+        private final List<KeyValue> received = new ArrayList<>();
+        private Flow.Subscription subscription;
+        private Throwable error;
+        private boolean completed;
+
+        @Override
+        public void onSubscribe(final Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(final KeyValue item) {
+            received.add(item);
+        }
+
+        @Override
+        public void onError(final Throwable throwable) {
+            this.error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            this.completed = true;
+        }
+    }
+}
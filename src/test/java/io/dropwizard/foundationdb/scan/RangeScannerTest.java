@@ -0,0 +1,155 @@
+package io.dropwizard.foundationdb.scan;
+
+import com.apple.foundationdb.Database;
+import com.apple.foundationdb.KeyArrayResult;
+import com.apple.foundationdb.KeySelector;
+import com.apple.foundationdb.KeyValue;
+import com.apple.foundationdb.Range;
+import com.apple.foundationdb.ReadTransaction;
+import com.apple.foundationdb.StreamingMode;
+import com.apple.foundationdb.async.AsyncIterable;
+import com.apple.foundationdb.async.AsyncIterator;
+import com.apple.foundationdb.tuple.ByteArrayUtil;
+import com.apple.foundationdb.tuple.Tuple;
+
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.util.Duration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class RangeScannerTest {
+    private static final String NAME = "FoundationDB";
+    private static final Range RANGE = Range.startsWith(Tuple.from("scan").pack());
+    private static final byte[] SPLIT_POINT = Tuple.from("scan", 50).pack();
+
+    @Mock
+    private Database database;
+    @Mock
+    private ReadTransaction transaction;
+    @Mock
+    private KeyArrayResult splitPoints;
+
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+    private RangeScanner scanner;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        scanner = new RangeScanner(database, Runnable::run, 2, 1, Duration.seconds(3), metricRegistry, NAME);
+
+        when(database.readAsync(any(), any())).thenAnswer(invocation ->
+                invocation.<Function<ReadTransaction, CompletableFuture<?>>>getArgument(0).apply(transaction));
+        when(transaction.getEstimatedRangeSizeBytes(any(), any())).thenReturn(CompletableFuture.completedFuture(1_000L));
+        when(transaction.getRangeSplitPoints(any(byte[].class), any(byte[].class), anyLong()))
+                .thenReturn(CompletableFuture.completedFuture(splitPoints));
+        when(splitPoints.getKeys()).thenReturn(List.of(RANGE.begin, SPLIT_POINT, RANGE.end));
+    }
+
+    @Test
+    public void shouldSplitTheRangeAtTheSplitPoints() {
+        final List<RangeScanner.Shard> shards = scanner.split(RANGE).join();
+
+        assertThat(shards)
+                .hasSize(2);
+        assertThat(shards.get(0).getBegin())
+                .isEqualTo(RANGE.begin);
+        assertThat(shards.get(0).getEnd())
+                .isEqualTo(SPLIT_POINT);
+        assertThat(shards.get(1).getBegin())
+                .isEqualTo(SPLIT_POINT);
+        assertThat(shards.get(1).getEnd())
+                .isEqualTo(RANGE.end);
+    }
+
+    @Test
+    public void shouldScanEveryKeyOfTheRange() {
+        final List<KeyValue> keyValues = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            keyValues.add(new KeyValue(Tuple.from("scan", i).pack(), Tuple.from(i).pack()));
+        }
+        when(transaction.getRange(any(KeySelector.class), any(KeySelector.class), anyInt(), anyBoolean(),
+                any(StreamingMode.class))).thenAnswer(invocation -> {
+                    final byte[] begin = invocation.<KeySelector>getArgument(0).getKey();
+                    final byte[] end = invocation.<KeySelector>getArgument(1).getKey();
+                    return new ListAsyncIterable(keyValues.stream()
+                            .filter(keyValue -> ByteArrayUtil.compareUnsigned(keyValue.getKey(), begin) >= 0
+                                    && ByteArrayUtil.compareUnsigned(keyValue.getKey(), end) < 0)
+                            .collect(Collectors.toList()));
+                });
+
+        final List<KeyValue> scanned = Collections.synchronizedList(new ArrayList<>());
+        scanner.scan(RANGE, scanned::add).join();
+
+        assertThat(scanned)
+                .extracting(keyValue -> Tuple.fromBytes(keyValue.getKey()))
+                .containsExactlyInAnyOrderElementsOf(keyValues.stream()
+                        .map(keyValue -> Tuple.fromBytes(keyValue.getKey()))
+                        .collect(Collectors.toList()));
+        assertThat(metricRegistry.meter(MetricRegistry.name(NAME, "scan", "keysRead")).getCount())
+                .isEqualTo(100L);
+        assertThat(metricRegistry.timer(MetricRegistry.name(NAME, "scan", "shard.timeInNanos")).getCount())
+                .isEqualTo(2L);
+    }
+
+    private static class ListAsyncIterable implements AsyncIterable<KeyValue> {
+        private final List<KeyValue> keyValues;
+
+        private ListAsyncIterable(final List<KeyValue> keyValues) {
+            this.keyValues = keyValues;
+        }
+
+        @Override
+        public AsyncIterator<KeyValue> iterator() {
+            return new AsyncIterator<KeyValue>() {
+                private int position = 0;
+
+                @Override
+                public CompletableFuture<Boolean> onHasNext() {
+                    return CompletableFuture.completedFuture(hasNext());
+                }
+
+                @Override
+                public boolean hasNext() {
+                    return position < keyValues.size();
+                }
+
+                @Override
+                public KeyValue next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return keyValues.get(position++);
+                }
+
+                @Override
+                public void cancel() {
+                    // nothing to cancel
+                }
+            };
+        }
+
+        @Override
+        public CompletableFuture<List<KeyValue>> asList() {
+            return CompletableFuture.completedFuture(keyValues);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package io.dropwizard.foundationdb.status;
+
+import com.apple.foundationdb.Database;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.io.Resources;
+import io.dropwizard.util.Duration;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class ClientStatusReporterTest {
+    private static final String NAME = "FoundationDB";
+
+    @Mock
+    private Database database;
+    @Mock
+    private ScheduledExecutorService scheduler;
+
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+
+    @Test
+    public void shouldPublishTheConnectionsOfTheClient() throws Exception {
+        final byte[] json = Resources.toByteArray(Resources.getResource("json/client-status.json"));
+        when(database.getClientStatus(any())).thenReturn(CompletableFuture.completedFuture(json));
+
+        new ClientStatusReporter(database, scheduler, Duration.seconds(10), metricRegistry, NAME).report().join();
+
+        assertThat(gauge("healthy"))
+                .isEqualTo(true);
+        assertThat(gauge("coordinators.connected"))
+                .isEqualTo(1);
+        assertThat(gauge("grvProxies.connected"))
+                .isEqualTo(1);
+        assertThat(gauge("commitProxies.connected"))
+                .isEqualTo(1);
+        assertThat(gauge("storageServers"))
+                .isEqualTo(2);
+        assertThat(gauge("connections.10_0_0_3_4501.pingTimeouts"))
+                .isEqualTo(2L);
+        assertThat(gauge("connections.10_0_0_5_4501.connected"))
+                .isEqualTo(false);
+    }
+
+    @Test
+    public void shouldRemoveTheGaugesOfClosedConnections() {
+        final String withConnection = "{\"Healthy\": true, \"Connections\": [{\"Address\": \"10.0.0.1:4500\", "
+                + "\"Status\": \"connected\"}]}";
+        final String withoutConnection = "{\"Healthy\": true, \"Connections\": []}";
+        when(database.getClientStatus(any())).thenReturn(
+                CompletableFuture.completedFuture(withConnection.getBytes(StandardCharsets.UTF_8)),
+                CompletableFuture.completedFuture(withoutConnection.getBytes(StandardCharsets.UTF_8)));
+
+        final ClientStatusReporter reporter = new ClientStatusReporter(database, scheduler, Duration.seconds(10),
+                metricRegistry, NAME);
+        reporter.report().join();
+        assertThat(gauge("connections.10_0_0_1_4500.connected"))
+                .isEqualTo(true);
+
+        reporter.report().join();
+        assertThat(metricRegistry.getGauges())
+                .doesNotContainKey(MetricRegistry.name(NAME, "clientStatus", "connections.10_0_0_1_4500.connected"));
+    }
+
+    private Object gauge(final String name) {
+        return metricRegistry.getGauges().get(MetricRegistry.name(NAME, "clientStatus", name)).getValue();
+    }
+}
@@ -0,0 +1,113 @@
+package io.dropwizard.foundationdb.status;
+
+import com.apple.foundationdb.Database;
+import com.apple.foundationdb.ReadTransaction;
+import com.apple.foundationdb.TransactionOptions;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.io.Resources;
+import io.dropwizard.util.Duration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class ClusterStatusCollectorTest {
+    private static final String NAME = "FoundationDB";
+
+    @Mock
+    private Database database;
+    @Mock
+    private ReadTransaction transaction;
+    @Mock
+    private TransactionOptions options;
+    @Mock
+    private ScheduledExecutorService scheduler;
+
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+    private ClusterStatusCollector collector;
+
+    @BeforeEach
+    public void setUp() {
+        collector = new ClusterStatusCollector(database, scheduler, Duration.seconds(10), Duration.seconds(5),
+                metricRegistry, NAME);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldPublishTheClusterSignalsOfTheStatusDocument() throws Exception {
+        final byte[] json = Resources.toByteArray(Resources.getResource("json/status.json"));
+        when(database.readAsync(any(), any())).thenAnswer(invocation ->
+                invocation.<Function<ReadTransaction, CompletableFuture<?>>>getArgument(0).apply(transaction));
+        when(transaction.options()).thenReturn(options);
+        when(transaction.get(ClusterStatusCollector.STATUS_KEY)).thenReturn(CompletableFuture.completedFuture(json));
+
+        collector.collect().join();
+
+        final ClusterStatus status = collector.getStatus();
+        assertThat(status.getWorstStorageQueueBytes())
+                .isEqualTo(2_097_152L);
+        assertThat(status.getWorstLogQueueBytes())
+                .isEqualTo(1_048_576L);
+        assertThat(status.getWorstDurabilityLagSeconds())
+                .isEqualTo(5.25);
+        assertThat(status.getTransactionsPerSecondLimit())
+                .isEqualTo(12_000.5);
+        assertThat(status.getRecoveryState())
+                .isEqualTo("fully_recovered");
+        assertThat(status.isRatekeeperLimiting())
+                .isTrue();
+        assertThat(metricRegistry.getGauges().get(MetricRegistry.name(NAME, "status", "performanceLimitedBy")).getValue())
+                .isEqualTo("storage_server_write_queue_size");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldLeaveTheSignalsMissingFromTheStatusDocumentUnknown() {
+        final byte[] json = "{\"cluster\":{\"recovery_state\":{\"name\":\"recruiting_transaction_servers\"}}}"
+                .getBytes(StandardCharsets.UTF_8);
+        when(database.readAsync(any(), any())).thenAnswer(invocation ->
+                invocation.<Function<ReadTransaction, CompletableFuture<?>>>getArgument(0).apply(transaction));
+        when(transaction.options()).thenReturn(options);
+        when(transaction.get(ClusterStatusCollector.STATUS_KEY)).thenReturn(CompletableFuture.completedFuture(json));
+
+        collector.collect().join();
+
+        final ClusterStatus status = collector.getStatus();
+        assertThat(status.getWorstStorageQueueBytes())
+                .isEqualTo(ClusterStatus.UNKNOWN_BYTES);
+        assertThat(status.getWorstDurabilityLagSeconds())
+                .isNaN();
+        assertThat(status.getTransactionsPerSecondLimit())
+                .isNaN();
+        assertThat(status.getPerformanceLimitedBy())
+                .isNull();
+        assertThat(status.isRatekeeperLimiting())
+                .isFalse();
+        assertThat(status.getRecoveryState())
+                .isEqualTo("recruiting_transaction_servers");
+    }
+
+    @Test
+    public void shouldKeepTheLastStatusWhenTheCollectionFails() {
+        when(database.readAsync(any(), any())).thenReturn(CompletableFuture.failedFuture(new IllegalStateException()));
+
+        collector.collect().join();
+
+        assertThat(collector.getStatus().getRecoveryState())
+                .isNull();
+        assertThat(metricRegistry.meter(MetricRegistry.name(NAME, "status", "failures")).getCount())
+                .isEqualTo(1L);
+    }
+}
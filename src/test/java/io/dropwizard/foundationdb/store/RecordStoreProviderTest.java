@@ -0,0 +1,81 @@
+package io.dropwizard.foundationdb.store;
+
+import com.apple.foundationdb.record.IsolationLevel;
+import com.apple.foundationdb.record.RecordMetaData;
+import com.apple.foundationdb.record.provider.foundationdb.FDBDatabase;
+import com.apple.foundationdb.record.provider.foundationdb.FDBRecordContext;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class RecordStoreProviderTest {
+    @Mock
+    private FDBDatabase database;
+    @Mock
+    private FDBRecordContext context;
+    @Mock
+    private RecordMetaData firstMetaData;
+    @Mock
+    private RecordMetaData secondMetaData;
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    public void shouldShareTheMetaDataWhileTheStampIsUnchanged() {
+        final RecordStoreProvider provider = new RecordStoreProvider(database, this::load);
+        when(context.getMetaDataVersionStampAsync(IsolationLevel.SERIALIZABLE))
+                .thenReturn(CompletableFuture.completedFuture(new byte[]{1}));
+
+        assertThat(provider.getMetaDataAsync(context).join())
+                .isSameAs(firstMetaData);
+        assertThat(provider.getMetaDataAsync(context).join())
+                .isSameAs(firstMetaData);
+
+        assertThat(loads)
+                .hasValue(1);
+        verify(context).increment(RecordStoreProvider.Counts.META_DATA_CACHE_MISS);
+        verify(context).increment(RecordStoreProvider.Counts.META_DATA_CACHE_HIT);
+    }
+
+    @Test
+    public void shouldLoadTheMetaDataAgainOnceTheStampHasChanged() {
+        final RecordStoreProvider provider = new RecordStoreProvider(database, this::load);
+        when(context.getMetaDataVersionStampAsync(IsolationLevel.SERIALIZABLE))
+                .thenReturn(CompletableFuture.completedFuture(new byte[]{1}))
+                .thenReturn(CompletableFuture.completedFuture(new byte[]{2}));
+
+        provider.getMetaDataAsync(context).join();
+
+        assertThat(provider.getMetaDataAsync(context).join())
+                .isSameAs(secondMetaData);
+        assertThat(loads)
+                .hasValue(2);
+    }
+
+    @Test
+    public void shouldNotShareTheMetaDataWhileTheStampHasNeverBeenSet() {
+        final RecordStoreProvider provider = new RecordStoreProvider(database, this::load);
+        when(context.getMetaDataVersionStampAsync(IsolationLevel.SERIALIZABLE))
+                .thenReturn(CompletableFuture.completedFuture(null));
+
+        provider.getMetaDataAsync(context).join();
+        provider.getMetaDataAsync(context).join();
+
+        assertThat(loads)
+                .hasValue(2);
+    }
+
+    private CompletableFuture<RecordMetaData> load(final FDBRecordContext loadingContext) {
+        return CompletableFuture.completedFuture(loads.incrementAndGet() == 1 ? firstMetaData : secondMetaData);
+    }
+}
@@ -0,0 +1,93 @@
+package io.dropwizard.foundationdb.tenant;
+
+import com.apple.foundationdb.Database;
+import com.apple.foundationdb.Tenant;
+import com.apple.foundationdb.tuple.Tuple;
+
+import com.codahale.metrics.MetricRegistry;
+import io.dropwizard.util.Duration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class TenantCacheTest {
+    private static final String NAME = "FoundationDB";
+
+    @Mock
+    private Database database;
+    @Mock
+    private Tenant firstTenant;
+    @Mock
+    private Tenant secondTenant;
+
+    private final MetricRegistry metricRegistry = new MetricRegistry();
+    private TenantCache tenantCache;
+
+    @BeforeEach
+    public void setUp() {
+        tenantCache = new TenantCache(database, 1, Duration.minutes(10), metricRegistry, NAME);
+    }
+
+    @Test
+    public void shouldShareTheHandleOfATenant() {
+        when(database.openTenant(any(byte[].class))).thenReturn(firstTenant);
+
+        try (TenantCache.Handle first = tenantCache.acquire(Tuple.from("first"));
+             TenantCache.Handle second = tenantCache.acquire(Tuple.from("first"))) {
+            assertThat(first.getTenant())
+                    .isSameAs(firstTenant);
+            assertThat(second.getTenant())
+                    .isSameAs(firstTenant);
+        }
+
+        verify(database, times(1)).openTenant(any(byte[].class));
+        assertThat(metricRegistry.meter(MetricRegistry.name(NAME, "tenantCache", "hits")).getCount())
+                .isEqualTo(1L);
+    }
+
+    @Test
+    public void shouldCloseEvictedHandlesOnceReleased() throws Exception {
+        when(database.openTenant(any(byte[].class))).thenReturn(firstTenant, secondTenant);
+
+        final TenantCache.Handle first = tenantCache.acquire(Tuple.from("first"));
+        tenantCache.acquire(Tuple.from("second")).close();
+
+        assertThat(tenantCache.size())
+                .isEqualTo(1L);
+        verify(firstTenant, never()).close();
+
+        first.close();
+        first.close();
+
+        verify(firstTenant, times(1)).close();
+        verify(secondTenant, never()).close();
+
+        tenantCache.stop();
+
+        verify(secondTenant).close();
+    }
+
+    @Test
+    public void shouldReopenTenantsWhoseHandleWasClosed() {
+        when(database.openTenant(any(byte[].class))).thenReturn(firstTenant, secondTenant);
+
+        tenantCache.acquire(Tuple.from("first")).close();
+        tenantCache.invalidate(Tuple.from("first").pack());
+
+        verify(firstTenant).close();
+        try (TenantCache.Handle handle = tenantCache.acquire(Tuple.from("first"))) {
+            assertThat(handle.getTenant())
+                    .isSameAs(secondTenant);
+        }
+    }
+}